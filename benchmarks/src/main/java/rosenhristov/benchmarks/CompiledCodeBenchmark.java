@@ -0,0 +1,87 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.compiler.BytecodeCompiler;
+import main.java.rosenhristov.compiler.CompiledProgram;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a loop compiled from Rik by the {@link BytecodeCompiler} next to the same loop written in Java, which the
+ * JIT should make equally fast, and measures compiling the Rik class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledCodeBenchmark {
+
+    private static final String SOURCE = String.join("\n",
+            "class Loop {",
+            "    static i64 sum(i32 n) {",
+            "        i64 total = 0",
+            "        loop (i32 i = 0; Integer.compare(i, n) == -1; i++) {",
+            "            total += i * 31 % 7",
+            "        }",
+            "        return total",
+            "    }",
+            "}");
+
+    @Param({"10000"})
+    public int n;
+
+    private SyntaxTree tree;
+    private MethodHandle sum;
+
+    @Setup(Level.Trial)
+    public void compileLoop() throws ReflectiveOperationException {
+        tree = Parser.create().parse(Lexer.create().lex(SOURCE));
+        CompiledProgram program = BytecodeCompiler.of(KeywordTable.defaultTable()).compile(List.of(tree));
+        Class<?> loop = program.load().loadClass("Loop");
+        sum = MethodHandles.lookup().findStatic(loop, "sum", MethodType.methodType(long.class, int.class));
+    }
+
+    @Benchmark
+    public long rik() throws Throwable {
+        return (long) sum.invokeExact(n);
+    }
+
+    @Benchmark
+    public long java() {
+        return sum(n);
+    }
+
+    @Benchmark
+    public CompiledProgram compile() {
+        return BytecodeCompiler.of(KeywordTable.defaultTable()).compile(List.of(tree));
+    }
+
+    private static long sum(int n) {
+        long total = 0;
+        for (int i = 0; Integer.compare(i, n) == -1; i++) {
+            total += i * 31 % 7;
+        }
+        return total;
+    }
+}
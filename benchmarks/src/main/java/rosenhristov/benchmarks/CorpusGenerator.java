@@ -0,0 +1,169 @@
+package main.java.rosenhristov.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static main.java.rosenhristov.interpreter.Constants.SOURCE_FILE_EXTENSION;
+
+/**
+ * Generates synthetic Rik projects made of the constructs in {@code Main.rik}: numbers with space, comma
+ * and underscore separators, exponents, hex numbers, char and string escapes, line, block and doc comments,
+ * with comment markers nested inside other comments. The same seed always generates the same corpus.
+ */
+public class CorpusGenerator {
+
+    private static final String SOURCE_DIRECTORY = "src/main/rik";
+    private static final int FILES_PER_DIRECTORY = 16;
+
+    private static final String[] TYPES = {"i8", "i16", "i32", "i64", "f32", "f64", "bool", "char", "String"};
+    // only operators the lexer knows, a corpus full of lexing errors would mostly measure error reporting
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "%", "==", "&&", "||"};
+    private static final String[] CHARS = {"'c'", "'\\u0563'", "'\\\\'", "'\\''", "'\\n'", "'\\t'"};
+    private static final String[] STRINGS = {
+            "\"Hello, how are you?\"",
+            "\"Hello, \\\"World\\\"\\n\"",
+            "\"tab\\tseparated\\tvalues\"",
+            "\"path\\\\to\\\\file.rik\"",
+            "\"/* not a comment */ // neither\""
+    };
+
+    private final SplittableRandom random;
+
+    private CorpusGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static CorpusGenerator of(long seed) {
+        return new CorpusGenerator(seed);
+    }
+
+    /**
+     * Writes {@code fileCount} source files of about {@code fileSize} bytes each under
+     * {@code <projectRoot>/src/main/rik}, {@value #FILES_PER_DIRECTORY} files per package directory.
+     *
+     * @return the written files, in the order they were generated
+     */
+    public List<Path> writeProject(Path projectRoot, int fileCount, int fileSize) {
+        List<Path> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            String packageName = "package" + i / FILES_PER_DIRECTORY;
+            String className = "Sample" + i;
+            Path file = projectRoot.resolve(SOURCE_DIRECTORY).resolve(packageName).resolve(className + SOURCE_FILE_EXTENSION);
+            try {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, generateSource(packageName, className, fileSize), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Problems writing corpus file %s.", file), e);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * @return a source of the given class, at least {@code size} characters long unless {@code size} is
+     * smaller than an empty class
+     */
+    public String generateSource(String packageName, String className, int size) {
+        StringBuilder source = new StringBuilder(size + 512);
+        source.append("package ").append(packageName).append(";\n");
+        source.append("/**\n * Generated sample ").append(className).append(".\n * /* nested block and // nested line comment markers\n */\n");
+        source.append("class ").append(className).append(" {\n");
+        int method = 0;
+        while (source.length() < size) {
+            appendMethod(source, method++, size);
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void appendMethod(StringBuilder source, int method, int size) {
+        source.append("\t/**\n\t * Method ").append(method).append(" of the sample.\n\t */\n");
+        source.append("\tstatic method").append(method).append("(String... args) {\n");
+        int statements = 8 + random.nextInt(24);
+        for (int i = 0; i < statements && source.length() < size; i++) {
+            appendStatement(source, i);
+        }
+        source.append("\t\treturn ").append(identifier()).append('\n');
+        source.append("\t}\n\n");
+    }
+
+    private void appendStatement(StringBuilder source, int statement) {
+        source.append("\t\t");
+        switch (random.nextInt(12)) {
+            case 0:
+                String type = TYPES[random.nextInt(TYPES.length)];
+                // the lexer checks declared literals against their type
+                source.append(type).append(' ').append(identifier())
+                        .append(" = ").append(random.nextInt(type.equals("i8") ? 128 : 1000));
+                break;
+            case 1:
+                source.append(identifier()).append(" = ").append(random.nextInt(1000))
+                        .append(OPERATORS[random.nextInt(5)]).append(random.nextInt(100));
+                break;
+            case 2:
+                source.append("f32 ").append(identifier()).append(" = ").append(random.nextInt(100))
+                        .append("e-").append(1 + random.nextInt(9));
+                break;
+            case 3:
+                source.append(identifier()).append(" = 0x").append(Integer.toHexString(random.nextInt()).toUpperCase());
+                break;
+            case 4:
+                source.append(identifier()).append(" = ").append(random.nextInt(1, 100))
+                        .append(" 000 ").append(String.format("%03d", random.nextInt(1000)));
+                break;
+            case 5:
+                source.append(identifier()).append(" = ").append(random.nextInt(1, 100))
+                        .append(',').append(String.format("%03d", random.nextInt(1000)));
+                break;
+            case 6:
+                source.append(identifier()).append(" = ").append(random.nextInt(1, 100))
+                        .append('_').append(String.format("%03d", random.nextInt(1000)));
+                break;
+            case 7:
+                source.append("String ").append(identifier()).append(" = ").append(STRINGS[random.nextInt(STRINGS.length)]);
+                break;
+            case 8:
+                source.append("char ").append(identifier()).append(" = ").append(CHARS[random.nextInt(CHARS.length)]);
+                break;
+            case 9:
+                source.append("if (").append(identifier()).append(' ')
+                        .append(OPERATORS[5 + random.nextInt(OPERATORS.length - 5)]).append(' ')
+                        .append(identifier()).append(") {\n\t\t\t")
+                        .append(identifier()).append(" = ").append(identifier()).append(" + 1\n\t\t}");
+                break;
+            case 10:
+                source.append("// \"Hello, World\" statement ").append(statement).append(" /* still a line comment */");
+                break;
+            default:
+                source.append("/*\n\t\t * \"Hello, World\" program.\n\t\t * // nested line comment\n\t\t * /* nested block start\n\t\t */");
+        }
+        source.append('\n');
+    }
+
+    private String identifier() {
+        return (char) ('a' + random.nextInt(26)) + "value" + random.nextInt(64);
+    }
+
+    /**
+     * Writes a corpus to disk: {@code <projectRoot> [fileCount] [fileSize] [seed]}.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: CorpusGenerator <projectRoot> [fileCount] [fileSize] [seed]");
+            return;
+        }
+        Path projectRoot = Paths.get(args[0]);
+        int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int fileSize = args.length > 2 ? Integer.parseInt(args[2]) : 64 * 1024;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        List<Path> files = of(seed).writeProject(projectRoot, fileCount, fileSize);
+        System.out.printf("Wrote %d files of about %d bytes to %s%n", files.size(), fileSize, projectRoot);
+    }
+}
@@ -0,0 +1,117 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.Project;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LexerExecutors;
+import main.java.rosenhristov.interpreter.ParsedMap;
+import main.java.rosenhristov.interpreter.Parser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parses a lexed corpus into {@link main.java.rosenhristov.interpreter.SyntaxTree}s: in full, as an outline leaving
+ * method bodies unparsed, or as an outline followed by the pass over the bodies, on one thread or several.
+ * Besides operations per second JMH reports the nodes and tokens per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    private static final String PROJECT_NAME = "corpus";
+
+    @Param({"32"})
+    public int fileCount;
+
+    @Param({"65536"})
+    public int fileSize;
+
+    @Param({"full", "outline", "two-pass"})
+    public String pass;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"42"})
+    public long seed;
+
+    private Path location;
+    private LexedMap lexedMap;
+    private long tokens;
+    private ExecutorService executor;
+
+    /**
+     * Per-thread counters, which JMH divides by the measured time like the benchmark operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public long nodes;
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            tokens = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void lex() throws IOException {
+        location = Files.createTempDirectory("rik-parse");
+        CorpusGenerator.of(seed).writeProject(location.resolve(PROJECT_NAME), fileCount, fileSize);
+        Project project = Project.of(location.toString(), PROJECT_NAME, true);
+        lexedMap = Lexer.of(project.buildSourceCodeMap(project.buildProjectMap(), false)).lexSourceCodeMap();
+        tokens = lexedMap.getTokenCount();
+        executor = threads > 1 ? LexerExecutors.forkJoinPool(threads) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        try (Stream<Path> paths = Files.walk(location)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ParsedMap parse(Throughput throughput) {
+        Parser parser = Parser.create().outline(!pass.equals("full"));
+        ParsedMap parsedMap = executor == null
+                ? parser.parseLexedMap(lexedMap)
+                : parser.parseLexedMap(lexedMap, executor);
+        if (pass.equals("two-pass")) {
+            parsedMap.values().forEach(trees -> trees.forEach(parser::parseBodies));
+        }
+        throughput.nodes += parsedMap.getNodeCount();
+        throughput.tokens += tokens;
+        return parsedMap;
+    }
+}
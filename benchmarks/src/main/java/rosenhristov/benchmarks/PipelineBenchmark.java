@@ -0,0 +1,174 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.Project;
+import main.java.rosenhristov.ProjectDir;
+import main.java.rosenhristov.SourceCode;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LexingResult;
+import main.java.rosenhristov.interpreter.LineTokensMap;
+import main.java.rosenhristov.interpreter.Token;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of each stage of the project pipeline over a generated corpus: loading the sources
+ * ({@link Project#buildSourceCodeMap}), lexing them ({@link Lexer#lex}), walking the tokens line by line
+ * through the {@link LineTokensMap} view of {@link LexingResult#buildLineTokensMap()} and all of them together.
+ * Building the view costs nothing, so that stage iterates every line and token of it.
+ * Every stage counts the tokens and bytes of the corpus it went through, so besides operations per second
+ * JMH reports tokens per second and bytes per second for each of them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String PROJECT_NAME = "corpus";
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        @Param({"16"})
+        public int fileCount;
+
+        @Param({"4096", "65536"})
+        public int fileSize;
+
+        @Param({"42"})
+        public long seed;
+
+        Path location;
+        Project project;
+        Map<File, List<File>> projectMap;
+        Map<ProjectDir, List<SourceCode>> sourceCodeMap;
+        List<CharSequence> sources = new ArrayList<>();
+        List<LexingResult> lexingResults = new ArrayList<>();
+        long tokens;
+        long bytes;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            location = Files.createTempDirectory("rik-corpus");
+            CorpusGenerator.of(seed).writeProject(location.resolve(PROJECT_NAME), fileCount, fileSize);
+            project = Project.of(location.toString(), PROJECT_NAME, true);
+            projectMap = project.buildProjectMap();
+            sourceCodeMap = project.buildSourceCodeMap(projectMap);
+
+            Lexer lexer = Lexer.create();
+            sourceCodeMap.values().forEach(sourceCodes -> sourceCodes.forEach(sourceCode -> {
+                sources.add(sourceCode.getContent());
+                lexingResults.add(lexer.lex(sourceCode.getContent()));
+            }));
+            for (int i = 0; i < sources.size(); i++) {
+                bytes += sources.get(i).length();
+                tokens += lexingResults.get(i).getTokenBuffer().size();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            try (Stream<Path> paths = Files.walk(location)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Per-thread counters, which JMH divides by the measured time like the benchmark operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public long tokens;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+            bytes = 0;
+        }
+
+        void add(Corpus corpus) {
+            tokens += corpus.tokens;
+            bytes += corpus.bytes;
+        }
+    }
+
+    @Benchmark
+    public Map<ProjectDir, List<SourceCode>> readSources(Corpus corpus, Throughput throughput) {
+        throughput.add(corpus);
+        return corpus.project.buildSourceCodeMap(corpus.projectMap, false);
+    }
+
+    @Benchmark
+    public void mapSources(Corpus corpus, Throughput throughput, Blackhole blackhole) {
+        Map<ProjectDir, List<SourceCode>> sourceCodeMap = corpus.project.buildSourceCodeMap(corpus.projectMap, true);
+        // touch every mapped page, the lexer reads all of them anyway
+        sourceCodeMap.values().forEach(sourceCodes -> sourceCodes.forEach(sourceCode -> {
+            CharSequence content = sourceCode.getContent();
+            for (int i = 0; i < content.length(); i += 4096) {
+                blackhole.consume(content.charAt(i));
+            }
+        }));
+        throughput.add(corpus);
+    }
+
+    @Benchmark
+    public void lex(Corpus corpus, Throughput throughput, Blackhole blackhole) {
+        Lexer lexer = Lexer.create();
+        for (CharSequence source : corpus.sources) {
+            blackhole.consume(lexer.lex(source));
+        }
+        throughput.add(corpus);
+    }
+
+    @Benchmark
+    public void iterateLineTokensMap(Corpus corpus, Throughput throughput, Blackhole blackhole) {
+        for (LexingResult lexingResult : corpus.lexingResults) {
+            LineTokensMap lineTokensMap = lexingResult.buildLineTokensMap();
+            for (Map.Entry<Integer, List<Token>> line : lineTokensMap.entrySet()) {
+                blackhole.consume(line.getKey());
+                for (Token token : line.getValue()) {
+                    blackhole.consume(token);
+                }
+            }
+        }
+        throughput.add(corpus);
+    }
+
+    @Benchmark
+    public LexedMap loadAndLexProject(Corpus corpus, Throughput throughput) {
+        Map<File, List<File>> projectMap = corpus.project.buildProjectMap();
+        Map<ProjectDir, List<SourceCode>> sourceCodeMap = corpus.project.buildSourceCodeMap(projectMap, true);
+        throughput.add(corpus);
+        return Lexer.of(sourceCodeMap).lexSourceCodeMap();
+    }
+}
@@ -0,0 +1,93 @@
+package main.java.rosenhristov.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Runs the {@link PipelineBenchmark} stages with the GC profiler ({@code -prof gc}) and prints tokens/sec,
+ * MB/sec and the allocation rate of every stage, then the time to first token of the {@link StartupBenchmark}
+ * runs. Takes the usual JMH command line options, e.g. {@code -p fileSize=1048576 -p fileCount=64} or a benchmark
+ * regexp to run only some stages.
+ */
+public class PipelineBenchmarks {
+
+    private static final String TOKENS = "tokens";
+    private static final String BYTES = "bytes";
+    private static final String ALLOCATION_RATE = "gc.alloc.rate";
+    private static final double MEGABYTE = 1024 * 1024;
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(PipelineBenchmark.class.getSimpleName());
+            options.include(StartupBenchmark.class.getSimpleName());
+        }
+        if (commandLineOptions.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        System.out.println();
+        System.out.println(String.format("%-45s %15s %12s %15s", "Stage", "tokens/sec", "MB/sec", "alloc MB/sec"));
+        for (RunResult result : results) {
+            if (isStartup(result)) {
+                continue;
+            }
+            Map<String, Result> secondary = result.getAggregatedResult().getSecondaryResults();
+            System.out.println(String.format("%-45s %15.0f %12.2f %15.2f",
+                    describe(result),
+                    score(secondary, TOKENS),
+                    score(secondary, BYTES) / MEGABYTE,
+                    score(secondary, ALLOCATION_RATE)));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-45s %15s %12s", "Startup", "first token ms", "error ms"));
+        for (RunResult result : results) {
+            if (isStartup(result)) {
+                Result primary = result.getPrimaryResult();
+                System.out.println(String.format("%-45s %15.1f %12.1f",
+                        String.format("%s %s", describe(result), result.getParams().getParam("startup")),
+                        primary.getScore(),
+                        primary.getScoreError()));
+            }
+        }
+    }
+
+    private static boolean isStartup(RunResult result) {
+        return result.getParams().getBenchmark().startsWith(StartupBenchmark.class.getName());
+    }
+
+    private static String describe(RunResult result) {
+        String benchmark = result.getParams().getBenchmark();
+        return String.format("%s [%s x %s B]",
+                benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                result.getParams().getParam("fileCount"),
+                result.getParams().getParam("fileSize"));
+    }
+
+    /**
+     * Finds a secondary result by the end of its label, as profilers prefix their labels differently
+     * between JMH versions.
+     */
+    private static double score(Map<String, Result> secondary, String label) {
+        for (Map.Entry<String, Result> entry : secondary.entrySet()) {
+            if (entry.getKey().equals(label) || entry.getKey().endsWith("." + label) || entry.getKey().endsWith("·" + label)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+}
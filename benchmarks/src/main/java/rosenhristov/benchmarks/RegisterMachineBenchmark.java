@@ -0,0 +1,194 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.RikConfig;
+import main.java.rosenhristov.compiler.BytecodeCompiler;
+import main.java.rosenhristov.compiler.CompiledProgram;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.RegisterCompiler;
+import main.java.rosenhristov.interpreter.RegisterProgram;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static main.java.rosenhristov.interpreter.Constants.CONFIG_FILENAME;
+
+/**
+ * Runs Main.rik of the sample project and the programs of the tests module on the register machine, by walking their
+ * trees with the {@link TreeWalker} baseline and as the JVM classes the {@link BytecodeCompiler} generates, and
+ * measures compiling them for the register machine and the JVM. Each run only executes the program: compiling,
+ * declaring the classes for the walker and loading the generated classes happen once in the set-up, which checks that
+ * all three print the same. What the programs print while measured is discarded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegisterMachineBenchmark {
+
+    private static final String[] ARGS = new String[0];
+
+    @Param({"Main", "Exceptions", "Loops", "Matches", "Numbers", "Statics"})
+    public String program;
+
+    private KeywordTable keywords;
+    private SyntaxTree tree;
+    private RegisterProgram registerProgram;
+    private TreeWalker treeWalker;
+    private CompiledProgram compiledProgram;
+    private MethodHandle compiledMain;
+    private Map<Field, Object> compiledStatics;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void compilePrograms() throws Throwable {
+        keywords = readKeywords();
+        String source = read("/programs/" + program + ".rik");
+        tree = Parser.create().parse(Lexer.create(keywords).lex(source));
+        registerProgram = RegisterCompiler.of(keywords).compile(List.of(tree));
+        compiledProgram = BytecodeCompiler.of(keywords).compile(List.of(tree));
+        if (registerProgram.getErrorCount() > 0 || compiledProgram.getErrorCount() > 0) {
+            throw new IllegalStateException(String.format("%s.rik does not compile.", program));
+        }
+        treeWalker = TreeWalker.of(keywords, List.of(tree));
+        loadCompiled();
+        out = System.out;
+        String printed = printedBy(this::registerMachine);
+        if (!printed.equals(printedBy(this::treeWalker)) || !printed.equals(printedBy(this::compiled))) {
+            throw new IllegalStateException(String.format("%s.rik prints differently when walked or compiled.",
+                    program));
+        }
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public void registerMachine() {
+        registerProgram.run(ARGS);
+    }
+
+    @Benchmark
+    public void treeWalker() {
+        treeWalker.run(ARGS);
+    }
+
+    /**
+     * Runs the classes loaded in the set-up, with their static fields set back to what initializing them set, as the
+     * other two initialize them on every run.
+     */
+    @Benchmark
+    public void compiled() throws Throwable {
+        for (Map.Entry<Field, Object> entry : compiledStatics.entrySet()) {
+            entry.getKey().set(null, entry.getValue());
+        }
+        compiledMain.invokeExact(ARGS);
+    }
+
+    @Benchmark
+    public RegisterProgram compileRegisters() {
+        return RegisterCompiler.of(keywords).compile(List.of(tree));
+    }
+
+    @Benchmark
+    public CompiledProgram compileBytecode() {
+        return BytecodeCompiler.of(keywords).compile(List.of(tree));
+    }
+
+    /**
+     * Loads and initializes the classes of the program and keeps the values of their static fields that can change.
+     */
+    private void loadCompiled() throws ReflectiveOperationException {
+        ClassLoader loader = compiledProgram.load();
+        Class<?> mainClass = Class.forName(compiledProgram.getMainClass(), true, loader);
+        compiledMain = MethodHandles.publicLookup()
+                .findStatic(mainClass, "main", MethodType.methodType(void.class, String[].class));
+        compiledStatics = new HashMap<>();
+        for (String name : compiledProgram.getClassFiles().keySet()) {
+            for (Field field : Class.forName(name, true, loader).getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                    field.setAccessible(true);
+                    compiledStatics.put(field, field.get(null));
+                }
+            }
+        }
+    }
+
+    private static String printedBy(Benchmarked run) throws Throwable {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            run.run();
+        } finally {
+            System.setOut(out);
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Benchmarked {
+
+        void run() throws Throwable;
+    }
+
+    /**
+     * The keywords of the sample project, whose configuration the interpreter reads from a file.
+     */
+    private static KeywordTable readKeywords() throws IOException {
+        Path config = Files.createTempFile("rik-config", ".yml");
+        try {
+            Files.writeString(config, read("/" + CONFIG_FILENAME));
+            RikConfig rikConfig = RikConfig.of(config.toString());
+            rikConfig.configure();
+            return rikConfig.getKeywordTable();
+        } finally {
+            Files.delete(config);
+        }
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream input = RegisterMachineBenchmark.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException(String.format("%s is not on the class path.", resource));
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
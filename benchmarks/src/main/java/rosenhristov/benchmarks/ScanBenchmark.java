@@ -0,0 +1,123 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.SourceCode;
+import main.java.rosenhristov.interpreter.CharSearch;
+import main.java.rosenhristov.interpreter.Lexer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing throughput of comment heavy, string literal heavy and ordinary generated sources, read into the heap or
+ * memory mapped, with the {@link CharSearch} fitting the source and with the scalar one, to show what searching
+ * several chars at a time gains on long comments and literals.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    private static final String WORDS = "the lexer skips over this text as fast as it can find its end ";
+
+    @Param({"comments", "strings", "code"})
+    public String input;
+
+    @Param({"heap", "mapped"})
+    public String source;
+
+    @Param({"accelerated", CharSearch.SCALAR_BACKEND})
+    public String search;
+
+    @Param({"1048576"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private Path file;
+    private CharSequence content;
+
+    /**
+     * Bytes lexed, which JMH divides by the measured time like the benchmark operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        String text = generate(input, size, new Random(seed));
+        file = Files.createTempFile("rik-scan", ".rik");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        content = source.equals("mapped") ? SourceCode.map(file.toFile()).getContent() : text;
+        if (search.equals(CharSearch.SCALAR_BACKEND)) {
+            System.setProperty(CharSearch.BACKEND_PROPERTY, CharSearch.SCALAR_BACKEND);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        System.clearProperty(CharSearch.BACKEND_PROPERTY);
+        content = null;
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object lex(Throughput throughput) {
+        throughput.bytes += content.length();
+        return Lexer.create().lex(content);
+    }
+
+    private static String generate(String input, int size, Random random) {
+        if (input.equals("code")) {
+            return CorpusGenerator.of(random.nextLong()).generateSource("scan", "Scan", size);
+        }
+        StringBuilder text = new StringBuilder(size + 256);
+        int sample = 0;
+        while (text.length() < size) {
+            if (input.equals("comments")) {
+                text.append("    /**\n");
+                for (int line = random.nextInt(12) + 4; line > 0; line--) {
+                    text.append("     * ").append(WORDS, 0, random.nextInt(WORDS.length())).append('\n');
+                }
+                text.append("     */\n    // ").append(WORDS).append('\n');
+            } else {
+                text.append("    string s").append(sample++).append(" = \"");
+                for (int part = random.nextInt(4) + 1; part > 0; part--) {
+                    text.append(WORDS, 0, random.nextInt(WORDS.length())).append("\\\"").append(WORDS);
+                }
+                text.append("\"\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.Rik;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static main.java.rosenhristov.interpreter.Constants.CACHE_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.CONFIG_FILENAME;
+
+/**
+ * Time to first token of the command line: the time from launching {@link Rik} in a new JVM over a generated
+ * project until it prints its first token. Runs {@code cold}, without the config snapshot and token cache of an
+ * earlier run, {@code cached}, with them, and {@code archived}, with them and an AppCDS archive of the classes
+ * recorded by an earlier run, like {@code bin/rik} does. The archive needs the benchmarks to run from their jar.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    // where Rik looks for its project, relative to the directory it runs in
+    private static final String PROJECT_DIRECTORY = "src/main/resources/proj";
+    private static final String TOKEN_PREFIX = "[";
+
+    @Param({"cold", "cached", "archived"})
+    public String startup;
+
+    @Param({"16"})
+    public int fileCount;
+
+    @Param({"4096"})
+    public int fileSize;
+
+    @Param({"42"})
+    public long seed;
+
+    private Path location;
+    private Path cacheDirectory;
+    private List<String> command;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException, InterruptedException {
+        location = Files.createTempDirectory("rik-startup");
+        Path project = location.resolve(PROJECT_DIRECTORY);
+        CorpusGenerator.of(seed).writeProject(project, fileCount, fileSize);
+        try (InputStream config = StartupBenchmark.class.getResourceAsStream("/" + CONFIG_FILENAME)) {
+            if (config == null) {
+                throw new IllegalStateException(String.format("%s is not on the class path.", CONFIG_FILENAME));
+            }
+            Files.copy(config, project.resolve("src").resolve(CONFIG_FILENAME));
+        }
+        cacheDirectory = project.resolve(CACHE_DIRECTORY);
+
+        if (startup.equals("archived")) {
+            Path archive = location.resolve("rik.jsa");
+            runToEnd(rikCommand("-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=off", "-Xlog:cds+dynamic=off"));
+            command = rikCommand("-XX:SharedArchiveFile=" + archive, "-Xshare:auto");
+        } else {
+            command = rikCommand();
+        }
+        if (!startup.equals("cold")) {
+            runToEnd(command);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() throws IOException {
+        if (startup.equals("cold")) {
+            delete(cacheDirectory);
+        }
+    }
+
+    @Benchmark
+    public String firstToken() throws IOException {
+        process = start(command);
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.startsWith(TOKEN_PREFIX)) {
+                return line;
+            }
+        }
+        throw new IllegalStateException("Rik printed no tokens.");
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        process.destroyForcibly().waitFor();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        delete(location);
+    }
+
+    private List<String> rikCommand(String... options) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(options));
+        command.addAll(List.of("-cp", classPath(), Rik.class.getName()));
+        return command;
+    }
+
+    // the runs start in the generated project's directory
+    private String classPath() {
+        return Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private Process start(List<String> command) throws IOException {
+        return new ProcessBuilder(command)
+                .directory(location.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    private void runToEnd(List<String> command) throws IOException, InterruptedException {
+        Process run = start(command);
+        run.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (run.waitFor() != 0) {
+            throw new IllegalStateException(String.format("%s failed.", String.join(" ", command)));
+        }
+    }
+
+    private void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.Project;
+import main.java.rosenhristov.ProjectDir;
+import main.java.rosenhristov.SourceCode;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.TokenArenas;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lexes generated projects of growing size keeping the tokens on the heap or in {@link TokenArenas} and reports,
+ * besides the time, the heap still used by the lexed project after a full GC. Off-heap, that heap stays flat as
+ * the project grows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class TokenArenaBenchmark {
+
+    private static final String PROJECT_NAME = "corpus";
+    private static final double MEGABYTE = 1024 * 1024;
+
+    @Param({"32", "128", "512"})
+    public int fileCount;
+
+    @Param({"65536"})
+    public int fileSize;
+
+    @Param({"heap", "directory", "file", "spill"})
+    public String tokens;
+
+    @Param({"42"})
+    public long seed;
+
+    private Path location;
+    private Project project;
+    private Map<File, List<File>> projectMap;
+    private TokenArenas tokenArenas;
+    private LexedMap lexedMap;
+
+    /**
+     * The heap in use after lexing, JMH averages it over the iterations like the time.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+
+        public double retainedMegabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedMegabytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        location = Files.createTempDirectory("rik-arena");
+        CorpusGenerator.of(seed).writeProject(location.resolve(PROJECT_NAME), fileCount, fileSize);
+        project = Project.of(location.toString(), PROJECT_NAME, true);
+        projectMap = project.buildProjectMap();
+    }
+
+    @Setup(Level.Iteration)
+    public void createArenas() {
+        switch (tokens) {
+            case "heap":
+                tokenArenas = null;
+                break;
+            case "spill":
+                tokenArenas = TokenArenas.of(TokenArenas.Scope.DIRECTORY, location.toFile());
+                break;
+            default:
+                tokenArenas = TokenArenas.of(TokenArenas.Scope.of(tokens));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void releaseArenas() {
+        lexedMap = null;
+        if (tokenArenas != null) {
+            tokenArenas.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(location)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public LexedMap lexProject(RetainedHeap retainedHeap) {
+        Map<ProjectDir, List<SourceCode>> sourceCodeMap = project.buildSourceCodeMap(projectMap, true);
+        Lexer lexer = Lexer.of(sourceCodeMap);
+        if (tokenArenas != null) {
+            lexer.storeTokensOffHeap(tokenArenas);
+        }
+        lexedMap = lexer.lexSourceCodeMap();
+        retainedHeap.retainedMegabytes = retainedHeap();
+        return lexedMap;
+    }
+
+    private static double retainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed() / MEGABYTE;
+    }
+}
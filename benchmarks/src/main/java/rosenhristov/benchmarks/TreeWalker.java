@@ -0,0 +1,1161 @@
+package main.java.rosenhristov.benchmarks;
+
+import main.java.rosenhristov.interpreter.BodyCompiler;
+import main.java.rosenhristov.interpreter.ClassSymbol;
+import main.java.rosenhristov.interpreter.CompilationUnit;
+import main.java.rosenhristov.interpreter.FieldSymbol;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.MethodSymbol;
+import main.java.rosenhristov.interpreter.NodeKind;
+import main.java.rosenhristov.interpreter.NumberLiteral;
+import main.java.rosenhristov.interpreter.NumberType;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.ProgramSymbols;
+import main.java.rosenhristov.interpreter.RikType;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import main.java.rosenhristov.interpreter.TokenColumns;
+import main.java.rosenhristov.interpreter.TokenType;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a Rik program by walking its syntax trees, the baseline {@link RegisterMachineBenchmark} measures the
+ * register machine against. Values are boxed and locals are found by name in a chain of scopes, as a straightforward
+ * interpreter keeps them; what a call, name or type names is resolved the first time its node runs and kept for the
+ * next times.
+ * <p>
+ * Classes and their members are declared by the same {@link ProgramSymbols} as for the compilers, but the bodies are
+ * not checked: overloads are chosen by the runtime types of the arguments, so the walker runs the programs the
+ * compilers accept. Like the register machine, it has no Rik instances, and every run initializes the static fields
+ * anew.
+ */
+final class TreeWalker {
+
+    /**
+     * How a statement completed: normally, by {@code skip}, {@code jump} or {@code return}.
+     */
+    private static final int NORMAL = 0;
+    private static final int SKIP = 1;
+    private static final int JUMP = 2;
+    private static final int RETURN = 3;
+
+    private static final Object NULL_VALUE = new Object();
+    private static final Object NOT_A_CLASS = new Object();
+
+    private final ProgramSymbols symbols;
+    private final List<ClassSymbol> classes;
+    private final Map<CompilationUnit, Body> bodies = new IdentityHashMap<>();
+    private final MethodSymbol main;
+    private Map<FieldSymbol, Object> statics;
+
+    /**
+     * The tree of a file, with the names of its nodes and what they resolved to, filled in as they run.
+     */
+    private static final class Body {
+
+        private final CompilationUnit unit;
+        private final SyntaxTree tree;
+        private final TokenColumns tokens;
+        private final String[] names;
+        private final Object[] resolved;
+        private final Object[] classNames;
+
+        private Body(CompilationUnit unit) {
+            this.unit = unit;
+            this.tree = unit.getTree();
+            this.tokens = tree.getTokens();
+            this.names = new String[tree.size()];
+            this.resolved = new Object[tree.size()];
+            this.classNames = new Object[tree.size()];
+        }
+
+        private String name(int node) {
+            String name = names[node];
+            if (name == null) {
+                name = tree.getText(node).toString();
+                names[node] = name;
+            }
+            return name;
+        }
+    }
+
+    private static final class Variable {
+
+        private final String name;
+        private final RikType type;
+        private Object value;
+
+        private Variable(String name, RikType type, Object value) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The locals of a method being run, innermost last, and where each of its scopes starts.
+     */
+    private static final class Frame {
+
+        private final Body body;
+        private final ClassSymbol owner;
+        private final RikType returnType;
+        private final List<Variable> variables = new ArrayList<>();
+        private int[] scopeStarts = new int[8];
+        private int depth;
+        private Object returned;
+        /**
+         * The value a place had before the last assignment to it, for postfix increments.
+         */
+        private Object previous;
+
+        private Frame(Body body, ClassSymbol owner, RikType returnType) {
+            this.body = body;
+            this.owner = owner;
+            this.returnType = returnType;
+        }
+
+        private void pushScope() {
+            if (depth == scopeStarts.length) {
+                scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+            }
+            scopeStarts[depth++] = variables.size();
+        }
+
+        private void popScope() {
+            unwind(depth - 1);
+        }
+
+        /**
+         * Leaves the scopes entered since there were {@code depth} of them, as an exception does.
+         */
+        private void unwind(int depth) {
+            if (depth < this.depth) {
+                variables.subList(scopeStarts[depth], variables.size()).clear();
+                this.depth = depth;
+            }
+        }
+
+        private Variable declare(String name, RikType type, Object value) {
+            Variable variable = new Variable(name, type, value);
+            variables.add(variable);
+            return variable;
+        }
+
+        private Variable find(String name) {
+            for (int index = variables.size() - 1; index >= 0; index--) {
+                Variable variable = variables.get(index);
+                if (variable.name.equals(name)) {
+                    return variable;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The methods a call may be to and the one chosen for the classes of its receiver and arguments last time.
+     */
+    private static final class CallSite {
+
+        private List<MethodSymbol> methods;
+        private Class<?> receiverClass;
+        private Class<?>[] argumentClasses;
+        private MethodSymbol method;
+
+        private MethodSymbol select(ProgramSymbols symbols, Object[] arguments) {
+            if (method != null && hasArgumentClasses(arguments)) {
+                return method;
+            }
+            argumentClasses = new Class<?>[arguments.length];
+            List<RikType> argumentTypes = new ArrayList<>(arguments.length);
+            for (int index = 0; index < arguments.length; index++) {
+                argumentClasses[index] = arguments[index] == null ? null : arguments[index].getClass();
+                argumentTypes.add(typeOf(arguments[index]));
+            }
+            method = symbols.selectMethod(methods, argumentTypes);
+            if (method == null) {
+                throw new IllegalStateException(String.format("No method for the arguments %s.", argumentTypes));
+            }
+            return method;
+        }
+
+        private boolean hasArgumentClasses(Object[] arguments) {
+            for (int index = 0; index < arguments.length; index++) {
+                if ((arguments[index] == null ? null : arguments[index].getClass()) != argumentClasses[index]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private TreeWalker(ProgramSymbols symbols, List<ClassSymbol> classes, MethodSymbol main) {
+        this.symbols = symbols;
+        this.classes = classes;
+        this.main = main;
+        for (ClassSymbol classSymbol : classes) {
+            bodies.computeIfAbsent(classSymbol.getUnit(), Body::new);
+        }
+    }
+
+    /**
+     * Declares the classes of the files as one program, as the compilers do.
+     */
+    static TreeWalker of(KeywordTable keywords, List<SyntaxTree> trees) {
+        ProgramSymbols symbols = new ProgramSymbols();
+        List<CompilationUnit> units = new ArrayList<>(trees.size());
+        for (SyntaxTree tree : trees) {
+            if (tree.hasUnparsedBlocks()) {
+                Parser.create().parseBodies(tree);
+            }
+            units.add(new CompilationUnit(tree, keywords, symbols));
+        }
+        List<ClassSymbol> classes = symbols.declare(units);
+        for (CompilationUnit unit : units) {
+            if (unit.getErrors().exist()) {
+                throw new IllegalArgumentException(String.format("%s does not compile.", unit.getTree().getFile()));
+            }
+        }
+        MethodSymbol main = null;
+        for (ClassSymbol classSymbol : classes) {
+            for (MethodSymbol method : classSymbol.getMethods()) {
+                if (main == null && ProgramSymbols.isMain(method)) {
+                    main = method;
+                }
+            }
+        }
+        if (main == null) {
+            throw new IllegalArgumentException("There is no main method to run.");
+        }
+        return new TreeWalker(symbols, classes, main);
+    }
+
+    /**
+     * Initializes the static fields of every class and runs the main method.
+     */
+    void run(String[] args) {
+        try {
+            statics = new HashMap<>();
+            for (ClassSymbol classSymbol : classes) {
+                initialize(classSymbol);
+            }
+            call(main, new Object[]{args});
+        } catch (Throwable e) {
+            throw new RuntimeException(String.format("Rik program %s failed.", main.getOwner()), e);
+        }
+    }
+
+    private void initialize(ClassSymbol classSymbol) throws Throwable {
+        Frame frame = new Frame(bodies.get(classSymbol.getUnit()), classSymbol, RikType.VOID);
+        for (FieldSymbol field : classSymbol.getFields()) {
+            if (field.isStatic()) {
+                int initializer = frame.body.unit.getInitializer(field.getNode());
+                statics.put(field, initializer < 0
+                        ? defaultValue(field.getType())
+                        : convert(evaluate(frame, initializer), field.getType()));
+            }
+        }
+    }
+
+    /**
+     * Calls a Rik method with arguments of its parameter types.
+     */
+    private Object call(MethodSymbol method, Object[] arguments) throws Throwable {
+        ClassSymbol owner = symbols.get(method.getOwner());
+        Body body = bodies.get(owner.getUnit());
+        Frame frame = new Frame(body, owner, method.getReturnType());
+        SyntaxTree tree = body.tree;
+        int parameters = tree.findChild(method.getNode(), NodeKind.PARAMETERS);
+        for (int index = 0; parameters >= 0 && index < tree.getChildCount(parameters); index++) {
+            frame.declare(body.name(tree.getChild(parameters, index)), method.getParameterTypes().get(index),
+                    arguments[index]);
+        }
+        execute(frame, tree.findChild(method.getNode(), NodeKind.BLOCK));
+        return frame.returned;
+    }
+
+
+    private int execute(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        switch (tree.getKind(node)) {
+            case BLOCK:
+                return block(frame, node);
+            case LOCAL:
+                declareLocal(frame, node);
+                return NORMAL;
+            case IF:
+                if (isTrue(evaluate(frame, tree.getChild(node, 0)))) {
+                    return scoped(frame, tree.getChild(node, 1));
+                }
+                return tree.getChildCount(node) > 2 ? scoped(frame, tree.getChild(node, 2)) : NORMAL;
+            case WHILE:
+                return whileLoop(frame, tree.getChild(node, 0), tree.getChild(node, 1));
+            case DO:
+                return doLoop(frame, node);
+            case LOOP:
+                switch (tree.getChildCount(node)) {
+                    case 4:
+                        return forLoop(frame, node);
+                    case 3:
+                        return eachLoop(frame, node);
+                    default:
+                        return whileLoop(frame, tree.getChild(node, 0), tree.getChild(node, 1));
+                }
+            case MATCH:
+                return match(frame, node);
+            case RETURN:
+                frame.returned = tree.getChildCount(node) > 0
+                        ? convert(evaluate(frame, tree.getChild(node, 0)), frame.returnType)
+                        : null;
+                return RETURN;
+            case SKIP:
+                return SKIP;
+            case JUMP:
+                return JUMP;
+            case THROW:
+                throw (Throwable) evaluate(frame, tree.getChild(node, 0));
+            case TRY:
+                return tryStatement(frame, node);
+            case EMPTY:
+                return NORMAL;
+            default:
+                evaluate(frame, node);
+                return NORMAL;
+        }
+    }
+
+    private int block(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        if (tree.getKind(node) != NodeKind.BLOCK) {
+            return execute(frame, node);
+        }
+        frame.pushScope();
+        int completion = NORMAL;
+        for (int index = 0; index < tree.getChildCount(node) && completion == NORMAL; index++) {
+            completion = execute(frame, tree.getChild(node, index));
+        }
+        frame.popScope();
+        return completion;
+    }
+
+    private int scoped(Frame frame, int node) throws Throwable {
+        frame.pushScope();
+        int completion = execute(frame, node);
+        frame.popScope();
+        return completion;
+    }
+
+    private void declareLocal(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        RikType type = declaredType(body, node);
+        int initializer = body.unit.getInitializer(node);
+        Object value = initializer < 0 ? defaultValue(type) : convert(evaluate(frame, initializer), type);
+        frame.declare(body.name(node), type, value);
+    }
+
+    private int whileLoop(Frame frame, int condition, int statement) throws Throwable {
+        while (isTrue(evaluate(frame, condition))) {
+            int completion = scoped(frame, statement);
+            if (completion == SKIP) {
+                break;
+            }
+            if (completion == RETURN) {
+                return RETURN;
+            }
+        }
+        return NORMAL;
+    }
+
+    private int doLoop(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        do {
+            int completion = scoped(frame, tree.getChild(node, 0));
+            if (completion == SKIP) {
+                break;
+            }
+            if (completion == RETURN) {
+                return RETURN;
+            }
+        } while (isTrue(evaluate(frame, tree.getChild(node, 1))));
+        return NORMAL;
+    }
+
+    private int forLoop(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        int initializer = tree.getChild(node, 0);
+        int condition = tree.getChild(node, 1);
+        int update = tree.getChild(node, 2);
+        frame.pushScope();
+        if (tree.getKind(initializer) == NodeKind.LOCAL) {
+            declareLocal(frame, initializer);
+        } else if (tree.getKind(initializer) != NodeKind.EMPTY) {
+            evaluate(frame, initializer);
+        }
+        int completion = NORMAL;
+        while (tree.getKind(condition) == NodeKind.EMPTY || isTrue(evaluate(frame, condition))) {
+            int bodyCompletion = scoped(frame, tree.getChild(node, 3));
+            if (bodyCompletion == SKIP) {
+                break;
+            }
+            if (bodyCompletion == RETURN) {
+                completion = RETURN;
+                break;
+            }
+            if (tree.getKind(update) != NodeKind.EMPTY) {
+                evaluate(frame, update);
+            }
+        }
+        frame.popScope();
+        return completion;
+    }
+
+    /**
+     * A loop over the elements of an array or an {@link Iterable}.
+     */
+    private int eachLoop(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        int variable = body.tree.getChild(node, 0);
+        int statement = body.tree.getChild(node, 2);
+        frame.pushScope();
+        Object values = evaluate(frame, body.tree.getChild(node, 1));
+        boolean isArray = values.getClass().isArray();
+        RikType type = body.tree.getKind(variable) == NodeKind.LOCAL
+                ? declaredType(body, variable)
+                : isArray ? elementType(values) : RikType.OBJECT;
+        Variable element = frame.declare(body.name(variable), type, null);
+        int completion = NORMAL;
+        if (isArray) {
+            int length = Array.getLength(values);
+            for (int index = 0; index < length && completion == NORMAL; index++) {
+                element.value = convert(Array.get(values, index), type);
+                completion = loopCompletion(scoped(frame, statement));
+            }
+        } else {
+            Iterator<?> iterator = ((Iterable<?>) values).iterator();
+            while (iterator.hasNext() && completion == NORMAL) {
+                element.value = iterator.next();
+                completion = loopCompletion(scoped(frame, statement));
+            }
+        }
+        frame.popScope();
+        return completion == SKIP ? NORMAL : completion;
+    }
+
+    /**
+     * The completion of a loop body as the loop sees it: a {@code jump} goes on with the next element.
+     */
+    private static int loopCompletion(int completion) {
+        return completion == JUMP ? NORMAL : completion;
+    }
+
+    /**
+     * Runs the case with the first label equal to the selector, or else the default one. A {@code skip} leaves the
+     * match, a {@code jump} the loop around it.
+     */
+    private int match(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        Object selected = evaluate(frame, tree.getChild(node, 0));
+        int chosen = -1;
+        int defaultCase = -1;
+        for (int i = 1; i < tree.getChildCount(node) && chosen < 0; i++) {
+            int matchCase = tree.getChild(node, i);
+            if (tree.getKind(matchCase) == NodeKind.DEFAULT) {
+                defaultCase = matchCase;
+                continue;
+            }
+            for (int index = 0; index < tree.getChildCount(matchCase) - 1; index++) {
+                Object label = evaluate(frame, tree.getChild(matchCase, index));
+                if (selected instanceof String ? selected.equals(label) : isEqual(selected, label)) {
+                    chosen = matchCase;
+                    break;
+                }
+            }
+        }
+        if (chosen < 0) {
+            chosen = defaultCase;
+        }
+        if (chosen < 0) {
+            return NORMAL;
+        }
+        int completion = block(frame, tree.getChild(chosen, tree.getChildCount(chosen) - 1));
+        return completion == SKIP ? NORMAL : completion;
+    }
+
+    /**
+     * A try with its catches and finally. An abrupt finally block replaces how the try completed.
+     */
+    private int tryStatement(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        int finallyNode = tree.findChild(node, NodeKind.FINALLY);
+        int finallyBlock = finallyNode < 0 ? -1 : tree.getChild(finallyNode, 0);
+        int depth = frame.depth;
+        int completion;
+        try {
+            try {
+                completion = block(frame, tree.getChild(node, 0));
+            } catch (Throwable e) {
+                frame.unwind(depth);
+                int catchNode = findCatch(frame, node, e);
+                if (catchNode < 0) {
+                    throw e;
+                }
+                int parameter = tree.getChild(catchNode, 0);
+                frame.pushScope();
+                frame.declare(frame.body.name(parameter), declaredType(frame.body, parameter), e);
+                completion = block(frame, tree.getChild(catchNode, 1));
+                frame.popScope();
+            }
+        } catch (Throwable e) {
+            if (finallyBlock < 0) {
+                throw e;
+            }
+            frame.unwind(depth);
+            int finallyCompletion = block(frame, finallyBlock);
+            if (finallyCompletion != NORMAL) {
+                return finallyCompletion;
+            }
+            throw e;
+        }
+        if (finallyBlock >= 0) {
+            Object returned = frame.returned;
+            int finallyCompletion = block(frame, finallyBlock);
+            if (finallyCompletion != NORMAL) {
+                return finallyCompletion;
+            }
+            frame.returned = returned;
+        }
+        return completion;
+    }
+
+    private int findCatch(Frame frame, int node, Throwable thrown) {
+        SyntaxTree tree = frame.body.tree;
+        for (int index = 1; index < tree.getChildCount(node); index++) {
+            int catchNode = tree.getChild(node, index);
+            if (tree.getKind(catchNode) == NodeKind.CATCH) {
+                Class<?> type = declaredType(frame.body, tree.getChild(catchNode, 0)).getJavaClass();
+                if (type != null && type.isInstance(thrown)) {
+                    return catchNode;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    private Object evaluate(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        switch (tree.getKind(node)) {
+            case LITERAL:
+                return literal(frame.body, node);
+            case NAME:
+                return name(frame, node);
+            case MEMBER:
+                return member(frame, node);
+            case CALL:
+                return call(frame, node);
+            case INDEX: {
+                Object array = evaluate(frame, tree.getChild(node, 0));
+                return Array.get(array, intValue(evaluate(frame, tree.getChild(node, 1))));
+            }
+            case ASSIGN:
+                return assign(frame, tree.getChild(node, 0), frame.body.name(node), tree.getChild(node, 1), 0);
+            case BINARY:
+                return binary(frame, node);
+            case UNARY:
+                return unary(frame, node);
+            case POSTFIX:
+                assign(frame, tree.getChild(node, 0), null, -1, frame.body.name(node).equals("++") ? 1 : -1);
+                return frame.previous;
+            default:
+                throw new IllegalStateException(String.format("Cannot evaluate a %s.", tree.getKind(node)));
+        }
+    }
+
+    /**
+     * An integer literal is an {@code i32}, or an {@code i64} if it does not fit, a float literal an {@code f64}.
+     */
+    private static Object literal(Body body, int node) {
+        Object value = body.resolved[node];
+        if (value == null) {
+            int token = body.tree.getToken(node);
+            switch (body.tokens.getType(token)) {
+                case NUMBER:
+                    value = number(body.tokens, token, false);
+                    break;
+                case STRING_LITERAL:
+                    value = BodyCompiler.unescape(body.tree.getText(node));
+                    break;
+                case CHAR_LITERAL:
+                    value = BodyCompiler.unescape(body.tree.getText(node)).charAt(0);
+                    break;
+                default:
+                    value = NULL_VALUE;
+                    break;
+            }
+            body.resolved[node] = value;
+        }
+        return value == NULL_VALUE ? null : value;
+    }
+
+    private static Object number(TokenColumns tokens, int token, boolean isNegated) {
+        if (tokens.getNumberKind(token) == NumberLiteral.Kind.FLOAT) {
+            double value = tokens.getDoubleValue(token);
+            return isNegated ? -value : value;
+        }
+        BigInteger value = isNegated ? tokens.getIntegerValue(token).negate() : tokens.getIntegerValue(token);
+        if (tokens.fitsIn(token, NumberType.I32, isNegated)) {
+            return value.intValue();
+        }
+        return value.longValue();
+    }
+
+    /**
+     * A local, else a field of the class of the method, else {@code true}, {@code false}, {@code yes} or {@code no}.
+     */
+    private Object name(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        Variable variable = frame.find(body.name(node));
+        if (variable != null) {
+            return variable.value;
+        }
+        Object resolved = body.resolved[node];
+        if (resolved == null) {
+            String name = body.name(node);
+            FieldSymbol field = symbols.findField(frame.owner.getType(), name);
+            if (field != null) {
+                resolved = field;
+            } else if (name.equals("true") || name.equals("yes")) {
+                resolved = Boolean.TRUE;
+            } else if (name.equals("false") || name.equals("no")) {
+                resolved = Boolean.FALSE;
+            } else {
+                throw new IllegalStateException(String.format("Unknown name %s.", name));
+            }
+            body.resolved[node] = resolved;
+        }
+        return resolved instanceof FieldSymbol ? getField((FieldSymbol) resolved, null) : resolved;
+    }
+
+    private Object member(Frame frame, int node) throws Throwable {
+        SyntaxTree tree = frame.body.tree;
+        int target = tree.getChild(node, 0);
+        RikType targetClass = className(frame, target);
+        if (targetClass != null) {
+            return getField(staticField(frame.body, node, targetClass), null);
+        }
+        Object receiver = evaluate(frame, target);
+        if (receiver.getClass().isArray() && frame.body.name(tree.getChild(node, 1)).equals("length")) {
+            return Array.getLength(receiver);
+        }
+        return getField(field(frame.body, node, receiver), receiver);
+    }
+
+    /**
+     * Calls a method of the class of the method by its name, a static method of a named class, or a method of an
+     * object.
+     */
+    private Object call(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        SyntaxTree tree = body.tree;
+        int callee = tree.getChild(node, 0);
+        CallSite site = (CallSite) body.resolved[node];
+        if (site == null) {
+            site = new CallSite();
+            body.resolved[node] = site;
+        }
+        Object receiver = null;
+        if (tree.getKind(callee) == NodeKind.NAME) {
+            if (site.methods == null) {
+                site.methods = symbols.findMethods(frame.owner.getType(), body.name(callee));
+            }
+        } else {
+            int target = tree.getChild(callee, 0);
+            String name = body.name(tree.getChild(callee, 1));
+            RikType targetClass = className(frame, target);
+            if (targetClass != null) {
+                if (site.methods == null) {
+                    site.methods = symbols.findMethods(targetClass, name);
+                    site.methods.removeIf(method -> !method.isStatic());
+                }
+            } else {
+                receiver = evaluate(frame, target);
+                if (receiver.getClass() != site.receiverClass) {
+                    site.receiverClass = receiver.getClass();
+                    site.methods = symbols.findMethods(typeOf(receiver), name);
+                    site.method = null;
+                }
+            }
+        }
+        Object[] arguments = new Object[tree.getChildCount(node) - 1];
+        for (int index = 0; index < arguments.length; index++) {
+            arguments[index] = evaluate(frame, tree.getChild(node, index + 1));
+        }
+        MethodSymbol method = site.select(symbols, arguments);
+        List<RikType> parameterTypes = method.getParameterTypes();
+        for (int index = 0; index < arguments.length; index++) {
+            arguments[index] = convert(arguments[index], parameterTypes.get(index));
+        }
+        if (method.getJavaMethod() == null) {
+            return call(method, arguments);
+        }
+        try {
+            return method.getJavaMethod().invoke(method.isStatic() ? null : receiver, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Assigns the target, a local, field or array element: the value of the node {@code value} with the
+     * operator, or for an increment, with {@code value} -1, the target plus {@code delta}. A new name assigned with
+     * {@code =} declares a local of the type of the value.
+     *
+     * @return the new value of the target
+     */
+    private Object assign(Frame frame, int target, String operator, int value, int delta) throws Throwable {
+        Body body = frame.body;
+        SyntaxTree tree = body.tree;
+        boolean isSet = "=".equals(operator);
+        switch (tree.getKind(target)) {
+            case NAME: {
+                Variable variable = frame.find(body.name(target));
+                if (variable != null) {
+                    variable.value = update(frame, variable.type, variable.value, operator, value, delta);
+                    return variable.value;
+                }
+                FieldSymbol field = symbols.findField(frame.owner.getType(), body.name(target));
+                if (field == null) {
+                    Object result = evaluate(frame, value);
+                    frame.declare(body.name(target), typeOf(result), result);
+                    return result;
+                }
+                Object result = update(frame, field.getType(), isSet ? null : getField(field, null), operator, value,
+                        delta);
+                setField(field, null, result);
+                return result;
+            }
+            case MEMBER: {
+                int receiverNode = tree.getChild(target, 0);
+                RikType targetClass = className(frame, receiverNode);
+                Object receiver = targetClass == null ? evaluate(frame, receiverNode) : null;
+                FieldSymbol field = targetClass == null
+                        ? field(body, target, receiver)
+                        : staticField(body, target, targetClass);
+                Object result = update(frame, field.getType(), isSet ? null : getField(field, receiver), operator,
+                        value, delta);
+                setField(field, receiver, result);
+                return result;
+            }
+            default: {
+                Object array = evaluate(frame, tree.getChild(target, 0));
+                int index = intValue(evaluate(frame, tree.getChild(target, 1)));
+                Object result = update(frame, elementType(array), isSet ? null : Array.get(array, index), operator,
+                        value, delta);
+                Array.set(array, index, result);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * The new value of a place of the type, keeping the current one as {@link Frame#previous}.
+     */
+    private Object update(Frame frame, RikType type, Object current, String operator, int value, int delta)
+            throws Throwable {
+        frame.previous = current;
+        if (value < 0) {
+            RikType operationType = type.getStackType();
+            return convert(arithmetic('+', operationType, current, delta), type);
+        }
+        Object operand = evaluate(frame, value);
+        if (operator.equals("=")) {
+            return convert(operand, type);
+        }
+        if (operator.equals("+=") && type.isString()) {
+            return String.valueOf(current) + operand;
+        }
+        return convert(arithmetic(operator.charAt(0), operationType(type, typeOf(operand)), current, operand), type);
+    }
+
+    private Object binary(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        String operator = body.name(node);
+        int left = body.tree.getChild(node, 0);
+        int right = body.tree.getChild(node, 1);
+        switch (operator) {
+            case "&&":
+                return isTrue(evaluate(frame, left)) && isTrue(evaluate(frame, right));
+            case "||":
+                return isTrue(evaluate(frame, left)) || isTrue(evaluate(frame, right));
+            case "==":
+                return isEqual(evaluate(frame, left), evaluate(frame, right));
+            case "+":
+            case "-":
+            case "*":
+            case "/":
+            case "%":
+            case "&":
+            case "|":
+                break;
+            default:
+                // is, or a localized alias of it
+                RikType type = className(frame, right);
+                Object value = evaluate(frame, left);
+                return type.getJavaClass() != null && type.getJavaClass().isInstance(value);
+        }
+        Object leftValue = evaluate(frame, left);
+        Object rightValue = evaluate(frame, right);
+        // a null operand is a reference, which only a string can be added to
+        if (operator.equals("+") && (leftValue instanceof String || rightValue instanceof String
+                || leftValue == null || rightValue == null)) {
+            return String.valueOf(leftValue) + rightValue;
+        }
+        return arithmetic(operator.charAt(0), operationType(typeOf(leftValue), typeOf(rightValue)), leftValue,
+                rightValue);
+    }
+
+    private Object unary(Frame frame, int node) throws Throwable {
+        Body body = frame.body;
+        String operator = body.name(node);
+        int operand = body.tree.getChild(node, 0);
+        if (operator.equals("++") || operator.equals("--")) {
+            return assign(frame, operand, null, -1, operator.equals("++") ? 1 : -1);
+        }
+        if (operator.equals("-") && body.tree.getKind(operand) == NodeKind.LITERAL
+                && body.tokens.getType(body.tree.getToken(operand)) == TokenType.NUMBER) {
+            Object value = body.resolved[node];
+            if (value == null) {
+                value = number(body.tokens, body.tree.getToken(operand), true);
+                body.resolved[node] = value;
+            }
+            return value;
+        }
+        Object value = evaluate(frame, operand);
+        RikType type = typeOf(value).getStackType();
+        return operator.equals("-") ? negate(value, type) : convert(value, type);
+    }
+
+
+    /**
+     * The class a {@link NodeKind#NAME} or {@link NodeKind#MEMBER} chain names, as {@code System} or
+     * {@code java.util.List}, unless its first name is a variable, or {@code null}.
+     */
+    private RikType className(Frame frame, int node) {
+        Body body = frame.body;
+        Object resolved = body.classNames[node];
+        if (resolved == null) {
+            String name = dottedName(body, node);
+            RikType type = null;
+            if (name != null) {
+                int dot = name.indexOf('.');
+                String first = dot < 0 ? name : name.substring(0, dot);
+                if (frame.find(first) == null && symbols.findField(frame.owner.getType(), first) == null) {
+                    type = body.unit.resolveClass(name);
+                }
+            }
+            resolved = type == null ? NOT_A_CLASS : type;
+            body.classNames[node] = resolved;
+        }
+        return resolved == NOT_A_CLASS ? null : (RikType) resolved;
+    }
+
+    private static String dottedName(Body body, int node) {
+        if (body.tree.getKind(node) == NodeKind.NAME) {
+            return body.unit.keyword(node) == null ? body.name(node) : null;
+        }
+        if (body.tree.getKind(node) == NodeKind.MEMBER) {
+            String target = dottedName(body, body.tree.getChild(node, 0));
+            return target == null ? null : target + '.' + body.name(body.tree.getChild(node, 1));
+        }
+        return null;
+    }
+
+    private FieldSymbol staticField(Body body, int member, RikType type) {
+        FieldSymbol field = (FieldSymbol) body.resolved[member];
+        if (field == null) {
+            field = symbols.findField(type, body.name(body.tree.getChild(member, 1)));
+            body.resolved[member] = field;
+        }
+        return field;
+    }
+
+    private FieldSymbol field(Body body, int member, Object receiver) {
+        return staticField(body, member, typeOf(receiver));
+    }
+
+    private Object getField(FieldSymbol field, Object receiver) throws IllegalAccessException {
+        return field.getJavaField() == null ? statics.get(field) : field.getJavaField().get(receiver);
+    }
+
+    private void setField(FieldSymbol field, Object receiver, Object value) throws IllegalAccessException {
+        if (field.getJavaField() == null) {
+            statics.put(field, value);
+        } else {
+            field.getJavaField().set(receiver, value);
+        }
+    }
+
+    private static RikType declaredType(Body body, int declaration) {
+        RikType type = (RikType) body.resolved[declaration];
+        if (type == null) {
+            type = body.unit.resolveType(body.unit.getTypeNode(declaration));
+            body.resolved[declaration] = type;
+        }
+        return type;
+    }
+
+
+    /**
+     * The Rik type of a boxed value, with the first public class of an object, whose methods can be called.
+     */
+    private static RikType typeOf(Object value) {
+        if (value == null) {
+            return RikType.NULL;
+        }
+        Class<?> type = value.getClass();
+        if (type == Integer.class) {
+            return RikType.I32;
+        }
+        if (type == Long.class) {
+            return RikType.I64;
+        }
+        if (type == Double.class) {
+            return RikType.F64;
+        }
+        if (type == Float.class) {
+            return RikType.F32;
+        }
+        if (type == Boolean.class) {
+            return RikType.BOOL;
+        }
+        if (type == Character.class) {
+            return RikType.CHAR;
+        }
+        if (type == Byte.class) {
+            return RikType.I8;
+        }
+        if (type == Short.class) {
+            return RikType.I16;
+        }
+        while (!Modifier.isPublic(type.getModifiers())) {
+            type = type.getSuperclass();
+        }
+        return RikType.of(type);
+    }
+
+    private static RikType elementType(Object array) {
+        Class<?> type = array.getClass().getComponentType();
+        return type.isPrimitive() ? RikType.of(type) : RikType.OBJECT;
+    }
+
+    /**
+     * The type an arithmetic or bitwise operation is computed in: {@code bool}, or by binary numeric promotion.
+     */
+    private static RikType operationType(RikType left, RikType right) {
+        if (left.equals(RikType.BOOL)) {
+            return RikType.BOOL;
+        }
+        for (RikType type : new RikType[]{RikType.F64, RikType.F32, RikType.I64}) {
+            if (left.equals(type) || right.equals(type)) {
+                return type;
+            }
+        }
+        return RikType.I32;
+    }
+
+    private static boolean isTrue(Object value) {
+        return (Boolean) value;
+    }
+
+    /**
+     * Numbers are equal in their promoted type, bools by value and references by identity.
+     */
+    private static boolean isEqual(Object left, Object right) {
+        RikType leftType = typeOf(left);
+        RikType rightType = typeOf(right);
+        if (leftType.isNumeric() && rightType.isNumeric()) {
+            switch (operationType(leftType, rightType).getSort()) {
+                case F64:
+                    return doubleValue(left) == doubleValue(right);
+                case F32:
+                    return floatValue(left) == floatValue(right);
+                default:
+                    return longValue(left) == longValue(right);
+            }
+        }
+        if (left instanceof Boolean && right instanceof Boolean) {
+            return left.equals(right);
+        }
+        return left == right;
+    }
+
+    private static Object arithmetic(char operator, RikType type, Object left, Object right) {
+        switch (type.getSort()) {
+            case BOOL:
+                return operator == '&' ? isTrue(left) & isTrue(right) : isTrue(left) | isTrue(right);
+            case I64:
+                return longArithmetic(operator, longValue(left), longValue(right));
+            case F32:
+                return floatArithmetic(operator, floatValue(left), floatValue(right));
+            case F64:
+                return doubleArithmetic(operator, doubleValue(left), doubleValue(right));
+            default:
+                return intArithmetic(operator, intValue(left), intValue(right));
+        }
+    }
+
+    private static Object intArithmetic(char operator, int left, int right) {
+        switch (operator) {
+            case '+':
+                return left + right;
+            case '-':
+                return left - right;
+            case '*':
+                return left * right;
+            case '/':
+                return left / right;
+            case '%':
+                return left % right;
+            case '&':
+                return left & right;
+            default:
+                return left | right;
+        }
+    }
+
+    private static Object longArithmetic(char operator, long left, long right) {
+        switch (operator) {
+            case '+':
+                return left + right;
+            case '-':
+                return left - right;
+            case '*':
+                return left * right;
+            case '/':
+                return left / right;
+            case '%':
+                return left % right;
+            case '&':
+                return left & right;
+            default:
+                return left | right;
+        }
+    }
+
+    private static Object floatArithmetic(char operator, float left, float right) {
+        switch (operator) {
+            case '+':
+                return left + right;
+            case '-':
+                return left - right;
+            case '*':
+                return left * right;
+            case '/':
+                return left / right;
+            default:
+                return left % right;
+        }
+    }
+
+    private static Object doubleArithmetic(char operator, double left, double right) {
+        switch (operator) {
+            case '+':
+                return left + right;
+            case '-':
+                return left - right;
+            case '*':
+                return left * right;
+            case '/':
+                return left / right;
+            default:
+                return left % right;
+        }
+    }
+
+    private static Object negate(Object value, RikType type) {
+        switch (type.getSort()) {
+            case I64:
+                return -longValue(value);
+            case F32:
+                return -floatValue(value);
+            case F64:
+                return -doubleValue(value);
+            default:
+                return -intValue(value);
+        }
+    }
+
+    /**
+     * The value as one of the type, widened or, back to the type of a place after an operation, narrowed.
+     */
+    private static Object convert(Object value, RikType to) {
+        switch (to.getSort()) {
+            case CHAR:
+                return value instanceof Character ? value : (char) intValue(value);
+            case I8:
+                return value instanceof Byte ? value : (byte) intValue(value);
+            case I16:
+                return value instanceof Short ? value : (short) intValue(value);
+            case I32:
+                return value instanceof Integer ? value : intValue(value);
+            case I64:
+                return value instanceof Long ? value : longValue(value);
+            case F32:
+                return value instanceof Float ? value : floatValue(value);
+            case F64:
+                return value instanceof Double ? value : doubleValue(value);
+            default:
+                return value;
+        }
+    }
+
+    private static Object defaultValue(RikType type) {
+        switch (type.getSort()) {
+            case BOOL:
+                return false;
+            case CHAR:
+                return (char) 0;
+            case I8:
+                return (byte) 0;
+            case I16:
+                return (short) 0;
+            case I32:
+                return 0;
+            case I64:
+                return 0L;
+            case F32:
+                return 0f;
+            case F64:
+                return 0.0;
+            default:
+                return null;
+        }
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Character ? (Character) value : ((Number) value).intValue();
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Character ? (Character) value : ((Number) value).longValue();
+    }
+
+    private static float floatValue(Object value) {
+        return value instanceof Character ? (Character) value : ((Number) value).floatValue();
+    }
+
+    private static double doubleValue(Object value) {
+        return value instanceof Character ? (Character) value : ((Number) value).doubleValue();
+    }
+}
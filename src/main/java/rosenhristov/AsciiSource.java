@@ -0,0 +1,139 @@
+package main.java.rosenhristov;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link CharSequence} view over ASCII encoded bytes, e.g. a memory mapped source file.
+ * Characters are read straight from the bytes, only {@link #toString()} decodes and copies them.
+ * The searches look at eight chars at a time, one byte lane of a {@code long} each.
+ */
+public class AsciiSource implements CharSequence {
+
+    private static final long NON_ASCII_BITS = 0x8080808080808080L;
+    private static final int ASCII_LIMIT = 0x80;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long EVERY_BYTE = 0x0101010101010101L;
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private AsciiSource(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static AsciiSource of(ByteBuffer bytes) {
+        // the searches take the first char of a word from its high byte
+        return new AsciiSource(bytes.duplicate().order(ByteOrder.BIG_ENDIAN), 0, bytes.limit());
+    }
+
+    /**
+     * Checks eight bytes at a time whether all of them are 7-bit ASCII.
+     */
+    public static boolean isAscii(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        int index = 0;
+        for (; index + Long.BYTES <= limit; index += Long.BYTES) {
+            if ((bytes.getLong(index) & NON_ASCII_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; index < limit; index++) {
+            if (bytes.get(index) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first {@code c} in {@code [from, to)}, or {@code to} if there is none
+     */
+    public int indexOf(char c, int from, int to) {
+        return indexOfEither(c, c, from, to);
+    }
+
+    /**
+     * @return the index of the first {@code a} or {@code b} in {@code [from, to)}, or {@code to} if there is none
+     */
+    public int indexOfEither(char a, char b, int from, int to) {
+        return search(a, b, from, to, true);
+    }
+
+    /**
+     * @return the index of the first char in {@code [from, to)} that is neither {@code a} nor {@code b},
+     * or {@code to} if there is none
+     */
+    public int skipEither(char a, char b, int from, int to) {
+        return search(a, b, from, to, false);
+    }
+
+    private int search(char a, char b, int from, int to, boolean isMatching) {
+        checkRange(from, to);
+        if (a >= ASCII_LIMIT || b >= ASCII_LIMIT) {
+            throw new IllegalArgumentException(String.format("Only ASCII chars can be searched for, not %s", a >= ASCII_LIMIT ? a : b));
+        }
+        long aLanes = a * EVERY_BYTE;
+        long bLanes = b * EVERY_BYTE;
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            long word = bytes.getLong(offset + index);
+            long matches = zeroBytes(word ^ aLanes) | zeroBytes(word ^ bLanes);
+            long found = isMatching ? matches : ~matches & NON_ASCII_BITS;
+            if (found != 0) {
+                return index + (Long.numberOfLeadingZeros(found) >>> 3);
+            }
+        }
+        for (; index < to; index++) {
+            byte c = bytes.get(offset + index);
+            if ((c == a || c == b) == isMatching) {
+                return index;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * The high bit of every zero byte of the word set, every other bit clear. Unlike the shorter
+     * {@code (word - 0x01..) & ~word} no borrow runs into the bytes after a zero one.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of [0, %d)", start, end, length));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of [0, %d)", index, length));
+        }
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkRange(start, end);
+        return new AsciiSource(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] chars = new byte[length];
+        bytes.duplicate().position(offset).get(chars);
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
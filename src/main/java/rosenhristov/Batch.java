@@ -0,0 +1,219 @@
+package main.java.rosenhristov;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.TokenArenas;
+import main.java.rosenhristov.interpreter.TokenCache;
+import main.java.rosenhristov.metrics.BatchReport;
+import main.java.rosenhristov.metrics.BatchReport.ProjectResult;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+import main.java.rosenhristov.transpiler.JavaMapping;
+import main.java.rosenhristov.transpiler.Transpiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static main.java.rosenhristov.interpreter.Constants.CACHE_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.CONFIG_FILENAME;
+import static main.java.rosenhristov.interpreter.Constants.CONFIG_SNAPSHOT_FILENAME;
+import static main.java.rosenhristov.interpreter.Constants.TRANSPILED_DIRECTORY;
+
+/**
+ * Lexes many projects in one JVM without asking anything, e.g. in CI. The projects run concurrently on a pool of
+ * a fixed number of threads, each project lexed on the thread it runs on, and the projects whose
+ * {@code rik-config.yml} has the same content share one {@link RikConfig} and its {@link KeywordTable}.
+ * A project that fails is reported as failed and does not stop the others.
+ */
+public final class Batch {
+
+    private static final String MANIFEST_COMMENT = "#";
+
+    private final List<String> projectRoots;
+    private final int parallelism;
+    private boolean isTokenCacheEnabled = true;
+    private boolean isMemoryMapped = true;
+    private boolean isTranspileEnabled = false;
+    private TokenArenas.Scope tokenArenaScope;
+    private File spillDirectory;
+
+    private final Map<ByteBuffer, RikConfig> configs = new ConcurrentHashMap<>();
+
+    private Batch(List<String> projectRoots, int parallelism) {
+        this.projectRoots = projectRoots;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param projectRoots the directories of the projects, each with its {@code src/rik-config.yml}
+     * @param parallelism how many projects to lex at a time
+     */
+    public static Batch of(List<String> projectRoots, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Batch parallelism must be positive, but was " + parallelism);
+        }
+        return new Batch(projectRoots, parallelism);
+    }
+
+    /**
+     * Reads the project roots of a manifest file, one per line. Blank lines and lines starting with {@code #}
+     * are skipped.
+     */
+    public static List<String> readManifest(File manifest) {
+        try {
+            return Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith(MANIFEST_COMMENT))
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems reading batch manifest %s.", manifest), e);
+        }
+    }
+
+    public Batch cacheTokens(boolean isTokenCacheEnabled) {
+        this.isTokenCacheEnabled = isTokenCacheEnabled;
+        return this;
+    }
+
+    public Batch memoryMap(boolean isMemoryMapped) {
+        this.isMemoryMapped = isMemoryMapped;
+        return this;
+    }
+
+    public Batch transpile(boolean isTranspileEnabled) {
+        this.isTranspileEnabled = isTranspileEnabled;
+        return this;
+    }
+
+    /**
+     * Stores the tokens of every project off-heap until the project is done, see {@link TokenArenas}.
+     *
+     * @param scope the arena scope, {@code null} to keep the tokens on the heap
+     * @param spillDirectory where to map the arenas, {@code null} for direct memory
+     */
+    public Batch storeTokensOffHeap(TokenArenas.Scope scope, File spillDirectory) {
+        this.tokenArenaScope = scope;
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+
+    public BatchReport run() {
+        long start = System.nanoTime();
+        BatchReport report = BatchReport.create();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, projectRoots.size())));
+        try {
+            List<Future<ProjectResult>> results = new ArrayList<>(projectRoots.size());
+            for (String projectRoot : projectRoots) {
+                results.add(executor.submit(() -> runProject(projectRoot)));
+            }
+            for (Future<ProjectResult> result : results) {
+                report.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch run was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Problems running a batch project.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return report.setWallNanos(System.nanoTime() - start);
+    }
+
+    private ProjectResult runProject(String projectRoot) {
+        long start = System.nanoTime();
+        PipelineMetrics metrics = PipelineMetrics.create();
+        TokenArenas tokenArenas = isNull(tokenArenaScope) ? null : TokenArenas.of(tokenArenaScope, spillDirectory);
+        try {
+            File root = new File(projectRoot).getAbsoluteFile();
+            RikConfig rikConfig = getConfiguration(root);
+            KeywordTable keywords = rikConfig.getKeywordTable();
+            Project project = Project.of(root.getParent(), root.getName(), true);
+
+            Measurement discover = metrics.startStage(PipelineMetrics.DISCOVER);
+            Map<File, List<File>> projectMap = project.buildProjectMap();
+            discover.addFiles(projectMap.values().stream().mapToInt(List::size).sum()).stop();
+
+            Measurement load = metrics.startStage(PipelineMetrics.LOAD);
+            Map<ProjectDir, List<SourceCode>> sourceCodeMap = project.buildSourceCodeMap(projectMap, isMemoryMapped, metrics);
+            long bytes = Rik.countBytes(sourceCodeMap);
+            load.addFiles(sourceCodeMap.values().stream().mapToInt(List::size).sum()).addBytes(bytes).stop();
+
+            TokenCache tokenCache = isTokenCacheEnabled ? TokenCache.of(new File(root, CACHE_DIRECTORY), keywords) : null;
+            Measurement lex = metrics.startStage(PipelineMetrics.LEX);
+            Lexer lexer = Lexer.of(sourceCodeMap, keywords, tokenCache, metrics);
+            if (!isNull(tokenArenas)) {
+                lexer.storeTokensOffHeap(tokenArenas);
+            }
+            LexedMap lexedMap = lexer.lexSourceCodeMap();
+            lex.addFiles(lexedMap.getFileCount())
+                    .addBytes(bytes)
+                    .addTokens(lexedMap.getTokenCount())
+                    .addErrors(lexedMap.getErrorCount())
+                    .stop();
+
+            if (isTranspileEnabled) {
+                JavaMapping mapping = JavaMapping.of(rikConfig.getJavaToRikAliases(), rikConfig.getKeywordAliases());
+                Measurement transpile = metrics.startStage(PipelineMetrics.TRANSPILE);
+                Transpiler.of(mapping, keywords, metrics)
+                        .transpileLexedMap(lexedMap, root, new File(root, TRANSPILED_DIRECTORY));
+                transpile.addFiles(lexedMap.getFileCount()).addTokens(lexedMap.getTokenCount()).stop();
+            }
+
+            return ProjectResult.lexed(projectRoot, metrics, System.nanoTime() - start,
+                    lexedMap.getFileCount(), lexedMap.getTokenCount(), lexedMap.getErrorCount());
+        } catch (RuntimeException e) {
+            return ProjectResult.failed(projectRoot, metrics, System.nanoTime() - start, describe(e));
+        } finally {
+            if (!isNull(tokenArenas)) {
+                tokenArenas.close();
+            }
+        }
+    }
+
+    /**
+     * The configuration of the project, configured once per distinct content of the configuration file.
+     */
+    private RikConfig getConfiguration(File projectRoot) {
+        File configFile = new File(projectRoot, "src/" + CONFIG_FILENAME);
+        RikConfig rikConfig = RikConfig.of(configFile.getPath());
+        if (!rikConfig.exists()) {
+            throw new RuntimeException(String.format("Could not find Rik configuration %s.", configFile));
+        }
+        byte[] configInstructions;
+        try {
+            configInstructions = Files.readAllBytes(configFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems reading %s configuration file.", configFile), e);
+        }
+        return configs.computeIfAbsent(ByteBuffer.wrap(configInstructions), content -> {
+            ConfigSnapshot snapshot = isTokenCacheEnabled
+                    ? ConfigSnapshot.of(new File(projectRoot, CACHE_DIRECTORY + "/" + CONFIG_SNAPSHOT_FILENAME))
+                    : null;
+            rikConfig.configure(configInstructions, snapshot);
+            return rikConfig;
+        });
+    }
+
+    private String describe(Throwable failure) {
+        StringBuilder description = new StringBuilder(String.valueOf(failure.getMessage()));
+        for (Throwable cause = failure.getCause(); cause != null; cause = cause.getCause()) {
+            description.append(": ").append(cause.getMessage());
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package main.java.rosenhristov;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a parsed {@code rik-config.yml}: the properties of every category and the layout of the
+ * {@link KeywordTable} built from them, so a run whose configuration file did not change neither splits the YAML
+ * nor searches for a perfect hash. The snapshot holds a copy of the file it was taken of and only applies to
+ * the very same content. Like the token cache it never fails a run: a missing, stale or damaged snapshot is a miss
+ * and a snapshot that cannot be written is skipped.
+ */
+public final class ConfigSnapshot {
+
+    private static final int MAGIC = 0x52494B43; // RIKC
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final Path file;
+
+    private Map<String, Properties> properties;
+    private int keywordSlotCount;
+    private int keywordSeed = -1;
+
+    private ConfigSnapshot(Path file) {
+        this.file = file;
+    }
+
+    public static ConfigSnapshot of(File file) {
+        return new ConfigSnapshot(file.toPath());
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the snapshot if it was taken of the given configuration file content.
+     *
+     * @return whether the snapshot applies, only then are its properties and keyword table layout set
+     */
+    public boolean load(byte[] configFile) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            read(ByteBuffer.wrap(Files.readAllBytes(file)), configFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            properties = null;
+            delete(file);
+            return false;
+        }
+    }
+
+    public Map<String, Properties> getProperties() {
+        return properties;
+    }
+
+    public int getKeywordSlotCount() {
+        return keywordSlotCount;
+    }
+
+    public int getKeywordSeed() {
+        return keywordSeed;
+    }
+
+    /**
+     * Whether {@link #save} would write anything new: no snapshot was loaded or the keyword table was laid out anew.
+     */
+    public boolean isOutdated(KeywordTable keywords) {
+        return properties == null || keywords.getSlotCount() != keywordSlotCount || keywords.getSeed() != keywordSeed;
+    }
+
+    public void save(byte[] configFile, Map<String, Properties> properties, KeywordTable keywords) {
+        List<byte[]> strings = new ArrayList<>();
+        int[] propertyCounts = new int[properties.size()];
+        int size = HEADER_SIZE + Integer.BYTES + configFile.length + Integer.BYTES;
+        int categoryIndex = 0;
+        for (Map.Entry<String, Properties> category : properties.entrySet()) {
+            size += addString(strings, category.getKey()) + Integer.BYTES;
+            for (String name : category.getValue().stringPropertyNames()) {
+                size += addString(strings, name) + addString(strings, category.getValue().getProperty(name));
+                propertyCounts[categoryIndex]++;
+            }
+            categoryIndex++;
+        }
+        size += 2 * Integer.BYTES + Long.BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(configFile.length)
+                .put(configFile)
+                .putInt(properties.size());
+        int string = 0;
+        for (int propertyCount : propertyCounts) {
+            putString(buffer, strings.get(string++));
+            buffer.putInt(propertyCount);
+            for (int i = 0; i < propertyCount; i++) {
+                putString(buffer, strings.get(string++));
+                putString(buffer, strings.get(string++));
+            }
+        }
+        buffer.putInt(keywords.getSlotCount()).putInt(keywords.getSeed());
+        buffer.putLong(checksum(buffer, buffer.position()));
+        buffer.flip();
+
+        Path temporary = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temporary != null) {
+                delete(temporary);
+            }
+        }
+    }
+
+    private void read(ByteBuffer buffer, byte[] configFile) {
+        int contentSize = buffer.limit() - Long.BYTES;
+        if (contentSize < HEADER_SIZE || buffer.getLong(contentSize) != checksum(buffer, contentSize)) {
+            throw new IllegalArgumentException("Damaged configuration snapshot");
+        }
+        if (buffer.getInt() != MAGIC
+                || buffer.getInt() != FORMAT_VERSION
+                || buffer.getInt() != configFile.length
+                || !buffer.slice(buffer.position(), configFile.length).equals(ByteBuffer.wrap(configFile))) {
+            throw new IllegalArgumentException("Stale configuration snapshot");
+        }
+        buffer.position(buffer.position() + configFile.length);
+        Map<String, Properties> loaded = new LinkedHashMap<>();
+        int categoryCount = buffer.getInt();
+        for (int i = 0; i < categoryCount; i++) {
+            String category = getString(buffer);
+            int propertyCount = buffer.getInt();
+            Properties categoryProperties = new Properties(propertyCount);
+            for (int j = 0; j < propertyCount; j++) {
+                categoryProperties.put(getString(buffer), getString(buffer));
+            }
+            loaded.put(category, categoryProperties);
+        }
+        keywordSlotCount = buffer.getInt();
+        keywordSeed = buffer.getInt();
+        if (buffer.position() != contentSize) {
+            throw new IllegalArgumentException("Damaged configuration snapshot");
+        }
+        properties = loaded;
+    }
+
+    private int addString(List<byte[]> strings, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putInt(string.length).put(string);
+    }
+
+    private String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Damaged configuration snapshot");
+        }
+        String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(length);
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // a snapshot that cannot be deleted is simply taken again next time
+        }
+    }
+}
@@ -1,17 +1,13 @@
 package main.java.rosenhristov;
 
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
-import static java.util.Objects.isNull;
-import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 import static main.java.rosenhristov.interpreter.Constants.EMPTY_STRING;
-import static main.java.rosenhristov.interpreter.Constants.SOURCE_FILE_EXTENSION;
 import static main.java.rosenhristov.Utils.isFileOrEmptyDir;
 
 public class Project {
@@ -20,16 +16,30 @@ public class Project {
     private String projectName;
     private String projectLocation;
     private boolean isExistingProject;
+    private ProjectScanner scanner;
 
-    private Project(String locationPath, String projectName, boolean isExistingProject) {
+    private Project(String locationPath, String projectName, boolean isExistingProject, ProjectScanner scanner) {
         this.locationPath = locationPath;
         this.projectName = projectName;
         this.projectLocation = normalizePath(locationPath) + projectName;
         this.isExistingProject = isExistingProject;
+        this.scanner = scanner;
     }
 
     public static Project of(String locationPath, String projectName, boolean isExistingProject) {
-        return new Project(locationPath, projectName, isExistingProject);
+        return new Project(locationPath, projectName, isExistingProject, ProjectScanner.create());
+    }
+
+    public static Project of(String locationPath, String projectName, boolean isExistingProject, ProjectScanner scanner) {
+        return new Project(locationPath, projectName, isExistingProject, scanner);
+    }
+
+    public String getProjectLocation() {
+        return projectLocation;
+    }
+
+    public ProjectScanner getScanner() {
+        return scanner;
     }
     public Map<File, List<File>> buildProjectMap() {
         return isExistingProject ?
@@ -45,11 +55,7 @@ public class Project {
             return projectFiles;
         }
 
-        Set<File> allDirs = new LinkedHashSet<>();
-        listDirectories(projectRoot, allDirs);
-        allDirs.stream().forEach(dir -> projectFiles.put(dir, listSourceFiles(dir)));
-
-        return projectFiles;
+        return scanner.scan(projectRoot);
     }
 
     public Map<File, List<File>> createNewProject(String locationPath, String projectName) {
@@ -65,31 +71,22 @@ public class Project {
         return projectDirs;
     }
 
-    public List<File> listSourceFiles(File directory) {
-        return Arrays.stream(directory.listFiles())
-                .filter(file -> isSourceFile(file))
-                .collect(Collectors.toList());
+    public Map<ProjectDir, List<SourceCode>> buildSourceCodeMap(Map<File, List<File>> projectMap) {
+        return buildSourceCodeMap(projectMap, false);
     }
 
-    public void listDirectories(File directory, Set<File> allDirs) {
-        if (isNull(allDirs)) {
-            allDirs = new LinkedHashSet<>();
-        }
-        if (isFileOrEmptyDir(directory)) {
-            return;
-        }
-        allDirs.add(directory);
-        List<File> childDirs = Arrays
-                .stream(directory.listFiles())
-                .filter(record -> record.isDirectory())
-                .collect(Collectors.toList());
-        allDirs.addAll(childDirs);
-        for (File dir : childDirs) {
-            listDirectories(dir, allDirs);
-        }
+    /**
+     * @param memoryMapped whether to memory map the source files instead of reading them into the heap
+     */
+    public Map<ProjectDir, List<SourceCode>> buildSourceCodeMap(Map<File, List<File>> projectMap, boolean memoryMapped) {
+        return buildSourceCodeMap(projectMap, memoryMapped, PipelineMetrics.disabled());
     }
 
-    public Map<ProjectDir, List<SourceCode>> buildSourceCodeMap(Map<File, List<File>> projectMap) {
+    /**
+     * Like {@link #buildSourceCodeMap(Map, boolean)}, measuring every loaded file in the {@link PipelineMetrics#LOAD} stage.
+     */
+    public Map<ProjectDir, List<SourceCode>> buildSourceCodeMap(Map<File, List<File>> projectMap, boolean memoryMapped,
+                                                                PipelineMetrics metrics) {
         Map<ProjectDir, List<SourceCode>> sourcecodeMap = new LinkedHashMap<>();
         projectMap.entrySet()
                 .stream()
@@ -101,36 +98,22 @@ public class Project {
                             new ProjectDir(entry.getKey().getPath()),
                             entry.getValue()
                                     .stream()
-                                    .map(file -> {
-                                        FileInputStream fileInputStream = null;
-                                        String sourceCode;
-                                        try {
-                                            fileInputStream = new FileInputStream(file);
-                                            sourceCode = new String(fileInputStream.readAllBytes());
-                                        } catch (FileNotFoundException e) {
-                                            throw new RuntimeException(String.format("File %s does not exist.", file.getName()), e);
-                                        } catch (IOException e) {
-                                            throw new RuntimeException(String.format("Problems reading file %s.", file.getName()), e);
-                                        } finally {
-                                            if (fileInputStream != null) {
-                                                try {
-                                                    fileInputStream.close();
-                                                } catch (IOException e) {
-                                                    throw new RuntimeException(
-                                                            "Problems closing input stream for reading file "
-                                                                    + file.getName(), e);
-                                                }
-                                            }
-                                        }
-
-                                        return new SourceCode(sourceCode);
-                                    })
+                                    .map(file -> loadSourceCode(file, memoryMapped, metrics))
                                     .collect(toList()));
                 });
 
         return sourcecodeMap;
     }
 
+    private SourceCode loadSourceCode(File file, boolean memoryMapped, PipelineMetrics metrics) {
+        Measurement measurement = metrics.startFile(PipelineMetrics.LOAD, file.getPath());
+        SourceCode sourceCode = memoryMapped ? SourceCode.map(file) : SourceCode.read(file);
+        if (measurement.isActive()) {
+            measurement.addBytes(sourceCode.getSize()).stop();
+        }
+        return sourceCode;
+    }
+
 //    private String extractSourceCode(File sourceFile) {
 //        boolean isValidSourceFile = isValidSourceFile(sourceFile);
 //        if (!isValidSourceFile) {
@@ -159,11 +142,6 @@ public class Project {
 //        return sourceCode;
 //    }
 
-
-    private boolean isSourceFile(File file) {
-        return nonNull(file) && file.exists() && file.isFile() && file.getName().endsWith(SOURCE_FILE_EXTENSION);
-    }
-
     private static String normalizePath(String locationPath) {
         return locationPath.endsWith("/") ? locationPath : locationPath + "/";
     }
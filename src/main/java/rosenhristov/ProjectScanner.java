@@ -0,0 +1,117 @@
+package main.java.rosenhristov;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.stream.Collectors.toList;
+import static main.java.rosenhristov.interpreter.Constants.CACHE_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.CLASSES_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.TRANSPILED_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.SOURCE_FILE_EXTENSION;
+
+/**
+ * Finds the source files of a project in a single walk of its directory tree, so no directory is
+ * listed twice. Include and exclude globs are matched against
+ * paths relative to the project root; an excluded directory is not entered at all.
+ * Directories and files are returned sorted by path, whatever order the file system lists them in.
+ * A file or directory of the project that cannot be read fails the scan instead of being left out of the project.
+ */
+public class ProjectScanner {
+
+    private static final String GLOB = "glob:";
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    private ProjectScanner(List<String> includes, List<String> excludes) {
+        FileSystem fileSystem = FileSystems.getDefault();
+        this.includes = includes.stream().map(glob -> fileSystem.getPathMatcher(GLOB + glob)).collect(toList());
+        this.excludes = excludes.stream().map(glob -> fileSystem.getPathMatcher(GLOB + glob)).collect(toList());
+    }
+
+    public static ProjectScanner create() {
+        return new ProjectScanner(Collections.emptyList(), List.of(CACHE_DIRECTORY, TRANSPILED_DIRECTORY,
+                CLASSES_DIRECTORY));
+    }
+
+    /**
+     * @param includes globs a source file has to match, all {@code .rik} files when empty
+     * @param excludes globs of files and directories to skip; unlike {@link #create()}, the token cache, transpiled and classes directories are only skipped when listed
+     */
+    public static ProjectScanner of(List<String> includes, List<String> excludes) {
+        return new ProjectScanner(includes, excludes);
+    }
+
+    /**
+     * @return every directory of the project with its source files, in path order
+     */
+    public Map<File, List<File>> scan(File projectRoot) {
+        Path root = projectRoot.toPath();
+        Map<Path, List<Path>> sourceFiles = new TreeMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && isExcluded(root.relativize(dir))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    sourceFiles.put(dir, new ArrayList<>());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isSourceFile(root.relativize(file))) {
+                        sourceFiles.get(file.getParent()).add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems scanning project directory %s, %s could not be read.",
+                    projectRoot.getPath(), e instanceof FileSystemException ? ((FileSystemException) e).getFile() : e.getMessage()), e);
+        }
+
+        Map<File, List<File>> projectFiles = new LinkedHashMap<>();
+        sourceFiles.forEach((dir, files) -> projectFiles.put(dir.toFile(), files.stream()
+                .sorted(Comparator.comparing(Path::getFileName))
+                .map(Path::toFile)
+                .collect(toList())));
+        return projectFiles;
+    }
+
+    public boolean isSourceFile(Path relativePath) {
+        return relativePath.getFileName().toString().endsWith(SOURCE_FILE_EXTENSION)
+                && (includes.isEmpty() || matchesAny(includes, relativePath))
+                && !isExcluded(relativePath);
+    }
+
+    private boolean isExcluded(Path relativePath) {
+        return matchesAny(excludes, relativePath);
+    }
+
+    private boolean matchesAny(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,294 @@
+package main.java.rosenhristov;
+
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.LexedSourceFile;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LineTokensMap;
+import main.java.rosenhristov.interpreter.SourceEdit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.isNull;
+
+/**
+ * Keeps the {@link LexedMap} of a project up to date while its files change. Every directory of the project
+ * is watched; events arriving within {@link #DEFAULT_QUIET_MILLIS} ms of each other form one batch, after which
+ * only the created and modified source files are lexed again, incrementally from their previous tokens,
+ * and deleted files are dropped. New directories and lost events trigger a rescan of the project.
+ * Sources are kept on the heap: a memory mapped file that is truncated while mapped cannot be read safely.
+ */
+public class ProjectWatcher implements Closeable {
+
+    public static final long DEFAULT_QUIET_MILLIS = 50;
+
+    private final File projectRoot;
+    private final ProjectScanner scanner;
+    private final Lexer lexer;
+    private final long quietMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Map<File, Map<File, WatchedFile>> files = new TreeMap<>();
+
+    private LexedMap lexedMap;
+
+    private ProjectWatcher(Project project, Lexer lexer, long quietMillis) throws IOException {
+        this.projectRoot = new File(project.getProjectLocation());
+        this.scanner = project.getScanner();
+        this.lexer = lexer;
+        this.quietMillis = quietMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Starts watching the directories of {@code projectMap}, taking over the sources of the lexer and the
+     * files it already lexed into {@code lexedMap}.
+     */
+    public static ProjectWatcher of(Project project, Map<File, List<File>> projectMap, Lexer lexer, LexedMap lexedMap) {
+        try {
+            ProjectWatcher watcher = new ProjectWatcher(project, lexer, DEFAULT_QUIET_MILLIS);
+            for (File dir : projectMap.keySet()) {
+                watcher.register(dir.toPath());
+            }
+            lexer.getSourceCodeMap().forEach((dir, sources) -> {
+                List<LexedSourceFile> lexedFiles = lexedMap.get(dir);
+                for (int i = 0; i < sources.size(); i++) {
+                    SourceCode source = sources.get(i);
+                    watcher.put(source.getFile(), new WatchedFile(source, lexedFiles.get(i)));
+                }
+            });
+            watcher.lexedMap = watcher.buildLexedMap();
+            return watcher;
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems watching project %s.", project.getProjectLocation()), e);
+        }
+    }
+
+    public LexedMap getLexedMap() {
+        return lexedMap;
+    }
+
+    /**
+     * Blocks, reporting every non empty batch of changes to the listener, until the watcher is closed
+     * or the thread is interrupted.
+     */
+    public void watch(Consumer<WatchUpdate> listener) {
+        try {
+            while (true) {
+                WatchUpdate update = awaitUpdate();
+                if (!update.isEmpty()) {
+                    listener.accept(update);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed from another thread, stop watching
+        }
+    }
+
+    /**
+     * Waits for the next batch of events and applies it.
+     */
+    public WatchUpdate awaitUpdate() throws InterruptedException {
+        Set<Path> changedPaths = new LinkedHashSet<>();
+        boolean isRescanNeeded = collect(watchService.take(), changedPaths);
+        WatchKey key;
+        while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+            isRescanNeeded |= collect(key, changedPaths);
+        }
+
+        long start = System.nanoTime();
+        WatchUpdate update = new WatchUpdate();
+        if (isRescanNeeded) {
+            rescan(update);
+        } else {
+            changedPaths.forEach(path -> apply(path, update));
+        }
+        if (!update.isEmpty()) {
+            lexedMap = buildLexedMap();
+        }
+        update.setElapsedNanos(System.nanoTime() - start);
+        return update;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * @return whether the events cannot be applied one by one: some were lost or a directory was created
+     */
+    private boolean collect(WatchKey key, Set<Path> changedPaths) {
+        Path dir = watchedDirs.get(key);
+        boolean isRescanNeeded = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || isNull(dir)) {
+                isRescanNeeded = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                isRescanNeeded = true;
+            }
+            changedPaths.add(path);
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+        return isRescanNeeded;
+    }
+
+    private void apply(Path path, WatchUpdate update) {
+        File file = path.toFile();
+        WatchedFile watchedFile = get(file);
+        if (Files.isRegularFile(path) && scanner.isSourceFile(projectRoot.toPath().relativize(path))) {
+            update(file, watchedFile, update);
+        } else if (!Files.exists(path)) {
+            if (watchedFile != null) {
+                remove(file);
+                update.addDeleted(file);
+            } else {
+                removeDir(file, update);
+            }
+        }
+    }
+
+    private void rescan(WatchUpdate update) {
+        Map<File, List<File>> projectMap = scanner.scan(projectRoot);
+        Set<File> sourceFiles = new LinkedHashSet<>();
+        for (Map.Entry<File, List<File>> entry : projectMap.entrySet()) {
+            register(entry.getKey().toPath());
+            sourceFiles.addAll(entry.getValue());
+        }
+        List<File> watchedFiles = new ArrayList<>();
+        files.values().forEach(dirFiles -> watchedFiles.addAll(dirFiles.keySet()));
+        for (File file : watchedFiles) {
+            if (!sourceFiles.contains(file)) {
+                remove(file);
+                update.addDeleted(file);
+            }
+        }
+        for (File file : sourceFiles) {
+            update(file, get(file), update);
+        }
+    }
+
+    private void update(File file, WatchedFile watchedFile, WatchUpdate update) {
+        SourceCode source;
+        try {
+            source = SourceCode.read(file);
+        } catch (RuntimeException e) {
+            // deleted again before it could be read, the delete event follows
+            return;
+        }
+        if (isNull(watchedFile)) {
+            LexedSourceFile lexedFile = lexer.lexSourceFile(source);
+            put(file, new WatchedFile(source, lexedFile));
+            update.addCreated(file, lexedFile);
+            return;
+        }
+        CharSequence oldContent = watchedFile.source.getContent();
+        if (oldContent.toString().contentEquals(source.getContent())) {
+            return;
+        }
+        LineTokensMap previous = watchedFile.lexedFile.getLineTokensMap();
+        LexedSourceFile lexedFile = isNull(previous.getColumns()) || source.length() == 0
+                ? lexer.lexSourceFile(source)
+                : new LexedSourceFile(lexer.relex(previous, SourceEdit.between(oldContent, source.getContent())), file);
+        put(file, new WatchedFile(source, lexedFile));
+        // relexed tokens stay on the heap, the replaced ones may be off-heap
+        previous.release();
+        update.addModified(file, lexedFile);
+    }
+
+    private void register(Path dir) {
+        if (watchedDirs.containsValue(dir)) {
+            return;
+        }
+        try {
+            watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems watching directory %s.", dir), e);
+        }
+    }
+
+    private WatchedFile get(File file) {
+        Map<File, WatchedFile> dirFiles = files.get(file.getParentFile());
+        return isNull(dirFiles) ? null : dirFiles.get(file);
+    }
+
+    private void put(File file, WatchedFile watchedFile) {
+        files.computeIfAbsent(file.getParentFile(), dir -> new TreeMap<>()).put(file, watchedFile);
+    }
+
+    private void remove(File file) {
+        Map<File, WatchedFile> dirFiles = files.get(file.getParentFile());
+        if (dirFiles != null) {
+            WatchedFile removed = dirFiles.remove(file);
+            if (removed != null) {
+                removed.lexedFile.getLineTokensMap().release();
+            }
+            if (dirFiles.isEmpty()) {
+                files.remove(file.getParentFile());
+            }
+        }
+    }
+
+    private void removeDir(File dir, WatchUpdate update) {
+        Path dirPath = dir.toPath();
+        List<File> removed = new ArrayList<>();
+        files.forEach((watchedDir, dirFiles) -> {
+            if (watchedDir.toPath().startsWith(dirPath)) {
+                removed.addAll(dirFiles.keySet());
+            }
+        });
+        removed.forEach(file -> {
+            remove(file);
+            update.addDeleted(file);
+        });
+    }
+
+    private LexedMap buildLexedMap() {
+        LexedMap lexedMap = new LexedMap();
+        files.forEach((dir, dirFiles) -> {
+            List<LexedSourceFile> lexedFiles = new ArrayList<>(dirFiles.size());
+            dirFiles.values().forEach(watchedFile -> lexedFiles.add(watchedFile.lexedFile));
+            lexedMap.put(new ProjectDir(dir.getPath()), lexedFiles);
+        });
+        return lexedMap;
+    }
+
+    private static class WatchedFile {
+
+        private final SourceCode source;
+        private final LexedSourceFile lexedFile;
+
+        private WatchedFile(SourceCode source, LexedSourceFile lexedFile) {
+            this.source = source;
+            this.lexedFile = lexedFile;
+        }
+    }
+}
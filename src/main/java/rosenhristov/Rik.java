@@ -1,13 +1,43 @@
 package main.java.rosenhristov;
 
+import main.java.rosenhristov.compiler.BytecodeCompiler;
+import main.java.rosenhristov.compiler.CompiledProgram;
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.KeywordTable;
 import main.java.rosenhristov.interpreter.Lexer;
 import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.LexedSourceFile;
+import main.java.rosenhristov.interpreter.LexerExecutors;
+import main.java.rosenhristov.interpreter.ParsedMap;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.RegisterCompiler;
+import main.java.rosenhristov.interpreter.RegisterProgram;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import main.java.rosenhristov.interpreter.TokenArenas;
+import main.java.rosenhristov.interpreter.TokenCache;
+import main.java.rosenhristov.interpreter.TokenDumper;
+import main.java.rosenhristov.metrics.BatchReport;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+import main.java.rosenhristov.transpiler.JavaMapping;
+import main.java.rosenhristov.transpiler.Transpiler;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
+import static java.util.Objects.isNull;
+import static main.java.rosenhristov.interpreter.Constants.CACHE_DIRECTORY;
+import static main.java.rosenhristov.interpreter.Constants.CLASSES_DIRECTORY;
 import static main.java.rosenhristov.interpreter.Constants.CONFIG_FILENAME;
+import static main.java.rosenhristov.interpreter.Constants.CONFIG_SNAPSHOT_FILENAME;
+import static main.java.rosenhristov.interpreter.Constants.TRANSPILED_DIRECTORY;
 import static main.java.rosenhristov.Utils.*;
 
 public class Rik {
@@ -18,7 +48,103 @@ public class Rik {
 
     private static boolean isExistingProject = true;
 
+    /**
+     * The threads of {@code --threads=<n>} that lex, parse and transpile, and run a batch's projects.
+     */
+    private static int lexingThreads = Runtime.getRuntime().availableProcessors();
+
+    private static boolean isMemoryMapped = true;
+
+    /**
+     * Whether the lexed tokens and the parsed configuration are cached in the project, unless {@code --no-cache}.
+     */
+    private static boolean isTokenCacheEnabled = true;
+
+    private static final String STATS_OPTION = "--stats";
+
+    private static final String WATCH_OPTION = "--watch";
+
+    private static final String TRANSPILE_OPTION = "--transpile";
+
+    private static final String BATCH_OPTION = "--batch";
+
+    private static final String DUMP_OPTION = "--dump";
+
+    private static final String FORMAT_OPTION = "--format";
+
+    private static final String OFF_HEAP_OPTION = "--off-heap";
+
+    private static final String SPILL_OPTION = "--spill";
+
+    private static final String PARSE_OPTION = "--parse";
+
+    private static final String COMPILE_OPTION = "--compile";
+
+    private static final String RUN_OPTION = "--run";
+
+    private static final String INTERPRET_OPTION = "--interpret";
+
+    private static final String THREADS_OPTION = "--threads";
+
+    private static final String NO_CACHE_OPTION = "--no-cache";
+
+    private static final String OPTION_PREFIX = "--";
+
+    private static boolean isWatchEnabled = false;
+
+    private static boolean isTranspileEnabled = false;
+
+    private static boolean isStatsEnabled = false;
+
+    private static boolean isBatchEnabled = false;
+
+    private static boolean isParseEnabled = false;
+
+    private static boolean isCompileEnabled = false;
+
+    private static boolean isRunEnabled = false;
+
+    private static boolean isInterpretEnabled = false;
+
+    /**
+     * Whether {@code --parse=outline} leaves method bodies unparsed.
+     */
+    private static boolean isOutlineParse = false;
+
+    /**
+     * Where {@code --dump=<file>} writes the tokens, standard output without it.
+     */
+    private static String dumpFile;
+
+    private static TokenDumper.Format dumpFormat = TokenDumper.Format.TEXT;
+
+    /**
+     * The arenas of {@code --off-heap[=directory|file]} store the lexed tokens in, on the heap without it.
+     */
+    private static TokenArenas.Scope tokenArenaScope;
+
+    /**
+     * Where {@code --spill=<directory>} maps the files of the token arenas, direct memory without it.
+     */
+    private static String spillDirectory;
+
+    /**
+     * The project roots of {@code --batch <project root>...} or of the manifest of {@code --batch=<manifest>}.
+     */
+    private static final List<String> batchProjectRoots = new ArrayList<>();
+
+    /**
+     * Where {@code --stats=<file>} writes the metrics summary, standard error for a plain {@code --stats}.
+     * A batch writes its combined result there, or to standard output.
+     */
+    private static String statsFile;
+
     public static void main(String[] args) throws IOException {
+        parseArguments(args);
+        if (isBatchEnabled) {
+            runBatch();
+            return;
+        }
         checkInitialProjectData();
 
         RikConfig rikConfig = getConfiguration();
@@ -27,14 +153,323 @@ public class Rik {
             throw new RuntimeException("Could not load Rik configuration successfully.");
         }
 
-        rikConfig.configure();
+        rikConfig.configure(isTokenCacheEnabled ? ConfigSnapshot.of(buildConfigSnapshotPath()) : null);
+        KeywordTable keywords = rikConfig.getKeywordTable();
+
+        PipelineMetrics metrics = isStatsEnabled ? PipelineMetrics.create() : PipelineMetrics.disabled();
 
         Project project = Project.of(locationPath, projectName, isExistingProject);
+        Measurement discover = metrics.startStage(PipelineMetrics.DISCOVER);
         Map<File, List<File>> projectMap = project.buildProjectMap();
-        Map<ProjectDir, List<SourceCode>> sourceCodeMap = project.buildSourceCodeMap(projectMap);
-        LexedMap lexedMap = Lexer.of(sourceCodeMap).lexSourceCodeMap();
+        if (discover.isActive()) {
+            discover.addFiles(projectMap.values().stream().mapToInt(List::size).sum()).stop();
+        }
+
+        Measurement load = metrics.startStage(PipelineMetrics.LOAD);
+        Map<ProjectDir, List<SourceCode>> sourceCodeMap = project.buildSourceCodeMap(projectMap, isMemoryMapped, metrics);
+        if (load.isActive()) {
+            load.addFiles(sourceCodeMap.values().stream().mapToInt(List::size).sum())
+                    .addBytes(countBytes(sourceCodeMap))
+                    .stop();
+        }
 
-        lexedMap.print();
+        TokenCache tokenCache = isTokenCacheEnabled
+                ? TokenCache.of(new File(project.getProjectLocation(), CACHE_DIRECTORY), keywords)
+                : null;
+        Lexer lexer = Lexer.of(sourceCodeMap, keywords, tokenCache, metrics);
+        TokenArenas tokenArenas = buildTokenArenas();
+        if (!isNull(tokenArenas)) {
+            lexer.storeTokensOffHeap(tokenArenas);
+            // a watch only ends with the JVM, which must not leave the spill files of the arenas behind
+            Runtime.getRuntime().addShutdownHook(new Thread(tokenArenas::close));
+        }
+        TokenDumper dumper = isNull(dumpFile)
+                ? TokenDumper.toStandardOutput(dumpFormat)
+                : TokenDumper.toFile(dumpFormat, new File(dumpFile));
+        Measurement lex = metrics.startStage(PipelineMetrics.LEX);
+        LexedMap lexedMap = lex(lexer, lexedFile -> dump(dumper, lexedFile, metrics));
+        if (lex.isActive()) {
+            lex.addFiles(lexedMap.getFileCount())
+                    .addBytes(countBytes(sourceCodeMap))
+                    .addTokens(lexedMap.getTokenCount())
+                    .addErrors(lexedMap.getErrorCount())
+                    .stop();
+        }
+
+        // the files were printed while lexing, what is left is writing out the rest of the buffer
+        Measurement print = metrics.startStage(PipelineMetrics.PRINT);
+        dumper.close();
+        if (print.isActive()) {
+            print.addFiles(lexedMap.getFileCount()).addTokens(lexedMap.getTokenCount()).stop();
+        }
+
+        ParsedMap parsedMap = null;
+        if (isParseEnabled) {
+            Parser parser = Parser.of(metrics).outline(isOutlineParse);
+            Measurement parse = metrics.startStage(PipelineMetrics.PARSE);
+            parsedMap = parse(parser, lexedMap);
+            if (parse.isActive()) {
+                parse.addFiles(parsedMap.getFileCount())
+                        .addTokens(lexedMap.getTokenCount())
+                        .addErrors(parsedMap.getErrorCount())
+                        .stop();
+            }
+            parsedMap.values().forEach(trees -> trees.forEach(Rik::printParseErrors));
+            System.out.println(String.format("[parse]: %d files, %d nodes, %d errors",
+                    parsedMap.getFileCount(), parsedMap.getNodeCount(), parsedMap.getErrorCount()));
+        }
+
+        if (isCompileEnabled || isRunEnabled) {
+            BytecodeCompiler compiler = BytecodeCompiler.of(keywords, metrics);
+            Measurement compile = metrics.startStage(PipelineMetrics.COMPILE);
+            CompiledProgram program = compiler.compile(parsedMap);
+            if (compile.isActive()) {
+                compile.addFiles(parsedMap.getFileCount())
+                        .addTokens(lexedMap.getTokenCount())
+                        .addErrors(program.getErrorCount())
+                        .stop();
+            }
+            program.getErrors().forEach(Rik::printCompileErrors);
+            // a program with errors in any stage is neither written nor run
+            boolean hasErrors = lexedMap.getErrorCount() + parsedMap.getErrorCount() + program.getErrorCount() > 0;
+            if (isCompileEnabled) {
+                File outputDirectory = new File(project.getProjectLocation(), CLASSES_DIRECTORY);
+                if (!hasErrors) {
+                    program.writeTo(outputDirectory);
+                }
+                System.out.println(String.format("[compile]: %d classes, %d errors to %s",
+                        hasErrors ? 0 : program.getClassFiles().size(), program.getErrorCount(), outputDirectory));
+            }
+            if (isRunEnabled && !hasErrors) {
+                program.run(new String[0]);
+            }
+        }
+
+        if (isInterpretEnabled) {
+            RegisterCompiler compiler = RegisterCompiler.of(keywords, metrics);
+            Measurement interpret = metrics.startStage(PipelineMetrics.INTERPRET);
+            RegisterProgram program = compiler.compile(parsedMap);
+            if (interpret.isActive()) {
+                interpret.addFiles(parsedMap.getFileCount())
+                        .addTokens(lexedMap.getTokenCount())
+                        .addErrors(program.getErrorCount())
+                        .stop();
+            }
+            program.getErrors().forEach(Rik::printInterpretErrors);
+            if (lexedMap.getErrorCount() + parsedMap.getErrorCount() + program.getErrorCount() == 0) {
+                program.run(new String[0]);
+            }
+        }
+
+        if (isTranspileEnabled) {
+            File outputDirectory = new File(project.getProjectLocation(), TRANSPILED_DIRECTORY);
+            JavaMapping mapping = JavaMapping.of(rikConfig.getJavaToRikAliases(), rikConfig.getKeywordAliases());
+            Transpiler transpiler = Transpiler.of(mapping, keywords, metrics);
+            Measurement transpile = metrics.startStage(PipelineMetrics.TRANSPILE);
+            transpile(transpiler, lexedMap, new File(project.getProjectLocation()), outputDirectory);
+            if (transpile.isActive()) {
+                transpile.addFiles(lexedMap.getFileCount()).addTokens(lexedMap.getTokenCount()).stop();
+            }
+            System.out.println(String.format("[transpile]: %d files to %s", lexedMap.getFileCount(), outputDirectory));
+        }
+
+        if (metrics.isEnabled()) {
+            writeStats(metrics.toJson(), System.err);
+        }
+
+        if (isWatchEnabled) {
+            watch(project, projectMap, lexer, lexedMap);
+        }
+        if (!isNull(tokenArenas)) {
+            tokenArenas.close();
+        }
+    }
+
+    private static TokenArenas buildTokenArenas() {
+        if (isNull(tokenArenaScope)) {
+            return null;
+        }
+        return TokenArenas.of(tokenArenaScope, isNull(spillDirectory) ? null : new File(spillDirectory));
+    }
+
+    private static void dump(TokenDumper dumper, LexedSourceFile lexedFile, PipelineMetrics metrics) {
+        Measurement measurement = metrics.startFile(PipelineMetrics.PRINT, PipelineMetrics.describe(lexedFile.getFile()));
+        dumper.write(lexedFile);
+        if (measurement.isActive()) {
+            measurement.addTokens(lexedFile.getLineTokensMap().getTokenCount()).stop();
+        }
+    }
+
+    private static void watch(Project project, Map<File, List<File>> projectMap, Lexer lexer, LexedMap lexedMap)
+            throws IOException {
+        try (ProjectWatcher watcher = ProjectWatcher.of(project, projectMap, lexer, lexedMap)) {
+            System.out.println(String.format("[watch]: watching %s", project.getProjectLocation()));
+            watcher.watch(WatchUpdate::print);
+        }
+    }
+
+    private static void runBatch() {
+        BatchReport report = Batch.of(batchProjectRoots, lexingThreads)
+                .cacheTokens(isTokenCacheEnabled)
+                .memoryMap(isMemoryMapped)
+                .transpile(isTranspileEnabled)
+                .storeTokensOffHeap(tokenArenaScope, isNull(spillDirectory) ? null : new File(spillDirectory))
+                .run();
+        writeStats(report.toJson(), System.out);
+        System.err.println(String.format("[batch]: %d projects, %d ok, %d with errors, %d failed",
+                report.getProjects().size(),
+                report.count(BatchReport.Status.OK),
+                report.count(BatchReport.Status.ERRORS),
+                report.count(BatchReport.Status.FAILED)));
+        if (!report.isOk()) {
+            System.exit(1);
+        }
+    }
+
+    static long countBytes(Map<ProjectDir, List<SourceCode>> sourceCodeMap) {
+        return sourceCodeMap.values().stream()
+                .flatMap(List::stream)
+                .mapToLong(SourceCode::getSize)
+                .sum();
+    }
+
+    private static void writeStats(String json, PrintStream console) {
+        if (isNull(statsFile)) {
+            console.println(json);
+            return;
+        }
+        try {
+            Files.writeString(Paths.get(statsFile), json + System.lineSeparator(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems writing stats file %s.", statsFile), e);
+        }
+    }
+
+    private static void parseArguments(String[] args) {
+        for (String arg : args) {
+            if (arg.equals(WATCH_OPTION)) {
+                isWatchEnabled = true;
+                // a watched file may be truncated while mapped, which crashes reads of the mapping
+                isMemoryMapped = false;
+            } else if (arg.equals(TRANSPILE_OPTION)) {
+                isTranspileEnabled = true;
+            } else if (arg.equals(STATS_OPTION)) {
+                isStatsEnabled = true;
+            } else if (arg.startsWith(STATS_OPTION + "=")) {
+                isStatsEnabled = true;
+                statsFile = arg.substring(STATS_OPTION.length() + 1);
+            } else if (arg.startsWith(DUMP_OPTION + "=")) {
+                dumpFile = arg.substring(DUMP_OPTION.length() + 1);
+            } else if (arg.startsWith(FORMAT_OPTION + "=")) {
+                dumpFormat = TokenDumper.Format.of(arg.substring(FORMAT_OPTION.length() + 1));
+            } else if (arg.equals(OFF_HEAP_OPTION)) {
+                tokenArenaScope = TokenArenas.Scope.DIRECTORY;
+            } else if (arg.startsWith(OFF_HEAP_OPTION + "=")) {
+                tokenArenaScope = TokenArenas.Scope.of(arg.substring(OFF_HEAP_OPTION.length() + 1));
+            } else if (arg.startsWith(SPILL_OPTION + "=")) {
+                spillDirectory = arg.substring(SPILL_OPTION.length() + 1);
+            } else if (arg.equals(PARSE_OPTION)) {
+                isParseEnabled = true;
+            } else if (arg.equals(PARSE_OPTION + "=outline")) {
+                isParseEnabled = true;
+                isOutlineParse = true;
+            } else if (arg.equals(COMPILE_OPTION)) {
+                isParseEnabled = true;
+                isCompileEnabled = true;
+            } else if (arg.equals(RUN_OPTION)) {
+                isParseEnabled = true;
+                isRunEnabled = true;
+            } else if (arg.equals(INTERPRET_OPTION)) {
+                isParseEnabled = true;
+                isInterpretEnabled = true;
+            } else if (arg.startsWith(THREADS_OPTION + "=")) {
+                lexingThreads = parseThreads(arg.substring(THREADS_OPTION.length() + 1));
+            } else if (arg.equals(NO_CACHE_OPTION)) {
+                isTokenCacheEnabled = false;
+            } else if (arg.equals(BATCH_OPTION)) {
+                isBatchEnabled = true;
+            } else if (arg.startsWith(BATCH_OPTION + "=")) {
+                isBatchEnabled = true;
+                batchProjectRoots.addAll(Batch.readManifest(new File(arg.substring(BATCH_OPTION.length() + 1))));
+            } else if (isBatchEnabled && !arg.startsWith(OPTION_PREFIX)) {
+                batchProjectRoots.add(arg);
+            } else {
+                throw new IllegalArgumentException(String.format("Unknown option %s.", arg));
+            }
+        }
+        if (!isNull(spillDirectory) && isNull(tokenArenaScope)) {
+            tokenArenaScope = TokenArenas.Scope.DIRECTORY;
+        }
+        if (isBatchEnabled && isWatchEnabled) {
+            throw new IllegalArgumentException(String.format("%s cannot be combined with %s.", WATCH_OPTION, BATCH_OPTION));
+        }
+    }
+
+    private static int parseThreads(String value) {
+        int threads;
+        try {
+            threads = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            threads = 0;
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("%s takes a positive thread count, not %s.", THREADS_OPTION, value));
+        }
+        return threads;
+    }
+
+    private static LexedMap lex(Lexer lexer, Consumer<LexedSourceFile> onLexed) {
+        if (lexingThreads <= 1) {
+            return lexer.lexSourceCodeMap(onLexed);
+        }
+        ExecutorService executor = LexerExecutors.forkJoinPool(lexingThreads);
+        try {
+            return lexer.lexSourceCodeMap(executor, onLexed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void printParseErrors(SyntaxTree tree) {
+        if (tree.getErrors().exist()) {
+            System.out.println(String.format("[parse]: %s", tree.getFile()));
+            tree.getErrors().print();
+        }
+    }
+
+    private static void printCompileErrors(File file, Errors errors) {
+        System.out.println(String.format("[compile]: %s", file));
+        errors.print();
+    }
+
+    private static void printInterpretErrors(File file, Errors errors) {
+        System.out.println(String.format("[interpret]: %s", file));
+        errors.print();
+    }
+
+    private static ParsedMap parse(Parser parser, LexedMap lexedMap) {
+        if (lexingThreads <= 1) {
+            return parser.parseLexedMap(lexedMap);
+        }
+        ExecutorService executor = LexerExecutors.forkJoinPool(lexingThreads);
+        try {
+            return parser.parseLexedMap(lexedMap, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void transpile(Transpiler transpiler, LexedMap lexedMap, File sourceRoot, File outputDirectory) {
+        if (lexingThreads <= 1) {
+            transpiler.transpileLexedMap(lexedMap, sourceRoot, outputDirectory);
+            return;
+        }
+        ExecutorService executor = LexerExecutors.forkJoinPool(lexingThreads);
+        try {
+            transpiler.transpileLexedMap(lexedMap, sourceRoot, outputDirectory, executor);
+        } finally {
+            executor.shutdown();
+        }
     }
 
     private static void checkInitialProjectData() {
@@ -104,4 +539,8 @@ public class Rik {
     private static String buildConfigurationPath() {
         return String.format("%s/%s/src/%s", locationPath, projectName, CONFIG_FILENAME);
     }
+
+    private static File buildConfigSnapshotPath() {
+        return new File(String.format("%s/%s/%s/%s", locationPath, projectName, CACHE_DIRECTORY, CONFIG_SNAPSHOT_FILENAME));
+    }
 }
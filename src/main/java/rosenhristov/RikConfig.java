@@ -1,8 +1,11 @@
 package main.java.rosenhristov;
 
+import main.java.rosenhristov.interpreter.KeywordTable;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static java.util.Objects.isNull;
@@ -15,8 +18,18 @@ public class RikConfig {
     private String configurationPath;
     private File configFile;
 
+    public static final String KEYWORDS_CATEGORY = "rik-keywords";
+    public static final String JAVA_TO_RIK_CATEGORY = "java-to-rik";
+    private static final String ALIAS_SEPARATOR = ",";
+
     public Map<String, String> keywords;
 
+    public Map<String, String> javaToRik;
+
+    private KeywordTable keywordTable;
+
+    private Map<String, Properties> properties = new LinkedHashMap<>();
+
     private RikConfig(String configurationPath) {
         this.configurationPath = configurationPath;
         this.configFile = new File(configurationPath);
@@ -31,11 +44,52 @@ public class RikConfig {
     }
 
     public void configure() {
+        configure(null);
+    }
+
+    /**
+     * Like {@link #configure()}, taking the parsed configuration from the snapshot while the configuration file is
+     * unchanged and taking a new snapshot otherwise.
+     */
+    public void configure(ConfigSnapshot snapshot) {
+        configure(readConfigFile(), snapshot);
+    }
+
+    /**
+     * Like {@link #configure(ConfigSnapshot)} with the content of the configuration file read already.
+     */
+    void configure(byte[] configInstructions, ConfigSnapshot snapshot) {
+        boolean isSnapshotLoaded = !isNull(snapshot) && snapshot.load(configInstructions);
+
+        properties = isSnapshotLoaded
+                ? snapshot.getProperties()
+                : extractPropertiesPerCathegory(new String(configInstructions, StandardCharsets.UTF_8));
+        keywords = toMap(properties.get(KEYWORDS_CATEGORY));
+        javaToRik = toMap(properties.get(JAVA_TO_RIK_CATEGORY));
+        keywordTable = isSnapshotLoaded
+                ? KeywordTable.of(getKeywordAliases(), snapshot.getKeywordSlotCount(), snapshot.getKeywordSeed())
+                : KeywordTable.of(getKeywordAliases());
+
+        if (!isNull(snapshot) && snapshot.isOutdated(keywordTable)) {
+            snapshot.save(configInstructions, properties, keywordTable);
+        }
+    }
+
+    /**
+     * The keywords and their configured aliases, built by {@link #configure()}.
+     */
+    public KeywordTable getKeywordTable() {
+        if (isNull(keywordTable)) {
+            keywordTable = KeywordTable.of(getKeywordAliases());
+        }
+        return keywordTable;
+    }
+
+    private byte[] readConfigFile() {
         FileInputStream inputStream = null;
-        String configInstructions;
         try {
             inputStream = new FileInputStream(configFile);
-            configInstructions = new String(inputStream.readAllBytes());
+            return inputStream.readAllBytes();
         } catch (IOException e) {
             throw new RuntimeException(String.format(
                     "Problems reading %s configuration file.", configFile.getName()), e);
@@ -46,10 +100,45 @@ public class RikConfig {
                 throw new RuntimeException("Problems closing configuration file input stream.", e);
             }
         }
+    }
+
+    public Map<String, Properties> getProperties() {
+        return properties;
+    }
+
+    /**
+     * The localized aliases of every configured keyword, e.g. {@code else -> [иначе, или]}.
+     */
+    public Map<String, List<String>> getKeywordAliases() {
+        return toAliases(keywords);
+    }
+
+    /**
+     * The Rik words of every configured Java word, e.g. {@code false -> [false, no]}, in Java word order.
+     */
+    public Map<String, List<String>> getJavaToRikAliases() {
+        return toAliases(javaToRik);
+    }
 
-        Map<String, Properties> properties = extractPropertiesPerCathegory(configInstructions);
+    private Map<String, List<String>> toAliases(Map<String, String> map) {
+        Map<String, List<String>> aliases = new LinkedHashMap<>();
+        if (isNull(map)) {
+            return aliases;
+        }
+        map.forEach((keyword, value) -> aliases.put(keyword, Arrays.stream(value.split(ALIAS_SEPARATOR))
+                .map(String::trim)
+                .filter(alias -> !alias.isEmpty())
+                .collect(toList())));
+        return aliases;
+    }
 
-        //TODO finish configuration implementation
+    private Map<String, String> toMap(Properties categoryProperties) {
+        Map<String, String> map = new TreeMap<>();
+        if (!isNull(categoryProperties)) {
+            categoryProperties.stringPropertyNames()
+                    .forEach(name -> map.put(name, categoryProperties.getProperty(name)));
+        }
+        return map;
     }
 
     private Map<String, Properties> extractPropertiesPerCathegory(String configInstructions) {
@@ -60,7 +149,7 @@ public class RikConfig {
 
         yamlFiles.stream()
                 .forEach(yaml -> {
-                    List<String> yamlPropsList = Arrays.asList(yaml.split("\r\n"));
+                    List<String> yamlPropsList = Arrays.asList(yaml.split("\r?\n"));
                     String category = yamlPropsList.get(0);
 
                     if (category.endsWith(":")) {
@@ -107,11 +196,20 @@ public class RikConfig {
                     string = string.endsWith(":")
                             ? string.substring(0, string.indexOf(":"))
                             : string;
-                    String[] propertyPair = string.split(":");
+                    String[] propertyPair = string.split(":", 2);
+                    if (propertyPair.length < 2) {
+                        return;
+                    }
 
-                    properties.put(propertyPair[0].trim(), propertyPair[1].trim());
+                    properties.put(propertyPair[0].trim(), unquote(propertyPair[1].trim()));
                 });
 
         return properties;
     }
+
+    private String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1)
+                : value;
+    }
 }
@@ -1,21 +1,101 @@
 package main.java.rosenhristov;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import static java.util.Objects.isNull;
+
 public class SourceCode {
 
-    private String sourceString;
+    private CharSequence content;
+
+    private File file;
+
+    private long size;
 
     public SourceCode() {
     }
 
     public SourceCode(String sourceCode) {
-        this.sourceString = sourceCode;
+        this.content = sourceCode;
+    }
+
+    public SourceCode(CharSequence content, File file) {
+        this.content = content;
+        this.file = file;
+    }
+
+    private SourceCode(CharSequence content, File file, long size) {
+        this(content, file);
+        this.size = size;
+    }
+
+    /**
+     * Reads the file into the heap, decoded as UTF-8.
+     */
+    public static SourceCode read(File file) {
+        try (FileInputStream fileInputStream = new FileInputStream(file)) {
+            byte[] bytes = fileInputStream.readAllBytes();
+            return new SourceCode(new String(bytes, StandardCharsets.UTF_8), file, bytes.length);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(String.format("File %s does not exist.", file.getName()), e);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems reading file %s.", file.getName()), e);
+        }
+    }
+
+    /**
+     * Memory maps the file. Pure ASCII files are lexed straight from the mapped bytes, which stay
+     * outside of the heap; any other file is copied out of the mapping and decoded as UTF-8 once, straight
+     * into its string.
+     */
+    public static SourceCode map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (AsciiSource.isAscii(bytes)) {
+                return new SourceCode(AsciiSource.of(bytes), file, bytes.capacity());
+            }
+            byte[] copy = new byte[bytes.capacity()];
+            bytes.get(copy);
+            return new SourceCode(new String(copy, StandardCharsets.UTF_8), file, copy.length);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException(String.format("File %s does not exist.", file.getName()), e);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems mapping file %s.", file.getName()), e);
+        }
     }
 
     public String getSourceString() {
-        return sourceString;
+        return isNull(content) ? null : content.toString();
     }
 
     public void setSourceString(String sourceString) {
-        this.sourceString = sourceString;
+        this.content = sourceString;
+    }
+
+    public CharSequence getContent() {
+        return content;
+    }
+
+    public int length() {
+        return isNull(content) ? 0 : content.length();
+    }
+
+    /**
+     * The size in bytes of the file the source code was read from, or 0 if it was not read from a file.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public File getFile() {
+        return file;
     }
 }
@@ -0,0 +1,75 @@
+package main.java.rosenhristov;
+
+import main.java.rosenhristov.interpreter.LexedSourceFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What one batch of file system events changed in a watched project.
+ */
+public class WatchUpdate {
+
+    private final Map<File, LexedSourceFile> created = new LinkedHashMap<>();
+    private final Map<File, LexedSourceFile> modified = new LinkedHashMap<>();
+    private final List<File> deleted = new ArrayList<>();
+    private long elapsedNanos;
+
+    void addCreated(File file, LexedSourceFile lexedFile) {
+        created.put(file, lexedFile);
+    }
+
+    void addModified(File file, LexedSourceFile lexedFile) {
+        modified.put(file, lexedFile);
+    }
+
+    void addDeleted(File file) {
+        deleted.add(file);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Map<File, LexedSourceFile> getCreated() {
+        return created;
+    }
+
+    public Map<File, LexedSourceFile> getModified() {
+        return modified;
+    }
+
+    public List<File> getDeleted() {
+        return deleted;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isEmpty() {
+        return created.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+    }
+
+    /**
+     * Prints one line per changed file with the errors of the files lexed again.
+     */
+    public void print() {
+        System.out.println(String.format("[watch]: %d created, %d modified, %d deleted in %.1f ms",
+                created.size(), modified.size(), deleted.size(), elapsedNanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        created.forEach((file, lexedFile) -> printFile("created", file, lexedFile));
+        modified.forEach((file, lexedFile) -> printFile("modified", file, lexedFile));
+        deleted.forEach(file -> System.out.println(String.format("[deleted]: %s", file.getPath())));
+    }
+
+    private void printFile(String change, File file, LexedSourceFile lexedFile) {
+        System.out.println(String.format("[%s]: %s", change, file.getPath()));
+        if (lexedFile.getLineTokensMap().hasErrors()) {
+            lexedFile.getLineTokensMap().printErrors();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package main.java.rosenhristov.compiler;
+
+import main.java.rosenhristov.interpreter.ClassSymbol;
+import main.java.rosenhristov.interpreter.CompilationUnit;
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.FieldSymbol;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.MethodSymbol;
+import main.java.rosenhristov.interpreter.NodeKind;
+import main.java.rosenhristov.interpreter.ParsedMap;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.ProgramSymbols;
+import main.java.rosenhristov.interpreter.RikType;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static main.java.rosenhristov.compiler.Opcodes.*;
+
+/**
+ * Compiles parsed Rik files to JVM class files, one per Rik class. All classes and their members are declared
+ * first, so a method can use any class of the program, then the methods are compiled. Rik primitives are JVM
+ * primitives and are never boxed; Java classes are used through their public members, found by reflection.
+ * <p>
+ * Traits, enums, nested classes, {@code base} and the {@code \} operator cannot be compiled yet and are reported.
+ * Classes get a public no-argument constructor running the field initializers.
+ */
+public class BytecodeCompiler {
+
+    private final KeywordTable keywords;
+    private final PipelineMetrics metrics;
+
+    private BytecodeCompiler(KeywordTable keywords, PipelineMetrics metrics) {
+        this.keywords = keywords;
+        this.metrics = metrics;
+    }
+
+    public static BytecodeCompiler of(KeywordTable keywords) {
+        return new BytecodeCompiler(keywords, PipelineMetrics.disabled());
+    }
+
+    /**
+     * A compiler measuring every file it compiles in the {@link PipelineMetrics#COMPILE} stage.
+     */
+    public static BytecodeCompiler of(KeywordTable keywords, PipelineMetrics metrics) {
+        return new BytecodeCompiler(keywords, metrics);
+    }
+
+    public CompiledProgram compile(ParsedMap parsedMap) {
+        return compile(parsedMap.values().stream().flatMap(List::stream).collect(toList()));
+    }
+
+    /**
+     * Compiles the files as one program. Outlined trees get their method bodies parsed first.
+     */
+    public CompiledProgram compile(List<SyntaxTree> trees) {
+        ProgramSymbols symbols = new ProgramSymbols();
+        List<CompilationUnit> units = new ArrayList<>(trees.size());
+        for (SyntaxTree tree : trees) {
+            if (tree.hasUnparsedBlocks()) {
+                Parser.create().parseBodies(tree);
+            }
+            units.add(new CompilationUnit(tree, keywords, symbols));
+        }
+        List<ClassSymbol> classes = symbols.declare(units);
+
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        String mainClass = null;
+        for (CompilationUnit unit : units) {
+            Measurement measurement = metrics.startFile(PipelineMetrics.COMPILE,
+                    PipelineMetrics.describe(unit.getTree().getFile()));
+            for (ClassSymbol classSymbol : classes) {
+                if (classSymbol.getUnit() != unit) {
+                    continue;
+                }
+                String binaryName = classSymbol.getType().getInternalName().replace('/', '.');
+                classFiles.put(binaryName, compileClass(classSymbol));
+                if (mainClass == null && classSymbol.getMethods().stream().anyMatch(ProgramSymbols::isMain)) {
+                    mainClass = binaryName;
+                }
+            }
+            if (measurement.isActive()) {
+                measurement.addFiles(1)
+                        .addTokens(unit.getTree().getTokens().size())
+                        .addErrors(unit.getErrors().getTotalCount())
+                        .stop();
+            }
+        }
+        Map<File, Errors> errors = new LinkedHashMap<>();
+        for (CompilationUnit unit : units) {
+            if (unit.getErrors().exist()) {
+                errors.put(unit.getTree().getFile(), unit.getErrors());
+            }
+        }
+        return new CompiledProgram(classFiles, mainClass, errors);
+    }
+
+    private static byte[] compileClass(ClassSymbol classSymbol) {
+        CompilationUnit unit = classSymbol.getUnit();
+        SyntaxTree tree = unit.getTree();
+        int classAccess = ACC_PUBLIC | ACC_SUPER;
+        if (unit.hasModifier(classSymbol.getNode(), "abstract")
+                || classSymbol.getMethods().stream().anyMatch(method -> (method.getAccess() & ACC_ABSTRACT) != 0)) {
+            classAccess |= ACC_ABSTRACT;
+        } else if (unit.hasModifier(classSymbol.getNode(), "const")) {
+            classAccess |= ACC_FINAL;
+        }
+        String superName = classSymbol.getSuperType().getInternalName();
+        ClassWriter writer = new ClassWriter(classAccess, classSymbol.getType().getInternalName(), superName,
+                tree.getFile() == null ? null : tree.getFile().getName());
+
+        List<FieldSymbol> staticFields = new ArrayList<>();
+        List<FieldSymbol> instanceFields = new ArrayList<>();
+        for (FieldSymbol field : classSymbol.getFields()) {
+            writer.addField(field.getAccess(), field.getName(), field.getType().getDescriptor());
+            (field.isStatic() ? staticFields : instanceFields).add(field);
+        }
+        if (staticFields.stream().anyMatch(field -> unit.getInitializer(field.getNode()) >= 0)) {
+            MethodWriter initializer = writer.addMethod(ACC_STATIC, "<clinit>", "()V", 0);
+            MethodCompiler compiler = new MethodCompiler(unit, classSymbol, initializer, true, RikType.VOID);
+            compiler.compileFieldInitializers(staticFields);
+        }
+        MethodWriter constructor = writer.addMethod(ACC_PUBLIC, "<init>", "()V", 1);
+        constructor.local(ALOAD, 0, 1);
+        constructor.poolOp(INVOKESPECIAL, writer.getPool().methodRef(superName, "<init>", "()V", false), -1);
+        MethodCompiler constructorCompiler = new MethodCompiler(unit, classSymbol, constructor, false, RikType.VOID);
+        constructorCompiler.compileFieldInitializers(instanceFields);
+
+        for (MethodSymbol method : classSymbol.getMethods()) {
+            MethodWriter code = writer.addMethod(method.getAccess(), method.getName(), method.getDescriptor(),
+                    method.getParameterSlots() + (method.isStatic() ? 0 : 1));
+            int body = tree.findChild(method.getNode(), NodeKind.BLOCK);
+            if (body < 0) {
+                continue;
+            }
+            MethodCompiler compiler = new MethodCompiler(unit, classSymbol, code, method.isStatic(),
+                    method.getReturnType());
+            int parameters = tree.findChild(method.getNode(), NodeKind.PARAMETERS);
+            for (int index = 0; parameters >= 0 && index < tree.getChildCount(parameters); index++) {
+                compiler.declareParameter(tree.getChild(parameters, index), method.getParameterTypes().get(index));
+            }
+            compiler.compileBody(body, method.getNode());
+        }
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+package main.java.rosenhristov.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+import static main.java.rosenhristov.compiler.Opcodes.*;
+
+/**
+ * Writes one class file: the class, its fields and the methods of its {@link MethodWriter}s. There is no JDK API
+ * for writing class files before Java 22 and the project has no dependencies, so this is the little of the format
+ * Rik classes need.
+ */
+final class ClassWriter {
+
+    private final ConstantPool pool = new ConstantPool();
+    private final int access;
+    private final String internalName;
+    private final String superName;
+    private final String sourceFile;
+    private final List<int[]> fields = new ArrayList<>();
+    private final List<MethodWriter> methods = new ArrayList<>();
+
+    /**
+     * @param sourceFile the name of the source file for stack traces, or {@code null}
+     */
+    ClassWriter(int access, String internalName, String superName, String sourceFile) {
+        this.access = access;
+        this.internalName = internalName;
+        this.superName = superName;
+        this.sourceFile = sourceFile;
+    }
+
+    String getInternalName() {
+        return internalName;
+    }
+
+    String getSuperName() {
+        return superName;
+    }
+
+    ConstantPool getPool() {
+        return pool;
+    }
+
+    void addField(int fieldAccess, String name, String descriptor) {
+        fields.add(new int[]{fieldAccess, pool.utf8(name), pool.utf8(descriptor)});
+    }
+
+    MethodWriter addMethod(int methodAccess, String name, String descriptor, int parameterSlots) {
+        MethodWriter method = new MethodWriter(pool, methodAccess, name, descriptor, parameterSlots);
+        methods.add(method);
+        return method;
+    }
+
+    byte[] toByteArray() {
+        try {
+            // the constant pool comes first but grows while the rest is written, so the rest is written aside
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeShort(access);
+            out.writeShort(pool.classRef(internalName));
+            out.writeShort(pool.classRef(superName));
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (int[] field : fields) {
+                out.writeShort(field[0]);
+                out.writeShort(field[1]);
+                out.writeShort(field[2]);
+                out.writeShort(0);
+            }
+            out.writeShort(methods.size());
+            for (MethodWriter method : methods) {
+                method.writeTo(out);
+            }
+            if (isNull(sourceFile)) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(pool.utf8("SourceFile"));
+                out.writeInt(2);
+                out.writeShort(pool.utf8(sourceFile));
+            }
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream(body.size() + 1024);
+            DataOutputStream header = new DataOutputStream(classFile);
+            header.writeInt(CLASS_FILE_MAGIC);
+            header.writeShort(0);
+            header.writeShort(CLASS_FILE_VERSION);
+            pool.writeTo(header);
+            body.writeTo(classFile);
+            return classFile.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems writing class %s.", internalName), e);
+        }
+    }
+}
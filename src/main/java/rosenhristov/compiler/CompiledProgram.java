@@ -0,0 +1,109 @@
+package main.java.rosenhristov.compiler;
+
+import main.java.rosenhristov.interpreter.Errors;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The class files of a compiled Rik program, by binary name, and the errors found compiling it. A program is
+ * written out as {@code .class} files or loaded in a class loader of its own, which defines its classes as they
+ * are first used and lets them be unloaded together once the program is no longer referenced.
+ */
+public class CompiledProgram {
+
+    private final Map<String, byte[]> classFiles;
+    private final String mainClass;
+    private final Map<File, Errors> errors;
+
+    CompiledProgram(Map<String, byte[]> classFiles, String mainClass, Map<File, Errors> errors) {
+        this.classFiles = classFiles;
+        this.mainClass = mainClass;
+        this.errors = errors;
+    }
+
+    public Map<String, byte[]> getClassFiles() {
+        return Collections.unmodifiableMap(classFiles);
+    }
+
+    /**
+     * The first class with a {@code static main(String... args)} method, or {@code null}.
+     */
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    /**
+     * The compiling errors of the files that have any.
+     */
+    public Map<File, Errors> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    public int getErrorCount() {
+        return errors.values().stream().mapToInt(Errors::getTotalCount).sum();
+    }
+
+    /**
+     * Writes the class files under the directory, in the directories of their packages.
+     */
+    public void writeTo(File directory) {
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            File file = new File(directory, classFile.getKey().replace('.', File.separatorChar) + ".class");
+            try {
+                Files.createDirectories(file.getParentFile().toPath());
+                Files.write(file.toPath(), classFile.getValue());
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Problems writing class file %s.", file), e);
+            }
+        }
+    }
+
+    /**
+     * A new class loader of the program, delegating the Java classes it uses to the loader of the compiler.
+     */
+    public ClassLoader load() {
+        return new ProgramClassLoader(classFiles, CompiledProgram.class.getClassLoader());
+    }
+
+    /**
+     * Loads the program and runs its main method.
+     */
+    public void run(String[] args) {
+        if (mainClass == null) {
+            throw new IllegalStateException("There is no main method to run.");
+        }
+        try {
+            Method main = load().loadClass(mainClass).getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(String.format("Rik program %s failed.", mainClass), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(String.format("Could not run Rik program %s.", mainClass), e);
+        }
+    }
+
+    private static final class ProgramClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classFiles;
+
+        private ProgramClassLoader(Map<String, byte[]> classFiles, ClassLoader parent) {
+            super(parent);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] classFile = classFiles.get(name);
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package main.java.rosenhristov.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static main.java.rosenhristov.compiler.Opcodes.*;
+
+/**
+ * The constant pool of a class file. Every constant is added once, asking for it again returns the index it got.
+ */
+final class ConstantPool {
+
+    private static final int MAX_SIZE = 0xFFFF;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<Object, Integer> indexes = new HashMap<>();
+
+    /**
+     * The next index, entry 0 is unused.
+     */
+    private int size = 1;
+
+    int utf8(String value) {
+        return add(new Key(CONSTANT_UTF8, value), () -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        }, 1);
+    }
+
+    int integer(int value) {
+        return add(new Key(CONSTANT_INTEGER, value), () -> {
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+        }, 1);
+    }
+
+    int floatValue(float value) {
+        return add(new Key(CONSTANT_FLOAT, Float.floatToRawIntBits(value)), () -> {
+            out.writeByte(CONSTANT_FLOAT);
+            out.writeFloat(value);
+        }, 1);
+    }
+
+    /**
+     * Long and double constants take two entries.
+     */
+    int longValue(long value) {
+        return add(new Key(CONSTANT_LONG, value), () -> {
+            out.writeByte(CONSTANT_LONG);
+            out.writeLong(value);
+        }, 2);
+    }
+
+    int doubleValue(double value) {
+        return add(new Key(CONSTANT_DOUBLE, Double.doubleToRawLongBits(value)), () -> {
+            out.writeByte(CONSTANT_DOUBLE);
+            out.writeDouble(value);
+        }, 2);
+    }
+
+    int string(String value) {
+        int utf8 = utf8(value);
+        return add(new Key(CONSTANT_STRING, value), () -> {
+            out.writeByte(CONSTANT_STRING);
+            out.writeShort(utf8);
+        }, 1);
+    }
+
+    /**
+     * @param internalName like {@code java/lang/String}, or the descriptor of an array type
+     */
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return add(new Key(CONSTANT_CLASS, internalName), () -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(name);
+        }, 1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor, boolean isInterface) {
+        return memberRef(isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    void writeTo(DataOutputStream classFile) throws IOException {
+        classFile.writeShort(size);
+        bytes.writeTo(classFile);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return add(new Key(tag, owner + '.' + name + ':' + descriptor), () -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return add(new Key(CONSTANT_NAME_AND_TYPE, name + ':' + descriptor), () -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        }, 1);
+    }
+
+    private int add(Key key, Entry entry, int slots) {
+        Integer index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        if (size + slots > MAX_SIZE) {
+            throw new IllegalStateException(String.format("More than %d constants in a class", MAX_SIZE));
+        }
+        try {
+            entry.write();
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems writing constant %s.", key.value), e);
+        }
+        index = size;
+        size += slots;
+        indexes.put(key, index);
+        return index;
+    }
+
+    @FunctionalInterface
+    private interface Entry {
+        void write() throws IOException;
+    }
+
+    /**
+     * A constant by its tag and value, so that e.g. the string {@code "1"} and the integer 1 are different entries.
+     */
+    private static final class Key {
+
+        private final int tag;
+        private final Object value;
+
+        private Key(int tag, Object value) {
+            this.tag = tag;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && tag == ((Key) other).tag && value.equals(((Key) other).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tag + value.hashCode();
+        }
+    }
+}
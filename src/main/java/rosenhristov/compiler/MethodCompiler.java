@@ -0,0 +1,581 @@
+package main.java.rosenhristov.compiler;
+
+import main.java.rosenhristov.compiler.MethodWriter.Label;
+import main.java.rosenhristov.interpreter.BodyCompiler;
+import main.java.rosenhristov.interpreter.ClassSymbol;
+import main.java.rosenhristov.interpreter.CompilationUnit;
+import main.java.rosenhristov.interpreter.DiagnosticCode;
+import main.java.rosenhristov.interpreter.FieldSymbol;
+import main.java.rosenhristov.interpreter.MethodSymbol;
+import main.java.rosenhristov.interpreter.RikType;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static main.java.rosenhristov.compiler.Opcodes.*;
+
+/**
+ * Compiles the statements of one method, or the field initializers of a class, into a {@link MethodWriter}. A value
+ * is the type of what an expression left on the operand stack; the dry runs of {@link BodyCompiler} compile into a
+ * scratch writer.
+ */
+final class MethodCompiler extends BodyCompiler<RikType, Label> {
+
+    private static final String STRING_BUILDER = "java/lang/StringBuilder";
+
+    private MethodWriter code;
+    private int nextLocal;
+    private final Deque<Integer> scopeStarts = new ArrayDeque<>();
+    private final Deque<Object[]> dryRuns = new ArrayDeque<>();
+
+    MethodCompiler(CompilationUnit unit, ClassSymbol owner, MethodWriter code, boolean isStatic, RikType returnType) {
+        super(unit, owner, isStatic, returnType);
+        this.code = code;
+        this.nextLocal = isStatic ? 0 : 1;
+    }
+
+    /**
+     * The variant of an {@code int} instruction for the type: a load, store, return or arithmetic instruction, or an
+     * array load or store.
+     */
+    static int opcode(RikType type, int intOpcode) {
+        if (intOpcode == IALOAD || intOpcode == IASTORE) {
+            switch (type.getSort()) {
+                case BOOL:
+                case I8:
+                    return intOpcode + (BALOAD - IALOAD);
+                case CHAR:
+                    return intOpcode + (CALOAD - IALOAD);
+                case I16:
+                    return intOpcode + (SALOAD - IALOAD);
+                default:
+                    break;
+            }
+        }
+        switch (type.getSort()) {
+            case I64:
+                return intOpcode + 1;
+            case F32:
+                return intOpcode + 2;
+            case F64:
+                return intOpcode + 3;
+            case NULL:
+            case REFERENCE:
+            case ARRAY:
+            case UNKNOWN:
+                return intOpcode + 4;
+            default:
+                return intOpcode;
+        }
+    }
+
+
+    @Override
+    protected RikType type(RikType value) {
+        return value;
+    }
+
+    @Override
+    protected RikType voidValue() {
+        return RikType.VOID;
+    }
+
+    @Override
+    protected Label newLabel() {
+        return new Label();
+    }
+
+    @Override
+    protected void mark(Label label) {
+        code.mark(label);
+    }
+
+    @Override
+    protected void jump(Label target) {
+        code.jump(GOTO, target, 0);
+    }
+
+    @Override
+    protected boolean isReachable() {
+        return code.isReachable();
+    }
+
+    @Override
+    protected int position() {
+        return code.getOffset();
+    }
+
+    @Override
+    protected void beginDryRun() {
+        dryRuns.push(new Object[]{code, nextLocal});
+        code = new MethodWriter(new ConstantPool(), code.getAccess(), code.getName(), code.getDescriptor(), 0);
+    }
+
+    @Override
+    protected void endDryRun() {
+        Object[] saved = dryRuns.pop();
+        code = (MethodWriter) saved[0];
+        nextLocal = (Integer) saved[1];
+    }
+
+    @Override
+    protected void enterScope() {
+        scopeStarts.push(nextLocal);
+    }
+
+    @Override
+    protected void exitScope() {
+        nextLocal = scopeStarts.pop();
+    }
+
+    @Override
+    protected int allocate(RikType type) {
+        int slot = nextLocal;
+        nextLocal += Math.max(type.getSize(), 1);
+        code.useLocal(slot, type.getSize());
+        return slot;
+    }
+
+    @Override
+    protected void endStatement() {
+    }
+
+    @Override
+    protected void lineNumber(int line) {
+        code.addLineNumber(line);
+    }
+
+    @Override
+    protected RikType constant(RikType type, long value) {
+        if (type.getStackType().equals(RikType.I64)) {
+            code.longConstant(value);
+        } else {
+            code.intConstant((int) value);
+        }
+        return type;
+    }
+
+    @Override
+    protected RikType constant(RikType type, double value) {
+        if (type.equals(RikType.F32)) {
+            code.floatConstant((float) value);
+        } else {
+            code.doubleConstant(value);
+        }
+        return type;
+    }
+
+    @Override
+    protected RikType constant(RikType type, Object value) {
+        if (value == null) {
+            code.op(ACONST_NULL, 1);
+        } else {
+            code.stringConstant((String) value);
+        }
+        return type;
+    }
+
+    @Override
+    protected void discard(RikType value) {
+        if (value.getSize() == 2) {
+            code.op(POP2, -2);
+        } else if (value.getSize() == 1) {
+            code.op(POP, -1);
+        }
+    }
+
+    /**
+     * A value on the stack stays as it is.
+     */
+    @Override
+    protected RikType keep(RikType value) {
+        return value;
+    }
+
+    @Override
+    protected RikType loadThis() {
+        code.local(ALOAD, 0, 1);
+        return owner.getType();
+    }
+
+    @Override
+    protected RikType loadLocal(Local local) {
+        RikType type = local.getType();
+        code.local(opcode(type, ILOAD), local.getSlot(), type.getSize());
+        return type;
+    }
+
+    @Override
+    protected void storeLocal(Local local, RikType value) {
+        RikType type = local.getType();
+        code.local(opcode(type, ISTORE), local.getSlot(), -type.getSize());
+    }
+
+    @Override
+    protected boolean canIncrement(RikType type, int delta) {
+        return type.equals(RikType.I32) && delta >= Short.MIN_VALUE && delta <= Short.MAX_VALUE;
+    }
+
+    @Override
+    protected void incrementLocal(Local local, int delta) {
+        code.increment(local.getSlot(), delta);
+    }
+
+    @Override
+    protected RikType load(Place<RikType> place) {
+        RikType type = place.getType();
+        switch (place.getKind()) {
+            case LOCAL:
+                return loadLocal(place.getLocal());
+            case ARRAY:
+                code.op(opcode(type, IALOAD), type.getSize() - 2);
+                return type;
+            default:
+                loadField(place.getField());
+                return type;
+        }
+    }
+
+    /**
+     * Duplicates the receiver or array and index of the place before loading its value.
+     */
+    @Override
+    protected RikType loadForUpdate(Place<RikType> place) {
+        int slots = operandSlots(place);
+        if (slots == 1) {
+            code.op(DUP, 1);
+        } else if (slots == 2) {
+            code.op(DUP2, 2);
+        }
+        return load(place);
+    }
+
+    @Override
+    protected RikType store(Place<RikType> place, RikType value, boolean isValueUsed) {
+        RikType type = place.getType();
+        if (isValueUsed) {
+            duplicateValue(place);
+        }
+        switch (place.getKind()) {
+            case LOCAL:
+                storeLocal(place.getLocal(), value);
+                break;
+            case ARRAY:
+                code.op(opcode(type, IASTORE), -type.getSize() - 2);
+                break;
+            default:
+                storeField(place.getField());
+                break;
+        }
+        return isValueUsed ? type : RikType.VOID;
+    }
+
+    @Override
+    protected RikType keepOld(Place<RikType> place, RikType value) {
+        duplicateValue(place);
+        return value;
+    }
+
+    @Override
+    protected RikType arrayLoad(RikType elementType, RikType array, RikType index) {
+        code.op(opcode(elementType, IALOAD), elementType.getSize() - 2);
+        return elementType;
+    }
+
+    @Override
+    protected RikType arrayLength(RikType array) {
+        code.op(ARRAYLENGTH, 0);
+        return RikType.I32;
+    }
+
+    @Override
+    protected RikType invoke(MethodSymbol method, RikType receiver, List<RikType> arguments, int node) {
+        int index = code.getPool().methodRef(method.getOwner().getInternalName(), method.getName(),
+                method.getDescriptor(), method.isInterface());
+        int slots = method.getParameterSlots();
+        int delta = method.getReturnType().getSize() - slots - (method.isStatic() ? 0 : 1);
+        if (method.isStatic()) {
+            code.poolOp(INVOKESTATIC, index, delta);
+        } else if (method.isInterface()) {
+            code.invokeInterface(index, slots, delta);
+        } else {
+            boolean isPrivate = (method.getAccess() & ACC_PRIVATE) != 0;
+            code.poolOp(isPrivate ? INVOKESPECIAL : INVOKEVIRTUAL, index, delta);
+        }
+        return method.getReturnType();
+    }
+
+    @Override
+    protected RikType arithmetic(Operator operator, RikType type, RikType left, RikType right) {
+        code.op(opcode(type, arithmeticOpcode(operator)), -type.getSize());
+        return type;
+    }
+
+    private static int arithmeticOpcode(Operator operator) {
+        switch (operator) {
+            case ADD:
+                return IADD;
+            case SUB:
+                return ISUB;
+            case MUL:
+                return IMUL;
+            case DIV:
+                return IDIV;
+            case REM:
+                return IREM;
+            case AND:
+                return IAND;
+            default:
+                return IOR;
+        }
+    }
+
+    @Override
+    protected RikType negate(RikType value) {
+        code.op(opcode(value, INEG), 0);
+        return value;
+    }
+
+    private static final int[][] CONVERSIONS = {
+            {0, I2L, I2F, I2D},
+            {L2I, 0, L2F, L2D},
+            {F2I, F2L, 0, F2D},
+            {D2I, D2L, D2F, 0}
+    };
+
+    @Override
+    protected RikType convert(RikType value, RikType to) {
+        if (!value.isNumeric() || !to.isNumeric()) {
+            return to;
+        }
+        RikType fromStack = value.getStackType();
+        RikType toStack = to.getStackType();
+        if (!fromStack.equals(toStack)) {
+            code.op(CONVERSIONS[computationIndex(fromStack)][computationIndex(toStack)],
+                    toStack.getSize() - fromStack.getSize());
+        }
+        RikType.Sort fromSort = value.getSort();
+        switch (to.getSort()) {
+            case I8:
+                if (fromSort != RikType.Sort.I8) {
+                    code.op(I2B, 0);
+                }
+                break;
+            case I16:
+                if (fromSort != RikType.Sort.I8 && fromSort != RikType.Sort.I16) {
+                    code.op(I2S, 0);
+                }
+                break;
+            case CHAR:
+                if (fromSort != RikType.Sort.CHAR) {
+                    code.op(I2C, 0);
+                }
+                break;
+            default:
+                break;
+        }
+        return to;
+    }
+
+    private static int computationIndex(RikType stackType) {
+        return Arrays.asList(RikType.I32, RikType.I64, RikType.F32, RikType.F64).indexOf(stackType);
+    }
+
+    @Override
+    protected RikType cast(RikType value, RikType to) {
+        if (to.isReference() && !to.equals(RikType.OBJECT) && !to.isUnknown()) {
+            code.poolOp(CHECKCAST, code.getPool().classRef(to.getInternalName()), 0);
+        }
+        return to;
+    }
+
+    @Override
+    protected RikType instanceOf(RikType value, RikType type) {
+        code.poolOp(INSTANCEOF, code.getPool().classRef(type.getInternalName()), 0);
+        return RikType.BOOL;
+    }
+
+    /**
+     * A concatenation appends its operands to one {@link StringBuilder}.
+     */
+    @Override
+    protected void beginConcatenation() {
+        code.poolOp(NEW, code.getPool().classRef(STRING_BUILDER), 1);
+        code.op(DUP, 1);
+        invoke(STRING_BUILDER, "<init>", "()V", 0, 0, INVOKESPECIAL);
+    }
+
+    @Override
+    protected RikType append(RikType operand) {
+        invoke(STRING_BUILDER, "append", "(" + valueDescriptor(operand) + ")L" + STRING_BUILDER + ";",
+                operand.getSize(), 1, INVOKEVIRTUAL);
+        return operand;
+    }
+
+    @Override
+    protected RikType finishConcatenation(List<RikType> operands) {
+        invoke(STRING_BUILDER, "toString", "()Ljava/lang/String;", 0, 1, INVOKEVIRTUAL);
+        return RikType.STRING;
+    }
+
+    @Override
+    protected RikType concatenate(RikType current, RikType appended) {
+        // String.valueOf has no String overload, a String is appended as the Object it is
+        String descriptor = appended.isString() ? "Ljava/lang/Object;" : valueDescriptor(appended);
+        invoke("java/lang/String", "valueOf", "(" + descriptor + ")Ljava/lang/String;", appended.getSize(), 1,
+                INVOKESTATIC);
+        invoke("java/lang/String", "concat", "(Ljava/lang/String;)Ljava/lang/String;", 1, 1, INVOKEVIRTUAL);
+        return RikType.STRING;
+    }
+
+    /**
+     * The parameter type of {@code StringBuilder.append} and {@code String.valueOf} taking the type.
+     */
+    private static String valueDescriptor(RikType type) {
+        if (type.isPrimitive()) {
+            return type.getStackType().equals(RikType.I32) && !type.equals(RikType.CHAR)
+                    ? "I"
+                    : type.getDescriptor();
+        }
+        return type.isString() ? "Ljava/lang/String;" : "Ljava/lang/Object;";
+    }
+
+    /**
+     * The jumps are numbered in the order of {@link Comparison}: {@code IFEQ} to {@code IFLE} comparing with zero,
+     * {@code IF_ICMPEQ} to {@code IF_ICMPLE} comparing two ints.
+     */
+    @Override
+    protected void branch(Comparison comparison, RikType type, RikType left, RikType right, Label target) {
+        switch (type.getStackType().getSort()) {
+            case I64:
+                code.op(LCMP, -3);
+                break;
+            case F32:
+                code.op(FCMPL, -1);
+                break;
+            case F64:
+                code.op(DCMPL, -3);
+                break;
+            case BOOL:
+            case I32:
+                code.jump(IF_ICMPEQ + comparison.ordinal(), target, -2);
+                return;
+            default:
+                code.jump(comparison == Comparison.EQ ? IF_ACMPEQ : IF_ACMPNE, target, -2);
+                return;
+        }
+        code.jump(IFEQ + comparison.ordinal(), target, -1);
+    }
+
+    @Override
+    protected void branchIf(RikType value, boolean jumpIfTrue, Label target) {
+        code.jump(jumpIfTrue ? IFNE : IFEQ, target, -1);
+    }
+
+    @Override
+    protected void branchIfEquals(RikType string, RikType value, Label target) {
+        invoke("java/lang/String", "equals", "(Ljava/lang/Object;)Z", 1, 1, INVOKEVIRTUAL);
+        code.jump(IFNE, target, -1);
+    }
+
+    @Override
+    protected void switchOn(RikType value, int[] keys, List<Label> targets, Label defaultTarget) {
+        code.lookupSwitch(defaultTarget, keys, targets.toArray(new Label[0]));
+    }
+
+    @Override
+    protected RikType booleanValue(Label isFalse) {
+        Label end = new Label();
+        code.intConstant(1);
+        code.jump(GOTO, end, 0);
+        code.mark(isFalse);
+        code.intConstant(0);
+        code.mark(end);
+        return RikType.BOOL;
+    }
+
+    /**
+     * Returns, without a value on the stack after one that was reported too, as the method has errors then.
+     */
+    @Override
+    protected void returnValue(RikType value) {
+        if (returnType.equals(RikType.VOID)) {
+            code.op(RETURN, 0);
+        } else {
+            code.op(opcode(returnType, IRETURN), -returnType.getSize());
+        }
+    }
+
+    @Override
+    protected void throwValue(RikType value) {
+        code.op(ATHROW, -1);
+    }
+
+    @Override
+    protected void catchHandler(List<int[]> ranges, RikType type, Local local) {
+        Label handler = new Label();
+        String exceptionType = type == null ? null : type.getInternalName();
+        for (int[] range : ranges) {
+            code.addHandler(range[0], range[1], handler, exceptionType);
+        }
+        code.markHandler(handler);
+        storeLocal(local, type);
+    }
+
+    @Override
+    protected boolean isSupported(MethodSymbol method, int node) {
+        if (method.isStatic() && method.isInterface()) {
+            report(DiagnosticCode.UNSUPPORTED, node, "A static interface method");
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * The stack slots of the receiver or array and index of the place.
+     */
+    private static int operandSlots(Place<RikType> place) {
+        switch (place.getKind()) {
+            case FIELD:
+                return place.getReceiver() != null ? 1 : 0;
+            case ARRAY:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Duplicates the value on the stack below the receiver or array and index of the place, as the value of an
+     * assignment left after storing it.
+     */
+    private void duplicateValue(Place<RikType> place) {
+        int size = place.getType().getSize();
+        int opcode = size == 2 ? DUP2 : DUP;
+        code.op(opcode + operandSlots(place), size);
+    }
+
+    private void loadField(FieldSymbol field) {
+        int index = code.getPool().fieldRef(field.getOwner().getInternalName(), field.getName(),
+                field.getType().getDescriptor());
+        int size = field.getType().getSize();
+        code.poolOp(field.isStatic() ? GETSTATIC : GETFIELD, index, field.isStatic() ? size : size - 1);
+    }
+
+    private void storeField(FieldSymbol field) {
+        int index = code.getPool().fieldRef(field.getOwner().getInternalName(), field.getName(),
+                field.getType().getDescriptor());
+        int size = field.getType().getSize();
+        code.poolOp(field.isStatic() ? PUTSTATIC : PUTFIELD, index, field.isStatic() ? -size : -size - 1);
+    }
+
+    private void invoke(String methodOwner, String name, String descriptor, int argumentSlots, int returnSlots,
+                        int opcode) {
+        int receiver = opcode == INVOKESTATIC ? 0 : 1;
+        code.poolOp(opcode, code.getPool().methodRef(methodOwner, name, descriptor, false),
+                returnSlots - argumentSlots - receiver);
+    }
+}
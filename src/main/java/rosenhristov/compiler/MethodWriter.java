@@ -0,0 +1,445 @@
+package main.java.rosenhristov.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static main.java.rosenhristov.compiler.Opcodes.*;
+
+/**
+ * The code of one method: its instructions, exception handlers and line numbers. The writer keeps the depth of the
+ * operand stack and the locals in use as instructions are added, so their maximums need no separate pass, and
+ * whether the next instruction is reachable, so that a missing return can be reported and dead code skipped.
+ */
+final class MethodWriter {
+
+    private static final int MAX_CODE_SIZE = 0xFFFF;
+
+    private final ConstantPool pool;
+    private final int access;
+    private final String name;
+    private final String descriptor;
+
+    private byte[] code = new byte[64];
+    private int length;
+
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    private boolean isReachable = true;
+
+    private final List<int[]> handlers = new ArrayList<>();
+    private final List<Integer> handlerTypes = new ArrayList<>();
+    private final List<Label> handlerLabels = new ArrayList<>();
+    private int[] lineNumbers = new int[16];
+    private int lineNumberCount;
+
+    /**
+     * A position in the code, placed by {@link #mark(Label)}. Jumps to a label not placed yet are patched when it is.
+     */
+    static final class Label {
+
+        private int offset = -1;
+        private int stack = -1;
+        private boolean isJumpedTo;
+        private int[] jumps = new int[0];
+
+        boolean isPlaced() {
+            return offset >= 0;
+        }
+
+        int getOffset() {
+            return offset;
+        }
+    }
+
+    MethodWriter(ConstantPool pool, int access, String name, String descriptor, int parameterSlots) {
+        this.pool = pool;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.maxLocals = parameterSlots;
+    }
+
+    int getAccess() {
+        return access;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getDescriptor() {
+        return descriptor;
+    }
+
+    ConstantPool getPool() {
+        return pool;
+    }
+
+    /**
+     * The offset of the next instruction.
+     */
+    int getOffset() {
+        return length;
+    }
+
+    int getStack() {
+        return stack;
+    }
+
+    boolean isReachable() {
+        return isReachable;
+    }
+
+    /**
+     * Keeps local slots up to {@code slot + size} in the frame.
+     */
+    void useLocal(int slot, int size) {
+        maxLocals = Math.max(maxLocals, slot + size);
+    }
+
+    /**
+     * An instruction without operands changing the stack depth by {@code stackDelta}.
+     */
+    void op(int opcode, int stackDelta) {
+        putByte(opcode);
+        adjustStack(stackDelta);
+        if (opcode == ATHROW || (opcode >= IRETURN && opcode <= RETURN)) {
+            isReachable = false;
+        }
+    }
+
+    void intConstant(int value) {
+        if (value >= -1 && value <= 5) {
+            putByte(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            putByte(BIPUSH);
+            putByte(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            putByte(SIPUSH);
+            putShort(value);
+        } else {
+            constant(pool.integer(value));
+        }
+        adjustStack(1);
+    }
+
+    void longConstant(long value) {
+        if (value == 0 || value == 1) {
+            putByte(LCONST_0 + (int) value);
+        } else {
+            putByte(LDC2_W);
+            putShort(pool.longValue(value));
+        }
+        adjustStack(2);
+    }
+
+    void floatConstant(float value) {
+        if (Float.floatToRawIntBits(value) == 0 || value == 1 || value == 2) {
+            putByte(FCONST_0 + (int) value);
+        } else {
+            constant(pool.floatValue(value));
+        }
+        adjustStack(1);
+    }
+
+    void doubleConstant(double value) {
+        if (Double.doubleToRawLongBits(value) == 0 || value == 1) {
+            putByte(DCONST_0 + (int) value);
+        } else {
+            putByte(LDC2_W);
+            putShort(pool.doubleValue(value));
+        }
+        adjustStack(2);
+    }
+
+    void stringConstant(String value) {
+        constant(pool.string(value));
+        adjustStack(1);
+    }
+
+    /**
+     * A load or store of a local, {@code opcode} being the one of its type, see {@link MethodCompiler#opcode}.
+     */
+    void local(int opcode, int slot, int stackDelta) {
+        if (slot <= 3) {
+            // iload_0 and the like, four per typed load and store
+            int base = opcode < ISTORE ? 26 + (opcode - ILOAD) * 4 : 59 + (opcode - ISTORE) * 4;
+            putByte(base + slot);
+        } else if (slot <= 0xFF) {
+            putByte(opcode);
+            putByte(slot);
+        } else {
+            putByte(WIDE);
+            putByte(opcode);
+            putShort(slot);
+        }
+        adjustStack(stackDelta);
+    }
+
+    void increment(int slot, int delta) {
+        if (slot <= 0xFF && delta >= Byte.MIN_VALUE && delta <= Byte.MAX_VALUE) {
+            putByte(IINC);
+            putByte(slot);
+            putByte(delta);
+        } else {
+            putByte(WIDE);
+            putByte(IINC);
+            putShort(slot);
+            putShort(delta);
+        }
+    }
+
+    /**
+     * An instruction with a constant pool operand: a field or method access, {@code new}, {@code instanceof} and
+     * the like.
+     */
+    void poolOp(int opcode, int index, int stackDelta) {
+        putByte(opcode);
+        putShort(index);
+        adjustStack(stackDelta);
+    }
+
+    void invokeInterface(int index, int argumentSlots, int stackDelta) {
+        putByte(INVOKEINTERFACE);
+        putShort(index);
+        putByte(argumentSlots + 1);
+        putByte(0);
+        adjustStack(stackDelta);
+    }
+
+    /**
+     * A conditional jump popping {@code stackDelta} values, or a {@code goto}.
+     */
+    void jump(int opcode, Label target, int stackDelta) {
+        adjustStack(stackDelta);
+        int instruction = length;
+        putByte(opcode);
+        branchTo(target, instruction);
+        if (opcode == GOTO) {
+            isReachable = false;
+        }
+    }
+
+    /**
+     * A {@code lookupswitch} over the int on the stack, {@code keys} sorted.
+     */
+    void lookupSwitch(Label defaultTarget, int[] keys, Label[] targets) {
+        adjustStack(-1);
+        int instruction = length;
+        putByte(LOOKUPSWITCH);
+        while (length % 4 != 0) {
+            putByte(0);
+        }
+        branch4To(defaultTarget, instruction);
+        putInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            putInt(keys[i]);
+            branch4To(targets[i], instruction);
+        }
+        isReachable = false;
+    }
+
+    /**
+     * Places the label at the next instruction, which is reachable if anything jumps to it.
+     */
+    void mark(Label label) {
+        if (label.isPlaced()) {
+            throw new IllegalStateException("Label placed twice");
+        }
+        label.offset = length;
+        for (int i = 0; i < label.jumps.length; i += 2) {
+            int instruction = label.jumps[i];
+            int operand = label.jumps[i + 1];
+            int offset = length - instruction;
+            if (operand == instruction + 1) {
+                if (offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException(String.format("Method %s is too large to jump over", name));
+                }
+                putShortAt(operand, offset);
+            } else {
+                putIntAt(operand, offset);
+            }
+        }
+        label.jumps = null;
+        if (label.isJumpedTo) {
+            if (!isReachable) {
+                stack = label.stack;
+            }
+            isReachable = true;
+        }
+    }
+
+    /**
+     * Places the start of an exception handler, entered with the exception on the stack.
+     */
+    void markHandler(Label label) {
+        label.isJumpedTo = true;
+        label.stack = 1;
+        isReachable = false;
+        mark(label);
+    }
+
+    /**
+     * Catches exceptions of the type, any for {@code null}, thrown in {@code [start, end)} at the handler.
+     */
+    void addHandler(int start, int end, Label handler, String exceptionType) {
+        if (start < end) {
+            handlers.add(new int[]{start, end});
+            handlerTypes.add(exceptionType == null ? 0 : pool.classRef(exceptionType));
+            handlerLabels.add(handler);
+        }
+    }
+
+    void addLineNumber(int line) {
+        if (lineNumberCount > 0 && lineNumbers[lineNumberCount * 2 - 2] == length) {
+            lineNumberCount--;
+        } else if (lineNumberCount > 0 && lineNumbers[lineNumberCount * 2 - 1] == line) {
+            return;
+        }
+        if (lineNumberCount * 2 == lineNumbers.length) {
+            lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+        }
+        lineNumbers[lineNumberCount * 2] = length;
+        lineNumbers[lineNumberCount * 2 + 1] = line;
+        lineNumberCount++;
+    }
+
+    /**
+     * Writes the method with its {@code Code} attribute, none for abstract and native methods.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeShort(access);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        if ((access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
+            out.writeShort(0);
+            return;
+        }
+        if (length > MAX_CODE_SIZE) {
+            throw new IllegalStateException(String.format("Method %s has more than %d bytes of code",
+                    name, MAX_CODE_SIZE));
+        }
+        out.writeShort(1);
+
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        DataOutputStream codeOut = new DataOutputStream(attribute);
+        codeOut.writeShort(maxStack);
+        codeOut.writeShort(maxLocals);
+        codeOut.writeInt(length);
+        codeOut.write(code, 0, length);
+        codeOut.writeShort(handlers.size());
+        for (int i = 0; i < handlers.size(); i++) {
+            codeOut.writeShort(handlers.get(i)[0]);
+            codeOut.writeShort(handlers.get(i)[1]);
+            codeOut.writeShort(handlerLabels.get(i).getOffset());
+            codeOut.writeShort(handlerTypes.get(i));
+        }
+        if (lineNumberCount == 0) {
+            codeOut.writeShort(0);
+        } else {
+            codeOut.writeShort(1);
+            codeOut.writeShort(pool.utf8("LineNumberTable"));
+            codeOut.writeInt(2 + lineNumberCount * 4);
+            codeOut.writeShort(lineNumberCount);
+            for (int i = 0; i < lineNumberCount; i++) {
+                codeOut.writeShort(lineNumbers[i * 2]);
+                codeOut.writeShort(lineNumbers[i * 2 + 1]);
+            }
+        }
+
+        out.writeShort(pool.utf8("Code"));
+        out.writeInt(attribute.size());
+        attribute.writeTo(out);
+    }
+
+    private void constant(int index) {
+        if (index <= 0xFF) {
+            putByte(LDC);
+            putByte(index);
+        } else {
+            putByte(LDC_W);
+            putShort(index);
+        }
+    }
+
+    private void branchTo(Label target, int instruction) {
+        target.isJumpedTo = true;
+        if (target.stack < 0) {
+            target.stack = stack;
+        }
+        if (target.isPlaced()) {
+            int offset = target.offset - instruction;
+            if (offset < Short.MIN_VALUE) {
+                throw new IllegalStateException(String.format("Method %s is too large to jump back", name));
+            }
+            putShort(offset);
+        } else {
+            addJump(target, instruction);
+            putShort(0);
+        }
+    }
+
+    private void branch4To(Label target, int instruction) {
+        target.isJumpedTo = true;
+        if (target.stack < 0) {
+            target.stack = stack;
+        }
+        if (target.isPlaced()) {
+            putInt(target.offset - instruction);
+        } else {
+            addJump(target, instruction);
+            putInt(0);
+        }
+    }
+
+    /**
+     * Records the jump instruction and the position of its operand, patched when the target is placed.
+     */
+    private void addJump(Label target, int instruction) {
+        target.jumps = Arrays.copyOf(target.jumps, target.jumps.length + 2);
+        target.jumps[target.jumps.length - 2] = instruction;
+        target.jumps[target.jumps.length - 1] = length;
+    }
+
+    private void adjustStack(int delta) {
+        stack += delta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void putByte(int value) {
+        ensureCapacity(1);
+        code[length++] = (byte) value;
+    }
+
+    private void putShort(int value) {
+        ensureCapacity(2);
+        code[length++] = (byte) (value >>> 8);
+        code[length++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        putShort(value >>> 16);
+        putShort(value);
+    }
+
+    private void putShortAt(int at, int value) {
+        code[at] = (byte) (value >>> 8);
+        code[at + 1] = (byte) value;
+    }
+
+    private void putIntAt(int at, int value) {
+        putShortAt(at, value >>> 16);
+        putShortAt(at + 2, value);
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + count));
+        }
+    }
+}
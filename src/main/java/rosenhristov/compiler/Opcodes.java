@@ -0,0 +1,130 @@
+package main.java.rosenhristov.compiler;
+
+/**
+ * The JVM instructions, access flags and constant pool tags the {@link ClassWriter} uses, as numbered by the
+ * Java Virtual Machine Specification. Typed instructions are numbered in the order int, long, float, double,
+ * reference, see {@link MethodCompiler#opcode}.
+ */
+interface Opcodes {
+
+    int CLASS_FILE_MAGIC = 0xCAFEBABE;
+    /**
+     * Java 5 class files, the last ones verified without stack map frames, so methods need no frames computed.
+     */
+    int CLASS_FILE_VERSION = 49;
+
+    int ACC_PUBLIC = 0x0001;
+    int ACC_PRIVATE = 0x0002;
+    int ACC_PROTECTED = 0x0004;
+    int ACC_STATIC = 0x0008;
+    int ACC_FINAL = 0x0010;
+    int ACC_SUPER = 0x0020;
+    int ACC_SYNCHRONIZED = 0x0020;
+    int ACC_VOLATILE = 0x0040;
+    int ACC_TRANSIENT = 0x0080;
+    int ACC_VARARGS = 0x0080;
+    int ACC_NATIVE = 0x0100;
+    int ACC_ABSTRACT = 0x0400;
+
+    int CONSTANT_UTF8 = 1;
+    int CONSTANT_INTEGER = 3;
+    int CONSTANT_FLOAT = 4;
+    int CONSTANT_LONG = 5;
+    int CONSTANT_DOUBLE = 6;
+    int CONSTANT_CLASS = 7;
+    int CONSTANT_STRING = 8;
+    int CONSTANT_FIELDREF = 9;
+    int CONSTANT_METHODREF = 10;
+    int CONSTANT_INTERFACE_METHODREF = 11;
+    int CONSTANT_NAME_AND_TYPE = 12;
+
+    int ACONST_NULL = 1;
+    int ICONST_0 = 3;
+    int LCONST_0 = 9;
+    int FCONST_0 = 11;
+    int DCONST_0 = 14;
+    int BIPUSH = 16;
+    int SIPUSH = 17;
+    int LDC = 18;
+    int LDC_W = 19;
+    int LDC2_W = 20;
+    int ILOAD = 21;
+    int ALOAD = 25;
+    int IALOAD = 46;
+    int BALOAD = 51;
+    int CALOAD = 52;
+    int SALOAD = 53;
+    int ISTORE = 54;
+    int ASTORE = 58;
+    int IASTORE = 79;
+    int BASTORE = 84;
+    int CASTORE = 85;
+    int SASTORE = 86;
+    int POP = 87;
+    int POP2 = 88;
+    int DUP = 89;
+    int DUP_X1 = 90;
+    int DUP_X2 = 91;
+    int DUP2 = 92;
+    int DUP2_X1 = 93;
+    int DUP2_X2 = 94;
+    int IADD = 96;
+    int ISUB = 100;
+    int IMUL = 104;
+    int IDIV = 108;
+    int IREM = 112;
+    int INEG = 116;
+    int IAND = 126;
+    int IOR = 128;
+    int IINC = 132;
+    int I2L = 133;
+    int I2F = 134;
+    int I2D = 135;
+    int L2I = 136;
+    int L2F = 137;
+    int L2D = 138;
+    int F2I = 139;
+    int F2L = 140;
+    int F2D = 141;
+    int D2I = 142;
+    int D2L = 143;
+    int D2F = 144;
+    int I2B = 145;
+    int I2C = 146;
+    int I2S = 147;
+    int LCMP = 148;
+    int FCMPL = 149;
+    int DCMPL = 151;
+    int IFEQ = 153;
+    int IFNE = 154;
+    int IFLT = 155;
+    int IFGE = 156;
+    int IFGT = 157;
+    int IFLE = 158;
+    int IF_ICMPEQ = 159;
+    int IF_ICMPNE = 160;
+    int IF_ICMPLT = 161;
+    int IF_ICMPGE = 162;
+    int IF_ICMPGT = 163;
+    int IF_ICMPLE = 164;
+    int IF_ACMPEQ = 165;
+    int IF_ACMPNE = 166;
+    int GOTO = 167;
+    int LOOKUPSWITCH = 171;
+    int IRETURN = 172;
+    int RETURN = 177;
+    int GETSTATIC = 178;
+    int PUTSTATIC = 179;
+    int GETFIELD = 180;
+    int PUTFIELD = 181;
+    int INVOKEVIRTUAL = 182;
+    int INVOKESPECIAL = 183;
+    int INVOKESTATIC = 184;
+    int INVOKEINTERFACE = 185;
+    int NEW = 187;
+    int ARRAYLENGTH = 190;
+    int ATHROW = 191;
+    int CHECKCAST = 192;
+    int INSTANCEOF = 193;
+    int WIDE = 196;
+}
@@ -0,0 +1,2259 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles the statements of one method, or the field initializers of a class, for a backend: resolves the names,
+ * checks and converts the types, and lowers scopes, loops, matches and tries to labels and jumps, leaving the
+ * instructions to the subclass. The bytecode compiler and the {@link RegisterCompiler} are its two backends.
+ * <p>
+ * A value {@code V} is where a compiled expression left its result, on the operand stack or in a register, and
+ * knows its {@link #type(Object) type}. Expressions are compiled in the order they are evaluated, each operand right
+ * before the instruction using it, as a stack machine needs. Where a type is needed before the code, as for the
+ * arguments choosing an overload, {@link #typeOf(int)} compiles the expression once in a dry run and remembers its
+ * type in the {@link CompilationUnit}. Errors are reported there and the expression with one compiles to
+ * {@code null}, which the expressions around it give up on without reporting it again.
+ *
+ * @param <V> a compiled value
+ * @param <L> a label of the code
+ */
+public abstract class BodyCompiler<V, L> {
+
+    private static final RikType ITERABLE = RikType.of(Iterable.class);
+    private static final RikType ITERATOR = RikType.of(Iterator.class);
+    private static final RikType THROWABLE = RikType.of(Throwable.class);
+    private static final MethodSymbol ITERATOR_METHOD = interfaceMethod(Iterable.class, "iterator");
+    private static final MethodSymbol HAS_NEXT_METHOD = interfaceMethod(Iterator.class, "hasNext");
+    private static final MethodSymbol NEXT_METHOD = interfaceMethod(Iterator.class, "next");
+
+    protected final CompilationUnit unit;
+    protected final SyntaxTree tree;
+    protected final TokenColumns tokens;
+    protected final ProgramSymbols symbols;
+    protected final ClassSymbol owner;
+    protected final boolean isStatic;
+    protected final RikType returnType;
+
+    private int dryRuns;
+    private final List<Map<String, Local>> scopes = new ArrayList<>();
+    private final Deque<JumpTarget> jumpTargets = new ArrayDeque<>();
+    private List<TryContext> tries = new ArrayList<>();
+
+    /**
+     * The local the expression about to be compiled is assigned to, and the one of the expression being compiled,
+     * see {@link #resultTarget(RikType)}.
+     */
+    private Local pendingLocal;
+    private Local targetLocal;
+
+    /**
+     * A local variable, or a hidden one of the compiler, in a stack slot or a register.
+     */
+    protected static final class Local {
+
+        private final RikType type;
+        private final int slot;
+        private final boolean isConst;
+
+        private Local(RikType type, int slot, boolean isConst) {
+            this.type = type;
+            this.slot = slot;
+            this.isConst = isConst;
+        }
+
+        public RikType getType() {
+            return type;
+        }
+
+        /**
+         * The stack slot of the local, or its register in the register file of its type.
+         */
+        public int getSlot() {
+            return slot;
+        }
+    }
+
+    /**
+     * What an assignment or an increment stores to, with its receiver or array and index already compiled.
+     */
+    protected static final class Place<V> {
+
+        public enum Kind {
+            LOCAL, FIELD, ARRAY
+        }
+
+        private final Kind kind;
+        private final RikType type;
+        private final int node;
+        private Local local;
+        private FieldSymbol field;
+        private V receiver;
+        private V array;
+        private V index;
+
+        private Place(Kind kind, RikType type, int node) {
+            this.kind = kind;
+            this.type = type;
+            this.node = node;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public RikType getType() {
+            return type;
+        }
+
+        /**
+         * The node naming the place, where errors accessing it are reported.
+         */
+        public int getNode() {
+            return node;
+        }
+
+        public Local getLocal() {
+            return local;
+        }
+
+        public FieldSymbol getField() {
+            return field;
+        }
+
+        /**
+         * The object of an instance field, {@code null} for a static one.
+         */
+        public V getReceiver() {
+            return receiver;
+        }
+
+        public V getArray() {
+            return array;
+        }
+
+        public V getIndex() {
+            return index;
+        }
+
+        private boolean isConst() {
+            return kind == Kind.LOCAL ? local.isConst : kind == Kind.FIELD && field.isConst();
+        }
+    }
+
+    /**
+     * Where {@code skip} and {@code jump} go from inside a loop or match, and how many tries they leave.
+     */
+    private final class JumpTarget {
+
+        private final L skipLabel;
+        private final L jumpLabel;
+        private final int tryDepth;
+
+        private JumpTarget(L skipLabel, L jumpLabel, int tryDepth) {
+            this.skipLabel = skipLabel;
+            this.jumpLabel = jumpLabel;
+            this.tryDepth = tryDepth;
+        }
+    }
+
+    /**
+     * A try being compiled: its finally block, inlined at every exit, and the code ranges of those inlined copies,
+     * which its handlers must not cover.
+     */
+    private static final class TryContext {
+
+        private final int finallyBlock;
+        private final List<int[]> gaps = new ArrayList<>();
+
+        private TryContext(int finallyBlock) {
+            this.finallyBlock = finallyBlock;
+        }
+    }
+
+    protected enum Comparison {
+        EQ, NE, LT, GE, GT, LE
+    }
+
+    protected enum Operator {
+        ADD, SUB, MUL, DIV, REM, AND, OR
+    }
+
+    protected BodyCompiler(CompilationUnit unit, ClassSymbol owner, boolean isStatic, RikType returnType) {
+        this.unit = unit;
+        this.tree = unit.getTree();
+        this.tokens = tree.getTokens();
+        this.symbols = unit.getSymbols();
+        this.owner = owner;
+        this.isStatic = isStatic;
+        this.returnType = returnType;
+        scopes.add(new HashMap<>());
+    }
+
+
+    /**
+     * The type of a compiled value.
+     */
+    protected abstract RikType type(V value);
+
+    /**
+     * The value of an expression of type {@code void}.
+     */
+    protected abstract V voidValue();
+
+    protected abstract L newLabel();
+
+    /**
+     * Places the label here, where the code is reachable if it was or if a jump to the label was emitted.
+     */
+    protected abstract void mark(L label);
+
+    protected abstract void jump(L target);
+
+    protected abstract boolean isReachable();
+
+    /**
+     * The offset of the next instruction, as the ranges exception handlers cover.
+     */
+    protected abstract int position();
+
+    /**
+     * Starts compiling code that is dropped at the matching {@link #endDryRun()}, for {@link #typeOf(int)}.
+     */
+    protected abstract void beginDryRun();
+
+    protected abstract void endDryRun();
+
+    protected abstract void enterScope();
+
+    /**
+     * Frees the locals allocated since the matching {@link #enterScope()}.
+     */
+    protected abstract void exitScope();
+
+    /**
+     * The slot or register of a new local of the type, kept until its scope is left.
+     */
+    protected abstract int allocate(RikType type);
+
+    /**
+     * Called after each statement, when the values of its expressions are no longer used.
+     */
+    protected abstract void endStatement();
+
+    protected abstract void lineNumber(int line);
+
+    /**
+     * An integer, {@code char} or {@code bool} constant of the type.
+     */
+    protected abstract V constant(RikType type, long value);
+
+    /**
+     * An {@code f32} or {@code f64} constant, an {@code f32} one rounded to a float already.
+     */
+    protected abstract V constant(RikType type, double value);
+
+    /**
+     * A {@link String} or {@code null} constant.
+     */
+    protected abstract V constant(RikType type, Object value);
+
+    /**
+     * Drops the value of an expression statement.
+     */
+    protected abstract void discard(V value);
+
+    /**
+     * The value, kept as it is now while the code compiled after it runs.
+     */
+    protected abstract V keep(V value);
+
+    protected abstract V loadThis();
+
+    protected abstract V loadLocal(Local local);
+
+    protected abstract void storeLocal(Local local, V value);
+
+    /**
+     * Whether {@link #incrementLocal(Local, int)} adds the delta to a local of the type.
+     */
+    protected abstract boolean canIncrement(RikType type, int delta);
+
+    protected abstract void incrementLocal(Local local, int delta);
+
+    protected abstract V load(Place<V> place);
+
+    /**
+     * The value of the place, which is stored to after it.
+     */
+    protected abstract V loadForUpdate(Place<V> place);
+
+    /**
+     * Stores the value to the place.
+     *
+     * @return the value stored if it is used, else {@link #voidValue()}
+     */
+    protected abstract V store(Place<V> place, V value, boolean isValueUsed);
+
+    /**
+     * The value {@link #loadForUpdate(Place) loaded} from the place, kept as the value of a postfix increment.
+     */
+    protected abstract V keepOld(Place<V> place, V value);
+
+    protected abstract V arrayLoad(RikType elementType, V array, V index);
+
+    protected abstract V arrayLength(V array);
+
+    /**
+     * Calls the method, on the receiver unless it is static, with the arguments of its parameter types.
+     */
+    protected abstract V invoke(MethodSymbol method, V receiver, List<V> arguments, int node);
+
+    protected abstract V arithmetic(Operator operator, RikType type, V left, V right);
+
+    protected abstract V negate(V value);
+
+    /**
+     * Converts a number, widening or narrowing it as a cast would. Other values are only typed as {@code to}.
+     */
+    protected abstract V convert(V value, RikType to);
+
+    /**
+     * An {@link Object} typed as the reference type it is known to be.
+     */
+    protected abstract V cast(V value, RikType to);
+
+    protected abstract V instanceOf(V value, RikType type);
+
+    protected abstract void beginConcatenation();
+
+    /**
+     * An operand of a concatenation, appended once all of them are compiled or right away.
+     *
+     * @return the operand for {@link #finishConcatenation(List)}
+     */
+    protected abstract V append(V operand);
+
+    protected abstract V finishConcatenation(List<V> operands);
+
+    /**
+     * The {@link String} with the value appended, for {@code +=}.
+     */
+    protected abstract V concatenate(V current, V appended);
+
+    /**
+     * Jumps to the target if the two values of the type compare so. Only {@code ==} and {@code !=} compare
+     * values other than {@code i32} and {@code i64} ones.
+     */
+    protected abstract void branch(Comparison comparison, RikType type, V left, V right, L target);
+
+    protected abstract void branchIf(V value, boolean jumpIfTrue, L target);
+
+    /**
+     * Jumps to the target if the {@link String} equals the value, as {@link String#equals(Object)}.
+     */
+    protected abstract void branchIfEquals(V string, V value, L target);
+
+    /**
+     * Jumps to the target of the key equal to the int value, or to the default target.
+     */
+    protected abstract void switchOn(V value, int[] keys, List<L> targets, L defaultTarget);
+
+    /**
+     * The {@code bool} of a condition just compiled, which jumps to {@code isFalse} if it is false.
+     */
+    protected abstract V booleanValue(L isFalse);
+
+    /**
+     * Returns the value, or returns from a void method for {@code null}, as after a value that was reported.
+     */
+    protected abstract void returnValue(V value);
+
+    protected abstract void throwValue(V value);
+
+    /**
+     * Starts a handler of the code ranges catching the type, any {@link Throwable} for {@code null}, and storing
+     * what it catches in the local.
+     */
+    protected abstract void catchHandler(List<int[]> ranges, RikType type, Local local);
+
+    /**
+     * Whether the backend can access the field, after reporting it if not.
+     */
+    protected boolean isSupported(FieldSymbol field, int node) {
+        return true;
+    }
+
+    /**
+     * Whether the backend can call the method, after reporting it if not.
+     */
+    protected boolean isSupported(MethodSymbol method, int node) {
+        return true;
+    }
+
+    /**
+     * Whether the backend can catch the type, after reporting it if not.
+     */
+    protected boolean isCatchable(RikType type, int node) {
+        return true;
+    }
+
+
+    public void declareParameter(int parameter, RikType type) {
+        declare(parameter, unit.text(parameter), type, isConst(parameter));
+    }
+
+    /**
+     * Compiles the body of the method, ending a void one with a return if its end is reachable.
+     */
+    public void compileBody(int block, int method) {
+        block(block);
+        if (isReachable()) {
+            if (returnType.equals(RikType.VOID)) {
+                returnValue(null);
+            } else {
+                report(DiagnosticCode.MISSING_RETURN, method);
+            }
+        }
+    }
+
+    /**
+     * Compiles the initializers of the fields, all static ones in a class initializer or all instance ones in a
+     * constructor, and a return.
+     */
+    public void compileFieldInitializers(List<FieldSymbol> fields) {
+        for (FieldSymbol field : fields) {
+            int initializer = unit.getInitializer(field.getNode());
+            if (initializer < 0 || !isSupported(field, field.getNode())) {
+                continue;
+            }
+            addLineNumber(field.getNode());
+            Place<V> place = fieldPlace(field, field.isStatic() ? null : loadThis(), field.getNode());
+            V value = expressionAs(initializer, field.getType());
+            if (value != null) {
+                store(place, value, false);
+            }
+            endStatement();
+        }
+        if (isReachable()) {
+            returnValue(null);
+        }
+    }
+
+
+    private void statement(int node) {
+        if (!isReachable()) {
+            // dead code after a return, skip, jump or throw is not compiled
+            return;
+        }
+        addLineNumber(node);
+        switch (tree.getKind(node)) {
+            case BLOCK:
+                block(node);
+                break;
+            case LOCAL:
+                localDeclaration(node);
+                break;
+            case IF:
+                ifStatement(node);
+                break;
+            case WHILE:
+                whileStatement(node);
+                break;
+            case DO:
+                doStatement(node);
+                break;
+            case LOOP:
+                loopStatement(node);
+                break;
+            case MATCH:
+                matchStatement(node);
+                break;
+            case RETURN:
+                returnStatement(node);
+                break;
+            case SKIP:
+            case JUMP:
+                jumpStatement(node);
+                break;
+            case THROW:
+                throwStatement(node);
+                break;
+            case TRY:
+                tryStatement(node);
+                break;
+            case CLASS:
+            case TRAIT:
+            case ENUM:
+                report(DiagnosticCode.UNSUPPORTED, node, "A local " + tree.getKind(node).name().toLowerCase());
+                break;
+            case EMPTY:
+            case ERROR:
+                break;
+            default:
+                expressionStatement(node);
+                break;
+        }
+        endStatement();
+    }
+
+    private void block(int node) {
+        if (tree.getKind(node) != NodeKind.BLOCK) {
+            statement(node);
+            return;
+        }
+        pushScope();
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            statement(tree.getChild(node, index));
+        }
+        popScope();
+    }
+
+    /**
+     * A statement with a scope of its own, as the body of an {@code if} or a loop.
+     */
+    private void scoped(int node) {
+        pushScope();
+        statement(node);
+        popScope();
+    }
+
+    private void expressionStatement(int node) {
+        V value;
+        switch (tree.getKind(node)) {
+            case ASSIGN:
+                value = assignment(node, false);
+                break;
+            case POSTFIX:
+                value = increment(node, false, false);
+                break;
+            case UNARY:
+                value = isIncrement(node) ? increment(node, true, false) : expression(node);
+                break;
+            default:
+                value = expression(node);
+                break;
+        }
+        if (value != null) {
+            discard(value);
+        }
+    }
+
+    private void localDeclaration(int node) {
+        RikType type = unit.resolveType(unit.getTypeNode(node));
+        int initializer = unit.getInitializer(node);
+        String name = unit.text(node);
+        if (findLocal(name) != null) {
+            report(DiagnosticCode.INVALID_USE, node, "again, it is declared already");
+        }
+        // the initializer is compiled into the local, which is in scope only after it
+        Local local = new Local(type, allocate(type), isConst(node));
+        V value = initializer >= 0 ? expressionInto(initializer, local) : defaultValue(type);
+        if (value != null) {
+            storeLocal(local, value);
+        }
+        scopes.get(scopes.size() - 1).put(name, local);
+    }
+
+    private void ifStatement(int node) {
+        L elseLabel = newLabel();
+        L end = newLabel();
+        condition(tree.getChild(node, 0), false, elseLabel);
+        endStatement();
+        scoped(tree.getChild(node, 1));
+        if (tree.getChildCount(node) > 2) {
+            if (isReachable()) {
+                jump(end);
+            }
+            mark(elseLabel);
+            scoped(tree.getChild(node, 2));
+            mark(end);
+        } else {
+            mark(elseLabel);
+        }
+    }
+
+    private void whileStatement(int node) {
+        L start = newLabel();
+        L end = newLabel();
+        mark(start);
+        condition(tree.getChild(node, 0), false, end);
+        endStatement();
+        loopBody(tree.getChild(node, 1), end, start);
+        if (isReachable()) {
+            jump(start);
+        }
+        mark(end);
+    }
+
+    private void doStatement(int node) {
+        L start = newLabel();
+        L next = newLabel();
+        L end = newLabel();
+        mark(start);
+        loopBody(tree.getChild(node, 0), end, next);
+        mark(next);
+        if (isReachable()) {
+            condition(tree.getChild(node, 1), true, start);
+            endStatement();
+        }
+        mark(end);
+    }
+
+    /**
+     * The three forms of {@code loop}: with an initializer, condition and update, over the elements of an array or
+     * {@link Iterable}, or with a condition only.
+     */
+    private void loopStatement(int node) {
+        switch (tree.getChildCount(node)) {
+            case 4:
+                forLoop(node);
+                break;
+            case 3:
+                eachLoop(node);
+                break;
+            default:
+                whileStatement(node);
+                break;
+        }
+    }
+
+    private void forLoop(int node) {
+        int initializer = tree.getChild(node, 0);
+        int condition = tree.getChild(node, 1);
+        int update = tree.getChild(node, 2);
+        pushScope();
+        if (tree.getKind(initializer) == NodeKind.LOCAL) {
+            localDeclaration(initializer);
+        } else if (tree.getKind(initializer) != NodeKind.EMPTY) {
+            expressionStatement(initializer);
+        }
+        endStatement();
+        L start = newLabel();
+        L next = newLabel();
+        L end = newLabel();
+        mark(start);
+        if (tree.getKind(condition) != NodeKind.EMPTY) {
+            condition(condition, false, end);
+            endStatement();
+        }
+        loopBody(tree.getChild(node, 3), end, next);
+        mark(next);
+        if (isReachable()) {
+            if (tree.getKind(update) != NodeKind.EMPTY) {
+                expressionStatement(update);
+                endStatement();
+            }
+            jump(start);
+        }
+        mark(end);
+        popScope();
+    }
+
+    /**
+     * A loop over an array, with its length read once, or over an {@link Iterable}, with its iterator.
+     */
+    private void eachLoop(int node) {
+        int variable = tree.getChild(node, 0);
+        int iterated = tree.getChild(node, 1);
+        pushScope();
+        V values = expression(iterated);
+        if (values == null) {
+            popScope();
+            return;
+        }
+        RikType iteratedType = type(values);
+        RikType elementType;
+        if (iteratedType.isArray()) {
+            elementType = iteratedType.getElementType();
+        } else if (symbols.isAssignable(ITERABLE, iteratedType) && iteratedType.getSort() != RikType.Sort.NULL) {
+            elementType = RikType.OBJECT;
+        } else {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, iterated, "an array or Iterable", iteratedType);
+            discard(values);
+            popScope();
+            return;
+        }
+        RikType type = tree.getKind(variable) == NodeKind.LOCAL
+                ? unit.resolveType(unit.getTypeNode(variable))
+                : elementType;
+        L start = newLabel();
+        L next = newLabel();
+        L end = newLabel();
+        if (iteratedType.isArray()) {
+            Local array = hidden(iteratedType);
+            storeLocal(array, values);
+            Local index = hidden(RikType.I32);
+            storeLocal(index, constant(RikType.I32, 0));
+            Local length = hidden(RikType.I32);
+            storeLocal(length, arrayLength(loadLocal(array)));
+            Local element = declare(variable, unit.text(variable), type, isConst(variable));
+            mark(start);
+            branch(Comparison.GE, RikType.I32, loadLocal(index), loadLocal(length), end);
+            targetLocal = element;
+            V value = arrayLoad(elementType, loadLocal(array), loadLocal(index));
+            targetLocal = null;
+            value = coerce(value, type, variable);
+            if (value != null) {
+                storeLocal(element, value);
+            }
+            endStatement();
+            loopBody(tree.getChild(node, 2), end, next);
+            mark(next);
+            if (isReachable()) {
+                incrementLocal(index, 1);
+                jump(start);
+            }
+        } else {
+            if (!type.isReference()) {
+                report(DiagnosticCode.UNSUPPORTED, variable, "Unboxing the elements of an Iterable");
+            }
+            Local iterator = hidden(ITERATOR);
+            V value = invoke(ITERATOR_METHOD, values, List.of(), variable);
+            if (value != null) {
+                storeLocal(iterator, value);
+            }
+            Local element = declare(variable, unit.text(variable), type, isConst(variable));
+            mark(start);
+            V hasNext = invoke(HAS_NEXT_METHOD, loadLocal(iterator), List.of(), variable);
+            if (hasNext != null) {
+                branchIf(hasNext, false, end);
+            }
+            V nextElement = invoke(NEXT_METHOD, loadLocal(iterator), List.of(), variable);
+            if (nextElement != null) {
+                storeLocal(element, cast(nextElement, type));
+            }
+            endStatement();
+            loopBody(tree.getChild(node, 2), end, next);
+            mark(next);
+            if (isReachable()) {
+                jump(start);
+            }
+        }
+        mark(end);
+        popScope();
+    }
+
+    private void loopBody(int body, L skipLabel, L jumpLabel) {
+        jumpTargets.push(new JumpTarget(skipLabel, jumpLabel, tries.size()));
+        scoped(body);
+        jumpTargets.pop();
+    }
+
+    /**
+     * A match on int or char constants is a switch, any other one compares the selector with the labels in order.
+     */
+    private void matchStatement(int node) {
+        int selector = tree.getChild(node, 0);
+        RikType selectorType = typeOf(selector);
+        int caseCount = tree.getChildCount(node) - 1;
+        List<L> caseLabels = new ArrayList<>(caseCount);
+        L end = newLabel();
+        L defaultLabel = end;
+        for (int i = 0; i < caseCount; i++) {
+            caseLabels.add(newLabel());
+            if (tree.getKind(tree.getChild(node, i + 1)) == NodeKind.DEFAULT) {
+                defaultLabel = caseLabels.get(i);
+            }
+        }
+        if (selectorType.isUnknown()) {
+            reportUnknown(selector);
+            jump(defaultLabel);
+        } else if (isSwitchable(node, selectorType)) {
+            TreeMap<Integer, L> targets = new TreeMap<>();
+            for (int i = 0; i < caseCount; i++) {
+                int matchCase = tree.getChild(node, i + 1);
+                for (int index = 0; index < tree.getChildCount(matchCase) - 1; index++) {
+                    int label = tree.getChild(matchCase, index);
+                    if (targets.putIfAbsent(intConstant(label), caseLabels.get(i)) != null) {
+                        report(DiagnosticCode.INVALID_USE, label, "twice in a match");
+                    }
+                }
+            }
+            V value = expression(selector);
+            if (value != null) {
+                switchOn(value, targets.keySet().stream().mapToInt(Integer::intValue).toArray(),
+                        new ArrayList<>(targets.values()), defaultLabel);
+            } else {
+                jump(defaultLabel);
+            }
+        } else {
+            pushScope();
+            Local value = hidden(selectorType);
+            V selected = expressionInto(selector, value);
+            if (selected != null) {
+                storeLocal(value, selected);
+            }
+            for (int i = 0; i < caseCount; i++) {
+                int matchCase = tree.getChild(node, i + 1);
+                for (int index = 0; index < tree.getChildCount(matchCase) - 1; index++) {
+                    jumpIfMatches(value, tree.getChild(matchCase, index), caseLabels.get(i));
+                    endStatement();
+                }
+            }
+            jump(defaultLabel);
+            popScope();
+        }
+        endStatement();
+        jumpTargets.push(new JumpTarget(end, null, tries.size()));
+        for (int i = 0; i < caseCount; i++) {
+            int matchCase = tree.getChild(node, i + 1);
+            mark(caseLabels.get(i));
+            block(tree.getChild(matchCase, tree.getChildCount(matchCase) - 1));
+            if (isReachable()) {
+                jump(end);
+            }
+        }
+        jumpTargets.pop();
+        mark(end);
+    }
+
+    private boolean isSwitchable(int node, RikType selectorType) {
+        if (!selectorType.isIntegral() || selectorType.equals(RikType.I64)) {
+            return false;
+        }
+        for (int i = 1; i < tree.getChildCount(node); i++) {
+            int matchCase = tree.getChild(node, i);
+            for (int index = 0; index < tree.getChildCount(matchCase) - 1; index++) {
+                if (intConstant(tree.getChild(matchCase, index)) == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void jumpIfMatches(Local value, int label, L target) {
+        RikType labelType = typeOf(label);
+        if (labelType.isUnknown()) {
+            reportUnknown(label);
+            return;
+        }
+        RikType type = comparisonType(label, value.type, labelType);
+        if (type == null) {
+            return;
+        }
+        V selected = convert(loadLocal(value), type);
+        V labelValue = expressionAs(label, type);
+        if (labelValue == null) {
+            discard(selected);
+        } else if (value.type.isString()) {
+            branchIfEquals(selected, labelValue, target);
+        } else {
+            branch(Comparison.EQ, type, selected, labelValue, target);
+        }
+    }
+
+    private void returnStatement(int node) {
+        boolean hasValue = tree.getChildCount(node) > 0;
+        if (hasValue && returnType.equals(RikType.VOID)) {
+            report(DiagnosticCode.INVALID_USE, node, "with a value in a void method");
+            return;
+        }
+        if (!hasValue && !returnType.equals(RikType.VOID)) {
+            report(DiagnosticCode.INVALID_USE, node, "without a value in a method returning " + returnType);
+            return;
+        }
+        V value = hasValue ? expressionAs(tree.getChild(node, 0), returnType) : null;
+        if (hasFinally(0)) {
+            pushScope();
+            Local saved = value == null ? null : hidden(returnType);
+            if (saved != null) {
+                storeLocal(saved, value);
+            }
+            inlineFinallies(0);
+            value = saved != null && isReachable() ? loadLocal(saved) : null;
+            popScope();
+        }
+        if (isReachable()) {
+            returnValue(value);
+        }
+    }
+
+    private void jumpStatement(int node) {
+        boolean isSkip = tree.getKind(node) == NodeKind.SKIP;
+        JumpTarget target = null;
+        for (JumpTarget candidate : jumpTargets) {
+            if (candidate.tryDepth <= tries.size() && (isSkip || candidate.jumpLabel != null)) {
+                target = candidate;
+                break;
+            }
+        }
+        if (target == null) {
+            report(DiagnosticCode.INVALID_USE, node, isSkip ? "outside of a loop or match" : "outside of a loop");
+            return;
+        }
+        inlineFinallies(target.tryDepth);
+        if (isReachable()) {
+            jump(isSkip ? target.skipLabel : target.jumpLabel);
+        }
+    }
+
+    private void throwStatement(int node) {
+        int value = tree.getChild(node, 0);
+        V thrown = expression(value);
+        if (thrown == null) {
+            return;
+        }
+        RikType type = type(thrown);
+        if (!symbols.isAssignable(THROWABLE, type) || type.getSort() == RikType.Sort.NULL) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, value, THROWABLE, type);
+            discard(thrown);
+            return;
+        }
+        throwValue(thrown);
+    }
+
+    /**
+     * A try with its catches and finally. The finally block is inlined at the end of the try and catch blocks and
+     * before every {@code return}, {@code skip} and {@code jump} leaving it, and compiled once more as a handler of
+     * any exception, which it throws again. The handlers cover the try block, and that one the catch blocks too,
+     * without the inlined copies.
+     */
+    private void tryStatement(int node) {
+        int finallyNode = tree.findChild(node, NodeKind.FINALLY);
+        int finallyBlock = finallyNode < 0 ? -1 : tree.getChild(finallyNode, 0);
+        TryContext context = new TryContext(finallyBlock);
+        L exit = newLabel();
+        tries.add(context);
+        int start = position();
+        block(tree.getChild(node, 0));
+        List<int[]> tryRanges = exclude(start, position(), context.gaps);
+        exitTry(context, exit);
+        for (int index = 1; index < tree.getChildCount(node); index++) {
+            int catchNode = tree.getChild(node, index);
+            if (tree.getKind(catchNode) != NodeKind.CATCH) {
+                continue;
+            }
+            int parameter = tree.getChild(catchNode, 0);
+            int typeNode = unit.getTypeNode(parameter);
+            RikType type = unit.resolveType(typeNode);
+            if (!type.isUnknown() && (!type.isReference() || !symbols.isAssignable(THROWABLE, type))) {
+                report(DiagnosticCode.INCOMPATIBLE_TYPES, typeNode, THROWABLE, type);
+                type = RikType.UNKNOWN;
+            } else if (!type.isUnknown() && !isCatchable(type, typeNode)) {
+                type = RikType.UNKNOWN;
+            }
+            pushScope();
+            Local exception = declare(parameter, unit.text(parameter), type, isConst(parameter));
+            catchHandler(tryRanges, type.isUnknown() ? null : type, exception);
+            block(tree.getChild(catchNode, 1));
+            popScope();
+            exitTry(context, exit);
+        }
+        int end = position();
+        tries.remove(tries.size() - 1);
+        if (finallyBlock >= 0) {
+            pushScope();
+            Local thrown = hidden(THROWABLE);
+            catchHandler(exclude(start, end, context.gaps), null, thrown);
+            block(finallyBlock);
+            if (isReachable()) {
+                throwValue(loadLocal(thrown));
+            }
+            popScope();
+        }
+        mark(exit);
+    }
+
+    /**
+     * The normal end of a try or catch block: its finally block, outside of the try, and a jump past the handlers.
+     */
+    private void exitTry(TryContext context, L exit) {
+        if (!isReachable()) {
+            return;
+        }
+        int start = position();
+        if (context.finallyBlock >= 0) {
+            tries.remove(tries.size() - 1);
+            block(context.finallyBlock);
+            tries.add(context);
+        }
+        if (isReachable()) {
+            jump(exit);
+        }
+        context.gaps.add(new int[]{start, position()});
+    }
+
+    /**
+     * Inlines the finally blocks of the tries from the innermost one to the one at {@code depth}, each outside of
+     * its own try, as a {@code return}, {@code skip} or {@code jump} leaves them.
+     */
+    private void inlineFinallies(int depth) {
+        if (!hasFinally(depth)) {
+            return;
+        }
+        int start = position();
+        List<TryContext> active = tries;
+        for (int index = active.size() - 1; index >= depth && isReachable(); index--) {
+            if (active.get(index).finallyBlock >= 0) {
+                tries = new ArrayList<>(active.subList(0, index));
+                block(active.get(index).finallyBlock);
+            }
+        }
+        tries = active;
+        for (int index = depth; index < active.size(); index++) {
+            active.get(index).gaps.add(new int[]{start, position()});
+        }
+    }
+
+    private boolean hasFinally(int depth) {
+        for (int index = depth; index < tries.size(); index++) {
+            if (tries.get(index).finallyBlock >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The range {@code [start, end)} without the gaps, as ranges.
+     */
+    private static List<int[]> exclude(int start, int end, List<int[]> gaps) {
+        List<int[]> sorted = new ArrayList<>(gaps);
+        sorted.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> ranges = new ArrayList<>();
+        int from = start;
+        for (int[] gap : sorted) {
+            if (gap[0] >= end) {
+                break;
+            }
+            if (gap[0] > from) {
+                ranges.add(new int[]{from, gap[0]});
+            }
+            from = Math.max(from, gap[1]);
+        }
+        if (from < end) {
+            ranges.add(new int[]{from, end});
+        }
+        return ranges;
+    }
+
+
+    /**
+     * Jumps to the target if the boolean expression is {@code jumpIfTrue}, without computing its value where the
+     * operator allows.
+     */
+    private void condition(int node, boolean jumpIfTrue, L target) {
+        if (tree.getKind(node) == NodeKind.BINARY) {
+            String operator = unit.text(node);
+            int left = tree.getChild(node, 0);
+            int right = tree.getChild(node, 1);
+            if (operator.equals("&&") || operator.equals("||")) {
+                boolean isAnd = operator.equals("&&");
+                if (isAnd != jumpIfTrue) {
+                    condition(left, jumpIfTrue, target);
+                    condition(right, jumpIfTrue, target);
+                } else {
+                    L skip = newLabel();
+                    condition(left, !jumpIfTrue, skip);
+                    condition(right, jumpIfTrue, target);
+                    mark(skip);
+                }
+                unit.setNodeType(node, RikType.BOOL);
+                return;
+            }
+            if (operator.equals("==")) {
+                if (!compareBranch(left, right, jumpIfTrue, target)
+                        && !compareBranch(right, left, jumpIfTrue, target)) {
+                    equalityBranch(node, jumpIfTrue, target);
+                }
+                unit.setNodeType(node, RikType.BOOL);
+                return;
+            }
+        }
+        Boolean constant = booleanConstant(node);
+        if (constant != null) {
+            if (constant == jumpIfTrue) {
+                jump(target);
+            }
+            unit.setNodeType(node, RikType.BOOL);
+            return;
+        }
+        V value = expressionAs(node, RikType.BOOL);
+        if (value != null) {
+            branchIf(value, jumpIfTrue, target);
+        }
+    }
+
+    private void equalityBranch(int node, boolean jumpIfTrue, L target) {
+        int left = tree.getChild(node, 0);
+        int right = tree.getChild(node, 1);
+        if (typeOf(left).isUnknown() || typeOf(right).isUnknown()) {
+            reportUnknown(left, right);
+            return;
+        }
+        RikType type = comparisonType(node, typeOf(left), typeOf(right));
+        if (type == null) {
+            return;
+        }
+        V leftValue = stabilize(expressionAs(left, type), right);
+        V rightValue = expressionAs(right, type);
+        if (leftValue != null && rightValue != null) {
+            branch(jumpIfTrue ? Comparison.EQ : Comparison.NE, type, leftValue, rightValue, target);
+        }
+    }
+
+    /**
+     * {@code Integer.compare(a, b) == -1}, and the same with {@code 0} and {@code 1} and {@code Long.compare}, as
+     * one branch, if the call is one.
+     */
+    private boolean compareBranch(int call, int result, boolean jumpIfTrue, L target) {
+        Integer expected = intConstant(result);
+        if (tree.getKind(call) != NodeKind.CALL || tree.getChildCount(call) != 3 || expected == null
+                || expected < -1 || expected > 1 || tokens.getType(tree.getToken(result)) == TokenType.CHAR_LITERAL) {
+            return false;
+        }
+        int callee = tree.getChild(call, 0);
+        if (tree.getKind(callee) != NodeKind.MEMBER || !unit.text(tree.getChild(callee, 1)).equals("compare")) {
+            return false;
+        }
+        RikType box = typeName(tree.getChild(callee, 0));
+        RikType parameterType;
+        if (RikType.of(Integer.class).equals(box)) {
+            parameterType = RikType.I32;
+        } else if (RikType.of(Long.class).equals(box)) {
+            parameterType = RikType.I64;
+        } else {
+            return false;
+        }
+        int left = tree.getChild(call, 1);
+        int right = tree.getChild(call, 2);
+        RikType leftType = typeOf(left);
+        RikType rightType = typeOf(right);
+        if (leftType.isUnknown() || rightType.isUnknown() || !symbols.isAssignable(parameterType, leftType)
+                || !symbols.isAssignable(parameterType, rightType)) {
+            // compiled as a call, which reports the arguments
+            return false;
+        }
+        V leftValue = stabilize(expressionAs(left, parameterType), right);
+        V rightValue = expressionAs(right, parameterType);
+        if (leftValue != null && rightValue != null) {
+            Comparison comparison;
+            if (expected == -1) {
+                comparison = jumpIfTrue ? Comparison.LT : Comparison.GE;
+            } else if (expected == 0) {
+                comparison = jumpIfTrue ? Comparison.EQ : Comparison.NE;
+            } else {
+                comparison = jumpIfTrue ? Comparison.GT : Comparison.LE;
+            }
+            branch(comparison, parameterType, leftValue, rightValue, target);
+        }
+        unit.setNodeType(call, RikType.I32);
+        return true;
+    }
+
+    /**
+     * The type two values are compared in: their promoted numeric type, {@code bool}, or {@link Object} for
+     * references, which are compared by identity.
+     */
+    private RikType comparisonType(int node, RikType left, RikType right) {
+        if (left.isNumeric() && right.isNumeric()) {
+            return promote(left, right);
+        }
+        if (left.equals(RikType.BOOL) && right.equals(RikType.BOOL)) {
+            return RikType.BOOL;
+        }
+        if (left.isReference() && right.isReference()) {
+            return RikType.OBJECT;
+        }
+        report(DiagnosticCode.INCOMPATIBLE_TYPES, node, left, right);
+        return null;
+    }
+
+
+    /**
+     * Compiles the expression and returns its value, or {@code null} after reporting why it has none.
+     */
+    protected final V expression(int node) {
+        Local savedTarget = targetLocal;
+        targetLocal = pendingLocal;
+        pendingLocal = null;
+        try {
+            V value = compileExpression(node);
+            if (value != null && type(value).isUnknown()) {
+                // typed by a declaration that was reported
+                value = null;
+            }
+            unit.setNodeType(node, value == null ? RikType.UNKNOWN : type(value));
+            return value;
+        } finally {
+            targetLocal = savedTarget;
+        }
+    }
+
+    /**
+     * The type of the expression, compiled in a dry run without reporting errors if it was not compiled before.
+     */
+    protected final RikType typeOf(int node) {
+        RikType type = unit.getNodeType(node);
+        if (type != null) {
+            return type;
+        }
+        Local savedPending = pendingLocal;
+        pendingLocal = null;
+        dryRuns++;
+        beginDryRun();
+        try {
+            expression(node);
+            return unit.getNodeType(node);
+        } finally {
+            endDryRun();
+            dryRuns--;
+            pendingLocal = savedPending;
+        }
+    }
+
+    /**
+     * Compiles the operands typed as unknown by {@link #typeOf(int)} once more, reporting what made them unknown,
+     * and gives up the expression.
+     */
+    private V reportUnknown(int... operands) {
+        for (int operand : operands) {
+            if (typeOf(operand).isUnknown()) {
+                expression(operand);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the expression as a value of the target type, widening it if needed. Number literals are constants
+     * of the target type if they fit in it.
+     */
+    private V expressionAs(int node, RikType target) {
+        if (target.isNumeric()) {
+            V constant = numberConstant(node, target);
+            if (constant != null) {
+                unit.setNodeType(node, target);
+                return constant;
+            }
+        }
+        V value = expression(node);
+        return value == null ? null : coerce(value, target, node);
+    }
+
+    /**
+     * Compiles the expression as a value of the type of the local, to be stored to it, straight into it where the
+     * backend allows.
+     */
+    private V expressionInto(int node, Local local) {
+        pendingLocal = local;
+        try {
+            return expressionAs(node, local.type);
+        } finally {
+            pendingLocal = null;
+        }
+    }
+
+    /**
+     * The local the result of the expression being compiled may be written to: the local it is assigned to if it
+     * has the type, else {@code null}. A backend writing its result elsewhere leaves the store to the caller.
+     */
+    protected final Local resultTarget(RikType type) {
+        if (targetLocal != null && targetLocal.type.equals(type)) {
+            Local local = targetLocal;
+            targetLocal = null;
+            return local;
+        }
+        return null;
+    }
+
+    private V compileExpression(int node) {
+        switch (tree.getKind(node)) {
+            case LITERAL:
+                return literal(node);
+            case NAME:
+                return name(node);
+            case MEMBER:
+                return member(node);
+            case CALL:
+                return call(node);
+            case INDEX:
+                return index(node);
+            case ASSIGN:
+                return assignment(node, true);
+            case BINARY:
+                return binary(node);
+            case UNARY:
+                return isIncrement(node) ? increment(node, true, true) : unary(node);
+            case POSTFIX:
+                return increment(node, false, true);
+            case ERROR:
+            case EMPTY:
+                return null;
+            default:
+                report(DiagnosticCode.UNSUPPORTED, node, tree.getKind(node).name().toLowerCase() + " expression");
+                return null;
+        }
+    }
+
+    private V literal(int node) {
+        int token = tree.getToken(node);
+        switch (tokens.getType(token)) {
+            case NUMBER:
+                return number(token, false, node);
+            case STRING_LITERAL:
+                return constant(RikType.STRING, (Object) unescape(tree.getText(node)));
+            case CHAR_LITERAL:
+                String value = unescape(tree.getText(node));
+                if (value.length() != 1) {
+                    report(DiagnosticCode.INVALID_USE, node, "as a char, it is not one character");
+                    return null;
+                }
+                return constant(RikType.CHAR, value.charAt(0));
+            default:
+                return constant(RikType.NULL, (Object) null);
+        }
+    }
+
+    /**
+     * An integer literal is an {@code i32}, or an {@code i64} if it does not fit, a float literal an {@code f64}.
+     */
+    private V number(int token, boolean isNegated, int node) {
+        NumberLiteral.Kind kind = tokens.getNumberKind(token);
+        if (kind == NumberLiteral.Kind.FLOAT) {
+            double value = tokens.getDoubleValue(token);
+            return constant(RikType.F64, isNegated ? -value : value);
+        }
+        if (kind != NumberLiteral.Kind.INTEGER) {
+            // reported by the lexer
+            return null;
+        }
+        BigInteger value = isNegated ? tokens.getIntegerValue(token).negate() : tokens.getIntegerValue(token);
+        if (tokens.fitsIn(token, NumberType.I32, isNegated)) {
+            return constant(RikType.I32, value.intValue());
+        }
+        if (tokens.fitsIn(token, NumberType.I64, isNegated)) {
+            return constant(RikType.I64, value.longValue());
+        }
+        report(DiagnosticCode.UNSUPPORTED, node, "An i128 number");
+        return null;
+    }
+
+    /**
+     * A number literal, negated or not, as a constant of the numeric target type if it fits in it, or {@code null}.
+     */
+    private V numberConstant(int node, RikType target) {
+        boolean isNegated = false;
+        int literal = node;
+        if (tree.getKind(node) == NodeKind.UNARY && unit.text(node).equals("-")) {
+            isNegated = true;
+            literal = tree.getChild(node, 0);
+        }
+        if (tree.getKind(literal) != NodeKind.LITERAL || tokens.getType(tree.getToken(literal)) != TokenType.NUMBER) {
+            return null;
+        }
+        int token = tree.getToken(literal);
+        NumberLiteral.Kind kind = tokens.getNumberKind(token);
+        if (kind == NumberLiteral.Kind.FLOAT && (target.equals(RikType.F32) || target.equals(RikType.F64))) {
+            if (!tokens.fitsIn(token, NumberType.valueOf(target.getSort().name()), isNegated)) {
+                return null;
+            }
+            double value = isNegated ? -tokens.getDoubleValue(token) : tokens.getDoubleValue(token);
+            return constant(target, target.equals(RikType.F32) ? (double) (float) value : value);
+        }
+        if (kind != NumberLiteral.Kind.INTEGER) {
+            return null;
+        }
+        BigInteger value = isNegated ? tokens.getIntegerValue(token).negate() : tokens.getIntegerValue(token);
+        if (target.equals(RikType.CHAR)) {
+            if (value.signum() < 0 || value.bitLength() > Character.SIZE) {
+                return null;
+            }
+        } else if (!tokens.fitsIn(token, NumberType.valueOf(target.getSort().name()), isNegated)) {
+            return null;
+        }
+        switch (target.getSort()) {
+            case I64:
+                return constant(target, value.longValue());
+            case F32:
+                return constant(target, (double) value.floatValue());
+            case F64:
+                return constant(target, value.doubleValue());
+            default:
+                return constant(target, value.intValue());
+        }
+    }
+
+    /**
+     * The value of an int or char constant used as a {@code match} label, or {@code null}.
+     */
+    private Integer intConstant(int node) {
+        boolean isNegated = false;
+        int literal = node;
+        if (tree.getKind(node) == NodeKind.UNARY && unit.text(node).equals("-")) {
+            isNegated = true;
+            literal = tree.getChild(node, 0);
+        }
+        if (tree.getKind(literal) != NodeKind.LITERAL) {
+            return null;
+        }
+        int token = tree.getToken(literal);
+        if (tokens.getType(token) == TokenType.CHAR_LITERAL && !isNegated) {
+            String value = unescape(tree.getText(literal));
+            return value.length() == 1 ? (int) value.charAt(0) : null;
+        }
+        if (tokens.getType(token) != TokenType.NUMBER
+                || tokens.getNumberKind(token) != NumberLiteral.Kind.INTEGER
+                || !tokens.fitsIn(token, NumberType.I32, isNegated)) {
+            return null;
+        }
+        BigInteger value = tokens.getIntegerValue(token);
+        return (isNegated ? value.negate() : value).intValue();
+    }
+
+    private V name(int node) {
+        String keyword = unit.keyword(node);
+        if ("this".equals(keyword)) {
+            if (isStatic) {
+                report(DiagnosticCode.INVALID_USE, node, "in a static method");
+                return null;
+            }
+            return loadThis();
+        }
+        if (keyword != null) {
+            report(DiagnosticCode.UNSUPPORTED, node, keyword.equals("base") ? "base" : "A keyword as a value");
+            return null;
+        }
+        String name = unit.text(node);
+        Local local = findLocal(name);
+        if (local != null) {
+            return loadLocal(local);
+        }
+        FieldSymbol field = symbols.findField(owner.getType(), name);
+        if (field != null) {
+            Place<V> place = ownFieldPlace(field, node);
+            return place == null ? null : load(place);
+        }
+        Boolean constant = booleanConstant(node);
+        if (constant != null) {
+            return constant(RikType.BOOL, constant ? 1 : 0);
+        }
+        report(DiagnosticCode.UNKNOWN_SYMBOL, node, name);
+        return null;
+    }
+
+    /**
+     * The value of {@code true}, {@code false}, {@code yes} and {@code no}, unless a local or field of the name
+     * hides it, or {@code null}.
+     */
+    private Boolean booleanConstant(int node) {
+        if (tree.getKind(node) != NodeKind.NAME || unit.keyword(node) != null) {
+            return null;
+        }
+        String name = unit.text(node);
+        boolean isTrue = name.equals("true") || name.equals("yes");
+        if (!isTrue && !name.equals("false") && !name.equals("no")) {
+            return null;
+        }
+        return isVariable(name) ? null : isTrue;
+    }
+
+    private boolean isVariable(String name) {
+        return findLocal(name) != null || symbols.findField(owner.getType(), name) != null;
+    }
+
+    /**
+     * The class a {@link NodeKind#NAME} or {@link NodeKind#MEMBER} chain names, as {@code System} or
+     * {@code java.util.List}, unless its first name is a variable, or {@code null}.
+     */
+    private RikType typeName(int node) {
+        String name = dottedName(node);
+        if (name == null) {
+            return null;
+        }
+        int dot = name.indexOf('.');
+        if (isVariable(dot < 0 ? name : name.substring(0, dot))) {
+            return null;
+        }
+        return unit.resolveClass(name);
+    }
+
+    private String dottedName(int node) {
+        if (tree.getKind(node) == NodeKind.NAME) {
+            return unit.keyword(node) == null ? unit.text(node) : null;
+        }
+        if (tree.getKind(node) == NodeKind.MEMBER) {
+            String target = dottedName(tree.getChild(node, 0));
+            return target == null ? null : target + '.' + unit.text(tree.getChild(node, 1));
+        }
+        return null;
+    }
+
+    private V member(int node) {
+        int target = tree.getChild(node, 0);
+        if (typeName(target) == null && typeOf(target).isArray() && unit.text(tree.getChild(node, 1)).equals("length")) {
+            V array = expression(target);
+            return array == null ? null : arrayLength(array);
+        }
+        Place<V> place = memberPlace(node);
+        return place == null ? null : load(place);
+    }
+
+    private V call(int node) {
+        int callee = tree.getChild(node, 0);
+        int argumentCount = tree.getChildCount(node) - 1;
+        int[] argumentNodes = new int[argumentCount];
+        List<RikType> argumentTypes = new ArrayList<>(argumentCount);
+        for (int index = 0; index < argumentCount; index++) {
+            argumentNodes[index] = tree.getChild(node, index + 1);
+            argumentTypes.add(typeOf(argumentNodes[index]));
+        }
+        if (argumentTypes.contains(RikType.UNKNOWN)) {
+            return reportUnknown(argumentNodes);
+        }
+        for (int index = 0; index < argumentCount; index++) {
+            if (argumentTypes.get(index).equals(RikType.VOID)) {
+                report(DiagnosticCode.INCOMPATIBLE_TYPES, argumentNodes[index], "a value", RikType.VOID);
+                return null;
+            }
+        }
+        MethodSymbol method;
+        int nameNode;
+        V receiver = null;
+        if (tree.getKind(callee) == NodeKind.NAME && unit.keyword(callee) == null) {
+            nameNode = callee;
+            method = selectMethod(owner.getType(), callee, argumentTypes, false);
+            if (method == null) {
+                return null;
+            }
+            if (!method.isStatic()) {
+                if (isStatic) {
+                    report(DiagnosticCode.INVALID_USE, callee, "in a static method");
+                    return null;
+                }
+                receiver = loadThis();
+            }
+        } else if (tree.getKind(callee) == NodeKind.MEMBER) {
+            int target = tree.getChild(callee, 0);
+            nameNode = tree.getChild(callee, 1);
+            RikType targetClass = typeName(target);
+            if (targetClass != null) {
+                method = selectMethod(targetClass, nameNode, argumentTypes, true);
+                if (method == null) {
+                    return null;
+                }
+            } else {
+                receiver = expression(target);
+                if (receiver == null) {
+                    return null;
+                }
+                method = selectMethod(type(receiver), nameNode, argumentTypes, false);
+                if (method == null) {
+                    discard(receiver);
+                    return null;
+                }
+                if (method.isStatic()) {
+                    discard(receiver);
+                    receiver = null;
+                }
+            }
+        } else {
+            report(DiagnosticCode.UNSUPPORTED, callee, "Calling an expression");
+            return null;
+        }
+        if (!isSupported(method, nameNode)) {
+            return null;
+        }
+        checkAccess(method.getOwner(), method.getAccess(), nameNode);
+        receiver = stabilize(receiver, argumentNodes);
+        List<V> arguments = new ArrayList<>(argumentCount);
+        for (int index = 0; index < argumentCount; index++) {
+            V argument = expressionAs(argumentNodes[index], method.getParameterTypes().get(index));
+            if (argument == null) {
+                return null;
+            }
+            arguments.add(stabilize(argument, Arrays.copyOfRange(argumentNodes, index + 1, argumentCount)));
+        }
+        return invoke(method, receiver, arguments, nameNode);
+    }
+
+    private MethodSymbol selectMethod(RikType type, int nameNode, List<RikType> argumentTypes, boolean isStaticOnly) {
+        String name = unit.text(nameNode);
+        List<MethodSymbol> methods = symbols.findMethods(type, name);
+        if (isStaticOnly) {
+            methods.removeIf(method -> !method.isStatic());
+        }
+        MethodSymbol method = symbols.selectMethod(methods, argumentTypes);
+        if (method == null) {
+            StringBuilder signature = new StringBuilder(isStaticOnly ? "static method " : "method ").append(name);
+            signature.append('(');
+            for (int i = 0; i < argumentTypes.size(); i++) {
+                signature.append(i == 0 ? "" : ", ").append(argumentTypes.get(i));
+            }
+            report(DiagnosticCode.UNKNOWN_SYMBOL, nameNode, signature.append(") of ").append(type));
+        }
+        return method;
+    }
+
+    private V index(int node) {
+        int arrayNode = tree.getChild(node, 0);
+        int indexNode = tree.getChild(node, 1);
+        V array = expression(arrayNode);
+        if (array == null) {
+            return null;
+        }
+        if (!type(array).isArray()) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, arrayNode, "an array", type(array));
+            return null;
+        }
+        array = stabilize(array, indexNode);
+        V index = expressionAs(indexNode, RikType.I32);
+        return index == null ? null : arrayLoad(type(array).getElementType(), array, index);
+    }
+
+    private V binary(int node) {
+        String operator = unit.text(node);
+        if (operator.equals("&&") || operator.equals("||") || operator.equals("==")) {
+            L isFalse = newLabel();
+            condition(node, false, isFalse);
+            return booleanValue(isFalse);
+        }
+        int left = tree.getChild(node, 0);
+        int right = tree.getChild(node, 1);
+        if ("is".equals(unit.keyword(node))) {
+            return instanceOf(left, right);
+        }
+        RikType leftType = typeOf(left);
+        RikType rightType = typeOf(right);
+        if (leftType.isUnknown() || rightType.isUnknown()) {
+            return reportUnknown(left, right);
+        }
+        if (operator.equals("+") && (leftType.isString() || rightType.isString())) {
+            return concatenation(node);
+        }
+        Operator arithmetic = operator(operator);
+        if (arithmetic == null) {
+            report(DiagnosticCode.UNSUPPORTED, node, "The operator " + operator);
+            return null;
+        }
+        RikType type = operationType(node, arithmetic, leftType, rightType);
+        if (type == null) {
+            return null;
+        }
+        V leftValue = stabilize(expressionAs(left, type), right);
+        V rightValue = expressionAs(right, type);
+        if (leftValue == null || rightValue == null) {
+            return null;
+        }
+        return arithmetic(arithmetic, type, leftValue, rightValue);
+    }
+
+    private static Operator operator(String operator) {
+        switch (operator) {
+            case "+":
+                return Operator.ADD;
+            case "-":
+                return Operator.SUB;
+            case "*":
+                return Operator.MUL;
+            case "/":
+                return Operator.DIV;
+            case "%":
+                return Operator.REM;
+            case "&":
+                return Operator.AND;
+            case "|":
+                return Operator.OR;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The type an arithmetic or bitwise operation is computed in, or {@code null} after reporting the operands.
+     */
+    private RikType operationType(int node, Operator operator, RikType left, RikType right) {
+        if (operator == Operator.AND || operator == Operator.OR) {
+            if (left.equals(RikType.BOOL) && right.equals(RikType.BOOL)) {
+                return RikType.BOOL;
+            }
+            if (left.isIntegral() && right.isIntegral()) {
+                return promote(left, right);
+            }
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, node, "integers or bools", left + " and " + right);
+            return null;
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            return promote(left, right);
+        }
+        report(DiagnosticCode.INCOMPATIBLE_TYPES, node, "numbers", left + " and " + right);
+        return null;
+    }
+
+    /**
+     * Binary numeric promotion: {@code f64}, {@code f32}, {@code i64} or else {@code i32}.
+     */
+    private static RikType promote(RikType left, RikType right) {
+        for (RikType type : new RikType[]{RikType.F64, RikType.F32, RikType.I64}) {
+            if (left.equals(type) || right.equals(type)) {
+                return type;
+            }
+        }
+        return RikType.I32;
+    }
+
+    /**
+     * A chain of {@code +} with a {@link String} operand, appended to one {@link String}.
+     */
+    private V concatenation(int node) {
+        List<Integer> operandNodes = new ArrayList<>();
+        collectConcatenated(node, operandNodes);
+        beginConcatenation();
+        List<V> operands = new ArrayList<>(operandNodes.size());
+        for (int i = 0; i < operandNodes.size(); i++) {
+            int operand = operandNodes.get(i);
+            V value = expression(operand);
+            if (value == null) {
+                return null;
+            }
+            if (type(value).equals(RikType.VOID)) {
+                report(DiagnosticCode.INCOMPATIBLE_TYPES, operand, "a value", RikType.VOID);
+                return null;
+            }
+            for (int later = i + 1; later < operandNodes.size(); later++) {
+                value = stabilize(value, operandNodes.get(later));
+            }
+            operands.add(append(value));
+        }
+        return finishConcatenation(operands);
+    }
+
+    private void collectConcatenated(int node, List<Integer> operands) {
+        if (tree.getKind(node) == NodeKind.BINARY && unit.text(node).equals("+")) {
+            int left = tree.getChild(node, 0);
+            int right = tree.getChild(node, 1);
+            if (typeOf(left).isString() || typeOf(right).isString()) {
+                collectConcatenated(left, operands);
+                operands.add(right);
+                unit.setNodeType(node, RikType.STRING);
+                return;
+            }
+        }
+        operands.add(node);
+    }
+
+    private V instanceOf(int left, int right) {
+        RikType type = typeName(right);
+        if (type == null) {
+            report(DiagnosticCode.UNKNOWN_SYMBOL, right, "class " + unit.text(right));
+            return null;
+        }
+        V value = expression(left);
+        if (value == null) {
+            return null;
+        }
+        if (!type(value).isReference()) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, left, "a reference", type(value));
+            return null;
+        }
+        return instanceOf(value, type);
+    }
+
+    private V unary(int node) {
+        String operator = unit.text(node);
+        int operand = tree.getChild(node, 0);
+        if (!operator.equals("-") && !operator.equals("+")) {
+            report(DiagnosticCode.UNSUPPORTED, node, "The operator " + operator);
+            return null;
+        }
+        if (operator.equals("-") && tree.getKind(operand) == NodeKind.LITERAL
+                && tokens.getType(tree.getToken(operand)) == TokenType.NUMBER) {
+            V value = number(tree.getToken(operand), true, operand);
+            if (value != null) {
+                unit.setNodeType(operand, type(value));
+            }
+            return value;
+        }
+        V value = expression(operand);
+        if (value == null) {
+            return null;
+        }
+        if (!type(value).isNumeric()) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, operand, "a number", type(value));
+            return null;
+        }
+        value = convert(value, type(value).getStackType());
+        return operator.equals("-") ? negate(value) : value;
+    }
+
+    private boolean isIncrement(int node) {
+        String operator = unit.text(node);
+        return operator.equals("++") || operator.equals("--");
+    }
+
+
+    private V assignment(int node, boolean isValueUsed) {
+        // the operands of the place and the value are not the result the expression is assigned to
+        targetLocal = null;
+        String operator = unit.text(node);
+        int target = tree.getChild(node, 0);
+        int value = tree.getChild(node, 1);
+        if (isUndeclaredName(target)) {
+            if (operator.equals("=") && booleanConstant(target) == null) {
+                return declareByAssignment(target, value, isValueUsed);
+            }
+            report(DiagnosticCode.UNKNOWN_SYMBOL, target, unit.text(target));
+            return null;
+        }
+        Place<V> place = place(target, value);
+        if (place == null) {
+            return null;
+        }
+        RikType type = place.type;
+        Local local = place.kind == Place.Kind.LOCAL ? place.local : null;
+        V result;
+        if (operator.equals("=")) {
+            result = local != null ? expressionInto(value, local) : expressionAs(value, type);
+        } else if (operator.equals("+=") && type.isString()) {
+            V current = loadForUpdate(place);
+            if (current == null) {
+                return null;
+            }
+            current = stabilize(current, value);
+            V appended = expression(value);
+            if (appended == null) {
+                return null;
+            }
+            if (type(appended).equals(RikType.VOID)) {
+                report(DiagnosticCode.INCOMPATIBLE_TYPES, value, "a value", RikType.VOID);
+                return null;
+            }
+            targetLocal = local;
+            result = concatenate(current, appended);
+            targetLocal = null;
+        } else {
+            Operator arithmetic = operator(operator.substring(0, operator.length() - 1));
+            if (arithmetic == null) {
+                report(DiagnosticCode.UNSUPPORTED, node, "The operator " + operator);
+                return null;
+            }
+            RikType valueType = typeOf(value);
+            if (type.isUnknown() || valueType.isUnknown()) {
+                return reportUnknown(value);
+            }
+            RikType operationType = operationType(node, arithmetic, type, valueType);
+            if (operationType == null) {
+                return null;
+            }
+            Integer delta = intConstant(value);
+            if (local != null && (arithmetic == Operator.ADD || arithmetic == Operator.SUB) && delta != null
+                    && delta != Integer.MIN_VALUE && tokens.getType(tree.getToken(value)) == TokenType.NUMBER
+                    && canIncrement(type, arithmetic == Operator.ADD ? delta : -delta)) {
+                incrementLocal(local, arithmetic == Operator.ADD ? delta : -delta);
+                unit.setNodeType(value, operationType);
+                return isValueUsed ? loadLocal(local) : voidValue();
+            }
+            V current = loadForUpdate(place);
+            if (current == null) {
+                return null;
+            }
+            current = stabilize(convert(current, operationType), value);
+            V operand = expressionAs(value, operationType);
+            if (operand == null) {
+                return null;
+            }
+            targetLocal = local;
+            result = convert(arithmetic(arithmetic, operationType, current, operand), type);
+            targetLocal = null;
+        }
+        return result == null ? null : store(place, result, isValueUsed);
+    }
+
+    private boolean isUndeclaredName(int node) {
+        return tree.getKind(node) == NodeKind.NAME && unit.keyword(node) == null && !isVariable(unit.text(node));
+    }
+
+    /**
+     * {@code name = value} for a new name declares a local of the type of the value.
+     */
+    private V declareByAssignment(int target, int value, boolean isValueUsed) {
+        RikType type = typeOf(value);
+        if (type.isUnknown()) {
+            return reportUnknown(value);
+        }
+        if (type.equals(RikType.VOID) || type.getSort() == RikType.Sort.NULL) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, value, "the value of a new local", type);
+            return null;
+        }
+        if (dryRuns > 0) {
+            V result = expressionAs(value, type);
+            return isValueUsed || result == null ? result : voidValue();
+        }
+        Local local = new Local(type, allocate(type), false);
+        V result = expressionInto(value, local);
+        if (result != null) {
+            storeLocal(local, result);
+        }
+        scopes.get(scopes.size() - 1).put(unit.text(target), local);
+        return isValueUsed ? loadLocal(local) : voidValue();
+    }
+
+    private V increment(int node, boolean isPrefix, boolean isValueUsed) {
+        targetLocal = null;
+        int target = tree.getChild(node, 0);
+        int delta = unit.text(node).equals("++") ? 1 : -1;
+        if (isUndeclaredName(target)) {
+            report(DiagnosticCode.UNKNOWN_SYMBOL, target, unit.text(target));
+            return null;
+        }
+        Place<V> place = place(target, -1);
+        if (place == null) {
+            return null;
+        }
+        RikType type = place.type;
+        if (!type.isNumeric()) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, target, "a number", type);
+            return null;
+        }
+        Local local = place.kind == Place.Kind.LOCAL ? place.local : null;
+        if (local != null && canIncrement(type, delta)) {
+            V old = isValueUsed && !isPrefix ? keep(loadLocal(local)) : null;
+            incrementLocal(local, delta);
+            return !isValueUsed ? voidValue() : isPrefix ? loadLocal(local) : old;
+        }
+        RikType operationType = type.getStackType();
+        V current = loadForUpdate(place);
+        if (current == null) {
+            return null;
+        }
+        V old = isValueUsed && !isPrefix ? keepOld(place, current) : null;
+        current = convert(current, operationType);
+        V one = operationType.equals(RikType.F32) || operationType.equals(RikType.F64)
+                ? constant(operationType, 1.0)
+                : constant(operationType, 1);
+        targetLocal = local;
+        V result = arithmetic(delta > 0 ? Operator.ADD : Operator.SUB, operationType, current, one);
+        targetLocal = null;
+        V stored = store(place, convert(result, type), isValueUsed && isPrefix);
+        return !isValueUsed ? voidValue() : isPrefix ? stored : old;
+    }
+
+    /**
+     * The place an assignment stores to, its receiver or array and index compiled, or {@code null} after reporting
+     * why there is none. They are kept as they are if the value, compiled after them, may assign them.
+     */
+    private Place<V> place(int node, int value) {
+        Place<V> place = findPlace(node);
+        if (place == null) {
+            return null;
+        }
+        if (place.isConst()) {
+            int nameNode = tree.getKind(node) == NodeKind.MEMBER ? tree.getChild(node, 1) : node;
+            report(DiagnosticCode.INVALID_USE, nameNode, "as an assignment target, it is const");
+        }
+        if (value >= 0) {
+            place.receiver = stabilize(place.receiver, value);
+            place.array = stabilize(place.array, value);
+            place.index = stabilize(place.index, value);
+        }
+        return place;
+    }
+
+    private Place<V> findPlace(int node) {
+        switch (tree.getKind(node)) {
+            case NAME: {
+                if (unit.keyword(node) != null) {
+                    break;
+                }
+                String name = unit.text(node);
+                Local local = findLocal(name);
+                if (local != null) {
+                    Place<V> place = new Place<>(Place.Kind.LOCAL, local.type, node);
+                    place.local = local;
+                    return place;
+                }
+                FieldSymbol field = symbols.findField(owner.getType(), name);
+                if (field == null) {
+                    report(DiagnosticCode.UNKNOWN_SYMBOL, node, name);
+                    return null;
+                }
+                return ownFieldPlace(field, node);
+            }
+            case MEMBER:
+                return memberPlace(node);
+            case INDEX: {
+                int arrayNode = tree.getChild(node, 0);
+                V array = expression(arrayNode);
+                if (array == null) {
+                    return null;
+                }
+                if (!type(array).isArray()) {
+                    report(DiagnosticCode.INCOMPATIBLE_TYPES, arrayNode, "an array", type(array));
+                    return null;
+                }
+                array = stabilize(array, tree.getChild(node, 1));
+                V index = expressionAs(tree.getChild(node, 1), RikType.I32);
+                if (index == null) {
+                    return null;
+                }
+                Place<V> place = new Place<>(Place.Kind.ARRAY, type(array).getElementType(), node);
+                place.array = array;
+                place.index = index;
+                return place;
+            }
+            case ERROR:
+                return null;
+            default:
+                break;
+        }
+        report(DiagnosticCode.INVALID_USE, node, "as an assignment target");
+        return null;
+    }
+
+    /**
+     * A field of the class of the method, named without an object.
+     */
+    private Place<V> ownFieldPlace(FieldSymbol field, int node) {
+        if (!field.isStatic() && isStatic) {
+            report(DiagnosticCode.INVALID_USE, node, "in a static method");
+            return null;
+        }
+        if (!isSupported(field, node)) {
+            return null;
+        }
+        return fieldPlace(field, field.isStatic() ? null : loadThis(), node);
+    }
+
+    /**
+     * The field a {@link NodeKind#MEMBER} node names, a static one of a class or one of an object, or {@code null}
+     * after reporting why there is none.
+     */
+    private Place<V> memberPlace(int node) {
+        int target = tree.getChild(node, 0);
+        int nameNode = tree.getChild(node, 1);
+        String name = unit.text(nameNode);
+        RikType targetClass = typeName(target);
+        if (targetClass != null) {
+            FieldSymbol field = symbols.findField(targetClass, name);
+            if (field == null || !field.isStatic()) {
+                report(DiagnosticCode.UNKNOWN_SYMBOL, nameNode, "static field " + name + " of " + targetClass);
+                return null;
+            }
+            checkAccess(field.getOwner(), field.getAccess(), nameNode);
+            return isSupported(field, nameNode) ? fieldPlace(field, null, nameNode) : null;
+        }
+        V receiver = expression(target);
+        if (receiver == null) {
+            return null;
+        }
+        RikType type = type(receiver);
+        FieldSymbol field = type.isReference() && !type.isArray() ? symbols.findField(type, name) : null;
+        if (field == null) {
+            report(DiagnosticCode.UNKNOWN_SYMBOL, nameNode, "field " + name + " of " + type);
+            return null;
+        }
+        checkAccess(field.getOwner(), field.getAccess(), nameNode);
+        if (!isSupported(field, nameNode)) {
+            return null;
+        }
+        if (field.isStatic()) {
+            discard(receiver);
+            receiver = null;
+        }
+        return fieldPlace(field, receiver, nameNode);
+    }
+
+    private Place<V> fieldPlace(FieldSymbol field, V receiver, int node) {
+        Place<V> place = new Place<>(Place.Kind.FIELD, field.getType(), node);
+        place.field = field;
+        place.receiver = receiver;
+        return place;
+    }
+
+
+    /**
+     * Widens the value to type {@code to}, reporting types that do not convert.
+     */
+    private V coerce(V value, RikType to, int node) {
+        if (!symbols.isAssignable(to, type(value))) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, node, to, type(value));
+            return null;
+        }
+        return convert(value, to);
+    }
+
+    /**
+     * The value, {@link #keep(Object) kept} if one of the later expressions may assign it.
+     */
+    private V stabilize(V value, int... laterNodes) {
+        if (value == null) {
+            return null;
+        }
+        for (int node : laterNodes) {
+            if (hasSideEffects(node)) {
+                return keep(value);
+            }
+        }
+        return value;
+    }
+
+    private boolean hasSideEffects(int node) {
+        NodeKind kind = tree.getKind(node);
+        if (kind == NodeKind.ASSIGN || kind == NodeKind.POSTFIX || kind == NodeKind.UNARY && isIncrement(node)) {
+            return true;
+        }
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            if (hasSideEffects(tree.getChild(node, index))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private V defaultValue(RikType type) {
+        switch (type.getStackType().getSort()) {
+            case BOOL:
+            case I32:
+            case I64:
+                return constant(type, 0);
+            case F32:
+            case F64:
+                return constant(type, 0.0);
+            default:
+                return constant(type, (Object) null);
+        }
+    }
+
+    /**
+     * Private members of a Rik class are private to it.
+     */
+    private void checkAccess(RikType memberOwner, int access, int node) {
+        if (Modifier.isPrivate(access) && !memberOwner.equals(owner.getType())) {
+            report(DiagnosticCode.INVALID_USE, node, "outside of its class, it is private");
+        }
+    }
+
+
+    private void pushScope() {
+        scopes.add(new HashMap<>());
+        enterScope();
+    }
+
+    private void popScope() {
+        scopes.remove(scopes.size() - 1);
+        exitScope();
+    }
+
+    private Local findLocal(String name) {
+        for (int index = scopes.size() - 1; index >= 0; index--) {
+            Local local = scopes.get(index).get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    private Local declare(int node, String name, RikType type, boolean isConst) {
+        if (findLocal(name) != null) {
+            report(DiagnosticCode.INVALID_USE, node, "again, it is declared already");
+        }
+        Local local = new Local(type, allocate(type), isConst);
+        scopes.get(scopes.size() - 1).put(name, local);
+        return local;
+    }
+
+    /**
+     * A local of the compiler, not named in the code.
+     */
+    private Local hidden(RikType type) {
+        return new Local(type, allocate(type), false);
+    }
+
+    private boolean isConst(int node) {
+        return unit.hasModifier(node, "const");
+    }
+
+    private static MethodSymbol interfaceMethod(Class<?> owner, String name) {
+        try {
+            return new MethodSymbol(RikType.of(owner), true, owner.getMethod(name));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * The value of a string or char literal, without its quotes and with its escapes replaced.
+     */
+    public static String unescape(CharSequence literal) {
+        int end = literal.length() - 1;
+        StringBuilder value = new StringBuilder(end);
+        for (int i = 1; i < end; i++) {
+            char c = literal.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                value.append(c);
+                continue;
+            }
+            char escaped = literal.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case '0':
+                    value.append('\0');
+                    break;
+                case 'u':
+                    if (i + 5 <= end && isHex(literal, i + 1, i + 5)) {
+                        value.append((char) Integer.parseInt(literal.subSequence(i + 1, i + 5).toString(), 16));
+                        i += 4;
+                    } else {
+                        value.append(escaped);
+                    }
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+            }
+        }
+        return value.toString();
+    }
+
+    private static boolean isHex(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addLineNumber(int node) {
+        int token = tree.getToken(node);
+        if (token != SyntaxTree.NO_TOKEN && dryRuns == 0) {
+            lineNumber(tokens.getLine(token));
+        }
+    }
+
+    /**
+     * Reports an error in the unit, unless in a dry run.
+     */
+    protected final void report(DiagnosticCode diagnostic, int node, Object... arguments) {
+        if (dryRuns == 0) {
+            unit.report(diagnostic, node, arguments);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * Precomputed character classes used by the lexer instead of the {@link TokenType} regular expressions.
+ * ASCII characters are answered from a lookup table, everything else falls back to {@link Character}.
+ */
+public final class CharClasses {
+
+    private static final int ASCII_LIMIT = 128;
+
+    private static final int WORD_START = 1 << 16;
+    private static final int WORD_PART = 1 << 17;
+    private static final int DIGIT = 1 << 18;
+    private static final int HEX_LETTER = 1 << 19;
+    private static final int BLANK = 1 << 20;
+    private static final int SINGLE_ONLY_OPERATOR = 1 << 21;
+
+    private static final int[] ASCII_CLASSES = new int[ASCII_LIMIT];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            mark(c, WORD_START | WORD_PART, TokenType.KEYWORD, TokenType.IDENTIFIER);
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            mark(c, WORD_START | WORD_PART, TokenType.IDENTIFIER);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            mark(c, WORD_PART | DIGIT, TokenType.KEYWORD, TokenType.IDENTIFIER, TokenType.NUMBER);
+        }
+        for (char c = 'a'; c <= 'f'; c++) {
+            mark(c, HEX_LETTER);
+            mark(Character.toUpperCase(c), HEX_LETTER);
+        }
+        mark('_', WORD_START | WORD_PART, TokenType.IDENTIFIER);
+
+        for (char c : "\t\u000B\f\r ".toCharArray()) {
+            mark(c, BLANK, TokenType.WHITESPACE);
+        }
+        mark(' ', 0, TokenType.MULTILINE_COMMENT);
+        mark('\n', 0, TokenType.WHITESPACE, TokenType.NEWLINE, TokenType.MULTILINE_COMMENT);
+
+        for (char c : "+-\\*/=%&|".toCharArray()) {
+            mark(c, 0, TokenType.OPERATOR);
+        }
+        for (char c : Constants.SINGLE_ALLOWED_OPERATORS.toCharArray()) {
+            mark(c, SINGLE_ONLY_OPERATOR);
+        }
+        mark('/', 0, TokenType.COMMENT, TokenType.MULTILINE_COMMENT);
+        mark('*', 0, TokenType.COMMENT);
+
+        mark('\'', 0, TokenType.CHAR_LITERAL, TokenType.SEPARATOR);
+        mark('"', 0, TokenType.STRING_LITERAL, TokenType.SEPARATOR);
+        for (char c : "{}[]().,:;".toCharArray()) {
+            mark(c, 0, TokenType.SEPARATOR);
+        }
+    }
+
+    private CharClasses() {
+    }
+
+    public static boolean is(TokenType type, char c) {
+        return c < ASCII_LIMIT
+                ? (ASCII_CLASSES[c] & bit(type)) != 0
+                : isNonAscii(type, c);
+    }
+
+    public static boolean isBlank(char c) {
+        return c < ASCII_LIMIT && (ASCII_CLASSES[c] & BLANK) != 0;
+    }
+
+    public static boolean isWordStart(char c) {
+        return c < ASCII_LIMIT
+                ? (ASCII_CLASSES[c] & WORD_START) != 0
+                : Character.isLetter(c);
+    }
+
+    public static boolean isWordPart(char c) {
+        return c < ASCII_LIMIT
+                ? (ASCII_CLASSES[c] & WORD_PART) != 0
+                : Character.isLetterOrDigit(c);
+    }
+
+    public static boolean isDigit(char c) {
+        return c < ASCII_LIMIT
+                ? (ASCII_CLASSES[c] & DIGIT) != 0
+                : Character.isDigit(c);
+    }
+
+    public static boolean isHexLetter(char c) {
+        return c < ASCII_LIMIT && (ASCII_CLASSES[c] & HEX_LETTER) != 0;
+    }
+
+    public static boolean isSingleOnlyOperator(char c) {
+        return c < ASCII_LIMIT && (ASCII_CLASSES[c] & SINGLE_ONLY_OPERATOR) != 0;
+    }
+
+    private static boolean isNonAscii(TokenType type, char c) {
+        switch (type) {
+            case KEYWORD:
+                return isLowerCyrillic(c);
+            case IDENTIFIER:
+                return isLowerCyrillic(c) || (c >= 'А' && c <= 'Я');
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLowerCyrillic(char c) {
+        return c >= 'а' && c <= 'я';
+    }
+
+    private static void mark(char c, int flags, TokenType... types) {
+        int classes = ASCII_CLASSES[c] | flags;
+        for (TokenType type : types) {
+            classes |= bit(type);
+        }
+        ASCII_CLASSES[c] = classes;
+    }
+
+    private static int bit(TokenType type) {
+        return 1 << type.ordinal();
+    }
+}
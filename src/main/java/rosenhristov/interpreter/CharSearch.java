@@ -0,0 +1,186 @@
+package main.java.rosenhristov.interpreter;
+
+import main.java.rosenhristov.AsciiSource;
+
+import java.util.Arrays;
+
+/**
+ * Finds the next interesting char of a source, e.g. the end of a comment or string literal, faster than reading
+ * it one {@code charAt} at a time. The search fits the source: memory mapped {@link AsciiSource}s are searched
+ * eight chars per {@code long}, {@link String}s with {@link String#indexOf(int, int)}, which the JVM runs on SIMD
+ * instructions, and any other {@link CharSequence} char by char. Setting the {@value #BACKEND_PROPERTY} system
+ * property to {@code scalar} makes every source searched char by char, e.g. to compare.
+ * Every search returns the end of its range when it finds nothing. Not thread-safe, one per scanner.
+ */
+public abstract class CharSearch {
+
+    public static final String BACKEND_PROPERTY = "rik.scan";
+    public static final String SCALAR_BACKEND = "scalar";
+
+    private static final int ASCII_LIMIT = 128;
+
+    private CharSearch() {
+    }
+
+    public static CharSearch of(CharSequence source) {
+        if (SCALAR_BACKEND.equals(System.getProperty(BACKEND_PROPERTY))) {
+            return scalar(source);
+        }
+        if (source instanceof AsciiSource) {
+            return new AsciiSearch((AsciiSource) source);
+        }
+        if (source instanceof String) {
+            return new StringSearch((String) source);
+        }
+        return scalar(source);
+    }
+
+    public static CharSearch scalar(CharSequence source) {
+        return new ScalarSearch(source);
+    }
+
+    /**
+     * @return the index of the first {@code c} in {@code [from, to)}, or {@code to}
+     */
+    public abstract int indexOf(char c, int from, int to);
+
+    /**
+     * @return the index of the first {@code a} or {@code b} in {@code [from, to)}, or {@code to}
+     */
+    public abstract int indexOfEither(char a, char b, int from, int to);
+
+    /**
+     * @return the index of the first char in {@code [from, to)} that is neither {@code a} nor {@code b}, or {@code to}
+     */
+    public abstract int skipEither(char a, char b, int from, int to);
+
+    private static final class ScalarSearch extends CharSearch {
+
+        private final CharSequence source;
+
+        private ScalarSearch(CharSequence source) {
+            this.source = source;
+        }
+
+        @Override
+        public int indexOf(char c, int from, int to) {
+            int index = from;
+            while (index < to && source.charAt(index) != c) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public int indexOfEither(char a, char b, int from, int to) {
+            int index = from;
+            while (index < to && source.charAt(index) != a && source.charAt(index) != b) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public int skipEither(char a, char b, int from, int to) {
+            int index = from;
+            while (index < to && (source.charAt(index) == a || source.charAt(index) == b)) {
+                index++;
+            }
+            return index;
+        }
+    }
+
+    private static final class AsciiSearch extends CharSearch {
+
+        private final AsciiSource ascii;
+
+        private AsciiSearch(AsciiSource source) {
+            this.ascii = source;
+        }
+
+        @Override
+        public int indexOf(char c, int from, int to) {
+            return from >= to ? to : c < ASCII_LIMIT ? ascii.indexOf(c, from, to) : to;
+        }
+
+        @Override
+        public int indexOfEither(char a, char b, int from, int to) {
+            if (from >= to) {
+                return to;
+            }
+            if (a >= ASCII_LIMIT || b >= ASCII_LIMIT) {
+                return indexOf(a >= ASCII_LIMIT ? b : a, from, to);
+            }
+            return ascii.indexOfEither(a, b, from, to);
+        }
+
+        @Override
+        public int skipEither(char a, char b, int from, int to) {
+            if (from >= to) {
+                return to;
+            }
+            if (a >= ASCII_LIMIT || b >= ASCII_LIMIT) {
+                if (a >= ASCII_LIMIT && b >= ASCII_LIMIT) {
+                    return from;
+                }
+                char c = a >= ASCII_LIMIT ? b : a;
+                return ascii.skipEither(c, c, from, to);
+            }
+            return ascii.skipEither(a, b, from, to);
+        }
+    }
+
+    /**
+     * Remembers, per ASCII char, where the last search for it started and what it found. As a scanner searches
+     * forward, most searches start between the two and take the remembered result, so every stretch of the source
+     * is searched for a char once although {@link String#indexOf(int, int)} cannot stop at the end of a range.
+     */
+    private static final class StringSearch extends CharSearch {
+
+        private final String string;
+        private final int[] searchedFrom = new int[ASCII_LIMIT];
+        private final int[] foundAt = new int[ASCII_LIMIT];
+
+        private StringSearch(String source) {
+            this.string = source;
+            Arrays.fill(searchedFrom, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int indexOf(char c, int from, int to) {
+            return from >= to ? to : Math.min(find(c, from), to);
+        }
+
+        @Override
+        public int indexOfEither(char a, char b, int from, int to) {
+            return from >= to ? to : Math.min(Math.min(find(a, from), find(b, from)), to);
+        }
+
+        @Override
+        public int skipEither(char a, char b, int from, int to) {
+            int index = from;
+            while (index < to && (string.charAt(index) == a || string.charAt(index) == b)) {
+                index++;
+            }
+            return index;
+        }
+
+        /**
+         * @return the index of the first {@code c} from {@code from} on, or the length of the source
+         */
+        private int find(char c, int from) {
+            if (c >= ASCII_LIMIT) {
+                return found(string.indexOf(c, from));
+            }
+            if (from < searchedFrom[c] || from > foundAt[c]) {
+                searchedFrom[c] = from;
+                foundAt[c] = found(string.indexOf(c, from));
+            }
+            return foundAt[c];
+        }
+
+        private int found(int index) {
+            return index < 0 ? string.length() : index;
+        }
+    }
+}
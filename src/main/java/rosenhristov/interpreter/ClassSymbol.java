@@ -0,0 +1,64 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class declared in the compiled Rik sources: its type, superclass and members, known before any method is
+ * compiled, so that classes can use each other in any order.
+ */
+public final class ClassSymbol {
+
+    private final CompilationUnit unit;
+    private final int node;
+    private final RikType type;
+    private RikType superType = RikType.OBJECT;
+    private final List<FieldSymbol> fields = new ArrayList<>();
+    private final List<MethodSymbol> methods = new ArrayList<>();
+
+    ClassSymbol(CompilationUnit unit, int node, RikType type) {
+        this.unit = unit;
+        this.node = node;
+        this.type = type;
+    }
+
+    public CompilationUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * The {@link NodeKind#CLASS} node.
+     */
+    public int getNode() {
+        return node;
+    }
+
+    public RikType getType() {
+        return type;
+    }
+
+    public RikType getSuperType() {
+        return superType;
+    }
+
+    void setSuperType(RikType superType) {
+        this.superType = superType;
+    }
+
+    public List<FieldSymbol> getFields() {
+        return fields;
+    }
+
+    public List<MethodSymbol> getMethods() {
+        return methods;
+    }
+
+    public FieldSymbol findField(String name) {
+        for (FieldSymbol field : fields) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
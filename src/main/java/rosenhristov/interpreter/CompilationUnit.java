@@ -0,0 +1,189 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One source file being compiled: its tree, its package and uses, and the errors found compiling it, kept apart
+ * from the lexing and parsing errors of the tree.
+ */
+public final class CompilationUnit {
+
+    private final SyntaxTree tree;
+    private final TokenColumns tokens;
+    private final KeywordTable keywords;
+    private final ProgramSymbols symbols;
+    private final Map<String, String> uses = new HashMap<>();
+    private final Errors errors = new Errors(Constants.MAX_ERRORS_PER_FILE);
+    private String packageName = "";
+
+    /**
+     * The types of the expression nodes compiled so far, see {@link BodyCompiler#typeOf(int)}.
+     */
+    private final RikType[] nodeTypes;
+
+    public CompilationUnit(SyntaxTree tree, KeywordTable keywords, ProgramSymbols symbols) {
+        this.tree = tree;
+        this.tokens = tree.getTokens();
+        this.keywords = keywords;
+        this.symbols = symbols;
+        this.nodeTypes = new RikType[tree.size()];
+        int root = tree.getRoot();
+        for (int index = 0; index < tree.getChildCount(root); index++) {
+            int child = tree.getChild(root, index);
+            if (tree.getKind(child) == NodeKind.PACKAGE) {
+                packageName = qualifiedName(child);
+            } else if (tree.getKind(child) == NodeKind.USE) {
+                String use = qualifiedName(child);
+                uses.put(use.substring(use.lastIndexOf('.') + 1), use);
+            }
+        }
+    }
+
+    public SyntaxTree getTree() {
+        return tree;
+    }
+
+    public ProgramSymbols getSymbols() {
+        return symbols;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public Errors getErrors() {
+        return errors;
+    }
+
+    public RikType getNodeType(int node) {
+        return nodeTypes[node];
+    }
+
+    public void setNodeType(int node, RikType type) {
+        nodeTypes[node] = type;
+    }
+
+    /**
+     * The text of the token of the node.
+     */
+    public String text(int node) {
+        return tree.getText(node).toString();
+    }
+
+    /**
+     * The canonical keyword of the token of the node, like {@code i32} for a localized alias of it, or {@code null}.
+     */
+    public String keyword(int node) {
+        int token = tree.getToken(node);
+        if (token == SyntaxTree.NO_TOKEN || tokens.getType(token) != TokenType.KEYWORD) {
+            return null;
+        }
+        int id = tokens.getKeywordId(token);
+        return id == KeywordTable.NOT_A_KEYWORD ? null : keywords.getKeyword(id);
+    }
+
+    /**
+     * The type node of a {@link NodeKind#FIELD}, {@link NodeKind#LOCAL} or {@link NodeKind#PARAMETER} node.
+     */
+    public int getTypeNode(int declaration) {
+        int index = 0;
+        while (tree.getKind(tree.getChild(declaration, index)) == NodeKind.MODIFIER) {
+            index++;
+        }
+        return tree.getChild(declaration, index);
+    }
+
+    /**
+     * The initializer of a {@link NodeKind#FIELD} or {@link NodeKind#LOCAL} node, or -1.
+     */
+    public int getInitializer(int declaration) {
+        int index = tree.getChildCount(declaration) - 1;
+        return tree.getChild(declaration, index) == getTypeNode(declaration) ? -1 : tree.getChild(declaration, index);
+    }
+
+    public boolean hasModifier(int node, String keyword) {
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            int child = tree.getChild(node, index);
+            if (tree.getKind(child) == NodeKind.MODIFIER && keyword.equals(keyword(child))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The dotted name of a {@link NodeKind#PACKAGE}, {@link NodeKind#USE} or {@link NodeKind#TYPE} node.
+     */
+    public String qualifiedName(int node) {
+        StringBuilder name = new StringBuilder();
+        if (tree.getKind(node) == NodeKind.TYPE) {
+            name.append(tree.getText(node));
+        }
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(tree.getText(tree.getChild(node, index)));
+        }
+        return name.toString();
+    }
+
+    /**
+     * The type of a {@link NodeKind#TYPE} or {@link NodeKind#ARRAY_TYPE} node, reporting unknown types.
+     */
+    public RikType resolveType(int node) {
+        NodeKind kind = tree.getKind(node);
+        if (kind == NodeKind.ARRAY_TYPE) {
+            RikType element = resolveType(tree.getChild(node, 0));
+            return element.isUnknown() ? element : element.arrayOf();
+        }
+        if (kind != NodeKind.TYPE) {
+            return RikType.UNKNOWN;
+        }
+        String keyword = keyword(node);
+        if (keyword != null) {
+            RikType primitive = RikType.ofKeyword(keyword);
+            if (primitive == null) {
+                report(DiagnosticCode.UNSUPPORTED, node, keyword);
+                return RikType.UNKNOWN;
+            }
+            return primitive;
+        }
+        String name = qualifiedName(node);
+        RikType type = resolveClass(name);
+        if (type == null) {
+            report(DiagnosticCode.UNKNOWN_SYMBOL, node, "class " + name);
+            return RikType.UNKNOWN;
+        }
+        return type;
+    }
+
+    /**
+     * A class by the name it has in this file: a class of the same package, a used class, a class of
+     * {@code java.lang} or a qualified name.
+     *
+     * @return the class type or {@code null}
+     */
+    public RikType resolveClass(String name) {
+        if (name.indexOf('.') >= 0) {
+            return symbols.findClass(name);
+        }
+        RikType type = symbols.findClass(packageName.isEmpty() ? name : packageName + '.' + name);
+        if (type != null && symbols.get(type) != null) {
+            return type;
+        }
+        String use = uses.get(name);
+        return symbols.findClass(use != null ? use : name);
+    }
+
+    /**
+     * Reports an error at the token of the node.
+     */
+    public void report(DiagnosticCode code, int node, Object... arguments) {
+        int token = node < 0 ? SyntaxTree.NO_TOKEN : tree.getToken(node);
+        int offset = token == SyntaxTree.NO_TOKEN ? 0 : tokens.getStart(token);
+        int length = token == SyntaxTree.NO_TOKEN ? 0 : tokens.getEnd(token) - offset;
+        errors.report(code, tokens.getSource(), offset, length, arguments);
+    }
+}
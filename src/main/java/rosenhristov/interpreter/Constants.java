@@ -3,6 +3,12 @@ package main.java.rosenhristov.interpreter;
 public interface Constants {
     String SOURCE_FILE_EXTENSION = ".rik";
     String CONFIG_FILENAME = "rik-config.yml";
+    String CACHE_DIRECTORY = ".rik-cache";
+    String CONFIG_SNAPSHOT_FILENAME = "config.snapshot";
+    String TRANSPILED_DIRECTORY = ".rik-java";
+    String CLASSES_DIRECTORY = ".rik-classes";
+    int MAX_ERRORS_PER_FILE = 100;
+    int MAX_ERRORS = 1000;
 
     String KEYWORDS = "abstract|base|bool|case|catch|char|class|const|default|do|else|enum|extends|f32|f64|i8|i16|i32|i64|i128|finally|for|if|impl|is|jump|loop|match|native|null|private|protected|package|return|skip|static|stritraitctfp|sync|this|throw|throws|trait|trans|try|use|volatile|while";
 
@@ -14,6 +20,8 @@ public interface Constants {
     String YES = "yes";
     String NO = "no";
     String SPACES = "\\s\\t\\n\\r";
+    char SPACE_CHAR = ' ';
+    char TAB_CHAR = '\t';
     String HEX_PATTERN = "(0x[0-9a-fA-F]+)";
     String IDENTIFIER_PATTERN = "([[a-z]{1}[a-zA-Z0-9_]*]+)";
     String RELATIONAL_OPERATORS = "<= >= < > == != <>";
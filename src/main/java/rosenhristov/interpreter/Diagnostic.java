@@ -0,0 +1,95 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * A lexing, parsing or compiling error at {@code [offset, offset + length)} of a source. Only the code, position and
+ * arguments are kept, the message is formatted when it is asked for.
+ */
+public final class Diagnostic {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final DiagnosticCode code;
+    private final CharSequence source;
+    private final int offset;
+    private final int length;
+    private final Object[] arguments;
+
+    private Diagnostic(DiagnosticCode code, CharSequence source, int offset, int length, Object[] arguments) {
+        this.code = code;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.arguments = arguments;
+    }
+
+    public static Diagnostic of(DiagnosticCode code, CharSequence source, int offset, int length) {
+        return new Diagnostic(code, source, offset, length, NO_ARGUMENTS);
+    }
+
+    public static Diagnostic of(DiagnosticCode code, CharSequence source, int offset, int length, Object... arguments) {
+        return new Diagnostic(code, source, offset, length, arguments.length == 0 ? NO_ARGUMENTS : arguments.clone());
+    }
+
+    public DiagnosticCode getCode() {
+        return code;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public Object[] getArguments() {
+        return arguments.clone();
+    }
+
+    /**
+     * The source text the diagnostic points at, empty when it has no source.
+     */
+    public CharSequence getText() {
+        if (source == null) {
+            return Constants.EMPTY_STRING;
+        }
+        int start = Math.min(offset, source.length());
+        return source.subSequence(start, Math.min(start + length, source.length()));
+    }
+
+    public String getMessage() {
+        return code.format(getText(), offset, arguments);
+    }
+
+    /**
+     * The same diagnostic in an edited source, where its text starts at {@code offset}.
+     */
+    Diagnostic moveTo(CharSequence source, int offset) {
+        return new Diagnostic(code, source, offset, length, arguments);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Diagnostic)) {
+            return false;
+        }
+        Diagnostic other = (Diagnostic) o;
+        return code == other.code && offset == other.offset && length == other.length
+                && Arrays.equals(arguments, other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * code.hashCode() + offset) + length) + Arrays.hashCode(arguments);
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
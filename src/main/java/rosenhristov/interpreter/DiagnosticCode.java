@@ -0,0 +1,46 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * The kinds of lexing, parsing and compiling errors. Messages are format patterns over the text of the diagnostic
+ * ({@code %1$s}), its offset ({@code %2$d}) and its arguments ({@code %3$s} onwards).
+ */
+public enum DiagnosticCode {
+
+    NO_SOURCE_CODE("RIK000", "There is no source code in this file"),
+    UNKNOWN_CHARACTER("RIK001", "Unknown character '%1$s' at index %2$d"),
+    NONEXISTENT_DOUBLE_OPERATOR("RIK002", "Nonexistent double operator %1$s at index %2$d"),
+    UNTERMINATED_COMMENT("RIK003", "Unterminated comment starting at index %2$d"),
+    MALFORMED_NUMBER("RIK004", "Malformed number %1$s at index %2$d"),
+    NUMBER_OUT_OF_RANGE("RIK005", "Number %1$s at index %2$d does not fit in %3$s"),
+    UNEXPECTED_TOKEN("RIK006", "Expected %3$s but found %4$s at index %2$d"),
+    UNTERMINATED_BLOCK("RIK007", "Unterminated block starting at index %2$d"),
+    UNKNOWN_SYMBOL("RIK008", "Cannot find %3$s at index %2$d"),
+    INCOMPATIBLE_TYPES("RIK009", "Cannot use %4$s as %3$s at index %2$d"),
+    UNSUPPORTED("RIK010", "%3$s cannot be compiled yet, at index %2$d"),
+    MISSING_RETURN("RIK011", "Missing return at the end of %1$s at index %2$d"),
+    INVALID_USE("RIK012", "%1$s cannot be used %3$s at index %2$d");
+
+    private final String id;
+    private final String pattern;
+
+    DiagnosticCode(String id, String pattern) {
+        this.id = id;
+        this.pattern = pattern;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    String format(CharSequence text, int offset, Object[] arguments) {
+        Object[] values = new Object[arguments.length + 2];
+        values[0] = text;
+        values[1] = offset;
+        System.arraycopy(arguments, 0, values, 2, arguments.length);
+        return String.format(pattern, values);
+    }
+}
@@ -0,0 +1,17 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * Receives the errors found while scanning. Implementations decide whether to create a {@link Diagnostic},
+ * so errors past a cap cost no allocation.
+ */
+@FunctionalInterface
+public interface DiagnosticHandler {
+
+    Object[] NO_ARGUMENTS = new Object[0];
+
+    void report(DiagnosticCode code, CharSequence source, int offset, int length, Object[] arguments);
+
+    default void report(DiagnosticCode code, CharSequence source, int offset, int length) {
+        report(code, source, offset, length, NO_ARGUMENTS);
+    }
+}
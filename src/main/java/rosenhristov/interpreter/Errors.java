@@ -1,37 +1,155 @@
 package main.java.rosenhristov.interpreter;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Objects.isNull;
 
-public class Errors {
-    List<String> errors;
+/**
+ * The diagnostics of one source, at most {@code maxErrors} of them. Errors past the cap are only counted,
+ * so a broken source does not cost more than a clean one.
+ */
+public class Errors implements DiagnosticHandler {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private List<Diagnostic> diagnostics;
+
+    private final int maxErrors;
+
+    private int suppressedCount;
 
     public Errors() {
+        this(UNLIMITED);
     }
 
-    public List<String> getErrors() {
-        if (isEmpty(errors)) {
-            errors = new LinkedList<>();
+    public Errors(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException(String.format("Negative error cap %d", maxErrors));
         }
-        return errors;
+        this.maxErrors = maxErrors;
+    }
+
+    public List<Diagnostic> getErrors() {
+        return isNull(diagnostics) ? Collections.emptyList() : Collections.unmodifiableList(diagnostics);
     }
 
-    private boolean isEmpty(List<String> list) {
-        return isNull(list) || list.isEmpty();
+    /**
+     * The formatted messages of the reported errors.
+     */
+    public List<String> getMessages() {
+        List<String> messages = new ArrayList<>(size());
+        getErrors().forEach(diagnostic -> messages.add(diagnostic.getMessage()));
+        return messages;
     }
 
-    public boolean addError(String error) {
-        return getErrors().add(error);
+    @Override
+    public void report(DiagnosticCode code, CharSequence source, int offset, int length, Object[] arguments) {
+        if (isFull()) {
+            suppressedCount++;
+            return;
+        }
+        add(Diagnostic.of(code, source, offset, length, arguments));
+    }
+
+    public boolean addError(Diagnostic diagnostic) {
+        if (isFull()) {
+            suppressedCount++;
+            return false;
+        }
+        add(diagnostic);
+        return true;
     }
 
-    public boolean addAll(List<String> errors) {
-        return getErrors().addAll(errors);
+    public void addAll(Errors other) {
+        other.getErrors().forEach(this::addError);
+        suppressedCount += other.suppressedCount;
+    }
+
+    /**
+     * Removes the trailing errors at or after the offset, errors being reported in the order of their offsets.
+     */
+    void removeFrom(int offset) {
+        while (size() > 0 && diagnostics.get(diagnostics.size() - 1).getOffset() >= offset) {
+            diagnostics.remove(diagnostics.size() - 1);
+        }
+    }
+
+    void addSuppressed(int count) {
+        suppressedCount += count;
+    }
+
+    /**
+     * Keeps as many errors as are left in a budget shared by several sources, suppressing the rest.
+     */
+    public void claim(AtomicInteger budget) {
+        int granted;
+        while (true) {
+            int remaining = budget.get();
+            granted = Math.min(size(), Math.max(0, remaining));
+            if (budget.compareAndSet(remaining, remaining - granted)) {
+                break;
+            }
+        }
+        truncate(granted);
+    }
+
+    /**
+     * Applies a lower cap to errors reported under a higher one.
+     *
+     * @return whether the errors are the same as if they had been reported under {@code maxErrors}
+     */
+    public boolean limitTo(int maxErrors) {
+        if (size() <= maxErrors) {
+            return suppressedCount == 0 || size() == maxErrors;
+        }
+        truncate(maxErrors);
+        return true;
+    }
+
+    public int size() {
+        return isNull(diagnostics) ? 0 : diagnostics.size();
+    }
+
+    public int getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Reported and suppressed errors.
+     */
+    public int getTotalCount() {
+        return size() + suppressedCount;
+    }
+
+    public boolean isFull() {
+        return size() >= maxErrors;
     }
 
     public boolean exist() {
-        return !isNull(errors) && !errors.isEmpty();
+        return getTotalCount() > 0;
     }
 
+    public void print() {
+        getErrors().forEach(error -> System.out.println("[ERROR]: " + error.getMessage()));
+        if (suppressedCount > 0) {
+            System.out.println(String.format("[ERROR]: %d more errors not reported", suppressedCount));
+        }
+    }
+
+    private void add(Diagnostic diagnostic) {
+        if (isNull(diagnostics)) {
+            diagnostics = new ArrayList<>();
+        }
+        diagnostics.add(diagnostic);
+    }
+
+    private void truncate(int size) {
+        if (size < size()) {
+            suppressedCount += size() - size;
+            diagnostics.subList(size, diagnostics.size()).clear();
+        }
+    }
 }
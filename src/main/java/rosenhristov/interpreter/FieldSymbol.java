@@ -0,0 +1,79 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * A field of a Rik class or a public field of a Java class, as an access to it sees it.
+ */
+public final class FieldSymbol {
+
+    private final RikType owner;
+    private final String name;
+    private final RikType type;
+    private final int access;
+
+    /**
+     * The {@link NodeKind#FIELD} node of a Rik field, -1 for Java fields.
+     */
+    private final int node;
+    private final Field javaField;
+
+    FieldSymbol(RikType owner, String name, RikType type, int access, int node) {
+        this(owner, name, type, access, node, null);
+    }
+
+    /**
+     * A Java field accessed through the class it is named on, {@code owner}.
+     */
+    FieldSymbol(RikType owner, Field javaField) {
+        this(owner, javaField.getName(), RikType.of(javaField.getType()), javaField.getModifiers(), -1, javaField);
+    }
+
+    private FieldSymbol(RikType owner, String name, RikType type, int access, int node, Field javaField) {
+        this.owner = owner;
+        this.name = name;
+        this.type = type;
+        this.access = access;
+        this.node = node;
+        this.javaField = javaField;
+    }
+
+    public RikType getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RikType getType() {
+        return type;
+    }
+
+    /**
+     * The {@link Modifier} flags, which are the access flags of a class file.
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * The Java field, {@code null} for a field of a Rik class.
+     */
+    public Field getJavaField() {
+        return javaField;
+    }
+
+    public boolean isStatic() {
+        return Modifier.isStatic(access);
+    }
+
+    public boolean isConst() {
+        return Modifier.isFinal(access);
+    }
+}
@@ -0,0 +1,829 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static main.java.rosenhristov.interpreter.RegisterOpcodes.*;
+
+/**
+ * Compiles the statements of one static method, or the static field initializers of a class, into a
+ * {@link RegisterFunction}. Every local has a register of its own for the whole of its scope, so an expression
+ * reads locals where they are and writes its result straight to the local it is assigned to; temporaries are
+ * allocated above the locals and freed after each statement.
+ * <p>
+ * The machine has no Rik instances: instance fields and methods of Rik classes are reported, and Java members are
+ * called through the {@link JavaMember}s of the {@link RegisterLayout}.
+ */
+final class FunctionCompiler extends BodyCompiler<FunctionCompiler.Operand, FunctionCompiler.Label> {
+
+    /**
+     * Constants are emitted as this plus their index, and numbered above the other registers of the frame when the
+     * function is finished.
+     */
+    private static final int CONSTANT_REGISTER = 1 << 24;
+    private static final Object NULL_KEY = new Object();
+    private static final RikType THROWABLE = RikType.of(Throwable.class);
+    /**
+     * The classes whose {@code compare} methods return -1, 0 or 1 and are {@link RegisterOpcodes#COMPARE}.
+     */
+    private static final List<Class<?>> COMPARED_BOXES =
+            Arrays.asList(Integer.class, Long.class, Float.class, Double.class);
+
+    private final RegisterLayout layout;
+
+    private int[] code = new int[64];
+    private int size;
+    private boolean isReachable = true;
+
+    private final int[] localTop = new int[3];
+    private final int[] tempTop = new int[3];
+    private final int[] registerCounts = new int[3];
+    private final Deque<int[]> scopeTops = new ArrayDeque<>();
+    private final Deque<Object[]> dryRuns = new ArrayDeque<>();
+
+    private final List<Long> longConstants = new ArrayList<>();
+    private final Map<Long, Integer> longConstantIndexes = new HashMap<>();
+    private final List<Double> doubleConstants = new ArrayList<>();
+    private final Map<Long, Integer> doubleConstantIndexes = new HashMap<>();
+    private final List<Object> referenceConstants = new ArrayList<>();
+    private final Map<Object, Integer> referenceConstantIndexes = new HashMap<>();
+    /**
+     * The code offsets of the constant operands and their register files.
+     */
+    private final List<int[]> constantOperands = new ArrayList<>();
+
+    private final List<int[]> handlers = new ArrayList<>();
+    private final List<Class<?>> handlerTypes = new ArrayList<>();
+
+    /**
+     * A value in a register: a local, a temporary or a constant.
+     */
+    static final class Operand {
+
+        private static final Operand VOID = new Operand(RikType.VOID, -1, false, false);
+
+        private final RikType type;
+        private final int register;
+        private final boolean isConstant;
+        private final boolean isLocal;
+
+        private Operand(RikType type, int register, boolean isConstant, boolean isLocal) {
+            this.type = type;
+            this.register = register;
+            this.isConstant = isConstant;
+            this.isLocal = isLocal;
+        }
+
+        private Operand as(RikType other) {
+            return new Operand(other, register, isConstant, isLocal);
+        }
+    }
+
+    static final class Label {
+
+        private int position = -1;
+        private final List<Integer> references = new ArrayList<>();
+    }
+
+    FunctionCompiler(CompilationUnit unit, ClassSymbol owner, RikType returnType, RegisterLayout layout) {
+        super(unit, owner, true, returnType);
+        this.layout = layout;
+    }
+
+    /**
+     * The compiled function, its constants numbered above its other registers.
+     */
+    RegisterFunction finish(String name, List<RikType> parameterTypes) {
+        for (int[] operand : constantOperands) {
+            code[operand[0]] += registerCounts[operand[1]] - CONSTANT_REGISTER;
+        }
+        int[] counts = {
+                registerCounts[0] + longConstants.size(),
+                registerCounts[1] + doubleConstants.size(),
+                registerCounts[2] + referenceConstants.size()
+        };
+        int[] handlerTable = new int[handlers.size() * 4];
+        for (int i = 0; i < handlers.size(); i++) {
+            System.arraycopy(handlers.get(i), 0, handlerTable, i * 4, 4);
+        }
+        return new RegisterFunction(name, Arrays.copyOf(code, size), counts,
+                longConstants.stream().mapToLong(Long::longValue).toArray(),
+                doubleConstants.stream().mapToDouble(Double::doubleValue).toArray(),
+                referenceConstants.toArray(),
+                parameterTypes.stream().mapToInt(RegisterSorts::sortOf).toArray(),
+                RegisterSorts.sortOf(returnType),
+                handlerTable,
+                handlerTypes.toArray(new Class<?>[0]));
+    }
+
+
+    @Override
+    protected RikType type(Operand value) {
+        return value.type;
+    }
+
+    @Override
+    protected Operand voidValue() {
+        return Operand.VOID;
+    }
+
+    @Override
+    protected Label newLabel() {
+        return new Label();
+    }
+
+    @Override
+    protected void mark(Label label) {
+        label.position = size;
+        for (int reference : label.references) {
+            code[reference] = size;
+        }
+        if (!label.references.isEmpty()) {
+            isReachable = true;
+        }
+    }
+
+    @Override
+    protected void jump(Label target) {
+        emit(JUMP);
+        emit(target);
+        isReachable = false;
+    }
+
+    @Override
+    protected boolean isReachable() {
+        return isReachable;
+    }
+
+    @Override
+    protected int position() {
+        return size;
+    }
+
+    @Override
+    protected void beginDryRun() {
+        dryRuns.push(new Object[]{size, constantOperands.size(), handlers.size(), localTop.clone(), tempTop.clone(),
+                isReachable});
+    }
+
+    @Override
+    protected void endDryRun() {
+        Object[] saved = dryRuns.pop();
+        size = (Integer) saved[0];
+        constantOperands.subList((Integer) saved[1], constantOperands.size()).clear();
+        handlers.subList((Integer) saved[2], handlers.size()).clear();
+        handlerTypes.subList((Integer) saved[2], handlerTypes.size()).clear();
+        System.arraycopy((int[]) saved[3], 0, localTop, 0, localTop.length);
+        System.arraycopy((int[]) saved[4], 0, tempTop, 0, tempTop.length);
+        isReachable = (Boolean) saved[5];
+    }
+
+    @Override
+    protected void enterScope() {
+        scopeTops.push(localTop.clone());
+    }
+
+    @Override
+    protected void exitScope() {
+        System.arraycopy(scopeTops.pop(), 0, localTop, 0, localTop.length);
+    }
+
+    /**
+     * A register for a local, above the temporaries in use, so it does not take one of theirs.
+     */
+    @Override
+    protected int allocate(RikType type) {
+        int kind = kind(type);
+        int register = Math.max(localTop[kind], tempTop[kind]);
+        localTop[kind] = register + 1;
+        tempTop[kind] = register + 1;
+        registerCounts[kind] = Math.max(registerCounts[kind], register + 1);
+        return register;
+    }
+
+    /**
+     * Frees the temporaries of a statement once it is compiled.
+     */
+    @Override
+    protected void endStatement() {
+        System.arraycopy(localTop, 0, tempTop, 0, localTop.length);
+    }
+
+    @Override
+    protected void lineNumber(int line) {
+    }
+
+    @Override
+    protected Operand constant(RikType type, long value) {
+        Integer index = longConstantIndexes.get(value);
+        if (index == null) {
+            index = longConstants.size();
+            longConstants.add(value);
+            longConstantIndexes.put(value, index);
+        }
+        return new Operand(type, index, true, false);
+    }
+
+    @Override
+    protected Operand constant(RikType type, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = doubleConstantIndexes.get(bits);
+        if (index == null) {
+            index = doubleConstants.size();
+            doubleConstants.add(value);
+            doubleConstantIndexes.put(bits, index);
+        }
+        return new Operand(type, index, true, false);
+    }
+
+    @Override
+    protected Operand constant(RikType type, Object value) {
+        Object key = value == null ? NULL_KEY : value;
+        Integer index = referenceConstantIndexes.get(key);
+        if (index == null) {
+            index = referenceConstants.size();
+            referenceConstants.add(value);
+            referenceConstantIndexes.put(key, index);
+        }
+        return new Operand(type, index, true, false);
+    }
+
+    @Override
+    protected void discard(Operand value) {
+    }
+
+    /**
+     * The value, copied to a temporary if it is a local.
+     */
+    @Override
+    protected Operand keep(Operand value) {
+        return value.isLocal ? copy(value) : value;
+    }
+
+    @Override
+    protected Operand loadThis() {
+        throw new IllegalStateException("There are no Rik instances in the register machine.");
+    }
+
+    @Override
+    protected Operand loadLocal(Local local) {
+        return new Operand(local.getType(), local.getSlot(), false, true);
+    }
+
+    @Override
+    protected void storeLocal(Local local, Operand value) {
+        move(local.getSlot(), value);
+    }
+
+    @Override
+    protected boolean canIncrement(RikType type, int delta) {
+        return type.equals(RikType.I32) || type.equals(RikType.I64);
+    }
+
+    @Override
+    protected void incrementLocal(Local local, int delta) {
+        emit(local.getType().equals(RikType.I32) ? INC_I : INC_L);
+        emit(local.getSlot());
+        emit(delta);
+    }
+
+    @Override
+    protected Operand load(Place<Operand> place) {
+        RikType type = place.getType();
+        int register;
+        switch (place.getKind()) {
+            case LOCAL:
+                return loadLocal(place.getLocal());
+            case FIELD: {
+                FieldSymbol field = place.getField();
+                if (field.getJavaField() == null) {
+                    register = result(type);
+                    emit(GET_STATIC + kind(type));
+                    emit(register);
+                    emit(layout.getStaticIndex(field));
+                    break;
+                }
+                int getter = javaFieldMember(field, false, place.getNode());
+                if (getter < 0) {
+                    return null;
+                }
+                register = result(type);
+                if (place.getReceiver() == null) {
+                    invoke(register, getter);
+                } else {
+                    invoke(register, getter, place.getReceiver());
+                }
+                break;
+            }
+            default:
+                register = result(type);
+                emitArrayLoad(register, type, place.getArray(), place.getIndex());
+                break;
+        }
+        return new Operand(type, register, false, false);
+    }
+
+    @Override
+    protected Operand loadForUpdate(Place<Operand> place) {
+        return load(place);
+    }
+
+    @Override
+    protected Operand store(Place<Operand> place, Operand value, boolean isValueUsed) {
+        switch (place.getKind()) {
+            case LOCAL:
+                storeLocal(place.getLocal(), value);
+                return isValueUsed ? loadLocal(place.getLocal()) : Operand.VOID;
+            case FIELD: {
+                FieldSymbol field = place.getField();
+                if (field.getJavaField() == null) {
+                    emit(PUT_STATIC + kind(place.getType()));
+                    emit(layout.getStaticIndex(field));
+                    emit(value);
+                    break;
+                }
+                if (field.isConst()) {
+                    // reported, a final field has no setter
+                    break;
+                }
+                int setter = javaFieldMember(field, true, place.getNode());
+                if (setter < 0) {
+                    return null;
+                }
+                if (place.getReceiver() == null) {
+                    invoke(0, setter, value);
+                } else {
+                    invoke(0, setter, place.getReceiver(), value);
+                }
+                break;
+            }
+            default:
+                emit(ARRAY_STORE + kind(place.getType()));
+                emit(place.getArray());
+                emit(place.getIndex());
+                emit(value);
+                break;
+        }
+        return isValueUsed ? value : Operand.VOID;
+    }
+
+    @Override
+    protected Operand keepOld(Place<Operand> place, Operand value) {
+        return keep(value);
+    }
+
+    @Override
+    protected Operand arrayLoad(RikType elementType, Operand array, Operand index) {
+        int register = result(elementType);
+        emitArrayLoad(register, elementType, array, index);
+        return new Operand(elementType, register, false, false);
+    }
+
+    @Override
+    protected Operand arrayLength(Operand array) {
+        int register = result(RikType.I32);
+        emit(ARRAY_LENGTH);
+        emit(register);
+        emit(array);
+        return new Operand(RikType.I32, register, false, false);
+    }
+
+    /**
+     * Calls a static Rik method as the function of the program it is, a Java method through its
+     * {@link JavaMember}, and the {@code compare} methods of the boxes as {@link RegisterOpcodes#COMPARE}.
+     */
+    @Override
+    protected Operand invoke(MethodSymbol method, Operand receiver, List<Operand> arguments, int node) {
+        RikType type = method.getReturnType();
+        Method javaMethod = method.getJavaMethod();
+        if (javaMethod == null) {
+            int register = type.equals(RikType.VOID) ? 0 : result(type);
+            emit(CALL);
+            emit(register);
+            emit(layout.getFunctionIndex(method));
+            emit(arguments.size());
+            arguments.forEach(this::emit);
+            return type.equals(RikType.VOID) ? Operand.VOID : new Operand(type, register, false, false);
+        }
+        if (isCompare(javaMethod)) {
+            int register = result(RikType.I32);
+            emit(COMPARE + kind(method.getParameterTypes().get(0)));
+            emit(register);
+            emit(arguments.get(0));
+            emit(arguments.get(1));
+            return new Operand(RikType.I32, register, false, false);
+        }
+        Class<?> javaClass = method.getOwner().getJavaClass() != null
+                ? method.getOwner().getJavaClass()
+                : javaMethod.getDeclaringClass();
+        String key = javaClass.getName() + ' ' + javaMethod;
+        Integer member = layout.findMember(key);
+        if (member == null) {
+            try {
+                member = layout.addMember(key, JavaMember.ofMethod(javaClass, javaMethod));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                report(DiagnosticCode.INVALID_USE, node, "from Rik, it is not accessible");
+                return null;
+            }
+        }
+        int register = type.equals(RikType.VOID) ? 0 : result(type);
+        List<Operand> operands = new ArrayList<>(arguments.size() + 1);
+        if (receiver != null) {
+            operands.add(receiver);
+        }
+        operands.addAll(arguments);
+        invoke(register, member, operands.toArray(new Operand[0]));
+        return type.equals(RikType.VOID) ? Operand.VOID : new Operand(type, register, false, false);
+    }
+
+    private static boolean isCompare(Method method) {
+        return method.getName().equals("compare") && Modifier.isStatic(method.getModifiers())
+                && method.getParameterCount() == 2 && COMPARED_BOXES.contains(method.getDeclaringClass());
+    }
+
+    @Override
+    protected Operand arithmetic(Operator operator, RikType type, Operand left, Operand right) {
+        int register = result(type);
+        emit(operator == Operator.AND ? AND : operator == Operator.OR ? OR : opcode(operator) + index(type));
+        emit(register);
+        emit(left);
+        emit(right);
+        return new Operand(type, register, false, false);
+    }
+
+    private static int opcode(Operator operator) {
+        switch (operator) {
+            case ADD:
+                return ADD;
+            case SUB:
+                return SUB;
+            case MUL:
+                return MUL;
+            case DIV:
+                return DIV;
+            default:
+                return REM;
+        }
+    }
+
+    @Override
+    protected Operand negate(Operand value) {
+        int register = result(value.type);
+        emit(NEG + index(value.type));
+        emit(register);
+        emit(value);
+        return new Operand(value.type, register, false, false);
+    }
+
+    /**
+     * Converts a number to a temporary, never to the local the expression is assigned to, which may be read after
+     * it. Other values keep their register.
+     */
+    @Override
+    protected Operand convert(Operand value, RikType to) {
+        RikType from = value.type;
+        if (from.equals(to) || !from.isNumeric() || !to.isNumeric()) {
+            return value.as(to);
+        }
+        RegisterSorts.Kind fromKind = RegisterSorts.kindOf(from);
+        RegisterSorts.Kind toKind = RegisterSorts.kindOf(to);
+        if (fromKind == RegisterSorts.Kind.DOUBLE && toKind == RegisterSorts.Kind.DOUBLE) {
+            return to.equals(RikType.F32) ? conversion(D2F, value, to) : value.as(to);
+        }
+        if (fromKind == RegisterSorts.Kind.LONG && toKind == RegisterSorts.Kind.DOUBLE) {
+            return conversion(to.equals(RikType.F32) ? L2F : L2D, value, to);
+        }
+        if (fromKind == RegisterSorts.Kind.DOUBLE) {
+            if (to.equals(RikType.I64)) {
+                return conversion(D2L, value, to);
+            }
+            value = conversion(D2I, value, RikType.I32);
+            from = RikType.I32;
+        }
+        switch (to.getSort()) {
+            case I8:
+                return conversion(I2B, value, to);
+            case I16:
+                return from.equals(RikType.I8) ? value.as(to) : conversion(I2S, value, to);
+            case CHAR:
+                return conversion(I2C, value, to);
+            case I32:
+                return from.equals(RikType.I64) ? conversion(L2I, value, to) : value.as(to);
+            default:
+                return value.as(to);
+        }
+    }
+
+    private Operand conversion(int opcode, Operand value, RikType to) {
+        int register = temporary(to);
+        emit(opcode);
+        emit(register);
+        emit(value);
+        return new Operand(to, register, false, false);
+    }
+
+    /**
+     * The machine checks no casts, a reference register holds any object.
+     */
+    @Override
+    protected Operand cast(Operand value, RikType to) {
+        return value.as(to);
+    }
+
+    @Override
+    protected Operand instanceOf(Operand value, RikType type) {
+        if (type.getJavaClass() == null) {
+            // the only value of a Rik class in the machine is null
+            return constant(RikType.BOOL, 0);
+        }
+        int register = result(RikType.BOOL);
+        emit(INSTANCE_OF);
+        emit(register);
+        emit(value);
+        emit(constant(RikType.OBJECT, (Object) type.getJavaClass()));
+        return new Operand(RikType.BOOL, register, false, false);
+    }
+
+    @Override
+    protected void beginConcatenation() {
+    }
+
+    @Override
+    protected Operand append(Operand operand) {
+        return operand;
+    }
+
+    /**
+     * The operands of a concatenation are appended in one instruction.
+     */
+    @Override
+    protected Operand finishConcatenation(List<Operand> operands) {
+        return concat(result(RikType.STRING), operands);
+    }
+
+    @Override
+    protected Operand concatenate(Operand current, Operand appended) {
+        return concat(result(RikType.STRING), List.of(current, appended));
+    }
+
+    private Operand concat(int register, List<Operand> operands) {
+        emit(CONCAT);
+        emit(register);
+        emit(operands.size());
+        for (Operand operand : operands) {
+            emit(RegisterSorts.sortOf(operand.type));
+            emit(operand);
+        }
+        return new Operand(RikType.STRING, register, false, false);
+    }
+
+    @Override
+    protected void branch(Comparison comparison, RikType type, Operand left, Operand right, Label target) {
+        switch (comparison) {
+            case EQ:
+                emit(IF_EQ + kind(type));
+                break;
+            case NE:
+                emit(IF_NE + kind(type));
+                break;
+            case LT:
+                emit(IF_LT);
+                break;
+            case GE:
+                emit(IF_GE);
+                break;
+            case GT:
+                emit(IF_GT);
+                break;
+            default:
+                emit(IF_LE);
+                break;
+        }
+        emit(left);
+        emit(right);
+        emit(target);
+    }
+
+    @Override
+    protected void branchIf(Operand value, boolean jumpIfTrue, Label target) {
+        emit(jumpIfTrue ? IF_TRUE : IF_FALSE);
+        emit(value);
+        emit(target);
+    }
+
+    @Override
+    protected void branchIfEquals(Operand string, Operand value, Label target) {
+        emit(IF_EQUALS);
+        emit(string);
+        emit(value);
+        emit(target);
+    }
+
+    /**
+     * The machine has no switch, the value is compared with the keys in order.
+     */
+    @Override
+    protected void switchOn(Operand value, int[] keys, List<Label> targets, Label defaultTarget) {
+        for (int i = 0; i < keys.length; i++) {
+            branch(Comparison.EQ, RikType.I32, value, constant(RikType.I32, keys[i]), targets.get(i));
+        }
+        jump(defaultTarget);
+    }
+
+    @Override
+    protected Operand booleanValue(Label isFalse) {
+        Label end = new Label();
+        int register = result(RikType.BOOL);
+        move(register, constant(RikType.BOOL, 1));
+        jump(end);
+        mark(isFalse);
+        move(register, constant(RikType.BOOL, 0));
+        mark(end);
+        return new Operand(RikType.BOOL, register, false, false);
+    }
+
+    @Override
+    protected void returnValue(Operand value) {
+        if (value != null) {
+            emit(RETURN_VALUE + kind(returnType));
+            emit(value);
+        } else if (returnType.equals(RikType.VOID)) {
+            emit(RETURN);
+        }
+        isReachable = false;
+    }
+
+    @Override
+    protected void throwValue(Operand value) {
+        emit(THROW);
+        emit(value);
+        isReachable = false;
+    }
+
+    /**
+     * Handlers of the non-empty ranges starting here, storing what they catch in the reference register of the
+     * local.
+     */
+    @Override
+    protected void catchHandler(List<int[]> ranges, RikType type, Local local) {
+        for (int[] range : ranges) {
+            if (range[0] < range[1]) {
+                handlers.add(new int[]{range[0], range[1], size, local.getSlot()});
+                handlerTypes.add(type == null ? Throwable.class : type.getJavaClass());
+            }
+        }
+        isReachable = true;
+    }
+
+    @Override
+    protected boolean isSupported(FieldSymbol field, int node) {
+        if (field.getJavaField() == null && !field.isStatic()) {
+            report(DiagnosticCode.UNSUPPORTED, node, "A field of a Rik object");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean isSupported(MethodSymbol method, int node) {
+        if (method.getJavaMethod() != null) {
+            return true;
+        }
+        if (!method.isStatic()) {
+            report(DiagnosticCode.UNSUPPORTED, node, "Calling a method of a Rik object");
+            return false;
+        }
+        if (layout.getFunctionIndex(method) < 0) {
+            report(DiagnosticCode.UNSUPPORTED, node, "Calling a method without a body");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Only Java exceptions are thrown in the machine.
+     */
+    @Override
+    protected boolean isCatchable(RikType type, int node) {
+        if (type.getJavaClass() == null) {
+            report(DiagnosticCode.INCOMPATIBLE_TYPES, node, THROWABLE, type);
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * The register the result of the expression being compiled goes to: the local it is assigned to if it has its
+     * type, else a new temporary. Called once all operands are compiled.
+     */
+    private int result(RikType type) {
+        Local local = resultTarget(type);
+        return local != null ? local.getSlot() : temporary(type);
+    }
+
+    private int temporary(RikType type) {
+        int kind = kind(type);
+        int register = tempTop[kind]++;
+        registerCounts[kind] = Math.max(registerCounts[kind], tempTop[kind]);
+        return register;
+    }
+
+    private Operand copy(Operand value) {
+        int register = temporary(value.type);
+        move(register, value);
+        return new Operand(value.type, register, false, false);
+    }
+
+    private void move(int register, Operand value) {
+        if (value.isConstant || value.register != register) {
+            emit(MOVE + kind(value.type));
+            emit(register);
+            emit(value);
+        }
+    }
+
+    /**
+     * The getter or setter of a Java field, or -1 after reporting it.
+     */
+    private int javaFieldMember(FieldSymbol field, boolean isSetter, int node) {
+        Field javaField = field.getJavaField();
+        Class<?> javaClass = field.getOwner().getJavaClass() != null
+                ? field.getOwner().getJavaClass()
+                : javaField.getDeclaringClass();
+        String key = (isSetter ? "set " : "get ") + javaClass.getName() + '.' + javaField.getName();
+        Integer member = layout.findMember(key);
+        if (member != null) {
+            return member;
+        }
+        try {
+            return layout.addMember(key, isSetter
+                    ? JavaMember.ofSetter(javaClass, javaField)
+                    : JavaMember.ofGetter(javaClass, javaField));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            report(DiagnosticCode.INVALID_USE, node, "from Rik, it is not accessible");
+            return -1;
+        }
+    }
+
+    private void invoke(int register, int member, Operand... operands) {
+        emit(INVOKE);
+        emit(register);
+        emit(member);
+        emit(operands.length);
+        for (Operand operand : operands) {
+            emit(operand);
+        }
+    }
+
+    private void emitArrayLoad(int register, RikType element, Operand array, Operand index) {
+        emit(ARRAY_LOAD + kind(element));
+        emit(register);
+        emit(array);
+        emit(index);
+    }
+
+    private static int kind(RikType type) {
+        return RegisterSorts.kindOf(type).ordinal();
+    }
+
+    /**
+     * The offset of the typed variant of an arithmetic instruction: {@code i32}, {@code i64}, {@code f32} or
+     * {@code f64}.
+     */
+    private static int index(RikType type) {
+        return RegisterSorts.sortOf(type) - RegisterSorts.I32_SORT;
+    }
+
+
+    private void emit(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    private void emit(Operand operand) {
+        if (operand.isConstant) {
+            constantOperands.add(new int[]{size, kind(operand.type)});
+            emit(CONSTANT_REGISTER + operand.register);
+        } else {
+            emit(operand.register);
+        }
+    }
+
+    private void emit(Label label) {
+        if (label.position < 0) {
+            label.references.add(size);
+        }
+        emit(label.position);
+    }
+}
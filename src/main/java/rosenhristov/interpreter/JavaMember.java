@@ -0,0 +1,75 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A public Java method or field a Rik function uses, looked up once when it is compiled and invoked through a
+ * {@link MethodHandle} taking its boxed arguments, the receiver first, as an {@code Object[]}.
+ */
+final class JavaMember {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private final String name;
+    private final MethodHandle handle;
+    /**
+     * The {@link RegisterSorts sorts} of the arguments and of the result.
+     */
+    final int[] parameterSorts;
+    final int returnSort;
+
+    private JavaMember(String name, MethodHandle handle, int returnSort) {
+        this.name = name;
+        MethodType type = handle.type();
+        this.handle = handle.asFixedArity()
+                .asType(MethodType.genericMethodType(type.parameterCount()))
+                .asSpreader(Object[].class, type.parameterCount());
+        this.parameterSorts = new int[type.parameterCount()];
+        for (int i = 0; i < parameterSorts.length; i++) {
+            parameterSorts[i] = RegisterSorts.sortOf(type.parameterType(i));
+        }
+        this.returnSort = returnSort;
+    }
+
+    /**
+     * The method, looked up in the class it is called on, where it is public even if the class declaring it is not.
+     */
+    static JavaMember ofMethod(Class<?> owner, Method method) throws ReflectiveOperationException {
+        MethodType type = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+        MethodHandle handle = Modifier.isStatic(method.getModifiers())
+                ? LOOKUP.findStatic(owner, method.getName(), type)
+                : LOOKUP.findVirtual(owner, method.getName(), type);
+        return new JavaMember(owner.getSimpleName() + '.' + method.getName(), handle,
+                RegisterSorts.sortOf(method.getReturnType()));
+    }
+
+    static JavaMember ofGetter(Class<?> owner, Field field) throws ReflectiveOperationException {
+        MethodHandle handle = Modifier.isStatic(field.getModifiers())
+                ? LOOKUP.findStaticGetter(owner, field.getName(), field.getType())
+                : LOOKUP.findGetter(owner, field.getName(), field.getType());
+        return new JavaMember(owner.getSimpleName() + '.' + field.getName(), handle,
+                RegisterSorts.sortOf(field.getType()));
+    }
+
+    static JavaMember ofSetter(Class<?> owner, Field field) throws ReflectiveOperationException {
+        MethodHandle handle = Modifier.isStatic(field.getModifiers())
+                ? LOOKUP.findStaticSetter(owner, field.getName(), field.getType())
+                : LOOKUP.findSetter(owner, field.getName(), field.getType());
+        return new JavaMember(owner.getSimpleName() + '.' + field.getName(), handle,
+                RegisterSorts.VOID_SORT);
+    }
+
+    Object invoke(Object[] arguments) throws Throwable {
+        return (Object) handle.invokeExact(arguments);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
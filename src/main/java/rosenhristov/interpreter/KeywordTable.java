@@ -0,0 +1,219 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static main.java.rosenhristov.interpreter.CharClasses.isWordPart;
+import static main.java.rosenhristov.interpreter.CharClasses.isWordStart;
+
+/**
+ * Recognizes keywords and their localized aliases with a perfect hash: every word maps to its own slot,
+ * so a lookup costs one hash of the candidate and at most one comparison, whatever the number of aliases.
+ * Each keyword and alias resolves to the id of its canonical keyword, its index in {@link Constants#KEYWORDS}.
+ */
+public final class KeywordTable {
+
+    public static final int NOT_A_KEYWORD = -1;
+
+    private static final int MAX_SEEDS_PER_SIZE = 256;
+    private static final int SLOTS_PER_WORD = 8;
+
+    private static final KeywordTable DEFAULT = of(Collections.emptyMap());
+
+    private final String[] keywords;
+    private final String[] slotWords;
+    private final int[] slotIds;
+    private final int mask;
+    private final int seed;
+    private final int minLength;
+    private final int maxLength;
+
+    private KeywordTable(String[] keywords, Map<String, Integer> words, int slotCountHint, int seedHint) {
+        this.keywords = keywords;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String word : words.keySet()) {
+            min = Math.min(min, word.length());
+            max = Math.max(max, word.length());
+        }
+        this.minLength = min;
+        this.maxLength = max;
+
+        String[] wordArray = words.keySet().toArray(new String[0]);
+        int capacity = Integer.highestOneBit(Math.max(1, wordArray.length * SLOTS_PER_WORD - 1)) << 1;
+        int foundSeed = -1;
+        if (slotCountHint >= capacity && Integer.bitCount(slotCountHint) == 1 && seedHint >= 0
+                && isPerfect(wordArray, slotCountHint - 1, seedHint, new boolean[slotCountHint])) {
+            capacity = slotCountHint;
+            foundSeed = seedHint;
+        }
+        while (foundSeed < 0) {
+            foundSeed = findSeed(wordArray, capacity - 1);
+            if (foundSeed < 0) {
+                capacity <<= 1;
+            }
+        }
+        this.mask = capacity - 1;
+        this.seed = foundSeed;
+        this.slotWords = new String[capacity];
+        this.slotIds = new int[capacity];
+        for (String word : wordArray) {
+            int slot = hash(word, 0, word.length(), seed) & mask;
+            slotWords[slot] = word;
+            slotIds[slot] = words.get(word);
+        }
+    }
+
+    public static KeywordTable defaultTable() {
+        return DEFAULT;
+    }
+
+    /**
+     * Builds a table of {@link Constants#KEYWORDS} and the given aliases per canonical keyword.
+     * Aliases of unknown keywords, aliases that are not words (like {@code <-}) and aliases already
+     * taken by another keyword are ignored.
+     */
+    public static KeywordTable of(Map<String, List<String>> aliases) {
+        return of(aliases, 0, -1);
+    }
+
+    /**
+     * Like {@link #of(Map)}, trying the {@link #getSlotCount()} and {@link #getSeed()} of a table built from the same
+     * aliases before searching for a seed, e.g. those of a previous run.
+     */
+    public static KeywordTable of(Map<String, List<String>> aliases, int slotCount, int seed) {
+        String[] keywords = Constants.KEYWORDS.split("\\|");
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        for (int id = 0; id < keywords.length; id++) {
+            ids.putIfAbsent(keywords[id], id);
+        }
+        Map<String, Integer> words = new LinkedHashMap<>(ids);
+        aliases.forEach((keyword, keywordAliases) -> {
+            Integer id = ids.get(keyword);
+            if (id == null) {
+                return;
+            }
+            keywordAliases.stream()
+                    .filter(KeywordTable::isWord)
+                    .forEach(alias -> words.putIfAbsent(alias, id));
+        });
+        return new KeywordTable(keywords, words, slotCount, seed);
+    }
+
+    /**
+     * @return the canonical keyword id of {@code source[start, end)} or {@link #NOT_A_KEYWORD}
+     */
+    public int find(CharSequence source, int start, int end) {
+        int length = end - start;
+        if (length < minLength || length > maxLength) {
+            return NOT_A_KEYWORD;
+        }
+        int slot = hash(source, start, end, seed) & mask;
+        String word = slotWords[slot];
+        if (word == null || word.length() != length) {
+            return NOT_A_KEYWORD;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != source.charAt(start + i)) {
+                return NOT_A_KEYWORD;
+            }
+        }
+        return slotIds[slot];
+    }
+
+    public int find(CharSequence word) {
+        return find(word, 0, word.length());
+    }
+
+    public boolean isKeyword(CharSequence word) {
+        return find(word) != NOT_A_KEYWORD;
+    }
+
+    public String getKeyword(int id) {
+        return keywords[id];
+    }
+
+    public List<String> getKeywords() {
+        return Collections.unmodifiableList(Arrays.asList(keywords));
+    }
+
+    /**
+     * A hash of every word and the keyword id it maps to, which changes whenever the configured aliases do.
+     */
+    public long fingerprint() {
+        long fingerprint = keywords.length;
+        for (int slot = 0; slot < slotWords.length; slot++) {
+            if (slotWords[slot] != null) {
+                fingerprint = fingerprint * 1_000_003L + slotWords[slot].hashCode();
+                fingerprint = fingerprint * 1_000_003L + slotIds[slot];
+            }
+        }
+        return fingerprint;
+    }
+
+    public int getSlotCount() {
+        return mask + 1;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public List<String> getWords() {
+        List<String> words = new ArrayList<>();
+        for (String word : slotWords) {
+            if (word != null) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static int findSeed(String[] words, int mask) {
+        boolean[] taken = new boolean[mask + 1];
+        for (int seed = 0; seed < MAX_SEEDS_PER_SIZE; seed++) {
+            if (isPerfect(words, mask, seed, taken)) {
+                return seed;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isPerfect(String[] words, int mask, int seed, boolean[] taken) {
+        Arrays.fill(taken, false);
+        for (String word : words) {
+            int slot = hash(word, 0, word.length(), seed) & mask;
+            if (taken[slot]) {
+                return false;
+            }
+            taken[slot] = true;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence source, int start, int end, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + source.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x45D9F3B;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean isWord(String alias) {
+        if (alias.isEmpty() || !isWordStart(alias.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < alias.length(); i++) {
+            if (!isWordPart(alias.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
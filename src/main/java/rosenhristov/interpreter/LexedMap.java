@@ -5,22 +5,33 @@ import main.java.rosenhristov.ProjectDir;
 import java.util.LinkedHashMap;
 import java.util.List;
 
-import static java.util.stream.Collectors.toList;
-
 public class LexedMap extends LinkedHashMap<ProjectDir, List<LexedSourceFile>> {
 
+    public int getFileCount() {
+        return this.values().stream().mapToInt(List::size).sum();
+    }
+
+    public long getTokenCount() {
+        return this.values().stream()
+                .flatMap(List::stream)
+                .mapToLong(lexedFile -> lexedFile.getLineTokensMap().getTokenCount())
+                .sum();
+    }
+
+    public int getErrorCount() {
+        return this.values().stream()
+                .flatMap(List::stream)
+                .mapToInt(lexedFile -> lexedFile.getLineTokensMap().getErrors().getTotalCount())
+                .sum();
+    }
+
+    /**
+     * Prints the errors and tokens of every file to standard output, see {@link TokenDumper.Format#TEXT}.
+     */
     public void print() {
-        this.values().stream()
-                .flatMap(list -> list.stream())
-                .collect(toList())
-                .forEach(lexedFile -> {
-                    LineTokensMap lexedLines = lexedFile.getLineTokensMap();
-                    if (lexedLines.hasErrors()) {
-                        lexedLines.printErrors();
-                    }
-                    lexedLines.printTokens();
-                }
-        );
+        try (TokenDumper dumper = TokenDumper.toStandardOutput(TokenDumper.Format.TEXT)) {
+            this.values().forEach(lexedFiles -> lexedFiles.forEach(dumper::write));
+        }
     }
 
 }
@@ -1,11 +1,20 @@
 package main.java.rosenhristov.interpreter;
 
+import java.io.File;
+
 public class LexedSourceFile {
 
     private LineTokensMap lineTokensMap;
 
+    private File file;
+
     public LexedSourceFile(LineTokensMap lexedLineMaps) {
+        this(lexedLineMaps, null);
+    }
+
+    public LexedSourceFile(LineTokensMap lexedLineMaps, File file) {
         this.lineTokensMap = lexedLineMaps;
+        this.file = file;
     }
 
     public LineTokensMap getLineTokensMap() {
@@ -15,4 +24,11 @@ public class LexedSourceFile {
     public void setLexedLines(LineTokensMap lineTokensMap) {
         this.lineTokensMap = lineTokensMap;
     }
+
+    /**
+     * The file the tokens were lexed from, {@code null} for sources not read from a file.
+     */
+    public File getFile() {
+        return file;
+    }
 }
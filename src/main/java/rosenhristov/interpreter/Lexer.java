@@ -2,308 +2,534 @@ package main.java.rosenhristov.interpreter;
 
 import main.java.rosenhristov.ProjectDir;
 import main.java.rosenhristov.SourceCode;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Objects.isNull;
-import static main.java.rosenhristov.interpreter.Constants.*;
-import static main.java.rosenhristov.interpreter.Constants.SINGLE_QUOTES_CHAR;
-import static main.java.rosenhristov.Utils.isEmpty;
-import static java.lang.Character.isDigit;
-import static java.lang.Character.isLetter;
-import static main.java.rosenhristov.interpreter.TokenType.*;
+import static main.java.rosenhristov.interpreter.Constants.MAX_ERRORS;
+import static main.java.rosenhristov.interpreter.Constants.MAX_ERRORS_PER_FILE;
 
 public class Lexer {
 
     Map<ProjectDir, List<SourceCode>> sourceCodeMap;
 
-    private String sourceCode;
+    private final KeywordTable keywords;
 
-    private final List<String> keywords;
+    private final SymbolTable symbols;
+
+    private TokenCache tokenCache;
+
+    private PipelineMetrics metrics = PipelineMetrics.disabled();
+
+    private int maxErrorsPerFile = MAX_ERRORS_PER_FILE;
+
+    private int maxErrors = MAX_ERRORS;
 
     private Errors errors;
 
+    private TokenArenas tokenArenas;
+
     private Lexer() {
-        keywords = loadKeywords();
+        this(KeywordTable.defaultTable());
     }
 
-    private Lexer(Map<ProjectDir, List<SourceCode>>sourceCodeMap) {
-        this();
+    private Lexer(KeywordTable keywords) {
+        this(keywords, SymbolTable.of(keywords));
+    }
+
+    private Lexer(KeywordTable keywords, SymbolTable symbols) {
+        this.keywords = keywords;
+        this.symbols = symbols;
+    }
+
+    private Lexer(Map<ProjectDir, List<SourceCode>>sourceCodeMap, KeywordTable keywords) {
+        this(keywords);
         this.sourceCodeMap = sourceCodeMap;
     }
 
     public static Lexer of(Map<ProjectDir, List<SourceCode>> sourceCodeMap) {
-        return new Lexer (sourceCodeMap);
+        return new Lexer (sourceCodeMap, KeywordTable.defaultTable());
     }
 
-    public LexedMap lexSourceCodeMap() {
-        LexedMap lexedMap = new LexedMap();
-        sourceCodeMap.entrySet().forEach(entry -> lexedMap.put(
-                entry.getKey(),
-                entry.getValue().stream()
-                        .map(sourceFileContent -> new LexedSourceFile(
-                                lexToLineTokensMap(sourceFileContent.getSourceString())))
-                        .collect(Collectors.toList())
-                )
-        );
-        return lexedMap;
+    public static Lexer of(Map<ProjectDir, List<SourceCode>> sourceCodeMap, KeywordTable keywords) {
+        return new Lexer (sourceCodeMap, keywords);
     }
 
-    public LineTokensMap lexToLineTokensMap(String sourceCode) {
-        this.sourceCode = sourceCode;
-        if (isEmpty(sourceCode)) {
-            addLexerError("There is no source code in this file");
-            return new LineTokensMap();
-        }
-        return lex(sourceCode).buildLineTokensMap();
-    }
-
-    public LexingResult lex(String sourceCode) {
-        LexingResult lexingResult = new LexingResult(sourceCode);
-        int index = 0;
-        while (index < sourceCode.length()) {
-            char symbol = getChar(index);
-            if (WHITESPACE.matches(symbol) && !NEWLINE.matches(symbol)) {
-                index++; // ignore whitespaces
-            } else if (NEWLINE.matches(symbol)) {
-                lexingResult.addToken(new Token(NEWLINE, symbol, index));
-                index++;
-            } else if(isLetter(symbol) || symbol == UNDERSCORE_CHAR) {
-                int startOfToken = index;
-                StringBuilder word = new StringBuilder();
-                index = appendWord(word, index);
-                TokenType type = deriveWordType(word.toString());
-                lexingResult.addToken(new Token(type, word.toString(), startOfToken));
-            } else if (isDigit(symbol)) {
-                StringBuilder number = new StringBuilder();
-                index = appendNumber(number, index);
-                lexingResult.addToken(new Token(NUMBER, number.toString(), index));
-            } else if (OPERATOR.matches(symbol) && !isStartOfComment(symbol, index)) {
-                if (isSingleOnlyOperator(symbol) || (!isSingleOnlyOperator(symbol) && !isTokenType(OPERATOR, nextChar(index)))) {
-                    lexingResult.addToken(new Token(OPERATOR, symbol, index));
-                } else if (isSingleOnlyOperator(symbol) && isTokenType(OPERATOR, nextChar(index))) {
-                    String doubleOperator = new StringBuilder(symbol).append(getChar(++index)).toString();
-                    lexingResult.addError(String.format("Nonexistent double operator %s at %s:%s: ", doubleOperator, index));
-                } else if (!isSingleOnlyOperator(symbol) && isTokenType(OPERATOR, getChar(index))) {
-                    String doubleOperator = new StringBuilder(symbol).append(getChar(++index)).toString();
-                    lexingResult.addToken(new Token(OPERATOR, doubleOperator, index - 1));
-                }
-                index++;
-            } else if (CHAR_LITERAL.matches(symbol)) {
-                StringBuilder sb = new StringBuilder();
-                int literalStart = index;
-                index = appendCharLiteral(sb, ++index);
-                String literal = sb.toString();
-                lexingResult.addToken(new Token(CHAR_LITERAL, literal, literalStart));
-            } else if (STRING_LITERAL.matches(symbol)) {
-                StringBuilder sb = new StringBuilder();
-                int literalStart = index;
-                index = appendStringLiteral(sb, ++index);
-                lexingResult.addToken(new Token(STRING_LITERAL, sb.toString(), literalStart));
-            } else if (SEPARATOR.matches(symbol)) {
-                lexingResult.addToken(new Token(SEPARATOR, symbol, index));
-                index++;
-            } else if (COMMENT.matches(symbol) && isStartOfComment(symbol, index)) {
-                int commentStart = index;
-                Integer commentEnd;
-                StringBuilder sb = new StringBuilder();
-                if (symbol == SLASH_CHAR && nextChar(index) == SLASH_CHAR) {
-                    index = appendLineComment(sb, index);
-                    lexingResult.addToken(new Token(COMMENT, sb.toString(), commentStart));
-                } else if (symbol == SLASH_CHAR && nextChar(index) == STAR_CHAR && nextChar(index + 1) != STAR_CHAR) {
-                    index = appendMultilineComment(sb, index);
-                    commentEnd = index;
-                    lexingResult.addToken(new Token(MULTILINE_COMMENT, sb.toString(), commentStart, commentEnd));
-                } else if (symbol == SLASH_CHAR && nextChar(index) == STAR_CHAR && nextChar(index + 1) == STAR_CHAR) {
-                    index = appendMultilineComment(sb, index);
-                    commentEnd = index;
-                    lexingResult.addToken(new Token(DOC, sb.toString(), commentStart, commentEnd));
-                }
-                index++;
-            } else {
-                lexingResult.addError(String.format("Unknown character '%c' at index %d", symbol, index));
-            }
-        }
-        lexingResult.addToken(new Token(EOF, EOF.getValue(), sourceSize() - 1));
+    /**
+     * A lexer that loads the results of unchanged files from the given cache and caches everything it lexes.
+     * Lexing the whole source code map evicts the entries of the contents that are not in it any more, see
+     * {@link TokenCache#evictUnused()}.
+     */
+    public static Lexer of(Map<ProjectDir, List<SourceCode>> sourceCodeMap, KeywordTable keywords, TokenCache tokenCache) {
+        Lexer lexer = new Lexer (sourceCodeMap, keywords);
+        lexer.tokenCache = tokenCache;
+        return lexer;
+    }
 
-        return lexingResult;
+    /**
+     * Like {@link #of(Map, KeywordTable, TokenCache)}, measuring every lexed file in the
+     * {@link PipelineMetrics#LEX} stage.
+     */
+    public static Lexer of(Map<ProjectDir, List<SourceCode>> sourceCodeMap, KeywordTable keywords, TokenCache tokenCache,
+                           PipelineMetrics metrics) {
+        Lexer lexer = of(sourceCodeMap, keywords, tokenCache);
+        lexer.metrics = metrics;
+        return lexer;
     }
 
-    private List<String> loadKeywords() {
-        return List.of(Constants.KEYWORDS.split("\\|"));
+    public static Lexer create() {
+        return new Lexer();
     }
 
-    private boolean addLexerError(String error) {
-        return this.getErrors().addError(error);
+    public static Lexer create(KeywordTable keywords) {
+        return new Lexer(keywords);
     }
 
-    private Errors getErrors() {
-        if (isNull(errors)) {
-            errors = new Errors();
+    /**
+     * Keeps at most {@code maxErrorsPerFile} errors of every file and {@code maxErrors} errors of all the files
+     * of one {@link #lexSourceCodeMap()} call; errors past the caps are only counted.
+     */
+    public Lexer limitErrors(int maxErrorsPerFile, int maxErrors) {
+        if (maxErrorsPerFile < 0 || maxErrors < 0) {
+            throw new IllegalArgumentException(String.format("Negative error caps %d, %d", maxErrorsPerFile, maxErrors));
         }
-        return errors;
+        this.maxErrorsPerFile = maxErrorsPerFile;
+        this.maxErrors = maxErrors;
+        return this;
     }
 
-    private int appendLineComment(StringBuilder sb, int index) {
-        return appendCharsTillSymbol(sb, index, NEW_LINE_CHAR);
+    /**
+     * Moves the tokens of every file {@link #lexSourceCodeMap()} lexes off-heap into an arena of the given ones,
+     * right after the file was handed over, see {@link LineTokensMap#storeIn(TokenArena)}.
+     */
+    public Lexer storeTokensOffHeap(TokenArenas tokenArenas) {
+        this.tokenArenas = tokenArenas;
+        return this;
     }
 
-    private int appendMultilineComment(StringBuilder comment, int index) {
-        int i = appendCharsTillSymbol(comment, index, STAR_CHAR);
-        comment.append(getChar(i));
-        if (nextChar(i) == SLASH_CHAR) {
-            comment.append(getChar(++i));
-        }
-        i++;
-        if(comment.toString().endsWith("*/")) {
-            return i;
-        }
-        return appendMultilineComment(comment, i);
+    public LexedMap lexSourceCodeMap() {
+        return lexSourceCodeMap(lexedFile -> { });
     }
 
-    private int appendWord(StringBuilder word, int index) {
-        while (index < sourceSize() && isWordAllowedChar(getChar(index))) {
-            word.append(getChar(index));
-            index++;
+    /**
+     * Like {@link #lexSourceCodeMap()}, handing every file to {@code onLexed} as soon as it is lexed, e.g. to
+     * dump it while the next one is lexed.
+     */
+    public LexedMap lexSourceCodeMap(Consumer<LexedSourceFile> onLexed) {
+        LexedMap lexedMap = new LexedMap();
+        AtomicInteger errorBudget = new AtomicInteger(maxErrors);
+        for (Map.Entry<ProjectDir, List<SourceCode>> entry : sourceCodeMap.entrySet()) {
+            List<LexedSourceFile> lexedFiles = new ArrayList<>(entry.getValue().size());
+            for (SourceCode source : entry.getValue()) {
+                LexedSourceFile lexedFile = lexSourceFile(source, errorBudget);
+                onLexed.accept(lexedFile);
+                storeOffHeap(lexedFile, arenaFor(entry.getKey()));
+                lexedFiles.add(lexedFile);
+            }
+            lexedMap.put(entry.getKey(), lexedFiles);
         }
-        return index;
+        evictUnusedCacheEntries();
+        return lexedMap;
     }
 
-    private int appendNumber(StringBuilder number, int index) {
-        while (index < sourceSize() && isNumberAllowedChar(getChar(index), index)) {
-            number.append(getChar(index));
-            index++;
+    /**
+     * Lexes every source file on the given executor, largest files first, and returns a {@link LexedMap}
+     * in the same order as {@link #lexSourceCodeMap()}. Each file is lexed by its own {@link Lexer},
+     * so no lexing state is shared between threads. Which files keep their errors once the total cap of
+     * {@link #limitErrors(int, int)} is reached depends on the order they finish in. The executor is not shut down.
+     */
+    public LexedMap lexSourceCodeMap(ExecutorService executor) {
+        return lexSourceCodeMap(executor, lexedFile -> { });
+    }
+
+    /**
+     * Like {@link #lexSourceCodeMap(ExecutorService)}, handing the files to {@code onLexed} in the order of
+     * {@link #lexSourceCodeMap()}, each as soon as it and all the files before it are lexed. Files are handed over
+     * one at a time, by whichever thread completed the run of lexed files.
+     */
+    public LexedMap lexSourceCodeMap(ExecutorService executor, Consumer<LexedSourceFile> onLexed) {
+        List<ProjectDir> dirs = new ArrayList<>(sourceCodeMap.keySet());
+        LexedSourceFile[][] lexedFiles = new LexedSourceFile[dirs.size()][];
+        List<FileTask> tasks = new ArrayList<>();
+        for (int dirIndex = 0; dirIndex < dirs.size(); dirIndex++) {
+            List<SourceCode> sources = sourceCodeMap.get(dirs.get(dirIndex));
+            lexedFiles[dirIndex] = new LexedSourceFile[sources.size()];
+            for (int fileIndex = 0; fileIndex < sources.size(); fileIndex++) {
+                tasks.add(new FileTask(tasks.size(), dirIndex, fileIndex, sources.get(fileIndex)));
+            }
         }
-        return index;
-    }
+        TokenArena[] arenas = new TokenArena[tasks.size()];
+        for (FileTask task : tasks) {
+            arenas[task.order] = arenaFor(dirs.get(task.dirIndex));
+        }
+        HandOver handOver = new HandOver(tasks.size(), onLexed, arenas);
+        tasks.sort(Comparator.comparingInt(FileTask::size).reversed());
+
+        AtomicInteger errorBudget = new AtomicInteger(maxErrors);
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (FileTask task : tasks) {
+            futures.add(executor.submit(() -> {
+                LexedSourceFile lexedFile = lexSourceFile(task.source, errorBudget);
+                lexedFiles[task.dirIndex][task.fileIndex] = lexedFile;
+                handOver.lexed(task.order, lexedFile);
+            }));
+        }
+        awaitAll(futures);
+        handOver.finish();
 
-    private int appendStringLiteral(StringBuilder string, int index) {
-        while (index < sourceSize() && getChar(index) != DOUBLE_QUOTES_CHAR) {
-            if(getChar(index) != BACKSLASH_CHAR) {
-                string.append(getChar(index));
-            } else if (isEscapedChar(index)) {
-                string.append(getChar(++index));
-            }
-            index++;
+        LexedMap lexedMap = new LexedMap();
+        for (int dirIndex = 0; dirIndex < dirs.size(); dirIndex++) {
+            lexedMap.put(dirs.get(dirIndex), Arrays.asList(lexedFiles[dirIndex]));
         }
-        return ++index;
+        evictUnusedCacheEntries();
+        return lexedMap;
     }
 
-    private boolean isEscapedChar(int index) {
-        return getChar(index) == BACKSLASH_CHAR
-                && (nextChar(index) == BACKSLASH_CHAR
-                        || nextChar(index) == SINGLE_QUOTES_CHAR
-                        || nextChar(index) == DOUBLE_QUOTES_CHAR);
+    public Map<ProjectDir, List<SourceCode>> getSourceCodeMap() {
+        return sourceCodeMap;
     }
 
-    private int appendCharLiteral(StringBuilder sb, int index) {
-        while (index < sourceSize() && getChar(index) != SINGLE_QUOTES_CHAR) {
-            if(getChar(index) != BACKSLASH_CHAR) {
-                sb.append(getChar(index));
-            } else if (isCharValue(index)) {
-                sb.append(getChar(++index));
-            }
-            index++;
-        }
-        return ++index;
+    /**
+     * Lexes a single file the way {@link #lexSourceCodeMap()} lexes each of its files, only capping its errors
+     * per file.
+     */
+    public LexedSourceFile lexSourceFile(SourceCode source) {
+        return lexSourceFile(source, null);
     }
 
-    private boolean isCharValue(int index) {
-        return getChar(index) == BACKSLASH_CHAR
-                && (nextChar(index) == BACKSLASH_CHAR
-                        || nextChar(index) == U_CHAR_VALUE
-                        || nextChar(index) == SINGLE_QUOTES_CHAR);
+    private LexedSourceFile lexSourceFile(SourceCode source, AtomicInteger errorBudget) {
+        Measurement measurement = metrics.startFile(PipelineMetrics.LEX, PipelineMetrics.describe(source.getFile()));
+        Lexer fileLexer = new Lexer(keywords, symbols);
+        fileLexer.tokenCache = tokenCache;
+        fileLexer.maxErrorsPerFile = maxErrorsPerFile;
+        LineTokensMap lineTokensMap = fileLexer.lexToLineTokensMap(source.getContent());
+        if (!isNull(errorBudget)) {
+            lineTokensMap.getErrors().claim(errorBudget);
+        }
+        if (measurement.isActive()) {
+            measurement.addBytes(source.length())
+                    .addTokens(lineTokensMap.getTokenCount())
+                    .addErrors(lineTokensMap.getErrors().getTotalCount())
+                    .stop();
+        }
+        return new LexedSourceFile(lineTokensMap, source.getFile());
     }
 
-    private int appendCharsTillSymbol(StringBuilder sb, int index, char symbol) {
-        while (index < sourceSize() && getChar(index) != symbol) {
-            sb.append(getChar(index));
-            index++;
+    private void evictUnusedCacheEntries() {
+        if (!isNull(tokenCache)) {
+            tokenCache.evictUnused();
         }
-        return index;
     }
 
-    private int appendCharsTillMatch(StringBuilder sb, int index, TokenType tokenType) {
-        while(index < sourceSize() && !tokenType.matches(getChar(index))) {
-            sb.append(getChar(index));
-            index++;
-        }
-        return index;
+    private TokenArena arenaFor(ProjectDir dir) {
+        return isNull(tokenArenas) ? null : tokenArenas.arenaFor(dir);
     }
 
-    private TokenType deriveWordType(String word) {
-        return TokenType.KEYWORD.matches(word) && keywords.contains(word)
-                ? TokenType.KEYWORD
-                : TokenType.IDENTIFIER;
+    private static void storeOffHeap(LexedSourceFile lexedFile, TokenArena arena) {
+        if (!isNull(arena)) {
+            lexedFile.getLineTokensMap().storeIn(arena);
+        }
     }
 
-    private boolean isWordAllowedChar(char c) {
-        return isLetter(c) || isDigit(c) || c == '_';
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Lexing of the project was interrupted.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Problems lexing project source files.", e.getCause());
+        }
     }
 
-    private boolean isNumberAllowedChar(char c, int index) {
-        return isDigit(c)
-                || isExponentialNumber(c, index)
-                || isPowerSign(c, index)
-                || isHexadecimalSign(c, index)
-                || isDecimalOrReadabilitySeparator(c, index)
-                || isHexadecimalDigit(c);
+    public LineTokensMap lexToLineTokensMap(CharSequence sourceCode) {
+        if (isNull(sourceCode) || sourceCode.length() == 0) {
+            getErrors().report(DiagnosticCode.NO_SOURCE_CODE, sourceCode, 0, 0);
+            return new LineTokensMap();
+        }
+        LexingResult lexingResult = isNull(tokenCache)
+                ? lex(sourceCode)
+                : tokenCache.getOrLex(sourceCode, this::lex, this::prepareLoaded);
+        return lexingResult.buildLineTokensMap();
+    }
+
+    /**
+     * Lexes the source, interning its identifiers into {@link #getSymbols()}. Safe to call from several
+     * threads: each call interns into a table of its own and merges it into the shared one once, at the end.
+     */
+    public LexingResult lex(CharSequence sourceCode) {
+        LexingResult lexingResult = new LexingResult(new TokenBuffer(sourceCode), maxErrorsPerFile);
+        TokenScanner scanner = scanner(sourceCode, lexingResult.getErrors());
+        TokenBuffer tokens = lexingResult.getTokenBuffer();
+        while (scanner.next()) {
+            tokens.add(scanner);
+        }
+        tokens.setLineIndex(scanner.getLineIndex());
+        internSymbols(tokens, 0, tokens.size(), scanner.getSymbols());
+        return lexingResult;
     }
 
-    private boolean isExponentialNumber(char c, int index) {
-        return isExponentialSign(c)
-                && (isDigit(prevChar(index)) && (isDigit(nextChar(index)) || nextChar(index) == '-' || nextChar(index) == '+'));
+    /**
+     * The symbols of every identifier and keyword this lexer has lexed.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
     }
 
-    private boolean isExponentialSign(char c) {
-        return c == 'e' || c == 'E';
+    /**
+     * Moves the symbols of the tokens {@code [from, to)} from the table they were scanned with to the shared one.
+     */
+    private void internSymbols(TokenBuffer tokens, int from, int to, SymbolTable scannedSymbols) {
+        if (scannedSymbols.size() == scannedSymbols.getKeywordCount()) {
+            return;
+        }
+        int[] ids;
+        synchronized (symbols) {
+            ids = symbols.internAll(scannedSymbols);
+        }
+        tokens.remapSymbols(from, to, ids);
     }
 
-    private boolean isPowerSign(char c, int index) {
-        return (c == '+' || c == '-')
-                && (isExponentialSign(prevChar(index)) && isDigit(getChar(index - 2)) && isDigit(nextChar(index)));
+    /**
+     * Cached results keep the errors of the cap they were lexed with, a lower cap applies to them as well.
+     */
+    private void prepareLoaded(LexingResult lexingResult) {
+        if (!lexingResult.getErrors().limitTo(maxErrorsPerFile)) {
+            throw new IllegalArgumentException("Cached errors were capped below " + maxErrorsPerFile);
+        }
+        internLoadedSymbols(lexingResult);
+    }
+
+    /**
+     * Cached tokens carry the symbols of the run that cached them, identifiers are interned again.
+     */
+    private void internLoadedSymbols(LexingResult lexingResult) {
+        TokenBuffer tokens = lexingResult.getTokenBuffer();
+        CharSequence source = tokens.getSource();
+        SymbolTable loadedSymbols = symbols.newTable();
+        for (int token = 0; token < tokens.size(); token++) {
+            TokenType type = tokens.getType(token);
+            if (type == TokenType.IDENTIFIER) {
+                tokens.setSymbol(token, loadedSymbols.intern(source, tokens.getStart(token), tokens.getEnd(token)));
+            } else if (type == TokenType.KEYWORD && !loadedSymbols.isKeyword(tokens.getSymbol(token))) {
+                throw new IllegalArgumentException("Invalid keyword id of token " + token);
+            }
+        }
+        internSymbols(tokens, 0, tokens.size(), loadedSymbols);
     }
 
-    private boolean isHexadecimalSign(char c, int index) {
-        return (c == 'x' || c == 'X')
-                && (prevChar(index) == '0' && (isDigit(nextChar(index)) || isHexadecimalDigit(nextChar(index))));
+    /**
+     * Lazily lexes the source code as the returned stream is consumed, one token at a time.
+     * Lexing errors are collected in {@link #getErrors()}.
+     */
+    public Stream<Token> tokens(CharSequence sourceCode) {
+        return tokens(sourceCode, getErrors());
     }
 
-    private boolean isDecimalOrReadabilitySeparator(char c, int index) {
-        return (c == '.' || c == ',' || c == '_' || c == ' ')
-                && (isDigit(prevChar(index)) && isDigit(nextChar(index)));
+    public Stream<Token> tokens(CharSequence sourceCode, DiagnosticHandler errorHandler) {
+        TokenScanner scanner = scanner(sourceCode, errorHandler);
+        Spliterator<Token> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Token> action) {
+                if (!scanner.next()) {
+                    return false;
+                }
+                action.accept(scanner.getToken());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * A pull based scanner for callers that read the token columns without creating {@link Token}s.
+     * Its symbols are those of {@link TokenScanner#getSymbols()}, a table of its own.
+     */
+    public TokenScanner scanner(CharSequence sourceCode, DiagnosticHandler errorHandler) {
+        return new TokenScanner(sourceCode, keywords, symbols.newTable(), errorHandler);
+    }
+
+    /**
+     * Lexes the edited source again, reusing the tokens of {@code previous} outside of the edited region.
+     * Scanning restarts two tokens before the edit, since a token may look one char past its end, and stops
+     * once {@link TokenScanner#DECLARATION_TOKENS} tokens in a row and the next one start where old tokens after
+     * the edit started, since a number is checked against the declaration before it. The remaining old tokens are
+     * copied with shifted offsets and lines, and the line index and the errors are patched the same way.
+     * Results with suppressed errors are lexed in full, as the errors past the cap are not known.
+     * The symbols of {@code previous} must come from this lexer's {@link #getSymbols()}.
+     */
+    public LexingResult relex(LexingResult previous, SourceEdit edit) {
+        TokenBuffer oldTokens = previous.getTokenBuffer();
+        CharSequence oldSource = oldTokens.getSource();
+        String sourceCode = edit.applyTo(oldSource);
+        Errors oldErrors = previous.getErrors();
+        if (oldErrors.getSuppressedCount() > 0 || oldTokens.isEmpty()) {
+            return lex(sourceCode);
+        }
+
+        int restart = findRestartToken(oldTokens, edit.getOffset());
+        int offsetDelta = edit.getLengthDelta();
+        int lineDelta = edit.lineDelta(oldSource);
+
+        TokenBuffer tokens = new TokenBuffer(sourceCode, oldTokens.size() + Math.max(0, offsetDelta));
+        LexingResult lexingResult = new LexingResult(tokens, maxErrorsPerFile);
+        Errors errors = new Errors(); // capped once complete, the errors of the resync token are dropped first
+        tokens.setLineIndex(oldTokens.getLineIndex().apply(edit));
+        tokens.addAll(oldTokens, 0, restart, 0, 0);
+        int restartOffset = restart == 0 ? 0 : oldTokens.getStart(restart);
+        for (Diagnostic error : oldErrors.getErrors()) {
+            if (error.getOffset() < restartOffset) {
+                errors.addError(error.moveTo(sourceCode, error.getOffset()));
+            }
+        }
+        TokenScanner scanner = new TokenScanner(sourceCode, keywords, symbols.newTable(), errors,
+                restartOffset, restart == 0 ? 1 : oldTokens.getLine(restart));
+        scanner.resumeAfter(oldTokens, Math.max(0, restart - TokenScanner.DECLARATION_TOKENS), restart);
+        int matchedTokens = 0;
+        while (scanner.next()) {
+            if (scanner.getStart() >= edit.getInsertedEnd()) {
+                int oldToken = oldTokens.findTokenStartingAt(scanner.getStart() - offsetDelta);
+                matchedTokens = oldToken >= 0 ? matchedTokens + 1 : 0;
+                if (matchedTokens > TokenScanner.DECLARATION_TOKENS) {
+                    internSymbols(tokens, restart, tokens.size(), scanner.getSymbols());
+                    tokens.addAll(oldTokens, oldToken, oldTokens.size(), offsetDelta, lineDelta);
+                    errors.removeFrom(scanner.getStart());
+                    for (Diagnostic error : oldErrors.getErrors()) {
+                        if (error.getOffset() >= oldTokens.getStart(oldToken)) {
+                            errors.addError(error.moveTo(sourceCode, error.getOffset() + offsetDelta));
+                        }
+                    }
+                    lexingResult.getErrors().addAll(errors);
+                    return lexingResult;
+                }
+            }
+            tokens.add(scanner);
+        }
+        internSymbols(tokens, restart, tokens.size(), scanner.getSymbols());
+        lexingResult.getErrors().addAll(errors);
+        return lexingResult;
     }
 
-    private boolean isHexadecimalDigit(char c) {
-        return (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
+    public LineTokensMap relex(LineTokensMap previous, SourceEdit edit) {
+        // the tokens are copied once, the relexed ones are built on the heap from them
+        TokenBuffer previousTokens = previous.getTokenBuffer();
+        if (isNull(previousTokens)) {
+            throw new IllegalArgumentException("Only line tokens maps built by the lexer can be lexed incrementally.");
+        }
+        LexingResult previousResult = new LexingResult(previousTokens);
+        previousResult.getErrors().addAll(previous.getErrors());
+        return relex(previousResult, edit).buildLineTokensMap();
     }
 
-    private boolean isSingleOnlyOperator(char symbol) {
-        return SINGLE_ALLOWED_OPERATORS.contains(String.valueOf(symbol));
+    private int findRestartToken(TokenBuffer tokens, int offset) {
+        int found = tokens.findTokenStartingAt(offset);
+        int lastStartingBefore = found >= 0 ? found - 1 : -found - 2;
+        return Math.max(0, lastStartingBefore - 1);
     }
 
-    private boolean isStartOfComment(char symbol, int index) {
-        return symbol == '/' && (nextChar(index) == '/' || nextChar(index) == '*');
+    public Errors getErrors() {
+        if (isNull(errors)) {
+            errors = new Errors(maxErrorsPerFile);
+        }
+        return errors;
     }
 
-    private char nextChar(int index) {
-        return getChar(++index);
+    private static class FileTask {
 
-    }
+        private final int order;
+        private final int dirIndex;
+        private final int fileIndex;
+        private final SourceCode source;
 
-    private char prevChar(int index) {
-        return getChar(--index);
+        private FileTask(int order, int dirIndex, int fileIndex, SourceCode source) {
+            this.order = order;
+            this.dirIndex = dirIndex;
+            this.fileIndex = fileIndex;
+            this.source = source;
+        }
+
+        private int size() {
+            return source.length();
+        }
     }
 
-    private char getChar(int index) {
-        return sourceCode.charAt(index);
+    /**
+     * Hands lexed files over in their order while they are lexed out of order. The thread that lexes the next file
+     * in order hands over the run of files lexed after it; a thread finding another one handing over leaves its
+     * file to that one, which looks again once it is done. Handed over files are moved into their arena, if any.
+     */
+    private static class HandOver {
 
-    }
+        private final AtomicReferenceArray<LexedSourceFile> lexedFiles;
+        private final Consumer<LexedSourceFile> onLexed;
+        private final TokenArena[] arenas;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int next;
 
-    public int sourceSize() {
-        return sourceCode.length();
-    }
+        private HandOver(int fileCount, Consumer<LexedSourceFile> onLexed, TokenArena[] arenas) {
+            this.lexedFiles = new AtomicReferenceArray<>(fileCount);
+            this.onLexed = onLexed;
+            this.arenas = arenas;
+        }
 
+        private void lexed(int order, LexedSourceFile lexedFile) {
+            lexedFiles.set(order, lexedFile);
+            while (isNextLexed() && lock.tryLock()) {
+                try {
+                    handOverLexed();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Hands over what is left once all the files are lexed.
+         */
+        private void finish() {
+            lock.lock();
+            try {
+                handOverLexed();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isNextLexed() {
+            return next < lexedFiles.length() && lexedFiles.get(next) != null;
+        }
+
+        private void handOverLexed() {
+            while (isNextLexed()) {
+                int order = next;
+                LexedSourceFile lexedFile = lexedFiles.get(order);
+                lexedFiles.set(order, null);
+                next++;
+                onLexed.accept(lexedFile);
+                storeOffHeap(lexedFile, arenas[order]);
+            }
+        }
+    }
 }
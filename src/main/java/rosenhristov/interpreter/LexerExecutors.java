@@ -0,0 +1,24 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Executors suitable for {@link Lexer#lexSourceCodeMap(ExecutorService)}.
+ */
+public final class LexerExecutors {
+
+    private LexerExecutors() {
+    }
+
+    public static ExecutorService forkJoinPool() {
+        return forkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static ExecutorService forkJoinPool(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Lexing parallelism must be positive, but was " + parallelism);
+        }
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -1,26 +1,36 @@
 package main.java.rosenhristov.interpreter;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import static java.util.Objects.isNull;
-import static main.java.rosenhristov.interpreter.Constants.NEW_LINE;
 
 public class LexingResult {
 
-    private List<Token> tokens;
+    private TokenBuffer tokens;
 
     private Errors errors;
 
-    public LexingResult(String sourceCode) {
-        this.tokens = new LinkedList<>();
-        this.errors = new Errors();
+    public LexingResult(CharSequence sourceCode) {
+        this(new TokenBuffer(sourceCode));
+    }
+
+    public LexingResult(TokenBuffer tokens) {
+        this(tokens, Errors.UNLIMITED);
+    }
+
+    /**
+     * A result keeping at most {@code maxErrors} errors, see {@link Errors}.
+     */
+    public LexingResult(TokenBuffer tokens, int maxErrors) {
+        this.tokens = tokens;
+        this.errors = new Errors(maxErrors);
     }
 
     public List<Token> getTokens() {
-        if(isNull(tokens)){
-            tokens = new LinkedList<>();
-        }
+        return tokens.asList();
+    }
+
+    public TokenBuffer getTokenBuffer() {
         return tokens;
     }
 
@@ -31,12 +41,16 @@ public class LexingResult {
         return errors;
     }
 
-    public boolean addError(String error) {
+    public boolean addError(Diagnostic error) {
         return this.getErrors().addError(error);
     }
 
-    public boolean addToken(Token token) {
-        return this.getTokens().add(token);
+    public int addToken(TokenType type, int start, int end, int line) {
+        return tokens.add(type, start, end, line);
+    }
+
+    public int addToken(TokenType type, int start, int end, int line, int keywordId) {
+        return tokens.add(type, start, end, line, keywordId);
     }
 
     public boolean hasErrors() {
@@ -44,33 +58,26 @@ public class LexingResult {
     }
 
     public void printErrors() {
-        errors.getErrors().forEach(error -> System.out.println("[ERROR]: " + error));
+        getErrors().print();
     }
 
     public void printTokens() {
-        getTokens().stream().forEach(token ->
-                System.out.println(String.format("[%s]: %s",
-                        token.getTypeName().toLowerCase(),
-                        token.getToken().equals(NEW_LINE)
-                                ? token.getType().toString()
-                                : token.getToken())));
+        for (int token = 0; token < tokens.size(); token++) {
+            TokenType type = tokens.getType(token);
+            System.out.println(String.format("[%s]: %s",
+                    type.name().toLowerCase(),
+                    type == TokenType.NEWLINE
+                            ? type.toString()
+                            : tokens.getValue(token)));
+        }
     }
 
+    /**
+     * A view of the tokens by line, without copying them.
+     */
     public LineTokensMap buildLineTokensMap() {
-        LineTokensMap linesMap = new LineTokensMap();
-        int lineNumber = 1;
-        List<Token> lineTokens = new LinkedList<>();
-        for (Token token : tokens) {
-            if (!token.getType().getValue().equals("\\n")) {
-                token.setLine(lineNumber);
-                lineTokens.add(token);
-            } else {
-                linesMap.put(lineNumber, lineTokens);
-                lineTokens = new LinkedList<>();
-                lineNumber++;
-            }
-        }
+        LineTokensMap linesMap = new LineTokensMap(tokens);
+        linesMap.getErrors().addAll(getErrors());
         return linesMap;
     }
 }
-
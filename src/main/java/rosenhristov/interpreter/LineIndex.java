@@ -0,0 +1,96 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.Arrays;
+
+import static main.java.rosenhristov.interpreter.Constants.NEW_LINE_CHAR;
+
+/**
+ * The start offset of every line of a source, so offsets map to lines and columns by binary search.
+ * Lines and columns are 1-based, like the lines of tokens.
+ */
+public class LineIndex {
+
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    LineIndex(int[] lineStarts, int lineCount) {
+        if (lineCount < 1 || lineStarts[0] != 0) {
+            throw new IllegalArgumentException("The first line of a source starts at offset 0.");
+        }
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Indexes the lines of a source without lexing it.
+     */
+    public static LineIndex of(CharSequence source) {
+        int[] lineStarts = new int[16];
+        int lineCount = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == NEW_LINE_CHAR) {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                }
+                lineStarts[lineCount++] = i + 1;
+            }
+        }
+        return new LineIndex(lineStarts, lineCount);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getLineStart(int line) {
+        return lineStarts[checkLine(line) - 1];
+    }
+
+    /**
+     * @return the line containing the offset; the offset of a line break belongs to the line it ends
+     */
+    public int getLine(int offset) {
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException(String.format("Negative offset %d", offset));
+        }
+        int found = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    public int getColumn(int offset) {
+        return offset - lineStarts[getLine(offset) - 1] + 1;
+    }
+
+    /**
+     * The index of the source after the edit, keeping the lines before and after the edited region.
+     */
+    public LineIndex apply(SourceEdit edit) {
+        int offset = edit.getOffset();
+        String insertedText = edit.getInsertedText();
+        int kept = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        kept = kept >= 0 ? kept + 1 : -kept - 1;
+        int removedEnd = Arrays.binarySearch(lineStarts, 0, lineCount, edit.getRemovedEnd());
+        removedEnd = removedEnd >= 0 ? removedEnd + 1 : -removedEnd - 1;
+
+        int[] starts = new int[lineCount + insertedText.length() + 1];
+        System.arraycopy(lineStarts, 0, starts, 0, kept);
+        int count = kept;
+        for (int i = 0; i < insertedText.length(); i++) {
+            if (insertedText.charAt(i) == NEW_LINE_CHAR) {
+                starts[count++] = offset + i + 1;
+            }
+        }
+        int delta = edit.getLengthDelta();
+        for (int line = removedEnd; line < lineCount; line++) {
+            starts[count++] = lineStarts[line] + delta;
+        }
+        return new LineIndex(starts, count);
+    }
+
+    private int checkLine(int line) {
+        if (line < 1 || line > lineCount) {
+            throw new IndexOutOfBoundsException(String.format("Line %d out of [1, %d]", line, lineCount));
+        }
+        return line;
+    }
+}
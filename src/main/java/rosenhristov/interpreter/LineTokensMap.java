@@ -1,24 +1,106 @@
 package main.java.rosenhristov.interpreter;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static java.util.Objects.isNull;
-import static main.java.rosenhristov.interpreter.Constants.NEW_LINE;
 
-public class LineTokensMap extends LinkedHashMap<Integer, List<Token>> {
+/**
+ * A read only view of the tokens of a {@link TokenBuffer} by line: every line on which a token starts maps to
+ * those tokens, without the {@link TokenType#NEWLINE} ending the line. Lines are looked up through the
+ * {@link LineIndex} of the buffer by binary search and iterated in ascending order.
+ * Once {@link #storeIn(TokenArena) stored} off-heap, lines are looked up by binary search of the stored line column
+ * and their tokens are read in place through the {@link StoredTokens}, as are the {@link #getColumns() columns}.
+ */
+public class LineTokensMap extends AbstractMap<Integer, List<Token>> {
 
     private Errors errors;
 
-    public LineTokensMap() {;
+    private TokenBuffer tokenBuffer;
+
+    private StoredTokens storedTokens;
+
+    private int size = -1;
+
+    public LineTokensMap() {
+        this(null);
+    }
+
+    public LineTokensMap(TokenBuffer tokenBuffer) {
         this.errors = new Errors();
+        this.tokenBuffer = tokenBuffer;
     }
 
     public Collection<List<Token>> getTokens() {
         return this.values();
     }
 
+    /**
+     * The tokens to read, in place in their {@link TokenArena} once stored off-heap, or {@code null} for a map not
+     * built by the lexer.
+     */
+    public TokenColumns getColumns() {
+        return isNull(storedTokens) ? tokenBuffer : storedTokens;
+    }
+
+    /**
+     * The tokens in a buffer, to be changed. Once stored off-heap, every call copies all of them from their
+     * {@link TokenArena} into a new buffer, see {@link StoredTokens#load()}: passes only reading them take the
+     * {@link #getColumns() columns}.
+     */
+    public TokenBuffer getTokenBuffer() {
+        return isNull(storedTokens) ? tokenBuffer : storedTokens.load();
+    }
+
+    /**
+     * The tokens in their {@link TokenArena}, or {@code null} while on the heap.
+     */
+    public StoredTokens getStoredTokens() {
+        return storedTokens;
+    }
+
+    public int getTokenCount() {
+        if (!isNull(storedTokens)) {
+            return storedTokens.size();
+        }
+        return isNull(tokenBuffer) ? 0 : tokenBuffer.size();
+    }
+
+    /**
+     * Moves the tokens into the arena, dropping the buffer they were lexed into.
+     */
+    public void storeIn(TokenArena arena) {
+        if (!isNull(tokenBuffer)) {
+            storedTokens = arena.store(tokenBuffer);
+            tokenBuffer = null;
+        }
+    }
+
+    /**
+     * Gives up the tokens stored off-heap, see {@link StoredTokens#release()}.
+     */
+    public void release() {
+        if (!isNull(storedTokens)) {
+            storedTokens.release();
+        }
+    }
+
+    /**
+     * The line index of the buffer, or indexed again from the source once the tokens are stored off-heap.
+     */
+    public LineIndex getLineIndex() {
+        if (!isNull(storedTokens)) {
+            return LineIndex.of(storedTokens.getSource());
+        }
+        return isNull(tokenBuffer) ? LineIndex.of("") : tokenBuffer.getLineIndex();
+    }
+
     public Errors getErrors() {
         if(isNull(errors)){
             errors = new Errors();
@@ -26,33 +108,123 @@ public class LineTokensMap extends LinkedHashMap<Integer, List<Token>> {
         return errors;
     }
 
-    public boolean addError(String error) {
+    public boolean addError(Diagnostic error) {
         return this.getErrors().addError(error);
     }
 
-    public boolean addToken(int lineNumber, Token token) {
-        return this.getTokensLine(lineNumber).add(token);
-    }
-
     public boolean hasErrors() {
         return getErrors().exist();
     }
 
     public void printErrors() {
-        errors.getErrors().forEach(error -> System.out.println("[ERROR]: " + error));
+        getErrors().print();
     }
 
     public void printTokens() {
-        getTokens()
-                .forEach(tokensList -> tokensList
-                        .forEach(token -> System.out.printf("[%s]: %s\n",
-                                token.getTypeName().toLowerCase(),
-                                token.getToken().equals(NEW_LINE)
-                                        ? token.getType().toString()
-                                        : token.getToken())));
+        try (TokenDumper dumper = TokenDumper.toStandardOutput(TokenDumper.Format.TEXT)) {
+            dumper.write("", getColumns(), new Errors());
+        }
     }
 
     public List<Token> getTokensLine(int lineNumber) {
         return this.get(lineNumber);
     }
+
+    @Override
+    public List<Token> get(Object key) {
+        if (!(key instanceof Integer) || getTokenCount() == 0 || (Integer) key < 1) {
+            return null;
+        }
+        int line = (Integer) key;
+        int from = firstTokenOfLine(line);
+        if (from == getTokenCount() || lineOf(from) != line) {
+            return null;
+        }
+        return lineTokens(from, firstTokenOfLine(line + 1));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Integer) || getTokenCount() == 0 || (Integer) key < 1) {
+            return false;
+        }
+        int from = firstTokenOfLine((Integer) key);
+        return from < getTokenCount() && lineOf(from) == (Integer) key;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            int lines = 0;
+            for (int token = 0; token < getTokenCount(); token++) {
+                if (token == 0 || lineOf(token) != lineOf(token - 1)) {
+                    lines++;
+                }
+            }
+            size = lines;
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, List<Token>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, List<Token>>> iterator() {
+                return new LineIterator();
+            }
+
+            @Override
+            public int size() {
+                return LineTokensMap.this.size();
+            }
+        };
+    }
+
+    private int lineOf(int token) {
+        return isNull(storedTokens) ? tokenBuffer.getLine(token) : storedTokens.getLine(token);
+    }
+
+    private int firstTokenOfLine(int line) {
+        return isNull(storedTokens) ? tokenBuffer.getFirstTokenOfLine(line) : storedTokens.getFirstTokenOfLine(line);
+    }
+
+    /**
+     * The tokens {@code [from, to)} of a line, without the newline ending it.
+     */
+    private List<Token> lineTokens(int from, int to) {
+        if (isNull(storedTokens)) {
+            return tokenBuffer.asList(from, tokenBuffer.getType(to - 1) == TokenType.NEWLINE ? to - 1 : to);
+        }
+        return storedTokens.asList(from, storedTokens.getType(to - 1) == TokenType.NEWLINE ? to - 1 : to);
+    }
+
+    /**
+     * Walks the line column once instead of searching every line.
+     */
+    private class LineIterator implements Iterator<Map.Entry<Integer, List<Token>>> {
+
+        private final int tokenCount = getTokenCount();
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return next < tokenCount;
+        }
+
+        @Override
+        public Map.Entry<Integer, List<Token>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int line = lineOf(next);
+            int end = next + 1;
+            while (end < tokenCount && lineOf(end) == line) {
+                end++;
+            }
+            Map.Entry<Integer, List<Token>> entry = new SimpleImmutableEntry<>(line, lineTokens(next, end));
+            next = end;
+            return entry;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A method of a Rik class or a public method of a Java class, as a call of it sees it.
+ */
+public final class MethodSymbol {
+
+    /**
+     * The access flag of a method taking its last parameters as an array, as in a class file.
+     */
+    public static final int VARARGS = 0x0080;
+
+    private final RikType owner;
+    private final boolean isInterface;
+    private final String name;
+    private final List<RikType> parameterTypes;
+    private final RikType returnType;
+    private final int access;
+
+    /**
+     * The {@link NodeKind#METHOD} node of a Rik method, -1 for Java methods.
+     */
+    private final int node;
+    private final Method javaMethod;
+
+    MethodSymbol(RikType owner, String name, List<RikType> parameterTypes, RikType returnType, int access, int node) {
+        this(owner, false, name, parameterTypes, returnType, access, node, null);
+    }
+
+    /**
+     * A Java method called on {@code owner}, an interface if {@code isInterface}.
+     */
+    MethodSymbol(RikType owner, boolean isInterface, Method javaMethod) {
+        this(owner, isInterface, javaMethod.getName(),
+                Arrays.stream(javaMethod.getParameterTypes()).map(RikType::of).collect(toList()),
+                RikType.of(javaMethod.getReturnType()), javaMethod.getModifiers(), -1, javaMethod);
+    }
+
+    private MethodSymbol(RikType owner, boolean isInterface, String name, List<RikType> parameterTypes,
+                         RikType returnType, int access, int node, Method javaMethod) {
+        this.owner = owner;
+        this.isInterface = isInterface;
+        this.name = name;
+        this.parameterTypes = parameterTypes;
+        this.returnType = returnType;
+        this.access = access;
+        this.node = node;
+        this.javaMethod = javaMethod;
+    }
+
+    public RikType getOwner() {
+        return owner;
+    }
+
+    public boolean isInterface() {
+        return isInterface;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<RikType> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public RikType getReturnType() {
+        return returnType;
+    }
+
+    /**
+     * The {@link Modifier} flags and {@link #VARARGS}, which are the access flags of a class file.
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * The Java method, {@code null} for a method of a Rik class.
+     */
+    public Method getJavaMethod() {
+        return javaMethod;
+    }
+
+    public boolean isStatic() {
+        return Modifier.isStatic(access);
+    }
+
+    public int getParameterSlots() {
+        return parameterTypes.stream().mapToInt(RikType::getSize).sum();
+    }
+
+    public String getDescriptor() {
+        StringBuilder descriptor = new StringBuilder("(");
+        parameterTypes.forEach(type -> descriptor.append(type.getDescriptor()));
+        return descriptor.append(')').append(returnType.getDescriptor()).toString();
+    }
+
+    /**
+     * The method as in {@code println(i32)}, for messages.
+     */
+    @Override
+    public String toString() {
+        StringBuilder signature = new StringBuilder(name).append('(');
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            signature.append(i == 0 ? "" : ", ").append(parameterTypes.get(i));
+        }
+        return signature.append(')').toString();
+    }
+}
@@ -0,0 +1,110 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * The kinds of {@link SyntaxTree} nodes. Each kind lists the token a node of it points at and its children in
+ * order; optional children of statements with fixed slots are {@link #EMPTY} nodes.
+ */
+public enum NodeKind {
+
+    /** Token: none. Children: the package, uses and declarations of the file. */
+    FILE,
+    /** Token: {@code package}. Children: the names of the qualified name. */
+    PACKAGE,
+    /** Token: {@code use}. Children: the names of the qualified name. */
+    USE,
+    /** Token: the keyword. No children. */
+    MODIFIER,
+
+    /** Token: the name. Children: modifiers, {@link #EXTENDS}, {@link #IMPLEMENTS} and the {@link #BODY}. */
+    CLASS,
+    /** Like {@link #CLASS}. */
+    TRAIT,
+    /** Like {@link #CLASS}, the body starting with its {@link #ENUM_CONSTANT}s. */
+    ENUM,
+    /** Token: the name. Children: the arguments. */
+    ENUM_CONSTANT,
+    /** Token: {@code :} or {@code extends}. Children: the types. */
+    EXTENDS,
+    /** Token: {@code impl}. Children: the types. */
+    IMPLEMENTS,
+    /** Token: the opening brace. Children: the members. */
+    BODY,
+    /** Token: the name. Children: modifiers, the return type unless void, {@link #PARAMETERS}, {@link #THROWS}
+     * and the body, a {@link #BLOCK} or {@link #UNPARSED_BLOCK}, unless abstract. */
+    METHOD,
+    /** Token: {@code (}. Children: the {@link #PARAMETER}s. */
+    PARAMETERS,
+    /** Token: the name. Children: modifiers and the type. */
+    PARAMETER,
+    /** Token: {@code throws}. Children: the types. */
+    THROWS,
+    /** Token: the name. Children: modifiers, the type and the initializer, if any. */
+    FIELD,
+
+    /** Token: the first name or primitive type keyword. Children: the names following it. */
+    TYPE,
+    /** Token: {@code [}, or the first {@code .} of varargs. Children: the element type. */
+    ARRAY_TYPE,
+
+    /** Token: the opening brace. Children: the statements. */
+    BLOCK,
+    /** A method body skipped by an outline parse. Token: the opening brace. No children until
+     * {@link Parser#parseBodies(SyntaxTree)} makes it a {@link #BLOCK}. */
+    UNPARSED_BLOCK,
+    /** Token: the name. Children: modifiers, the type and the initializer, if any. */
+    LOCAL,
+    /** Token: {@code if}. Children: the condition, the statement and the else statement, if any. */
+    IF,
+    /** Token: {@code while}. Children: the condition and the statement. */
+    WHILE,
+    /** Token: {@code do}. Children: the statement and the condition. */
+    DO,
+    /** Token: {@code loop} or {@code for}. Children: the initializer, condition and update, each may be
+     * {@link #EMPTY}, and the statement; the {@link #LOCAL} or name, the iterated expression and the statement of a
+     * {@code loop (x : xs)}; or the condition and the statement of a {@code loop (condition)}. */
+    LOOP,
+    /** Token: {@code match}. Children: the expression and the {@link #CASE}s and {@link #DEFAULT}. */
+    MATCH,
+    /** Token: {@code case}. Children: the labels and the {@link #BLOCK} of statements. */
+    CASE,
+    /** Token: {@code default}. Children: the {@link #BLOCK} of statements. */
+    DEFAULT,
+    /** Token: {@code return}. Children: the value, if any. */
+    RETURN,
+    /** Token: {@code skip}, Rik's break. No children. */
+    SKIP,
+    /** Token: {@code jump}, Rik's continue. No children. */
+    JUMP,
+    /** Token: {@code throw}. Children: the thrown value. */
+    THROW,
+    /** Token: {@code try}. Children: the {@link #BLOCK}, the {@link #CATCH}es and the {@link #FINALLY}, if any. */
+    TRY,
+    /** Token: {@code catch}. Children: the {@link #PARAMETER} and the {@link #BLOCK}. */
+    CATCH,
+    /** Token: {@code finally}. Children: the {@link #BLOCK}. */
+    FINALLY,
+
+    /** Token: the operator. Children: the target and the value. */
+    ASSIGN,
+    /** Token: the operator or {@code is}. Children: the operands. */
+    BINARY,
+    /** Token: the prefix operator. Children: the operand. */
+    UNARY,
+    /** Token: {@code ++} or {@code --}. Children: the operand. */
+    POSTFIX,
+    /** Token: {@code (}. Children: the called expression and the arguments. */
+    CALL,
+    /** Token: {@code [}. Children: the array and the index. */
+    INDEX,
+    /** Token: {@code .}. Children: the expression and the {@link #NAME} of the member. */
+    MEMBER,
+    /** Token: the identifier, {@code this} or {@code base}. No children. */
+    NAME,
+    /** Token: the number, string, char or {@code null}. No children. */
+    LITERAL,
+
+    /** An optional part left out. Token: none. No children. */
+    EMPTY,
+    /** What could not be parsed. Token: the first token of it. No children. */
+    ERROR
+}
@@ -0,0 +1,217 @@
+package main.java.rosenhristov.interpreter;
+
+import java.math.BigInteger;
+
+import static main.java.rosenhristov.interpreter.CharClasses.isDigit;
+import static main.java.rosenhristov.interpreter.CharClasses.isHexLetter;
+
+/**
+ * Scans a number literal and parses its value in the same pass: decimal and {@code 0x} hexadecimal integers of up
+ * to 128 bits and decimal floats with a fraction and an exponent, like {@code 25e-4}. Digits may be grouped with
+ * {@code _}, {@code ,} or a space, as in {@code 1_000}, {@code 10,000} or {@code 10 000 000}. Integers are kept as
+ * their magnitude in two longs, a minus sign is a separate operator. A scanner reuses one instance for every literal.
+ */
+public final class NumberLiteral {
+
+    public enum Kind {
+        INTEGER, FLOAT, MALFORMED, OUT_OF_RANGE
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    private static final long MAX_DECIMAL_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+    private static final int MAX_EXPONENT = 100_000;
+    private static final double TWO_TO_THE_64 = 0x1p64;
+
+    private Kind kind;
+    private boolean isFloatingPoint;
+    private long low;
+    private long high;
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Whether the literal is written as a float, with a fraction or an exponent, even if it is not a valid one.
+     */
+    public boolean isFloatingPoint() {
+        return isFloatingPoint;
+    }
+
+    /**
+     * The low 64 bits of an integer, the raw bits of a float.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * The high 64 bits of an integer, 0 for values of 64 bits and for floats.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Scans the literal starting with the digit at {@code start}, accepting the same chars as the lexer always has:
+     * digits and hex letters, an {@code x} after a leading {@code 0}, an exponent sign after an {@code e} and
+     * separators between digits. Chars that are accepted but make no number, like the letters of {@code 12abc},
+     * make the literal {@link Kind#MALFORMED}.
+     *
+     * @return the end of the literal
+     */
+    int scan(CharSequence source, int start, int sourceSize) {
+        long value = 0;
+        int radix = 10;
+        boolean isOverflowed = false;
+        boolean isMalformed = false;
+        boolean isFloat = false;
+        boolean isFraction = false;
+        boolean isExponent = false;
+        boolean isNegativeExponent = false;
+        int exponentDigits = 0;
+        int exponent = 0;
+        int fractionDigits = 0;
+
+        int index = start;
+        while (index < sourceSize) {
+            char c = source.charAt(index);
+            if (isDigit(c) || isHexLetter(c)) {
+                int digit = Character.digit(c, 16);
+                if (isExponent) {
+                    if (digit > 9) {
+                        isMalformed = true;
+                    } else if (exponent < MAX_EXPONENT) {
+                        exponent = exponent * 10 + digit;
+                    }
+                    exponentDigits++;
+                } else if (radix == 16) {
+                    if ((value >>> 60) != 0) {
+                        isOverflowed = true;
+                    }
+                    value = value << 4 | digit;
+                } else if (digit > 9) {
+                    if ((c == 'e' || c == 'E') && isDigit(charAt(source, index - 1, sourceSize))
+                            && isExponentStart(charAt(source, index + 1, sourceSize))) {
+                        isFloat = true;
+                        isExponent = true;
+                    } else {
+                        isMalformed = true;
+                    }
+                } else {
+                    if (value > MAX_DECIMAL_BEFORE_DIGIT) {
+                        isOverflowed = true;
+                    }
+                    value = value * 10 + digit;
+                    if (isFraction) {
+                        fractionDigits++;
+                    }
+                }
+            } else if (c == '+' || c == '-') {
+                char previous = charAt(source, index - 1, sourceSize);
+                if ((previous != 'e' && previous != 'E') || !isDigit(charAt(source, index - 2, sourceSize))
+                        || !isDigit(charAt(source, index + 1, sourceSize))) {
+                    break;
+                }
+                if (!isExponent || exponentDigits > 0 || radix == 16) {
+                    isMalformed = true;
+                }
+                isNegativeExponent = c == '-';
+            } else if (c == 'x' || c == 'X') {
+                char next = charAt(source, index + 1, sourceSize);
+                if (charAt(source, index - 1, sourceSize) != '0' || !(isDigit(next) || isHexLetter(next))) {
+                    break;
+                }
+                if (index != start + 1) {
+                    isMalformed = true;
+                }
+                radix = 16;
+            } else if (c == '.' || c == ',' || c == '_' || c == ' ') {
+                if (!isDigit(charAt(source, index - 1, sourceSize)) || !isDigit(charAt(source, index + 1, sourceSize))) {
+                    break;
+                }
+                if (c == '.') {
+                    if (radix == 16 || isFraction || isExponent) {
+                        isMalformed = true;
+                    }
+                    isFloat = true;
+                    isFraction = true;
+                }
+            } else {
+                break;
+            }
+            index++;
+        }
+
+        isFloatingPoint = isFloat;
+        if (isMalformed || (isExponent && exponentDigits == 0)) {
+            set(Kind.MALFORMED, 0, 0);
+        } else if (isFloat) {
+            int exponent10 = (isNegativeExponent ? -exponent : exponent) - fractionDigits;
+            double parsed = !isOverflowed && value <= MAX_EXACT_SIGNIFICAND && Math.abs(exponent10) < POWERS_OF_TEN.length
+                    ? exponent10 < 0 ? value / POWERS_OF_TEN[-exponent10] : value * POWERS_OF_TEN[exponent10]
+                    : Double.parseDouble(digitsOf(source, start, index));
+            if (Double.isFinite(parsed)) {
+                set(Kind.FLOAT, Double.doubleToRawLongBits(parsed), 0);
+            } else {
+                set(Kind.OUT_OF_RANGE, 0, 0);
+            }
+        } else if (!isOverflowed) {
+            set(Kind.INTEGER, value, 0);
+        } else {
+            BigInteger parsed = new BigInteger(digitsOf(source, radix == 16 ? start + 2 : start, index), radix);
+            if (parsed.bitLength() > 2 * Long.SIZE) {
+                set(Kind.OUT_OF_RANGE, 0, 0);
+            } else {
+                set(Kind.INTEGER, parsed.longValue(), parsed.shiftRight(Long.SIZE).longValue());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The unsigned 128 bit integer {@code high:low} as the nearest double.
+     */
+    static double toDouble(long low, long high) {
+        return unsignedToDouble(high) * TWO_TO_THE_64 + unsignedToDouble(low);
+    }
+
+    private static double unsignedToDouble(long value) {
+        double half = (double) (value >>> 1);
+        return value >= 0 ? value : half * 2 + (value & 1);
+    }
+
+    private void set(Kind kind, long low, long high) {
+        this.kind = kind;
+        this.low = low;
+        this.high = high;
+    }
+
+    private static boolean isExponentStart(char c) {
+        return isDigit(c) || c == '-' || c == '+';
+    }
+
+    /**
+     * The literal without its separators and with ASCII digits, for the rare values that do not fit the single pass.
+     */
+    private static String digitsOf(CharSequence source, int start, int end) {
+        StringBuilder digits = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (isDigit(c)) {
+                digits.append((char) ('0' + Character.digit(c, 10)));
+            } else if (c != '_' && c != ',' && c != ' ') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static char charAt(CharSequence source, int index, int sourceSize) {
+        return index >= 0 && index < sourceSize ? source.charAt(index) : Character.MIN_VALUE;
+    }
+}
@@ -0,0 +1,80 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * The numeric primitive types a literal can be declared as, like {@code i32 count = 25}.
+ */
+public enum NumberType {
+
+    I8("i8", 8, false),
+    I16("i16", 16, false),
+    I32("i32", 32, false),
+    I64("i64", 64, false),
+    I128("i128", 128, false),
+    F32("f32", 32, true),
+    F64("f64", 64, true);
+
+    private static final NumberType[] TYPES = values();
+
+    private final String keyword;
+    private final int bits;
+    private final boolean isFloatingPoint;
+
+    NumberType(String keyword, int bits, boolean isFloatingPoint) {
+        this.keyword = keyword;
+        this.bits = bits;
+        this.isFloatingPoint = isFloatingPoint;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public boolean isFloatingPoint() {
+        return isFloatingPoint;
+    }
+
+    /**
+     * The number type of every canonical keyword id of the table, {@code null} for other keywords.
+     */
+    static NumberType[] byKeywordId(KeywordTable keywords) {
+        NumberType[] types = new NumberType[keywords.getKeywords().size()];
+        for (NumberType type : TYPES) {
+            int id = keywords.getKeywords().indexOf(type.keyword);
+            if (id >= 0) {
+                types[id] = type;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Whether a literal, negated or not, is a value of this type. Integers fit in integer types by range and in
+     * floating point types while they stay finite; floats only fit in floating point types.
+     */
+    public boolean fits(NumberLiteral.Kind kind, long low, long high, boolean isNegated) {
+        switch (kind) {
+            case INTEGER:
+                return isFloatingPoint ? isFinite(NumberLiteral.toDouble(low, high)) : fitsInteger(low, high, isNegated);
+            case FLOAT:
+                return isFloatingPoint && isFinite(Double.longBitsToDouble(low));
+            default:
+                return false;
+        }
+    }
+
+    private boolean fitsInteger(long low, long high, boolean isNegated) {
+        if (bits == 128) {
+            return high >= 0 || (isNegated && high == Long.MIN_VALUE && low == 0);
+        }
+        long limit = isNegated ? 1L << (bits - 1) : (1L << (bits - 1)) - 1;
+        return high == 0 && Long.compareUnsigned(low, limit) <= 0;
+    }
+
+    private boolean isFinite(double value) {
+        return bits == 32 ? Float.isFinite((float) value) : Double.isFinite(value);
+    }
+}
@@ -0,0 +1,30 @@
+package main.java.rosenhristov.interpreter;
+
+import main.java.rosenhristov.ProjectDir;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class ParsedMap extends LinkedHashMap<ProjectDir, List<SyntaxTree>> {
+
+    private static final long serialVersionUID = 1L;
+
+    public int getFileCount() {
+        return this.values().stream().mapToInt(List::size).sum();
+    }
+
+    public long getNodeCount() {
+        return this.values().stream()
+                .flatMap(List::stream)
+                .mapToLong(SyntaxTree::size)
+                .sum();
+    }
+
+    public int getErrorCount() {
+        return this.values().stream()
+                .flatMap(List::stream)
+                .mapToInt(tree -> tree.getErrors().getTotalCount())
+                .sum();
+    }
+
+}
@@ -0,0 +1,1186 @@
+package main.java.rosenhristov.interpreter;
+
+import main.java.rosenhristov.ProjectDir;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.isNull;
+import static main.java.rosenhristov.interpreter.TokenType.*;
+
+/**
+ * A recursive descent parser building the {@link SyntaxTree} of a file from its tokens. Statements end at the end
+ * of a line or at a {@code ;}, except inside parentheses and brackets and after a binary or assignment operator.
+ * Comments are skipped. A syntax error is reported in the errors of the tree, where it becomes an
+ * {@link NodeKind#ERROR} node, and parsing goes on at the next line.
+ * <p>
+ * An {@link #outline(boolean) outline} parse only parses declarations and leaves method bodies as
+ * {@link NodeKind#UNPARSED_BLOCK}s, which a second pass, {@link #parseBodies(SyntaxTree)}, parses into the same
+ * tree when they are needed. Files are independent, so they can be parsed in parallel, see
+ * {@link #parseLexedMap(LexedMap, ExecutorService)}.
+ */
+public final class Parser {
+
+    private static final int PACKAGE = keyword("package");
+    private static final int USE = keyword("use");
+    private static final int CLASS = keyword("class");
+    private static final int TRAIT = keyword("trait");
+    private static final int ENUM = keyword("enum");
+    private static final int EXTENDS = keyword("extends");
+    private static final int IMPL = keyword("impl");
+    private static final int THROWS = keyword("throws");
+    private static final int IF = keyword("if");
+    private static final int ELSE = keyword("else");
+    private static final int WHILE = keyword("while");
+    private static final int DO = keyword("do");
+    private static final int LOOP = keyword("loop");
+    private static final int FOR = keyword("for");
+    private static final int MATCH = keyword("match");
+    private static final int CASE = keyword("case");
+    private static final int DEFAULT = keyword("default");
+    private static final int RETURN = keyword("return");
+    private static final int SKIP = keyword("skip");
+    private static final int JUMP = keyword("jump");
+    private static final int THROW = keyword("throw");
+    private static final int TRY = keyword("try");
+    private static final int CATCH = keyword("catch");
+    private static final int FINALLY = keyword("finally");
+    private static final int THIS = keyword("this");
+    private static final int BASE = keyword("base");
+    private static final int NULL = keyword("null");
+    private static final int IS = keyword("is");
+
+    private static final boolean[] MODIFIERS = keywords(
+            "abstract", "const", "native", "private", "protected", "static", "sync", "trans", "volatile");
+    private static final boolean[] PRIMITIVE_TYPES = keywords(
+            "bool", "char", "f32", "f64", "i8", "i16", "i32", "i64", "i128");
+
+    private static final String[] ASSIGNMENT_OPERATORS = {"=", "+=", "-=", "&=", "|="};
+    private static final String[] UNARY_OPERATORS = {"-", "+", "++", "--"};
+    /**
+     * Binary operators by precedence, lowest first; {@code is} shares the level of {@code ==}.
+     */
+    private static final String[][] BINARY_OPERATORS = {
+            {"||"}, {"&&"}, {"|"}, {"&"}, {"=="}, {"+", "-"}, {"*", "/", "%", "\\"}
+    };
+    private static final int EQUALITY_LEVEL = 4;
+
+    private final PipelineMetrics metrics;
+    private boolean isOutline;
+
+    private Parser(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static Parser create() {
+        return new Parser(PipelineMetrics.disabled());
+    }
+
+    /**
+     * A parser measuring every file it parses in the {@link PipelineMetrics#PARSE} stage.
+     */
+    public static Parser of(PipelineMetrics metrics) {
+        return new Parser(metrics);
+    }
+
+    /**
+     * Whether to leave method bodies unparsed, see {@link #parseBodies(SyntaxTree)}.
+     */
+    public Parser outline(boolean isOutline) {
+        this.isOutline = isOutline;
+        return this;
+    }
+
+    public SyntaxTree parse(LexingResult lexingResult) {
+        return parse(lexingResult.getTokenBuffer());
+    }
+
+    public SyntaxTree parse(TokenColumns tokens) {
+        SyntaxTree tree = new SyntaxTree(tokens, null, estimateSize(tokens));
+        new Pass(tree, isOutline).parseFile();
+        return tree;
+    }
+
+    public SyntaxTree parseFile(LexedSourceFile lexedFile) {
+        Measurement measurement =
+                metrics.startFile(PipelineMetrics.PARSE, PipelineMetrics.describe(lexedFile.getFile()));
+        TokenColumns tokens = lexedFile.getLineTokensMap().getColumns();
+        if (isNull(tokens)) {
+            tokens = new TokenBuffer("");
+        }
+        SyntaxTree tree = new SyntaxTree(tokens, lexedFile.getFile(), estimateSize(tokens));
+        new Pass(tree, isOutline).parseFile();
+        if (measurement.isActive()) {
+            measurement.addBytes(tree.getTokens().getSource().length())
+                    .addTokens(tree.getTokens().size())
+                    .addErrors(tree.getErrors().getTotalCount())
+                    .stop();
+        }
+        return tree;
+    }
+
+    /**
+     * About five nodes per eight tokens in full, an outline has a tenth of them, so the arrays rarely grow.
+     */
+    private int estimateSize(TokenColumns tokens) {
+        return isOutline ? tokens.size() / 16 : estimateFullSize(tokens);
+    }
+
+    private static int estimateFullSize(TokenColumns tokens) {
+        return tokens.size() / 8 * 5;
+    }
+
+    /**
+     * The second pass over a tree of an outline parse: parses every {@link NodeKind#UNPARSED_BLOCK} into a
+     * {@link NodeKind#BLOCK} of the same node. Trees without unparsed blocks are left as they are.
+     */
+    public SyntaxTree parseBodies(SyntaxTree tree) {
+        if (!tree.hasUnparsedBlocks()) {
+            return tree;
+        }
+        tree.ensureCapacity(estimateFullSize(tree.getTokens()));
+        Pass pass = new Pass(tree, false);
+        int size = tree.size();
+        for (int node = 0; node < size; node++) {
+            if (tree.getKind(node) == NodeKind.UNPARSED_BLOCK) {
+                pass.parseBody(node);
+            }
+        }
+        return tree;
+    }
+
+    public ParsedMap parseLexedMap(LexedMap lexedMap) {
+        ParsedMap parsedMap = new ParsedMap();
+        lexedMap.forEach((dir, lexedFiles) -> {
+            List<SyntaxTree> trees = new ArrayList<>(lexedFiles.size());
+            lexedFiles.forEach(lexedFile -> trees.add(parseFile(lexedFile)));
+            parsedMap.put(dir, trees);
+        });
+        return parsedMap;
+    }
+
+    /**
+     * Like {@link #parseLexedMap(LexedMap)}, one task per file on the given executor, largest files first.
+     * The executor is not shut down.
+     */
+    public ParsedMap parseLexedMap(LexedMap lexedMap, ExecutorService executor) {
+        List<ProjectDir> dirs = new ArrayList<>(lexedMap.keySet());
+        SyntaxTree[][] trees = new SyntaxTree[dirs.size()][];
+        List<int[]> files = new ArrayList<>();
+        for (int dirIndex = 0; dirIndex < dirs.size(); dirIndex++) {
+            trees[dirIndex] = new SyntaxTree[lexedMap.get(dirs.get(dirIndex)).size()];
+            for (int fileIndex = 0; fileIndex < trees[dirIndex].length; fileIndex++) {
+                files.add(new int[]{dirIndex, fileIndex});
+            }
+        }
+        files.sort(Comparator.comparingInt((int[] file) ->
+                lexedMap.get(dirs.get(file[0])).get(file[1]).getLineTokensMap().getTokenCount()).reversed());
+
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        for (int[] file : files) {
+            LexedSourceFile lexedFile = lexedMap.get(dirs.get(file[0])).get(file[1]);
+            futures.add(executor.submit(() -> {
+                trees[file[0]][file[1]] = parseFile(lexedFile);
+            }));
+        }
+        awaitAll(futures);
+
+        ParsedMap parsedMap = new ParsedMap();
+        for (int dirIndex = 0; dirIndex < dirs.size(); dirIndex++) {
+            parsedMap.put(dirs.get(dirIndex), Arrays.asList(trees[dirIndex]));
+        }
+        return parsedMap;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parsing of the project was interrupted.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Problems parsing project source files.", e.getCause());
+        }
+    }
+
+    private static int keyword(String keyword) {
+        return KeywordTable.defaultTable().find(keyword);
+    }
+
+    private static boolean[] keywords(String... keywords) {
+        boolean[] isKeyword = new boolean[KeywordTable.defaultTable().getKeywords().size()];
+        for (String keyword : keywords) {
+            isKeyword[keyword(keyword)] = true;
+        }
+        return isKeyword;
+    }
+
+    /**
+     * The parse of one tree: the position in the tokens and the open parentheses and brackets.
+     */
+    private static final class Pass {
+
+        private final SyntaxTree tree;
+        private final TokenColumns tokens;
+        private final CharSequence source;
+        private final int tokenCount;
+        private final boolean isOutline;
+
+        /**
+         * The next token, possibly a comment or a line end to skip.
+         */
+        private int position;
+
+        /**
+         * Open parentheses and brackets, inside which line ends do not end statements.
+         */
+        private int depth;
+
+        private int lastErrorToken = SyntaxTree.NO_TOKEN;
+
+        private Pass(SyntaxTree tree, boolean isOutline) {
+            this.tree = tree;
+            this.tokens = tree.getTokens();
+            this.source = tokens.getSource();
+            this.tokenCount = tokens.size();
+            this.isOutline = isOutline;
+        }
+
+        private void parseFile() {
+            int start = tree.start();
+            while (true) {
+                skipStatementEnds();
+                if (peekType() == EOF) {
+                    break;
+                }
+                int before = position;
+                if (isKeyword(PACKAGE) || isKeyword(USE)) {
+                    qualifiedName(isKeyword(PACKAGE) ? NodeKind.PACKAGE : NodeKind.USE);
+                } else if (isSeparator('}')) {
+                    error("a declaration");
+                    tree.complete(NodeKind.ERROR, advance(), tree.start());
+                } else {
+                    member();
+                }
+                ensureProgress(before);
+            }
+            tree.complete(NodeKind.FILE, SyntaxTree.NO_TOKEN, start);
+            tree.finish();
+        }
+
+        private void parseBody(int node) {
+            position = tree.getToken(node);
+            depth = 0;
+            int open = advance();
+            int start = tree.start();
+            statements(open);
+            tree.replace(node, NodeKind.BLOCK, start);
+        }
+
+        // declarations
+
+        private void qualifiedName(NodeKind kind) {
+            int start = tree.start();
+            int keyword = advance();
+            name();
+            while (isSeparator('.')) {
+                advance();
+                name();
+            }
+            tree.complete(kind, keyword, start);
+            endStatement();
+        }
+
+        private void member() {
+            int start = tree.start();
+            modifiers();
+            if (isKeyword(CLASS) || isKeyword(TRAIT) || isKeyword(ENUM)) {
+                typeDeclaration(start);
+                return;
+            }
+            int current = peek();
+            if (peekType() == IDENTIFIER && isSeparatorAt(next(current), '(')) {
+                // no return type, a void method or a constructor
+                method(start, advance());
+                return;
+            }
+            if (isTypeStart()) {
+                type();
+                int name = identifier();
+                if (isSeparator('(')) {
+                    method(start, name);
+                } else {
+                    variable(NodeKind.FIELD, start, name);
+                    endStatement();
+                }
+                return;
+            }
+            error("a declaration");
+            tree.complete(NodeKind.ERROR, current, start);
+            skipLine();
+        }
+
+        private void modifiers() {
+            while (peekType() == KEYWORD && isModifier(tokens.getKeywordId(peek()))) {
+                tree.complete(NodeKind.MODIFIER, advance(), tree.start());
+            }
+        }
+
+        private void typeDeclaration(int start) {
+            int keyword = tokens.getKeywordId(advance());
+            NodeKind kind = keyword == CLASS ? NodeKind.CLASS : keyword == TRAIT ? NodeKind.TRAIT : NodeKind.ENUM;
+            int name = identifier();
+            if (isSeparator(':') || isKeyword(EXTENDS)) {
+                typeList(NodeKind.EXTENDS);
+            }
+            if (isKeyword(IMPL)) {
+                typeList(NodeKind.IMPLEMENTS);
+            }
+            skipNewlines();
+            int bodyStart = tree.start();
+            int open = expectSeparator('{');
+            if (open != SyntaxTree.NO_TOKEN) {
+                if (kind == NodeKind.ENUM) {
+                    enumConstants();
+                }
+                members(open);
+            }
+            tree.complete(NodeKind.BODY, open, bodyStart);
+            tree.complete(kind, name, start);
+        }
+
+        private void typeList(NodeKind kind) {
+            int start = tree.start();
+            int keyword = advance();
+            type();
+            while (isSeparator(',')) {
+                advance();
+                skipNewlines();
+                type();
+            }
+            tree.complete(kind, keyword, start);
+        }
+
+        private void enumConstants() {
+            skipNewlines();
+            while (peekType() == IDENTIFIER && isEnumConstantEnd(next(peek()))) {
+                int start = tree.start();
+                int name = advance();
+                if (isSeparator('(')) {
+                    arguments();
+                }
+                tree.complete(NodeKind.ENUM_CONSTANT, name, start);
+                if (isSeparator(',')) {
+                    advance();
+                }
+                skipNewlines();
+            }
+            if (isSeparator(';')) {
+                advance();
+            }
+        }
+
+        private boolean isEnumConstantEnd(int token) {
+            return token >= tokenCount
+                    || tokens.getType(token) == NEWLINE
+                    || tokens.getType(token) == EOF
+                    || isSeparatorAt(token, ',') || isSeparatorAt(token, '(')
+                    || isSeparatorAt(token, ';') || isSeparatorAt(token, '}');
+        }
+
+        /**
+         * The members of a body up to its closing brace.
+         */
+        private void members(int open) {
+            while (true) {
+                skipStatementEnds();
+                if (isSeparator('}')) {
+                    advance();
+                    return;
+                }
+                if (peekType() == EOF) {
+                    unterminated(open);
+                    return;
+                }
+                int before = position;
+                member();
+                ensureProgress(before);
+            }
+        }
+
+        private void method(int start, int name) {
+            parameters();
+            if (isKeyword(THROWS)) {
+                typeList(NodeKind.THROWS);
+            }
+            int beforeNewlines = position;
+            skipNewlines();
+            if (isSeparator('{')) {
+                if (isOutline) {
+                    skipBlock();
+                } else {
+                    block();
+                }
+            } else {
+                // abstract, the line end ends it
+                position = beforeNewlines;
+                endStatement();
+            }
+            tree.complete(NodeKind.METHOD, name, start);
+        }
+
+        private void parameters() {
+            int start = tree.start();
+            int open = expectSeparator('(');
+            int outerDepth = depth++;
+            if (open != SyntaxTree.NO_TOKEN && !isSeparator(')')) {
+                parameter();
+                while (isSeparator(',')) {
+                    advance();
+                    parameter();
+                }
+            }
+            expectSeparator(')');
+            depth = outerDepth;
+            tree.complete(NodeKind.PARAMETERS, open, start);
+        }
+
+        private void parameter() {
+            int start = tree.start();
+            modifiers();
+            type();
+            if (isSeparator('.') && isSeparatorAt(next(peek()), '.')) {
+                int dot = advance();
+                advance();
+                expectSeparator('.');
+                tree.complete(NodeKind.ARRAY_TYPE, dot, start + countModifiers(start));
+            }
+            tree.complete(NodeKind.PARAMETER, identifier(), start);
+        }
+
+        /**
+         * The modifiers completed since {@code start}, the nodes before the type.
+         */
+        private int countModifiers(int start) {
+            return tree.start() - start - 1;
+        }
+
+        /**
+         * A variable after its modifiers, type and name: the initializer, if any.
+         */
+        private void variable(NodeKind kind, int start, int name) {
+            if (isOperator("=")) {
+                advance();
+                skipNewlines();
+                expression();
+            }
+            tree.complete(kind, name, start);
+        }
+
+        // types
+
+        private boolean isTypeStart() {
+            return isTypeStartAt(peek());
+        }
+
+        private boolean isTypeStartAt(int token) {
+            if (token >= tokenCount) {
+                return false;
+            }
+            TokenType type = tokens.getType(token);
+            return type == IDENTIFIER || (type == KEYWORD && PRIMITIVE_TYPES[tokens.getKeywordId(token)]);
+        }
+
+        private void type() {
+            int start = tree.start();
+            if (!isTypeStart()) {
+                error("a type");
+                tree.complete(NodeKind.ERROR, peek(), start);
+                return;
+            }
+            int first = advance();
+            while (isSeparator('.') && peekTypeAt(next(peek())) == IDENTIFIER) {
+                advance();
+                name();
+            }
+            tree.complete(NodeKind.TYPE, first, start);
+            while (isSeparator('[') && isSeparatorAt(next(peek()), ']')) {
+                int open = advance();
+                advance();
+                tree.complete(NodeKind.ARRAY_TYPE, open, start);
+            }
+        }
+
+        /**
+         * Whether a declaration starts here: a type followed by a name.
+         */
+        private boolean isDeclarationStart() {
+            int token = peek();
+            if (!isTypeStartAt(token)) {
+                return false;
+            }
+            token = next(token);
+            while (isSeparatorAt(token, '.') && peekTypeAt(next(token)) == IDENTIFIER) {
+                token = next(next(token));
+            }
+            while (isSeparatorAt(token, '[') && isSeparatorAt(next(token), ']')) {
+                token = next(next(token));
+            }
+            return peekTypeAt(token) == IDENTIFIER;
+        }
+
+        // statements
+
+        private void block() {
+            int start = tree.start();
+            int open = advance();
+            statements(open);
+            tree.complete(NodeKind.BLOCK, open, start);
+        }
+
+        /**
+         * The statements of a block up to its closing brace.
+         */
+        private void statements(int open) {
+            while (true) {
+                skipStatementEnds();
+                if (isSeparator('}')) {
+                    advance();
+                    return;
+                }
+                if (peekType() == EOF) {
+                    unterminated(open);
+                    return;
+                }
+                int before = position;
+                statement();
+                ensureProgress(before);
+            }
+        }
+
+        /**
+         * Skips a method body for the second pass, see {@link Parser#parseBodies(SyntaxTree)}. Braces in comments
+         * and literals are tokens of their own, so counting brace separators finds the end of the body.
+         */
+        private void skipBlock() {
+            int start = tree.start();
+            int open = advance();
+            int braces = 1;
+            while (braces > 0 && position < tokenCount && tokens.getType(position) != EOF) {
+                if (isSeparatorAt(position, '{')) {
+                    braces++;
+                } else if (isSeparatorAt(position, '}')) {
+                    braces--;
+                }
+                position++;
+            }
+            if (braces > 0) {
+                unterminated(open);
+            }
+            tree.complete(NodeKind.UNPARSED_BLOCK, open, start);
+        }
+
+        private void statement() {
+            if (isSeparator('{')) {
+                block();
+                return;
+            }
+            if (peekType() == KEYWORD) {
+                int keyword = tokens.getKeywordId(peek());
+                if (keyword == IF) {
+                    ifStatement();
+                } else if (keyword == WHILE) {
+                    whileStatement();
+                } else if (keyword == DO) {
+                    doStatement();
+                } else if (keyword == LOOP || keyword == FOR) {
+                    loopStatement();
+                } else if (keyword == MATCH) {
+                    matchStatement();
+                } else if (keyword == TRY) {
+                    tryStatement();
+                } else if (keyword == RETURN || keyword == THROW) {
+                    valueStatement(keyword == RETURN ? NodeKind.RETURN : NodeKind.THROW, keyword == RETURN);
+                } else if (keyword == SKIP || keyword == JUMP) {
+                    tree.complete(keyword == SKIP ? NodeKind.SKIP : NodeKind.JUMP, advance(), tree.start());
+                    endStatement();
+                } else if (keyword == CLASS || keyword == TRAIT || keyword == ENUM || isModifier(keyword)) {
+                    localDeclaration();
+                } else if (PRIMITIVE_TYPES[keyword] || keyword == THIS || keyword == BASE || keyword == NULL) {
+                    expressionStatement();
+                } else {
+                    error("a statement");
+                    tree.complete(NodeKind.ERROR, peek(), tree.start());
+                    skipLine();
+                }
+                return;
+            }
+            expressionStatement();
+        }
+
+        private void expressionStatement() {
+            if (isDeclarationStart()) {
+                int start = tree.start();
+                type();
+                variable(NodeKind.LOCAL, start, identifier());
+            } else {
+                expression();
+            }
+            endStatement();
+        }
+
+        private void localDeclaration() {
+            int start = tree.start();
+            modifiers();
+            if (isKeyword(CLASS) || isKeyword(TRAIT) || isKeyword(ENUM)) {
+                typeDeclaration(start);
+                return;
+            }
+            type();
+            variable(NodeKind.LOCAL, start, identifier());
+            endStatement();
+        }
+
+        private void ifStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            condition();
+            body();
+            int beforeNewlines = position;
+            skipNewlines();
+            if (isKeyword(ELSE)) {
+                advance();
+                body();
+            } else {
+                position = beforeNewlines;
+            }
+            tree.complete(NodeKind.IF, keyword, start);
+        }
+
+        private void whileStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            condition();
+            body();
+            tree.complete(NodeKind.WHILE, keyword, start);
+        }
+
+        private void doStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            body();
+            skipNewlines();
+            if (isKeyword(WHILE)) {
+                advance();
+                condition();
+            } else {
+                error("while");
+            }
+            tree.complete(NodeKind.DO, keyword, start);
+            endStatement();
+        }
+
+        private void loopStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            expectSeparator('(');
+            int outerDepth = depth++;
+            if (isSeparator(';')) {
+                empty();
+            } else if (isDeclarationStart()) {
+                int localStart = tree.start();
+                type();
+                variable(NodeKind.LOCAL, localStart, identifier());
+            } else {
+                expression();
+            }
+            if (isSeparator(':')) {
+                advance();
+                expression();
+            } else if (!isSeparator(')')) {
+                expectSeparator(';');
+                optionalExpression(';');
+                expectSeparator(';');
+                optionalExpression(')');
+            }
+            expectSeparator(')');
+            depth = outerDepth;
+            body();
+            tree.complete(NodeKind.LOOP, keyword, start);
+        }
+
+        private void optionalExpression(char end) {
+            if (isSeparator(end)) {
+                empty();
+            } else {
+                expression();
+            }
+        }
+
+        private void matchStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            condition();
+            skipNewlines();
+            int open = expectSeparator('{');
+            while (open != SyntaxTree.NO_TOKEN) {
+                skipStatementEnds();
+                if (isSeparator('}')) {
+                    advance();
+                    break;
+                }
+                if (peekType() == EOF) {
+                    unterminated(open);
+                    break;
+                }
+                int caseStart = tree.start();
+                if (isKeyword(CASE)) {
+                    int label = advance();
+                    expression();
+                    while (isSeparator(',')) {
+                        advance();
+                        expression();
+                    }
+                    caseStatements();
+                    tree.complete(NodeKind.CASE, label, caseStart);
+                } else if (isKeyword(DEFAULT)) {
+                    int label = advance();
+                    caseStatements();
+                    tree.complete(NodeKind.DEFAULT, label, caseStart);
+                } else {
+                    error("case or default");
+                    tree.complete(NodeKind.ERROR, peek(), caseStart);
+                    skipLine();
+                }
+            }
+            tree.complete(NodeKind.MATCH, keyword, start);
+        }
+
+        /**
+         * The statements of a case, up to the next case or the end of the match.
+         */
+        private void caseStatements() {
+            int start = tree.start();
+            int colon = expectSeparator(':');
+            while (true) {
+                skipStatementEnds();
+                if (isKeyword(CASE) || isKeyword(DEFAULT) || isSeparator('}') || peekType() == EOF) {
+                    break;
+                }
+                int before = position;
+                statement();
+                ensureProgress(before);
+            }
+            tree.complete(NodeKind.BLOCK, colon, start);
+        }
+
+        private void tryStatement() {
+            int start = tree.start();
+            int keyword = advance();
+            blockBody();
+            while (true) {
+                int beforeNewlines = position;
+                skipNewlines();
+                if (isKeyword(CATCH)) {
+                    int catchStart = tree.start();
+                    int catchKeyword = advance();
+                    expectSeparator('(');
+                    int outerDepth = depth++;
+                    parameter();
+                    expectSeparator(')');
+                    depth = outerDepth;
+                    blockBody();
+                    tree.complete(NodeKind.CATCH, catchKeyword, catchStart);
+                } else if (isKeyword(FINALLY)) {
+                    int finallyStart = tree.start();
+                    int finallyKeyword = advance();
+                    blockBody();
+                    tree.complete(NodeKind.FINALLY, finallyKeyword, finallyStart);
+                    break;
+                } else {
+                    position = beforeNewlines;
+                    break;
+                }
+            }
+            tree.complete(NodeKind.TRY, keyword, start);
+        }
+
+        /**
+         * A return with an optional value or a throw with a value.
+         */
+        private void valueStatement(NodeKind kind, boolean isValueOptional) {
+            int start = tree.start();
+            int keyword = advance();
+            if (!isValueOptional || !isStatementEnd()) {
+                expression();
+            }
+            tree.complete(kind, keyword, start);
+            endStatement();
+        }
+
+        private void condition() {
+            expectSeparator('(');
+            int outerDepth = depth++;
+            expression();
+            expectSeparator(')');
+            depth = outerDepth;
+        }
+
+        /**
+         * The statement of an if, loop or case, on the same line or the next one.
+         */
+        private void body() {
+            skipNewlines();
+            statement();
+        }
+
+        private void blockBody() {
+            skipNewlines();
+            if (isSeparator('{')) {
+                block();
+            } else {
+                error("{");
+                tree.complete(NodeKind.ERROR, peek(), tree.start());
+            }
+        }
+
+        private void empty() {
+            tree.complete(NodeKind.EMPTY, SyntaxTree.NO_TOKEN, tree.start());
+        }
+
+        // expressions
+
+        private void expression() {
+            int start = tree.start();
+            binary(0);
+            if (isOperatorOf(ASSIGNMENT_OPERATORS)) {
+                int operator = advance();
+                skipNewlines();
+                expression();
+                tree.complete(NodeKind.ASSIGN, operator, start);
+            }
+        }
+
+        private void binary(int level) {
+            if (level == BINARY_OPERATORS.length) {
+                unary();
+                return;
+            }
+            int start = tree.start();
+            binary(level + 1);
+            while (isOperatorOf(BINARY_OPERATORS[level]) || (level == EQUALITY_LEVEL && isKeyword(IS))) {
+                int operator = advance();
+                skipNewlines();
+                binary(level + 1);
+                tree.complete(NodeKind.BINARY, operator, start);
+            }
+        }
+
+        private void unary() {
+            if (isOperatorOf(UNARY_OPERATORS)) {
+                int start = tree.start();
+                int operator = advance();
+                unary();
+                tree.complete(NodeKind.UNARY, operator, start);
+                return;
+            }
+            postfix();
+        }
+
+        private void postfix() {
+            int start = tree.start();
+            primary();
+            while (true) {
+                if (isSeparator('.')) {
+                    int dot = advance();
+                    name();
+                    tree.complete(NodeKind.MEMBER, dot, start);
+                } else if (isSeparator('(')) {
+                    int open = arguments();
+                    tree.complete(NodeKind.CALL, open, start);
+                } else if (isSeparator('[')) {
+                    int open = advance();
+                    int outerDepth = depth++;
+                    expression();
+                    expectSeparator(']');
+                    depth = outerDepth;
+                    tree.complete(NodeKind.INDEX, open, start);
+                } else if (isOperator("++") || isOperator("--")) {
+                    tree.complete(NodeKind.POSTFIX, advance(), start);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the opening parenthesis
+         */
+        private int arguments() {
+            int open = advance();
+            int outerDepth = depth++;
+            if (!isSeparator(')')) {
+                expression();
+                while (isSeparator(',')) {
+                    advance();
+                    expression();
+                }
+            }
+            expectSeparator(')');
+            depth = outerDepth;
+            return open;
+        }
+
+        private void primary() {
+            int start = tree.start();
+            int current = peek();
+            TokenType type = peekType();
+            if (type == NUMBER || type == STRING_LITERAL || type == CHAR_LITERAL) {
+                tree.complete(NodeKind.LITERAL, advance(), start);
+            } else if (type == IDENTIFIER) {
+                tree.complete(NodeKind.NAME, advance(), start);
+            } else if (type == KEYWORD && tokens.getKeywordId(current) == NULL) {
+                tree.complete(NodeKind.LITERAL, advance(), start);
+            } else if (type == KEYWORD && isNameKeyword(tokens.getKeywordId(current))) {
+                tree.complete(NodeKind.NAME, advance(), start);
+            } else if (isSeparator('(')) {
+                advance();
+                int outerDepth = depth++;
+                expression();
+                expectSeparator(')');
+                depth = outerDepth;
+            } else {
+                error("an expression");
+                if (!isStatementEnd() && !isSeparator(')') && !isSeparator(']') && !isSeparator(',')) {
+                    advance();
+                }
+                tree.complete(NodeKind.ERROR, current < tokenCount ? current : SyntaxTree.NO_TOKEN, start);
+            }
+        }
+
+        private boolean isNameKeyword(int keyword) {
+            return keyword == THIS || keyword == BASE || PRIMITIVE_TYPES[keyword];
+        }
+
+        private void name() {
+            int start = tree.start();
+            if (peekType() == IDENTIFIER || (peekType() == KEYWORD && isNameKeyword(tokens.getKeywordId(peek())))) {
+                tree.complete(NodeKind.NAME, advance(), start);
+            } else {
+                error("a name");
+                tree.complete(NodeKind.ERROR, peek() < tokenCount ? peek() : SyntaxTree.NO_TOKEN, start);
+            }
+        }
+
+        /**
+         * @return the identifier, or {@link SyntaxTree#NO_TOKEN} after reporting it missing
+         */
+        private int identifier() {
+            if (peekType() == IDENTIFIER) {
+                return advance();
+            }
+            error("a name");
+            return SyntaxTree.NO_TOKEN;
+        }
+
+        // tokens
+
+        private static boolean isTrivia(TokenType type) {
+            return type == COMMENT || type == MULTILINE_COMMENT || type == DOC || type == WHITESPACE;
+        }
+
+        /**
+         * Skips comments, and line ends inside parentheses, to the next token that matters.
+         */
+        private int peek() {
+            while (position < tokenCount) {
+                TokenType type = tokens.getType(position);
+                if (!isTrivia(type) && (type != NEWLINE || depth == 0)) {
+                    break;
+                }
+                position++;
+            }
+            return position;
+        }
+
+        private TokenType peekType() {
+            return peekTypeAt(peek());
+        }
+
+        private TokenType peekTypeAt(int token) {
+            return token < tokenCount ? tokens.getType(token) : EOF;
+        }
+
+        /**
+         * The token after the given one that matters, not skipping line ends.
+         */
+        private int next(int token) {
+            int next = token + 1;
+            while (next < tokenCount && isTrivia(tokens.getType(next))) {
+                next++;
+            }
+            return next;
+        }
+
+        /**
+         * @return the current token, moving past it unless it ends the file
+         */
+        private int advance() {
+            int current = peek();
+            if (current >= tokenCount) {
+                return SyntaxTree.NO_TOKEN;
+            }
+            if (tokens.getType(current) != EOF) {
+                position = current + 1;
+            }
+            return current;
+        }
+
+        private boolean isKeyword(int keyword) {
+            return peekType() == KEYWORD && tokens.getKeywordId(position) == keyword;
+        }
+
+        private static boolean isModifier(int keyword) {
+            return keyword != KeywordTable.NOT_A_KEYWORD && MODIFIERS[keyword];
+        }
+
+        private boolean isSeparator(char separator) {
+            return isSeparatorAt(peek(), separator);
+        }
+
+        private boolean isSeparatorAt(int token, char separator) {
+            return token < tokenCount && tokens.getType(token) == SEPARATOR
+                    && source.charAt(tokens.getStart(token)) == separator;
+        }
+
+        private boolean isOperator(String operator) {
+            int current = peek();
+            if (current >= tokenCount || tokens.getType(current) != OPERATOR) {
+                return false;
+            }
+            int start = tokens.getStart(current);
+            int length = tokens.getEnd(current) - start;
+            if (length != operator.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (source.charAt(start + i) != operator.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isOperatorOf(String[] operators) {
+            if (peekType() != OPERATOR) {
+                return false;
+            }
+            for (String operator : operators) {
+                if (isOperator(operator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isStatementEnd() {
+            TokenType type = peekType();
+            return type == NEWLINE || type == EOF || isSeparator(';') || isSeparator('}');
+        }
+
+        private void skipNewlines() {
+            while (peekType() == NEWLINE) {
+                position++;
+            }
+        }
+
+        private void skipStatementEnds() {
+            while (peekType() == NEWLINE || isSeparator(';')) {
+                position++;
+            }
+        }
+
+        /**
+         * Ends a statement at a line end or {@code ;}, or before a closing brace, an {@code else} or the end of
+         * the file.
+         */
+        private void endStatement() {
+            if (peekType() == NEWLINE || isSeparator(';')) {
+                position++;
+            } else if (!isSeparator('}') && !isKeyword(ELSE) && peekType() != EOF) {
+                error("the end of the statement");
+                skipLine();
+            }
+        }
+
+        /**
+         * Skips what is left of a statement that could not be parsed, up to a line end, {@code ;} or closing brace
+         * outside the blocks opened on it.
+         */
+        private void skipLine() {
+            depth = 0;
+            int braces = 0;
+            while (peekType() != EOF) {
+                if (braces == 0 && (peekType() == NEWLINE || isSeparator(';') || isSeparator('}'))) {
+                    return;
+                }
+                if (isSeparator('{')) {
+                    braces++;
+                } else if (isSeparator('}')) {
+                    braces--;
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Moves past the current token if parsing did not, so every loop over statements and members ends.
+         */
+        private void ensureProgress(int before) {
+            if (position == before && peekType() != EOF) {
+                position++;
+            }
+        }
+
+        private int expectSeparator(char separator) {
+            if (isSeparator(separator)) {
+                return advance();
+            }
+            error(String.valueOf(separator));
+            return SyntaxTree.NO_TOKEN;
+        }
+
+        private void error(String expected) {
+            int current = peek();
+            if (current == lastErrorToken) {
+                // one error per token, not one per rule giving up on it
+                return;
+            }
+            lastErrorToken = current;
+            TokenType type = peekTypeAt(current);
+            int offset = current < tokenCount ? tokens.getStart(current) : source.length();
+            int length = current < tokenCount ? tokens.getEnd(current) - offset : 0;
+            String found = type == EOF ? "the end of the file"
+                    : type == NEWLINE ? "the end of the line"
+                    : "'" + tokens.getText(current) + "'";
+            tree.getErrors().report(DiagnosticCode.UNEXPECTED_TOKEN, source, offset, length,
+                    new Object[]{expected, found});
+        }
+
+        private void unterminated(int open) {
+            int offset = open == SyntaxTree.NO_TOKEN ? source.length() : tokens.getStart(open);
+            tree.getErrors().report(DiagnosticCode.UNTERMINATED_BLOCK, source, offset, 1);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The classes of a Rik program and the Java classes it uses: finding a class by name, its fields and methods, and
+ * whether a value of one type can be used as another. Java classes are looked up by reflection, without
+ * initializing them, in the class loader of the compiler.
+ * <p>
+ * Both compilers declare the classes of the program here first, so a method can use any class of the program, and
+ * then compile the methods.
+ */
+public final class ProgramSymbols {
+
+    private static final String JAVA_LANG = "java.lang.";
+    private static final String MAIN_DESCRIPTOR = "([Ljava/lang/String;)V";
+
+    private final Map<String, ClassSymbol> classes = new LinkedHashMap<>();
+    private final Map<String, Optional<Class<?>>> javaClasses = new HashMap<>();
+
+    /**
+     * Declares the classes of the files and their fields and methods, reporting what cannot be declared in the
+     * files.
+     *
+     * @return the declared classes in the order of the files
+     */
+    public List<ClassSymbol> declare(List<CompilationUnit> units) {
+        units.forEach(this::declareClasses);
+        List<ClassSymbol> declared = new ArrayList<>(classes.values());
+        declared.forEach(this::declareMembers);
+        declared.forEach(this::checkSuperTypes);
+        return declared;
+    }
+
+    public ClassSymbol get(String internalName) {
+        return classes.get(internalName);
+    }
+
+    public ClassSymbol get(RikType type) {
+        return type.getSort() == RikType.Sort.REFERENCE ? classes.get(type.getInternalName()) : null;
+    }
+
+    public Iterable<ClassSymbol> getClasses() {
+        return classes.values();
+    }
+
+    /**
+     * Whether the method is a {@code public static void main(String[] args)} method a program can be run from.
+     */
+    public static boolean isMain(MethodSymbol method) {
+        return method.getName().equals("main")
+                && method.isStatic()
+                && Modifier.isPublic(method.getAccess())
+                && method.getDescriptor().equals(MAIN_DESCRIPTOR);
+    }
+
+    /**
+     * A class by its qualified name, as in {@code main.Main} or {@code java.util.List}: a Rik class, or else a Java
+     * class. A simple name is a class of {@code java.lang}.
+     *
+     * @return the class type or {@code null}
+     */
+    public RikType findClass(String qualifiedName) {
+        ClassSymbol rikClass = classes.get(qualifiedName.replace('.', '/'));
+        if (rikClass != null) {
+            return rikClass.getType();
+        }
+        Class<?> javaClass = findJavaClass(qualifiedName.indexOf('.') < 0 ? JAVA_LANG + qualifiedName : qualifiedName);
+        return javaClass == null || !Modifier.isPublic(javaClass.getModifiers()) ? null : RikType.of(javaClass);
+    }
+
+    /**
+     * Whether a value of type {@code from} is a value of type {@code to}: the same type, a widened primitive, or a
+     * subtype. Primitives are never boxed.
+     */
+    public boolean isAssignable(RikType to, RikType from) {
+        if (to.isUnknown() || from.isUnknown() || to.equals(from)) {
+            return true;
+        }
+        if (to.isPrimitive() || from.isPrimitive()) {
+            return to.isPrimitive() && from.isPrimitive() && isWidening(from, to);
+        }
+        if (from.getSort() == RikType.Sort.NULL) {
+            return to.isReference();
+        }
+        if (to.equals(RikType.OBJECT)) {
+            return from.isReference();
+        }
+        if (from.isArray()) {
+            if (to.isArray()) {
+                RikType toElement = to.getElementType();
+                RikType fromElement = from.getElementType();
+                return toElement.isPrimitive() || fromElement.isPrimitive()
+                        ? toElement.equals(fromElement)
+                        : isAssignable(toElement, fromElement);
+            }
+            return to.getJavaClass() != null && to.getJavaClass().isAssignableFrom(Object[].class);
+        }
+        if (to.isArray()) {
+            return false;
+        }
+        // a Rik class is a subtype of its superclasses, the first Java one of them decides the rest
+        RikType type = from;
+        ClassSymbol rikClass;
+        while ((rikClass = get(type)) != null) {
+            if (type.equals(to)) {
+                return true;
+            }
+            type = rikClass.getSuperType();
+        }
+        if (type.equals(to)) {
+            return true;
+        }
+        return to.getJavaClass() != null && type.getJavaClass() != null
+                && to.getJavaClass().isAssignableFrom(type.getJavaClass());
+    }
+
+    /**
+     * The field of the class or of its superclasses, or {@code null}.
+     */
+    public FieldSymbol findField(RikType owner, String name) {
+        if (owner.isArray() || owner.isPrimitive()) {
+            return null;
+        }
+        RikType type = owner;
+        ClassSymbol rikClass;
+        while ((rikClass = get(type)) != null) {
+            FieldSymbol field = rikClass.findField(name);
+            if (field != null) {
+                return field;
+            }
+            type = rikClass.getSuperType();
+        }
+        if (type.getJavaClass() == null) {
+            return null;
+        }
+        try {
+            return new FieldSymbol(owner, type.getJavaClass().getField(name));
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The methods of the given name of the class and of its superclasses, overridden ones only once.
+     */
+    public List<MethodSymbol> findMethods(RikType owner, String name) {
+        Map<String, MethodSymbol> methods = new LinkedHashMap<>();
+        if (owner.isPrimitive()) {
+            return new ArrayList<>();
+        }
+        RikType type = owner.isArray() ? RikType.OBJECT : owner;
+        ClassSymbol rikClass;
+        while ((rikClass = get(type)) != null) {
+            for (MethodSymbol method : rikClass.getMethods()) {
+                if (method.getName().equals(name)) {
+                    methods.putIfAbsent(method.getDescriptor(), method);
+                }
+            }
+            type = rikClass.getSuperType();
+        }
+        Class<?> javaClass = type.getJavaClass();
+        if (javaClass != null) {
+            List<Method> javaMethods = new ArrayList<>(Arrays.asList(javaClass.getMethods()));
+            if (javaClass.isInterface()) {
+                javaMethods.addAll(Arrays.asList(Object.class.getMethods()));
+            }
+            // a Rik class calls inherited Java methods on itself, a Java class on the named class
+            RikType methodOwner = owner.isArray() ? RikType.OBJECT : owner;
+            boolean isInterface = javaClass.isInterface() && get(owner) == null;
+            for (Method method : javaMethods) {
+                if (method.getName().equals(name) && !method.isBridge() && !method.isSynthetic()) {
+                    boolean isObjectMethod = isInterface && method.getDeclaringClass() == Object.class;
+                    MethodSymbol symbol = new MethodSymbol(isObjectMethod ? RikType.OBJECT : methodOwner,
+                            isInterface && !isObjectMethod, method);
+                    methods.putIfAbsent(symbol.getDescriptor(), symbol);
+                }
+            }
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    /**
+     * The most specific of the methods the arguments can be passed to, as Java chooses an overload without
+     * boxing, or {@code null}.
+     */
+    public MethodSymbol selectMethod(List<MethodSymbol> methods, List<RikType> argumentTypes) {
+        MethodSymbol selected = null;
+        for (MethodSymbol method : methods) {
+            if (isApplicable(method.getParameterTypes(), argumentTypes)
+                    && (selected == null || isApplicable(selected.getParameterTypes(), method.getParameterTypes())
+                    && !selected.getParameterTypes().equals(method.getParameterTypes()))) {
+                selected = method;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isApplicable(List<RikType> parameterTypes, List<RikType> argumentTypes) {
+        if (parameterTypes.size() != argumentTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            if (!isAssignable(parameterTypes.get(i), argumentTypes.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The widening primitive conversions of the JLS, §5.1.2.
+     */
+    private static boolean isWidening(RikType from, RikType to) {
+        switch (from.getSort()) {
+            case I8:
+                return to.isNumeric() && to.getSort() != RikType.Sort.CHAR;
+            case I16:
+            case CHAR:
+                return to.isNumeric() && to.getSort().ordinal() >= RikType.Sort.I32.ordinal();
+            case I32:
+            case I64:
+            case F32:
+                return to.isNumeric() && to.getSort().ordinal() > from.getSort().ordinal();
+            default:
+                return false;
+        }
+    }
+
+    private void declareClasses(CompilationUnit unit) {
+        SyntaxTree tree = unit.getTree();
+        int root = tree.getRoot();
+        for (int index = 0; index < tree.getChildCount(root); index++) {
+            int node = tree.getChild(root, index);
+            switch (tree.getKind(node)) {
+                case CLASS:
+                    String name = unit.text(node);
+                    String internalName = unit.getPackageName().isEmpty()
+                            ? name
+                            : unit.getPackageName().replace('.', '/') + '/' + name;
+                    if (get(internalName) != null) {
+                        unit.report(DiagnosticCode.INVALID_USE, node, "again, the class is declared already");
+                    } else {
+                        ClassSymbol classSymbol = new ClassSymbol(unit, node, RikType.ofRikClass(internalName));
+                        classes.put(internalName, classSymbol);
+                    }
+                    break;
+                case TRAIT:
+                    unit.report(DiagnosticCode.UNSUPPORTED, node, "A trait");
+                    break;
+                case ENUM:
+                    unit.report(DiagnosticCode.UNSUPPORTED, node, "An enum");
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void declareMembers(ClassSymbol classSymbol) {
+        CompilationUnit unit = classSymbol.getUnit();
+        SyntaxTree tree = unit.getTree();
+        int node = classSymbol.getNode();
+        int extendsNode = tree.findChild(node, NodeKind.EXTENDS);
+        if (extendsNode >= 0) {
+            int typeNode = tree.getChild(extendsNode, 0);
+            RikType superType = unit.resolveType(typeNode);
+            if (isExtensible(superType)) {
+                classSymbol.setSuperType(superType);
+            } else if (!superType.isUnknown()) {
+                unit.report(DiagnosticCode.INVALID_USE, typeNode, "as a superclass");
+            }
+        }
+        int implementsNode = tree.findChild(node, NodeKind.IMPLEMENTS);
+        if (implementsNode >= 0) {
+            unit.report(DiagnosticCode.UNSUPPORTED, implementsNode, "Implementing traits");
+        }
+        int body = tree.findChild(node, NodeKind.BODY);
+        for (int index = 0; body >= 0 && index < tree.getChildCount(body); index++) {
+            int member = tree.getChild(body, index);
+            switch (tree.getKind(member)) {
+                case FIELD:
+                    declareField(classSymbol, member);
+                    break;
+                case METHOD:
+                    declareMethod(classSymbol, member);
+                    break;
+                case CLASS:
+                case TRAIT:
+                case ENUM:
+                    unit.report(DiagnosticCode.UNSUPPORTED, member,
+                            "A nested " + tree.getKind(member).name().toLowerCase());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void declareField(ClassSymbol classSymbol, int node) {
+        CompilationUnit unit = classSymbol.getUnit();
+        String name = unit.text(node);
+        RikType type = unit.resolveType(unit.getTypeNode(node));
+        if (classSymbol.findField(name) != null) {
+            unit.report(DiagnosticCode.INVALID_USE, node, "again, the field is declared already");
+            return;
+        }
+        classSymbol.getFields().add(new FieldSymbol(classSymbol.getType(), name, type, access(unit, node, false),
+                node));
+    }
+
+    private static void declareMethod(ClassSymbol classSymbol, int node) {
+        CompilationUnit unit = classSymbol.getUnit();
+        SyntaxTree tree = unit.getTree();
+        int access = access(unit, node, true);
+        RikType returnType = RikType.VOID;
+        int parameters = tree.findChild(node, NodeKind.PARAMETERS);
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            int child = tree.getChild(node, index);
+            NodeKind kind = tree.getKind(child);
+            if (kind == NodeKind.TYPE || kind == NodeKind.ARRAY_TYPE) {
+                returnType = unit.resolveType(child);
+                break;
+            }
+            if (kind != NodeKind.MODIFIER) {
+                break;
+            }
+        }
+        List<RikType> parameterTypes = new ArrayList<>();
+        for (int index = 0; parameters >= 0 && index < tree.getChildCount(parameters); index++) {
+            int typeNode = unit.getTypeNode(tree.getChild(parameters, index));
+            parameterTypes.add(unit.resolveType(typeNode));
+            if (tree.getKind(typeNode) == NodeKind.ARRAY_TYPE && tree.getText(typeNode).toString().equals(".")) {
+                access |= MethodSymbol.VARARGS;
+            }
+        }
+        if (tree.findChild(node, NodeKind.BLOCK) < 0 && !Modifier.isNative(access)) {
+            access |= Modifier.ABSTRACT;
+        }
+        if (Modifier.isAbstract(access) && (access & (Modifier.STATIC | Modifier.PRIVATE)) != 0) {
+            unit.report(DiagnosticCode.INVALID_USE, node, "without a body, it is static or private");
+        }
+        MethodSymbol method = new MethodSymbol(classSymbol.getType(), unit.text(node), parameterTypes, returnType,
+                access, node);
+        for (MethodSymbol declared : classSymbol.getMethods()) {
+            if (declared.getName().equals(method.getName())
+                    && declared.getParameterTypes().equals(method.getParameterTypes())) {
+                unit.report(DiagnosticCode.INVALID_USE, node, "again, the method is declared already");
+                return;
+            }
+        }
+        classSymbol.getMethods().add(method);
+    }
+
+    /**
+     * The {@link Modifier} flags of the modifiers of a field or method, public unless private or protected.
+     */
+    private static int access(CompilationUnit unit, int node, boolean isMethod) {
+        SyntaxTree tree = unit.getTree();
+        int access = 0;
+        for (int index = 0; index < tree.getChildCount(node); index++) {
+            int modifier = tree.getChild(node, index);
+            if (tree.getKind(modifier) != NodeKind.MODIFIER) {
+                continue;
+            }
+            String keyword = unit.keyword(modifier);
+            int flag;
+            switch (keyword) {
+                case "private":
+                    flag = Modifier.PRIVATE;
+                    break;
+                case "protected":
+                    flag = Modifier.PROTECTED;
+                    break;
+                case "static":
+                    flag = Modifier.STATIC;
+                    break;
+                case "const":
+                    flag = Modifier.FINAL;
+                    break;
+                case "abstract":
+                    flag = isMethod ? Modifier.ABSTRACT : -1;
+                    break;
+                case "native":
+                    flag = isMethod ? Modifier.NATIVE : -1;
+                    break;
+                case "sync":
+                    flag = isMethod ? Modifier.SYNCHRONIZED : -1;
+                    break;
+                case "trans":
+                    flag = isMethod ? -1 : Modifier.TRANSIENT;
+                    break;
+                case "volatile":
+                    flag = isMethod ? -1 : Modifier.VOLATILE;
+                    break;
+                default:
+                    flag = -1;
+                    break;
+            }
+            if (flag < 0) {
+                unit.report(DiagnosticCode.INVALID_USE, modifier, isMethod ? "on a method" : "on a field");
+            } else {
+                access |= flag;
+            }
+        }
+        return (access & (Modifier.PRIVATE | Modifier.PROTECTED)) == 0 ? access | Modifier.PUBLIC : access;
+    }
+
+    /**
+     * A Rik class, or a Java class that is neither final nor an interface and has an accessible no-argument
+     * constructor for the constructor of the subclass to call.
+     */
+    private boolean isExtensible(RikType type) {
+        if (get(type) != null) {
+            return true;
+        }
+        Class<?> javaClass = type.getJavaClass();
+        if (javaClass == null || type.isArray() || javaClass.isInterface()
+                || Modifier.isFinal(javaClass.getModifiers())) {
+            return false;
+        }
+        try {
+            int modifiers = javaClass.getDeclaredConstructor().getModifiers();
+            return Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reports a class extending itself through its superclasses and makes it extend {@link Object}.
+     */
+    private void checkSuperTypes(ClassSymbol classSymbol) {
+        Set<RikType> seen = new HashSet<>();
+        ClassSymbol current = classSymbol;
+        while (current != null) {
+            if (!seen.add(current.getType())) {
+                classSymbol.getUnit().report(DiagnosticCode.INVALID_USE, classSymbol.getNode(),
+                        "as its own superclass");
+                classSymbol.setSuperType(RikType.OBJECT);
+                return;
+            }
+            current = get(current.getSuperType());
+        }
+    }
+
+    private Class<?> findJavaClass(String binaryName) {
+        return javaClasses.computeIfAbsent(binaryName, name -> {
+            try {
+                return Optional.of(Class.forName(name, false, ProgramSymbols.class.getClassLoader()));
+            } catch (ClassNotFoundException | LinkageError e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+}
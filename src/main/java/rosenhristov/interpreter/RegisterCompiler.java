@@ -0,0 +1,140 @@
+package main.java.rosenhristov.interpreter;
+
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compiles parsed Rik files to {@link RegisterFunction}s run by the {@link RegisterMachine}, without generating or
+ * loading JVM classes. All classes and their members are declared first, then the static methods and the static
+ * field initializers of every class are compiled.
+ * <p>
+ * Classes are declared by the same {@link ProgramSymbols} and their methods compiled by the same
+ * {@link BodyCompiler} front-end as for the JVM. The machine has no Rik instances: instance fields and methods are
+ * declared, for calls and accesses to them to be reported, but not compiled.
+ */
+public class RegisterCompiler {
+
+    private final KeywordTable keywords;
+    private final PipelineMetrics metrics;
+
+    private RegisterCompiler(KeywordTable keywords, PipelineMetrics metrics) {
+        this.keywords = keywords;
+        this.metrics = metrics;
+    }
+
+    public static RegisterCompiler of(KeywordTable keywords) {
+        return new RegisterCompiler(keywords, PipelineMetrics.disabled());
+    }
+
+    /**
+     * A compiler measuring every file it compiles in the {@link PipelineMetrics#INTERPRET} stage.
+     */
+    public static RegisterCompiler of(KeywordTable keywords, PipelineMetrics metrics) {
+        return new RegisterCompiler(keywords, metrics);
+    }
+
+    public RegisterProgram compile(ParsedMap parsedMap) {
+        return compile(parsedMap.values().stream().flatMap(List::stream).collect(toList()));
+    }
+
+    /**
+     * Compiles the files as one program. Outlined trees get their method bodies parsed first.
+     */
+    public RegisterProgram compile(List<SyntaxTree> trees) {
+        ProgramSymbols symbols = new ProgramSymbols();
+        List<CompilationUnit> units = new ArrayList<>(trees.size());
+        for (SyntaxTree tree : trees) {
+            if (tree.hasUnparsedBlocks()) {
+                Parser.create().parseBodies(tree);
+            }
+            units.add(new CompilationUnit(tree, keywords, symbols));
+        }
+        List<ClassSymbol> classes = symbols.declare(units);
+        RegisterLayout layout = new RegisterLayout(classes);
+
+        List<MethodSymbol> methods = layout.getFunctions();
+        RegisterFunction[] functions = new RegisterFunction[methods.size()];
+        List<RegisterFunction> initializers = new ArrayList<>();
+        for (CompilationUnit unit : units) {
+            Measurement measurement = metrics.startFile(PipelineMetrics.INTERPRET,
+                    PipelineMetrics.describe(unit.getTree().getFile()));
+            for (ClassSymbol classSymbol : classes) {
+                if (classSymbol.getUnit() == unit) {
+                    initializers.add(compileInitializer(classSymbol, layout));
+                }
+            }
+            for (int index = 0; index < methods.size(); index++) {
+                ClassSymbol owner = symbols.get(methods.get(index).getOwner());
+                if (owner.getUnit() == unit) {
+                    functions[index] = compileFunction(owner, methods.get(index), layout);
+                }
+            }
+            if (measurement.isActive()) {
+                measurement.addFiles(1)
+                        .addTokens(unit.getTree().getTokens().size())
+                        .addErrors(unit.getErrors().getTotalCount())
+                        .stop();
+            }
+        }
+        Map<File, Errors> errors = new LinkedHashMap<>();
+        for (CompilationUnit unit : units) {
+            if (unit.getErrors().exist()) {
+                errors.put(unit.getTree().getFile(), unit.getErrors());
+            }
+        }
+        Map<String, List<RegisterFunction>> functionsByName = new LinkedHashMap<>();
+        String mainClass = null;
+        RegisterFunction main = null;
+        for (int index = 0; index < methods.size(); index++) {
+            MethodSymbol method = methods.get(index);
+            String className = nameOf(method.getOwner());
+            functionsByName.computeIfAbsent(className + '.' + method.getName(), name -> new ArrayList<>())
+                    .add(functions[index]);
+            if (main == null && ProgramSymbols.isMain(method)) {
+                mainClass = className;
+                main = functions[index];
+            }
+        }
+        return new RegisterProgram(functions, layout.getMembers(), layout.getStaticCounts(),
+                initializers.toArray(new RegisterFunction[0]), functionsByName, mainClass, main, errors);
+    }
+
+    private static RegisterFunction compileInitializer(ClassSymbol classSymbol, RegisterLayout layout) {
+        List<FieldSymbol> staticFields = new ArrayList<>();
+        for (FieldSymbol field : classSymbol.getFields()) {
+            if (field.isStatic()) {
+                staticFields.add(field);
+            }
+        }
+        FunctionCompiler compiler = new FunctionCompiler(classSymbol.getUnit(), classSymbol, RikType.VOID, layout);
+        compiler.compileFieldInitializers(staticFields);
+        return compiler.finish(nameOf(classSymbol.getType()) + ".<clinit>", new ArrayList<>());
+    }
+
+    private static RegisterFunction compileFunction(ClassSymbol owner, MethodSymbol method, RegisterLayout layout) {
+        CompilationUnit unit = owner.getUnit();
+        SyntaxTree tree = unit.getTree();
+        FunctionCompiler compiler = new FunctionCompiler(unit, owner, method.getReturnType(), layout);
+        int parameters = tree.findChild(method.getNode(), NodeKind.PARAMETERS);
+        for (int index = 0; parameters >= 0 && index < tree.getChildCount(parameters); index++) {
+            compiler.declareParameter(tree.getChild(parameters, index), method.getParameterTypes().get(index));
+        }
+        compiler.compileBody(tree.findChild(method.getNode(), NodeKind.BLOCK), method.getNode());
+        return compiler.finish(nameOf(method.getOwner()) + '.' + method.getName(), method.getParameterTypes());
+    }
+
+    /**
+     * The qualified name of a Rik class, as {@code demo.Main}.
+     */
+    private static String nameOf(RikType type) {
+        return type.getInternalName().replace('/', '.');
+    }
+}
@@ -0,0 +1,69 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * A Rik method compiled for the {@link RegisterMachine}: its code, the size of its frame in each register file and
+ * its constants, which are copied to the top of the frame on entry, so instructions read them as registers.
+ * The parameters are the first registers of their files, in order.
+ * <p>
+ * The fields are read by the machine for every call and are not copied.
+ */
+final class RegisterFunction {
+
+    final String name;
+    final int[] code;
+    final int longCount;
+    final int doubleCount;
+    final int referenceCount;
+    final long[] longConstants;
+    final double[] doubleConstants;
+    final Object[] referenceConstants;
+    /**
+     * The {@link RegisterSorts sorts} of the parameters and of the result, and their register files as
+     * {@link RegisterSorts.Kind} ordinals.
+     */
+    final int[] parameterSorts;
+    final int[] parameterKinds;
+    final int[] parameterRegisters;
+    final int returnSort;
+    final int returnKind;
+    /**
+     * The exception handlers, innermost first, as {@code start end target register} of the code range, the handler
+     * and the reference register of the caught {@link Throwable}, and the classes they catch.
+     */
+    final int[] handlers;
+    final Class<?>[] handlerTypes;
+
+    RegisterFunction(String name, int[] code, int[] registerCounts, long[] longConstants, double[] doubleConstants,
+                     Object[] referenceConstants, int[] parameterSorts, int returnSort, int[] handlers,
+                     Class<?>[] handlerTypes) {
+        this.name = name;
+        this.code = code;
+        this.longCount = registerCounts[0];
+        this.doubleCount = registerCounts[1];
+        this.referenceCount = registerCounts[2];
+        this.longConstants = longConstants;
+        this.doubleConstants = doubleConstants;
+        this.referenceConstants = referenceConstants;
+        this.parameterSorts = parameterSorts;
+        this.returnSort = returnSort;
+        this.returnKind = RegisterSorts.kindOf(returnSort).ordinal();
+        this.handlers = handlers;
+        this.handlerTypes = handlerTypes;
+        this.parameterKinds = new int[parameterSorts.length];
+        this.parameterRegisters = new int[parameterSorts.length];
+        int[] next = new int[3];
+        for (int i = 0; i < parameterSorts.length; i++) {
+            parameterKinds[i] = RegisterSorts.kindOf(parameterSorts[i]).ordinal();
+            parameterRegisters[i] = next[parameterKinds[i]]++;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,85 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the {@link RegisterMachine} keeps what the classes of a program declare: the index of every static field in
+ * the static registers of its kind, of every static method in the functions of the program, and of every Java
+ * member the program uses, added as the methods are compiled.
+ */
+final class RegisterLayout {
+
+    private final Map<FieldSymbol, Integer> staticIndexes = new IdentityHashMap<>();
+    private final int[] staticCounts = new int[3];
+    private final Map<MethodSymbol, Integer> functionIndexes = new IdentityHashMap<>();
+    private final List<MethodSymbol> functions = new ArrayList<>();
+    private final Map<String, Integer> memberIndexes = new HashMap<>();
+    private final List<JavaMember> members = new ArrayList<>();
+
+    /**
+     * Lays out the static fields and the static methods with a body of the classes, in their order.
+     */
+    RegisterLayout(List<ClassSymbol> classes) {
+        for (ClassSymbol classSymbol : classes) {
+            for (FieldSymbol field : classSymbol.getFields()) {
+                if (field.isStatic()) {
+                    staticIndexes.put(field, staticCounts[RegisterSorts.kindOf(field.getType()).ordinal()]++);
+                }
+            }
+            SyntaxTree tree = classSymbol.getUnit().getTree();
+            for (MethodSymbol method : classSymbol.getMethods()) {
+                if (method.isStatic() && tree.findChild(method.getNode(), NodeKind.BLOCK) >= 0) {
+                    functionIndexes.put(method, functions.size());
+                    functions.add(method);
+                }
+            }
+        }
+    }
+
+    /**
+     * The index of a static field in the static registers of its kind, or -1.
+     */
+    int getStaticIndex(FieldSymbol field) {
+        return staticIndexes.getOrDefault(field, -1);
+    }
+
+    int[] getStaticCounts() {
+        return staticCounts.clone();
+    }
+
+    /**
+     * The index of the {@link RegisterFunction} of a static method, or -1 for a method that is not compiled.
+     */
+    int getFunctionIndex(MethodSymbol method) {
+        return functionIndexes.getOrDefault(method, -1);
+    }
+
+    /**
+     * The compiled methods, in the order of their indexes.
+     */
+    List<MethodSymbol> getFunctions() {
+        return functions;
+    }
+
+    /**
+     * The index of the Java member in the program, adding it the first time.
+     */
+    int addMember(String key, JavaMember member) {
+        return memberIndexes.computeIfAbsent(key, k -> {
+            members.add(member);
+            return members.size() - 1;
+        });
+    }
+
+    Integer findMember(String key) {
+        return memberIndexes.get(key);
+    }
+
+    JavaMember[] getMembers() {
+        return members.toArray(new JavaMember[0]);
+    }
+}
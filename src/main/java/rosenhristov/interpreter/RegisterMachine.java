@@ -0,0 +1,705 @@
+package main.java.rosenhristov.interpreter;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+import static main.java.rosenhristov.interpreter.RegisterOpcodes.*;
+
+/**
+ * Runs {@link RegisterFunction}s. Values live in three register stacks, {@code long[]} for the integers, chars and
+ * bools, {@code double[]} for {@code f32} and {@code f64}, {@code Object[]} for references, so arithmetic never
+ * boxes; a call puts the frame of the callee above the frame of the caller in each of them.
+ * <p>
+ * The dispatch loop is one {@code switch} over dense opcodes, which the JVM compiles to a jump table, with the
+ * registers and code in locals. It handles the frequent instructions inline and leaves the rare, long ones to small
+ * methods, so the loop stays well below the size the JIT compiles and the helpers are inlined into it.
+ * <p>
+ * A machine keeps the static fields of the Rik classes and is not thread-safe.
+ */
+final class RegisterMachine {
+
+    private static final int INITIAL_REGISTERS = 256;
+    private static final int INITIAL_FRAMES = 64;
+    /**
+     * The depth of calls a program overflows at, about what a thread stack of the JVM holds.
+     */
+    private static final int MAX_FRAMES = 1 << 18;
+
+    private final RegisterFunction[] functions;
+    private final JavaMember[] members;
+    private final long[] longStatics;
+    private final double[] doubleStatics;
+    private final Object[] referenceStatics;
+
+    private long[] longs = new long[INITIAL_REGISTERS];
+    private double[] doubles = new double[INITIAL_REGISTERS];
+    private Object[] references = new Object[INITIAL_REGISTERS];
+    /**
+     * The suspended callers: their functions, and the offset of their call instruction and their register bases.
+     */
+    private RegisterFunction[] callers = new RegisterFunction[INITIAL_FRAMES];
+    private int[] frames = new int[INITIAL_FRAMES * 4];
+    private int depth;
+    /**
+     * The reference a function returned, its primitive results are returned by {@link #execute}.
+     */
+    private Object referenceResult;
+
+    RegisterMachine(RegisterFunction[] functions, JavaMember[] members, int[] staticCounts) {
+        this.functions = functions;
+        this.members = members;
+        this.longStatics = new long[staticCounts[0]];
+        this.doubleStatics = new double[staticCounts[1]];
+        this.referenceStatics = new Object[staticCounts[2]];
+    }
+
+    /**
+     * Calls the function from outside the machine, with arguments and result boxed as Java does.
+     */
+    Object call(RegisterFunction function, Object... arguments) throws Throwable {
+        ensureCapacity(function, 0, 0, 0);
+        for (int i = 0; i < arguments.length; i++) {
+            int register = function.parameterRegisters[i];
+            switch (function.parameterKinds[i]) {
+                case 0:
+                    longs[register] = unboxLong(arguments[i]);
+                    break;
+                case 1:
+                    doubles[register] = ((Number) arguments[i]).doubleValue();
+                    break;
+                default:
+                    references[register] = arguments[i];
+                    break;
+            }
+        }
+        long result = execute(function, 0, 0, 0);
+        switch (function.returnKind) {
+            case 0:
+                return boxLong(function.returnSort, result);
+            case 1:
+                return boxDouble(function.returnSort, Double.longBitsToDouble(result));
+            case 2:
+                Object reference = referenceResult;
+                referenceResult = null;
+                return reference;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Runs the function in the frame at the bases, with its arguments in place, and returns its long result or the
+     * bits of its double one. The functions it calls run in the same loop, their callers suspended in
+     * {@link #frames}, so Rik calls take no stack of the JVM.
+     */
+    private long execute(RegisterFunction entry, int entryLb, int entryDb, int entryRb) throws Throwable {
+        final int entryDepth = depth;
+        RegisterFunction function = entry;
+        int lb = entryLb;
+        int db = entryDb;
+        int rb = entryRb;
+        ensureCapacity(function, lb, db, rb);
+        enter(function, lb, db, rb);
+        int[] code = function.code;
+        long[] l = longs;
+        double[] d = doubles;
+        Object[] r = references;
+        int pc = 0;
+        while (true) {
+            try {
+                while (true) {
+                    switch (code[pc]) {
+                        case MOVE:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case MOVE + 1:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case MOVE + 2:
+                            r[rb + code[pc + 1]] = r[rb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case ADD:
+                            l[lb + code[pc + 1]] = (int) (l[lb + code[pc + 2]] + l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ADD + 1:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] + l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case ADD + 2:
+                            d[db + code[pc + 1]] = (float) (d[db + code[pc + 2]] + d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ADD + 3:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]] + d[db + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case SUB:
+                            l[lb + code[pc + 1]] = (int) (l[lb + code[pc + 2]] - l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case SUB + 1:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] - l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case SUB + 2:
+                            d[db + code[pc + 1]] = (float) (d[db + code[pc + 2]] - d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case SUB + 3:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]] - d[db + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case MUL:
+                            l[lb + code[pc + 1]] = (int) (l[lb + code[pc + 2]] * l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case MUL + 1:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] * l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case MUL + 2:
+                            d[db + code[pc + 1]] = (float) (d[db + code[pc + 2]] * d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case MUL + 3:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]] * d[db + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case DIV:
+                            l[lb + code[pc + 1]] = (int) (l[lb + code[pc + 2]] / l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case DIV + 1:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] / l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case DIV + 2:
+                            d[db + code[pc + 1]] = (float) (d[db + code[pc + 2]] / d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case DIV + 3:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]] / d[db + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case REM:
+                        case REM + 1:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] % l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case REM + 2:
+                            d[db + code[pc + 1]] = (float) (d[db + code[pc + 2]] % d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case REM + 3:
+                            d[db + code[pc + 1]] = d[db + code[pc + 2]] % d[db + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case AND:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] & l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case OR:
+                            l[lb + code[pc + 1]] = l[lb + code[pc + 2]] | l[lb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case NEG:
+                            l[lb + code[pc + 1]] = (int) -l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case NEG + 1:
+                            l[lb + code[pc + 1]] = -l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case NEG + 2:
+                        case NEG + 3:
+                            d[db + code[pc + 1]] = -d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case INC_I:
+                            l[lb + code[pc + 1]] = (int) (l[lb + code[pc + 1]] + code[pc + 2]);
+                            pc += 3;
+                            break;
+                        case INC_L:
+                            l[lb + code[pc + 1]] += code[pc + 2];
+                            pc += 3;
+                            break;
+                        case I2B:
+                            l[lb + code[pc + 1]] = (byte) l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case I2S:
+                            l[lb + code[pc + 1]] = (short) l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case I2C:
+                            l[lb + code[pc + 1]] = (char) l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case L2I:
+                            l[lb + code[pc + 1]] = (int) l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case L2F:
+                            d[db + code[pc + 1]] = (float) l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case L2D:
+                            d[db + code[pc + 1]] = l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case D2I:
+                            l[lb + code[pc + 1]] = (int) d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case D2L:
+                            l[lb + code[pc + 1]] = (long) d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case D2F:
+                            d[db + code[pc + 1]] = (float) d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case JUMP:
+                            pc = code[pc + 1];
+                            break;
+                        case IF_EQ:
+                            pc = l[lb + code[pc + 1]] == l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_EQ + 1:
+                            pc = d[db + code[pc + 1]] == d[db + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_EQ + 2:
+                            pc = r[rb + code[pc + 1]] == r[rb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_NE:
+                            pc = l[lb + code[pc + 1]] != l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_NE + 1:
+                            pc = d[db + code[pc + 1]] != d[db + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_NE + 2:
+                            pc = r[rb + code[pc + 1]] != r[rb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_LT:
+                            pc = l[lb + code[pc + 1]] < l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_GE:
+                            pc = l[lb + code[pc + 1]] >= l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_GT:
+                            pc = l[lb + code[pc + 1]] > l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_LE:
+                            pc = l[lb + code[pc + 1]] <= l[lb + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                            break;
+                        case IF_TRUE:
+                            pc = l[lb + code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+                            break;
+                        case IF_FALSE:
+                            pc = l[lb + code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                            break;
+                        case IF_EQUALS:
+                            pc = r[rb + code[pc + 1]].equals(r[rb + code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                            break;
+                        case COMPARE:
+                            l[lb + code[pc + 1]] = Long.compare(l[lb + code[pc + 2]], l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case COMPARE + 1:
+                            l[lb + code[pc + 1]] = Double.compare(d[db + code[pc + 2]], d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case INSTANCE_OF:
+                            l[lb + code[pc + 1]] = ((Class<?>) r[rb + code[pc + 3]]).isInstance(r[rb + code[pc + 2]])
+                                    ? 1
+                                    : 0;
+                            pc += 4;
+                            break;
+                        case GET_STATIC:
+                            l[lb + code[pc + 1]] = longStatics[code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case GET_STATIC + 1:
+                            d[db + code[pc + 1]] = doubleStatics[code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case GET_STATIC + 2:
+                            r[rb + code[pc + 1]] = referenceStatics[code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case PUT_STATIC:
+                            longStatics[code[pc + 1]] = l[lb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case PUT_STATIC + 1:
+                            doubleStatics[code[pc + 1]] = d[db + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case PUT_STATIC + 2:
+                            referenceStatics[code[pc + 1]] = r[rb + code[pc + 2]];
+                            pc += 3;
+                            break;
+                        case ARRAY_LENGTH:
+                            l[lb + code[pc + 1]] = Array.getLength(r[rb + code[pc + 2]]);
+                            pc += 3;
+                            break;
+                        case ARRAY_LOAD:
+                            l[lb + code[pc + 1]] = loadLong(r[rb + code[pc + 2]], (int) l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ARRAY_LOAD + 1:
+                            d[db + code[pc + 1]] = loadDouble(r[rb + code[pc + 2]], (int) l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ARRAY_LOAD + 2:
+                            r[rb + code[pc + 1]] = ((Object[]) r[rb + code[pc + 2]])[(int) l[lb + code[pc + 3]]];
+                            pc += 4;
+                            break;
+                        case ARRAY_STORE:
+                            storeLong(r[rb + code[pc + 1]], (int) l[lb + code[pc + 2]], l[lb + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ARRAY_STORE + 1:
+                            storeDouble(r[rb + code[pc + 1]], (int) l[lb + code[pc + 2]], d[db + code[pc + 3]]);
+                            pc += 4;
+                            break;
+                        case ARRAY_STORE + 2:
+                            ((Object[]) r[rb + code[pc + 1]])[(int) l[lb + code[pc + 2]]] = r[rb + code[pc + 3]];
+                            pc += 4;
+                            break;
+                        case CALL: {
+                            RegisterFunction callee = functions[code[pc + 2]];
+                            int calleeLb = lb + function.longCount;
+                            int calleeDb = db + function.doubleCount;
+                            int calleeRb = rb + function.referenceCount;
+                            passArguments(callee, code, pc + 4, lb, db, rb, calleeLb, calleeDb, calleeRb);
+                            suspend(function, pc, lb, db, rb);
+                            enter(callee, calleeLb, calleeDb, calleeRb);
+                            function = callee;
+                            lb = calleeLb;
+                            db = calleeDb;
+                            rb = calleeRb;
+                            code = callee.code;
+                            pc = 0;
+                            // passing the arguments may have grown the stacks
+                            l = longs;
+                            d = doubles;
+                            r = references;
+                            break;
+                        }
+                        case INVOKE:
+                            invoke(code, pc, lb, db, rb);
+                            pc += 4 + code[pc + 3];
+                            break;
+                        case CONCAT:
+                            r[rb + code[pc + 1]] = concat(code, pc, lb, db, rb);
+                            pc += 3 + 2 * code[pc + 2];
+                            break;
+                        case RETURN:
+                        case RETURN_VALUE:
+                        case RETURN_VALUE + 1:
+                        case RETURN_VALUE + 2: {
+                            long result = 0;
+                            if (code[pc] == RETURN_VALUE) {
+                                result = l[lb + code[pc + 1]];
+                            } else if (code[pc] == RETURN_VALUE + 1) {
+                                result = Double.doubleToRawLongBits(d[db + code[pc + 1]]);
+                            } else if (code[pc] == RETURN_VALUE + 2) {
+                                referenceResult = r[rb + code[pc + 1]];
+                            }
+                            if (depth == entryDepth) {
+                                return result;
+                            }
+                            int kind = function.returnKind;
+                            int frame = --depth * 4;
+                            function = callers[depth];
+                            callers[depth] = null;
+                            pc = frames[frame];
+                            lb = frames[frame + 1];
+                            db = frames[frame + 2];
+                            rb = frames[frame + 3];
+                            code = function.code;
+                            storeResult(kind, code[pc + 1], result, lb, db, rb);
+                            pc += 4 + code[pc + 3];
+                            break;
+                        }
+                        case THROW:
+                            throw (Throwable) r[rb + code[pc + 1]];
+                        default:
+                            throw new IllegalStateException(String.format("Unknown instruction %d at %d in %s.",
+                                    code[pc], pc, function));
+                    }
+                }
+            } catch (Throwable thrown) {
+                int handler;
+                // unwinds the callers to the innermost one with a handler, at its call
+                while ((handler = findHandler(function, pc, thrown)) < 0) {
+                    if (depth == entryDepth) {
+                        throw thrown;
+                    }
+                    int frame = --depth * 4;
+                    function = callers[depth];
+                    callers[depth] = null;
+                    pc = frames[frame];
+                    lb = frames[frame + 1];
+                    db = frames[frame + 2];
+                    rb = frames[frame + 3];
+                }
+                code = function.code;
+                l = longs;
+                d = doubles;
+                r = references;
+                r[rb + function.handlers[handler + 3]] = thrown;
+                pc = function.handlers[handler + 2];
+            }
+        }
+    }
+
+    /**
+     * Copies the arguments of a call from their registers to the parameters of the frame of the callee.
+     */
+    private void passArguments(RegisterFunction callee, int[] code, int first, int lb, int db, int rb,
+                               int calleeLb, int calleeDb, int calleeRb) {
+        ensureCapacity(callee, calleeLb, calleeDb, calleeRb);
+        for (int i = 0; i < callee.parameterKinds.length; i++) {
+            int register = code[first + i];
+            int parameter = callee.parameterRegisters[i];
+            switch (callee.parameterKinds[i]) {
+                case 0:
+                    longs[calleeLb + parameter] = longs[lb + register];
+                    break;
+                case 1:
+                    doubles[calleeDb + parameter] = doubles[db + register];
+                    break;
+                default:
+                    references[calleeRb + parameter] = references[rb + register];
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Copies the constants of the function to the top of its frame.
+     */
+    private void enter(RegisterFunction function, int lb, int db, int rb) {
+        System.arraycopy(function.longConstants, 0, longs, lb + function.longCount - function.longConstants.length,
+                function.longConstants.length);
+        System.arraycopy(function.doubleConstants, 0, doubles,
+                db + function.doubleCount - function.doubleConstants.length, function.doubleConstants.length);
+        System.arraycopy(function.referenceConstants, 0, references,
+                rb + function.referenceCount - function.referenceConstants.length,
+                function.referenceConstants.length);
+    }
+
+    /**
+     * Suspends the caller at its call instruction, throwing {@link StackOverflowError} as the JVM would for a
+     * recursion too deep.
+     */
+    private void suspend(RegisterFunction caller, int pc, int lb, int db, int rb) {
+        if (depth == callers.length) {
+            if (depth == MAX_FRAMES) {
+                throw new StackOverflowError();
+            }
+            callers = Arrays.copyOf(callers, depth * 2);
+            frames = Arrays.copyOf(frames, depth * 8);
+        }
+        int frame = depth * 4;
+        frames[frame] = pc;
+        frames[frame + 1] = lb;
+        frames[frame + 2] = db;
+        frames[frame + 3] = rb;
+        callers[depth++] = caller;
+    }
+
+    private void storeResult(int kind, int register, long result, int lb, int db, int rb) {
+        switch (kind) {
+            case 0:
+                longs[lb + register] = result;
+                break;
+            case 1:
+                doubles[db + register] = Double.longBitsToDouble(result);
+                break;
+            case 2:
+                references[rb + register] = referenceResult;
+                referenceResult = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void invoke(int[] code, int pc, int lb, int db, int rb) throws Throwable {
+        JavaMember member = members[code[pc + 2]];
+        Object[] arguments = new Object[code[pc + 3]];
+        for (int i = 0; i < arguments.length; i++) {
+            int register = code[pc + 4 + i];
+            int sort = member.parameterSorts[i];
+            switch (RegisterSorts.kindOf(sort)) {
+                case LONG:
+                    arguments[i] = boxLong(sort, longs[lb + register]);
+                    break;
+                case DOUBLE:
+                    arguments[i] = boxDouble(sort, doubles[db + register]);
+                    break;
+                default:
+                    arguments[i] = references[rb + register];
+                    break;
+            }
+        }
+        Object result = member.invoke(arguments);
+        int register = code[pc + 1];
+        switch (RegisterSorts.kindOf(member.returnSort)) {
+            case LONG:
+                longs[lb + register] = unboxLong(result);
+                break;
+            case DOUBLE:
+                doubles[db + register] = ((Number) result).doubleValue();
+                break;
+            case REFERENCE:
+                references[rb + register] = result;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String concat(int[] code, int pc, int lb, int db, int rb) {
+        StringBuilder value = new StringBuilder();
+        int end = pc + 3 + 2 * code[pc + 2];
+        for (int i = pc + 3; i < end; i += 2) {
+            int register = code[i + 1];
+            switch (code[i]) {
+                case RegisterSorts.BOOL_SORT:
+                    value.append(longs[lb + register] != 0);
+                    break;
+                case RegisterSorts.CHAR_SORT:
+                    value.append((char) longs[lb + register]);
+                    break;
+                case RegisterSorts.F32_SORT:
+                    value.append((float) doubles[db + register]);
+                    break;
+                case RegisterSorts.F64_SORT:
+                    value.append(doubles[db + register]);
+                    break;
+                case RegisterSorts.REFERENCE_SORT:
+                    value.append(references[rb + register]);
+                    break;
+                default:
+                    value.append(longs[lb + register]);
+                    break;
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * The handler of the innermost try around the instruction catching the exception, or -1.
+     */
+    private static int findHandler(RegisterFunction function, int pc, Throwable thrown) {
+        int[] handlers = function.handlers;
+        for (int handler = 0; handler < handlers.length; handler += 4) {
+            if (pc >= handlers[handler] && pc < handlers[handler + 1]
+                    && function.handlerTypes[handler / 4].isInstance(thrown)) {
+                return handler;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(RegisterFunction function, int lb, int db, int rb) {
+        if (lb + function.longCount > longs.length) {
+            longs = Arrays.copyOf(longs, Math.max(longs.length * 2, lb + function.longCount));
+        }
+        if (db + function.doubleCount > doubles.length) {
+            doubles = Arrays.copyOf(doubles, Math.max(doubles.length * 2, db + function.doubleCount));
+        }
+        if (rb + function.referenceCount > references.length) {
+            references = Arrays.copyOf(references, Math.max(references.length * 2, rb + function.referenceCount));
+        }
+    }
+
+    private static long loadLong(Object array, int index) {
+        if (array instanceof int[]) {
+            return ((int[]) array)[index];
+        }
+        if (array instanceof long[]) {
+            return ((long[]) array)[index];
+        }
+        if (array instanceof byte[]) {
+            return ((byte[]) array)[index];
+        }
+        if (array instanceof char[]) {
+            return ((char[]) array)[index];
+        }
+        if (array instanceof short[]) {
+            return ((short[]) array)[index];
+        }
+        return ((boolean[]) array)[index] ? 1 : 0;
+    }
+
+    private static double loadDouble(Object array, int index) {
+        if (array instanceof double[]) {
+            return ((double[]) array)[index];
+        }
+        return ((float[]) array)[index];
+    }
+
+    private static void storeLong(Object array, int index, long value) {
+        if (array instanceof int[]) {
+            ((int[]) array)[index] = (int) value;
+        } else if (array instanceof long[]) {
+            ((long[]) array)[index] = value;
+        } else if (array instanceof byte[]) {
+            ((byte[]) array)[index] = (byte) value;
+        } else if (array instanceof char[]) {
+            ((char[]) array)[index] = (char) value;
+        } else if (array instanceof short[]) {
+            ((short[]) array)[index] = (short) value;
+        } else {
+            ((boolean[]) array)[index] = value != 0;
+        }
+    }
+
+    private static void storeDouble(Object array, int index, double value) {
+        if (array instanceof double[]) {
+            ((double[]) array)[index] = value;
+        } else {
+            ((float[]) array)[index] = (float) value;
+        }
+    }
+
+    static Object boxLong(int sort, long value) {
+        switch (sort) {
+            case RegisterSorts.BOOL_SORT:
+                return value != 0;
+            case RegisterSorts.CHAR_SORT:
+                return (char) value;
+            case RegisterSorts.I8_SORT:
+                return (byte) value;
+            case RegisterSorts.I16_SORT:
+                return (short) value;
+            case RegisterSorts.I32_SORT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+    static Object boxDouble(int sort, double value) {
+        return sort == RegisterSorts.F32_SORT ? (Object) (float) value : (Object) value;
+    }
+
+    static long unboxLong(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        return ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,130 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * The instructions of the {@link RegisterMachine}. An instruction is its opcode followed by its operands in the
+ * {@code int[]} code of a {@link RegisterFunction}, destination register first. Registers are numbered per
+ * register file from the base of the frame; which file an operand is in follows from the opcode.
+ * <p>
+ * Instructions typed by register file are numbered long, double, reference, those typed by computation
+ * {@code i32}, {@code i64}, {@code f32}, {@code f64}: {@code ADD + 1} adds two {@code i64} registers.
+ */
+interface RegisterOpcodes {
+
+    /**
+     * {@code a b}: register {@code a} = register {@code b}.
+     */
+    int MOVE = 0;
+
+    /**
+     * {@code a b c}: {@code a = b op c}. The {@code i32} forms wrap to 32 bits and the {@code f32} ones round to
+     * {@code float}, so every value in a register is one of its Rik type.
+     */
+    int ADD = 3;
+    int SUB = 7;
+    int MUL = 11;
+    int DIV = 15;
+    int REM = 19;
+    /**
+     * {@code a b c}: bitwise, on integers and bools of the long registers.
+     */
+    int AND = 23;
+    int OR = 24;
+    /**
+     * {@code a b}: {@code a = -b}.
+     */
+    int NEG = 25;
+    /**
+     * {@code a n}: adds the constant {@code n} to the {@code i32} or {@code i64} register {@code a}.
+     */
+    int INC_I = 29;
+    int INC_L = 30;
+
+    /**
+     * {@code a b}: the conversions between the long and double registers, and the narrowing of the integers.
+     */
+    int I2B = 31;
+    int I2S = 32;
+    int I2C = 33;
+    int L2I = 34;
+    int L2F = 35;
+    int L2D = 36;
+    int D2I = 37;
+    int D2L = 38;
+    int D2F = 39;
+
+    /**
+     * {@code target}: absolute offsets in the code.
+     */
+    int JUMP = 40;
+    /**
+     * {@code a b target}, references compared by identity.
+     */
+    int IF_EQ = 41;
+    int IF_NE = 44;
+    /**
+     * {@code a target}, on a bool register.
+     */
+    int IF_TRUE = 47;
+    int IF_FALSE = 48;
+    /**
+     * {@code a b target}: jumps if reference {@code a} {@link Object#equals(Object)} reference {@code b}.
+     */
+    int IF_EQUALS = 49;
+
+    /**
+     * {@code a b c}: bool {@code a} = reference {@code b} is an instance of the {@link Class} in reference {@code c}.
+     */
+    int INSTANCE_OF = 50;
+
+    /**
+     * {@code a index} and {@code index a}: the static fields of the Rik classes, numbered per register file.
+     */
+    int GET_STATIC = 51;
+    int PUT_STATIC = 54;
+
+    /**
+     * {@code a array}, {@code a array index} and {@code array index a}.
+     */
+    int ARRAY_LENGTH = 57;
+    int ARRAY_LOAD = 58;
+    int ARRAY_STORE = 61;
+
+    /**
+     * {@code a function n argument...}: calls a Rik function with {@code n} arguments, its result in {@code a}.
+     */
+    int CALL = 64;
+    /**
+     * {@code a member n argument...}: invokes a {@link JavaMember}, the receiver first. The only instruction boxing
+     * primitives, as Java takes them.
+     */
+    int INVOKE = 65;
+    /**
+     * {@code a n (sort register)...}: the {@link String} of {@code n} values appended, each of a
+     * {@link RegisterSorts sort}.
+     */
+    int CONCAT = 66;
+
+    /**
+     * No operands for {@code RETURN}, {@code a} for {@code RETURN_VALUE}, typed by register file.
+     */
+    int RETURN = 67;
+    int RETURN_VALUE = 68;
+    /**
+     * {@code a}: throws the {@link Throwable} of reference {@code a}.
+     */
+    int THROW = 71;
+
+    /**
+     * {@code a b c}: {@code a = Long.compare(b, c)} or {@code Double.compare(b, c)}, for the {@code compare}
+     * methods of the Java boxes, which Rik compares numbers with, called without boxing.
+     */
+    int COMPARE = 72;
+    /**
+     * {@code a b target}: {@code Integer.compare(a, b) == -1}, {@code 0} and {@code 1} fused into one branch on
+     * long registers, and their negations.
+     */
+    int IF_LT = 74;
+    int IF_GE = 75;
+    int IF_GT = 76;
+    int IF_LE = 77;
+}
@@ -0,0 +1,107 @@
+package main.java.rosenhristov.interpreter;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Rik program compiled for the {@link RegisterMachine} and the errors found compiling it. Every run gets a
+ * machine of its own, with the static fields of the classes initialized anew.
+ */
+public class RegisterProgram {
+
+    private final RegisterFunction[] functions;
+    private final JavaMember[] members;
+    private final int[] staticCounts;
+    private final RegisterFunction[] initializers;
+    private final Map<String, List<RegisterFunction>> functionsByName;
+    private final String mainClass;
+    private final RegisterFunction main;
+    private final Map<File, Errors> errors;
+    private RegisterMachine machine;
+
+    RegisterProgram(RegisterFunction[] functions, JavaMember[] members, int[] staticCounts,
+                    RegisterFunction[] initializers, Map<String, List<RegisterFunction>> functionsByName,
+                    String mainClass, RegisterFunction main, Map<File, Errors> errors) {
+        this.functions = functions;
+        this.members = members;
+        this.staticCounts = staticCounts;
+        this.initializers = initializers;
+        this.functionsByName = functionsByName;
+        this.mainClass = mainClass;
+        this.main = main;
+        this.errors = errors;
+    }
+
+    /**
+     * The first class with a {@code static main(String... args)} method, or {@code null}.
+     */
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    /**
+     * The compiling errors of the files that have any.
+     */
+    public Map<File, Errors> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    public int getErrorCount() {
+        return errors.values().stream().mapToInt(Errors::getTotalCount).sum();
+    }
+
+    /**
+     * Runs the main method on a new machine.
+     */
+    public void run(String[] args) {
+        if (main == null) {
+            throw new IllegalStateException("There is no main method to run.");
+        }
+        try {
+            newMachine().call(main, (Object) args);
+        } catch (Throwable e) {
+            throw new RuntimeException(String.format("Rik program %s failed.", mainClass), e);
+        }
+    }
+
+    /**
+     * Calls a static method, as {@code pkg.Class.name}, with boxed arguments, on a machine kept between calls. The
+     * first method of the name taking as many arguments is called.
+     *
+     * @return the boxed result, or {@code null} for a void method
+     */
+    public Object call(String qualifiedName, Object... arguments) {
+        RegisterFunction function = null;
+        for (RegisterFunction candidate : functionsByName.getOrDefault(qualifiedName, List.of())) {
+            if (candidate.parameterSorts.length == arguments.length) {
+                function = candidate;
+                break;
+            }
+        }
+        if (function == null) {
+            throw new IllegalArgumentException(String.format("There is no method %s with %d arguments.",
+                    qualifiedName, arguments.length));
+        }
+        try {
+            if (machine == null) {
+                machine = newMachine();
+            }
+            return machine.call(function, arguments);
+        } catch (Throwable e) {
+            throw new RuntimeException(String.format("Rik method %s failed.", qualifiedName), e);
+        }
+    }
+
+    private RegisterMachine newMachine() throws Throwable {
+        if (getErrorCount() > 0) {
+            throw new IllegalStateException("The program has compiling errors.");
+        }
+        RegisterMachine newMachine = new RegisterMachine(functions, members, staticCounts);
+        for (RegisterFunction initializer : initializers) {
+            newMachine.call(initializer);
+        }
+        return newMachine;
+    }
+}
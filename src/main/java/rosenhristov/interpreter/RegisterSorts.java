@@ -0,0 +1,77 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * How the {@link RegisterMachine} keeps a value of a {@link RikType}: integral and {@code bool} values in the
+ * {@code long} registers, {@code f32} and {@code f64} in the {@code double} ones, references in the {@code Object}
+ * ones. A value is never boxed while it stays in its register file.
+ */
+final class RegisterSorts {
+
+    enum Kind {
+        LONG, DOUBLE, REFERENCE, VOID
+    }
+
+    /**
+     * Sorts, the operand of instructions that convert a register to or from a Java value.
+     */
+    static final int BOOL_SORT = 0;
+    static final int CHAR_SORT = 1;
+    static final int I8_SORT = 2;
+    static final int I16_SORT = 3;
+    static final int I32_SORT = 4;
+    static final int I64_SORT = 5;
+    static final int F32_SORT = 6;
+    static final int F64_SORT = 7;
+    static final int REFERENCE_SORT = 8;
+    static final int VOID_SORT = 9;
+
+    private RegisterSorts() {
+    }
+
+    static int sortOf(RikType type) {
+        switch (type.getSort()) {
+            case BOOL:
+                return BOOL_SORT;
+            case CHAR:
+                return CHAR_SORT;
+            case I8:
+                return I8_SORT;
+            case I16:
+                return I16_SORT;
+            case I32:
+                return I32_SORT;
+            case I64:
+                return I64_SORT;
+            case F32:
+                return F32_SORT;
+            case F64:
+                return F64_SORT;
+            case VOID:
+                return VOID_SORT;
+            default:
+                return REFERENCE_SORT;
+        }
+    }
+
+    static int sortOf(Class<?> javaClass) {
+        return sortOf(RikType.of(javaClass));
+    }
+
+    static Kind kindOf(RikType type) {
+        return kindOf(sortOf(type));
+    }
+
+    static Kind kindOf(int sort) {
+        switch (sort) {
+            case F32_SORT:
+            case F64_SORT:
+                return Kind.DOUBLE;
+            case REFERENCE_SORT:
+                return Kind.REFERENCE;
+            case VOID_SORT:
+                return Kind.VOID;
+            default:
+                return Kind.LONG;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package main.java.rosenhristov.interpreter;
+
+/**
+ * A type of a Rik value, as the compilers check it. Rik primitives are Java primitives, {@code i32} an {@code int}
+ * and {@code f64} a {@code double}, never boxed; classes are the Java classes a program uses and the Rik classes it
+ * declares, which have no {@link Class} until they are loaded. Types are named by their JVM descriptors.
+ */
+public final class RikType {
+
+    public enum Sort {
+        VOID, BOOL, CHAR, I8, I16, I32, I64, F32, F64, NULL, REFERENCE, ARRAY, UNKNOWN
+    }
+
+    public static final RikType VOID = new RikType(Sort.VOID, "void", "V", null, null, void.class);
+    public static final RikType BOOL = new RikType(Sort.BOOL, "bool", "Z", null, null, boolean.class);
+    public static final RikType CHAR = new RikType(Sort.CHAR, "char", "C", null, null, char.class);
+    public static final RikType I8 = new RikType(Sort.I8, "i8", "B", null, null, byte.class);
+    public static final RikType I16 = new RikType(Sort.I16, "i16", "S", null, null, short.class);
+    public static final RikType I32 = new RikType(Sort.I32, "i32", "I", null, null, int.class);
+    public static final RikType I64 = new RikType(Sort.I64, "i64", "J", null, null, long.class);
+    public static final RikType F32 = new RikType(Sort.F32, "f32", "F", null, null, float.class);
+    public static final RikType F64 = new RikType(Sort.F64, "f64", "D", null, null, double.class);
+    /**
+     * The type of {@code null}, a value of every reference type.
+     */
+    public static final RikType NULL =
+            new RikType(Sort.NULL, "null", "Ljava/lang/Object;", "java/lang/Object", null, null);
+    /**
+     * The type of what could not be compiled, accepted everywhere so that one error is reported once.
+     */
+    public static final RikType UNKNOWN =
+            new RikType(Sort.UNKNOWN, "?", "Ljava/lang/Object;", "java/lang/Object", null, null);
+    public static final RikType OBJECT = of(Object.class);
+    public static final RikType STRING = of(String.class);
+
+    private static final RikType[] PRIMITIVES = {BOOL, CHAR, I8, I16, I32, I64, F32, F64, VOID};
+
+    private final Sort sort;
+    private final String name;
+    private final String descriptor;
+    private final String internalName;
+    private final RikType elementType;
+    private final Class<?> javaClass;
+
+    private RikType(Sort sort, String name, String descriptor, String internalName, RikType elementType,
+                    Class<?> javaClass) {
+        this.sort = sort;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.internalName = internalName;
+        this.elementType = elementType;
+        this.javaClass = javaClass;
+    }
+
+    public static RikType of(Class<?> javaClass) {
+        if (javaClass.isPrimitive()) {
+            for (RikType primitive : PRIMITIVES) {
+                if (primitive.javaClass == javaClass) {
+                    return primitive;
+                }
+            }
+        }
+        if (javaClass.isArray()) {
+            return of(javaClass.getComponentType()).arrayOf();
+        }
+        String internalName = javaClass.getName().replace('.', '/');
+        return new RikType(Sort.REFERENCE, javaClass.getSimpleName(), 'L' + internalName + ';', internalName,
+                null, javaClass);
+    }
+
+    /**
+     * A class declared in the compiled Rik sources.
+     */
+    public static RikType ofRikClass(String internalName) {
+        String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        return new RikType(Sort.REFERENCE, name, 'L' + internalName + ';', internalName, null, null);
+    }
+
+    /**
+     * The primitive type of a Rik keyword, or {@code null}.
+     */
+    public static RikType ofKeyword(String keyword) {
+        for (RikType primitive : PRIMITIVES) {
+            if (primitive.name.equals(keyword)) {
+                return primitive;
+            }
+        }
+        return null;
+    }
+
+    public RikType arrayOf() {
+        Class<?> arrayClass = javaClass == null ? null : java.lang.reflect.Array.newInstance(javaClass, 0).getClass();
+        return new RikType(Sort.ARRAY, name + "[]", '[' + descriptor, '[' + descriptor, this, arrayClass);
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * The name of a class as in {@code java/lang/String}, the descriptor of an array.
+     */
+    public String getInternalName() {
+        return internalName;
+    }
+
+    public RikType getElementType() {
+        return elementType;
+    }
+
+    /**
+     * The Java class, {@code null} for Rik classes and arrays of them.
+     */
+    public Class<?> getJavaClass() {
+        return javaClass;
+    }
+
+    public boolean isPrimitive() {
+        return sort.ordinal() <= Sort.F64.ordinal() && sort != Sort.VOID;
+    }
+
+    public boolean isNumeric() {
+        return isPrimitive() && sort != Sort.BOOL;
+    }
+
+    public boolean isIntegral() {
+        return sort == Sort.CHAR || sort == Sort.I8 || sort == Sort.I16 || sort == Sort.I32 || sort == Sort.I64;
+    }
+
+    public boolean isReference() {
+        return sort == Sort.REFERENCE || sort == Sort.ARRAY || sort == Sort.NULL || sort == Sort.UNKNOWN;
+    }
+
+    public boolean isArray() {
+        return sort == Sort.ARRAY;
+    }
+
+    public boolean isUnknown() {
+        return sort == Sort.UNKNOWN;
+    }
+
+    public boolean isString() {
+        return "java/lang/String".equals(internalName) && sort == Sort.REFERENCE;
+    }
+
+    /**
+     * The stack slots of a value, two for {@code i64} and {@code f64}.
+     */
+    public int getSize() {
+        return sort == Sort.VOID ? 0 : sort == Sort.I64 || sort == Sort.F64 ? 2 : 1;
+    }
+
+    /**
+     * The type a value of this type is computed in: {@code i8}, {@code i16} and {@code char} are {@code i32}s on
+     * the stack.
+     */
+    public RikType getStackType() {
+        return sort == Sort.I8 || sort == Sort.I16 || sort == Sort.CHAR ? I32 : this;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RikType && sort == ((RikType) other).sort
+                && descriptor.equals(((RikType) other).descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+        return descriptor.hashCode();
+    }
+
+    /**
+     * The Rik name, as in {@code i32[]} or {@code String}.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
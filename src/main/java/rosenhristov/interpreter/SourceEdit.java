@@ -0,0 +1,108 @@
+package main.java.rosenhristov.interpreter;
+
+import static main.java.rosenhristov.interpreter.Constants.EMPTY_STRING;
+import static main.java.rosenhristov.interpreter.Constants.NEW_LINE_CHAR;
+
+/**
+ * A single text edit: {@code removedLength} chars at {@code offset} are replaced by {@code insertedText}.
+ */
+public class SourceEdit {
+
+    private final int offset;
+    private final int removedLength;
+    private final String insertedText;
+
+    private SourceEdit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid edit at offset %d removing %d chars", offset, removedLength));
+        }
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedText = insertedText == null ? EMPTY_STRING : insertedText;
+    }
+
+    public static SourceEdit of(int offset, int removedLength, String insertedText) {
+        return new SourceEdit(offset, removedLength, insertedText);
+    }
+
+    public static SourceEdit insert(int offset, String insertedText) {
+        return new SourceEdit(offset, 0, insertedText);
+    }
+
+    public static SourceEdit delete(int offset, int removedLength) {
+        return new SourceEdit(offset, removedLength, EMPTY_STRING);
+    }
+
+    /**
+     * The single edit turning {@code oldSource} into {@code newSource}: everything between their common
+     * prefix and their common suffix is replaced.
+     */
+    public static SourceEdit between(CharSequence oldSource, CharSequence newSource) {
+        int maxCommon = Math.min(oldSource.length(), newSource.length());
+        int prefix = 0;
+        while (prefix < maxCommon && oldSource.charAt(prefix) == newSource.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && oldSource.charAt(oldSource.length() - 1 - suffix) == newSource.charAt(newSource.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new SourceEdit(prefix, oldSource.length() - prefix - suffix,
+                newSource.subSequence(prefix, newSource.length() - suffix).toString());
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRemovedLength() {
+        return removedLength;
+    }
+
+    public String getInsertedText() {
+        return insertedText;
+    }
+
+    public int getRemovedEnd() {
+        return offset + removedLength;
+    }
+
+    public int getInsertedEnd() {
+        return offset + insertedText.length();
+    }
+
+    public int getLengthDelta() {
+        return insertedText.length() - removedLength;
+    }
+
+    public String applyTo(CharSequence source) {
+        if (getRemovedEnd() > source.length()) {
+            throw new IllegalArgumentException(String.format(
+                    "Edit [%d, %d) is outside of a source with %d chars", offset, getRemovedEnd(), source.length()));
+        }
+        return new StringBuilder(source.length() + getLengthDelta())
+                .append(source, 0, offset)
+                .append(insertedText)
+                .append(source, getRemovedEnd(), source.length())
+                .toString();
+    }
+
+    /**
+     * How many lines the edit adds to the source, negative when it removes lines.
+     */
+    public int lineDelta(CharSequence source) {
+        return countNewLines(insertedText, 0, insertedText.length()) - countNewLines(source, offset, getRemovedEnd());
+    }
+
+    private static int countNewLines(CharSequence text, int start, int end) {
+        int newLines = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == NEW_LINE_CHAR) {
+                newLines++;
+            }
+        }
+        return newLines;
+    }
+}
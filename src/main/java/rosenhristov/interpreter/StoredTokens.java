@@ -0,0 +1,325 @@
+package main.java.rosenhristov.interpreter;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The tokens of one source file in a {@link TokenArena}: a flyweight reading the token and number columns in place,
+ * as the {@link TokenColumns} of the file, so nothing but this handle stays on the heap. {@link #load()} copies the
+ * tokens back into a {@link TokenBuffer}, only for what changes them, as relexing an edited file.
+ */
+public final class StoredTokens implements TokenColumns {
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final NumberLiteral.Kind[] NUMBER_KINDS = NumberLiteral.Kind.values();
+
+    private final TokenArena arena;
+    private final int chunkIndex;
+    private final int offset;
+    private final int size;
+    private final CharSequence source;
+    private boolean isReleased;
+
+    StoredTokens(TokenArena arena, int chunkIndex, int offset, int size, CharSequence source) {
+        this.arena = arena;
+        this.chunkIndex = chunkIndex;
+        this.offset = offset;
+        this.size = size;
+        this.source = source;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public TokenType getType(int token) {
+        return TOKEN_TYPES[chunk().get(typesOffset() + checkIndex(token))];
+    }
+
+    @Override
+    public int getStart(int token) {
+        return chunk().getInt(columnOffset(1, token));
+    }
+
+    @Override
+    public int getEnd(int token) {
+        return chunk().getInt(columnOffset(2, token));
+    }
+
+    @Override
+    public int getLine(int token) {
+        return chunk().getInt(columnOffset(3, token));
+    }
+
+    /**
+     * The symbol id of an identifier or keyword token, or {@link SymbolTable#NO_SYMBOL}.
+     */
+    @Override
+    public int getSymbol(int token) {
+        TokenType type = getType(token);
+        return type == TokenType.IDENTIFIER || type == TokenType.KEYWORD
+                ? chunk().getInt(columnOffset(4, token))
+                : SymbolTable.NO_SYMBOL;
+    }
+
+    /**
+     * The canonical keyword id of a keyword token, see {@link KeywordTable}, or {@link KeywordTable#NOT_A_KEYWORD}.
+     */
+    @Override
+    public int getKeywordId(int token) {
+        return getType(token) == TokenType.KEYWORD ? chunk().getInt(columnOffset(4, token)) : KeywordTable.NOT_A_KEYWORD;
+    }
+
+    /**
+     * The raw source text of the token, without copying it.
+     */
+    @Override
+    public NumberLiteral.Kind getNumberKind(int token) {
+        return NUMBER_KINDS[chunk().get(numberKindsOffset() + numberIndex(token))];
+    }
+
+    @Override
+    public long getLongValue(int token) {
+        int number = integerIndex(token);
+        long low = chunk().getLong(numberLowsOffset() + number * Long.BYTES);
+        if (chunk().getLong(numberHighsOffset() + number * Long.BYTES) != 0 || low < 0) {
+            throw new ArithmeticException(String.format("Number %s does not fit in a long", getText(token)));
+        }
+        return low;
+    }
+
+    @Override
+    public BigInteger getIntegerValue(int token) {
+        int number = integerIndex(token);
+        return TokenBuffer.integerValue(chunk().getLong(numberLowsOffset() + number * Long.BYTES),
+                chunk().getLong(numberHighsOffset() + number * Long.BYTES));
+    }
+
+    @Override
+    public double getDoubleValue(int token) {
+        int number = numberIndex(token);
+        long low = chunk().getLong(numberLowsOffset() + number * Long.BYTES);
+        switch (NUMBER_KINDS[chunk().get(numberKindsOffset() + number)]) {
+            case FLOAT:
+                return Double.longBitsToDouble(low);
+            case INTEGER:
+                return NumberLiteral.toDouble(low, chunk().getLong(numberHighsOffset() + number * Long.BYTES));
+            default:
+                throw new NumberFormatException(String.format("Invalid number %s", getText(token)));
+        }
+    }
+
+    @Override
+    public boolean fitsIn(int token, NumberType type, boolean isNegated) {
+        int number = numberIndex(token);
+        ByteBuffer chunk = chunk();
+        return type.fits(NUMBER_KINDS[chunk.get(numberKindsOffset() + number)],
+                chunk.getLong(numberLowsOffset() + number * Long.BYTES),
+                chunk.getLong(numberHighsOffset() + number * Long.BYTES), isNegated);
+    }
+
+    /**
+     * Binary searches the start column in place, see {@link TokenBuffer#findTokenStartingAt(int)}.
+     */
+    @Override
+    public int findTokenStartingAt(int offset) {
+        ByteBuffer chunk = chunk();
+        int starts = typesOffset() + size;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int start = chunk.getInt(starts + middle * Integer.BYTES);
+            if (start < offset) {
+                low = middle + 1;
+            } else if (start > offset) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public CharSequence getText(int token) {
+        return CharBuffer.wrap(source, getStart(token), getEnd(token));
+    }
+
+    /**
+     * The token value as {@link TokenBuffer#getValue(int)} reports it.
+     */
+    @Override
+    public String getValue(int token) {
+        return TokenBuffer.valueOf(source, getType(token), getStart(token), getEnd(token));
+    }
+
+    @Override
+    public Token getToken(int token) {
+        return TokenBuffer.createToken(source, getType(token), getStart(token), getEnd(token), getLine(token));
+    }
+
+    /**
+     * Binary searches the line column in place, see {@link TokenBuffer#getFirstTokenOfLine(int)}.
+     *
+     * @return the first token starting on or after the line, {@link #size()} past the last line
+     */
+    @Override
+    public int getFirstTokenOfLine(int line) {
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuffer chunk = chunk();
+        int lines = columnOffset(3, 0);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunk.getInt(lines + middle * Integer.BYTES) < line) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The tokens {@code [from, to)}, created from the columns as they are read.
+     */
+    @Override
+    public List<Token> asList(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Token range [%d, %d) out of [0, %d)", from, to, size));
+        }
+        return new TokenList(from, to);
+    }
+
+    /**
+     * Copies all the tokens into a new {@link TokenBuffer}, which is not kept: every call costs a copy of the
+     * columns on the heap. Passes only reading the tokens read them in place instead.
+     */
+    public TokenBuffer load() {
+        return TokenBuffer.load(chunk().duplicate().position(offset), source);
+    }
+
+    /**
+     * Gives the tokens up. The arena is closed with the last tokens stored in it, see {@link TokenArena#close()}.
+     */
+    public synchronized void release() {
+        if (!isReleased) {
+            isReleased = true;
+            arena.released();
+        }
+    }
+
+    public synchronized boolean isReleased() {
+        return isReleased || arena.isReleased();
+    }
+
+    /**
+     * @throws IllegalStateException if the tokens were released
+     */
+    private ByteBuffer chunk() {
+        if (isReleased) {
+            throw new IllegalStateException("The stored tokens were released.");
+        }
+        return arena.getChunk(chunkIndex);
+    }
+
+    private int typesOffset() {
+        return offset + Integer.BYTES;
+    }
+
+    /**
+     * The offset of the token in the given int column, the columns following the type column in the order
+     * {@link TokenBuffer#storeTo(ByteBuffer)} writes them.
+     */
+    private int columnOffset(int column, int token) {
+        return typesOffset() + size + ((column - 1) * size + checkIndex(token)) * Integer.BYTES;
+    }
+
+    /**
+     * The offset of the number count, after the token columns, see {@link TokenBuffer#storeTo(ByteBuffer)}.
+     */
+    private int numbersOffset() {
+        return typesOffset() + size + 4 * size * Integer.BYTES;
+    }
+
+    private int numberKindsOffset() {
+        return numbersOffset() + Integer.BYTES;
+    }
+
+    private int numberLowsOffset() {
+        return numberKindsOffset() + chunk().getInt(numbersOffset());
+    }
+
+    private int numberHighsOffset() {
+        return numberLowsOffset() + chunk().getInt(numbersOffset()) * Long.BYTES;
+    }
+
+    /**
+     * The index of the value of a number token in the number columns, kept in the symbol column.
+     */
+    private int numberIndex(int token) {
+        if (getType(token) != TokenType.NUMBER) {
+            throw new IllegalArgumentException(String.format("Token %d is not a number", token));
+        }
+        return chunk().getInt(columnOffset(4, token));
+    }
+
+    private int integerIndex(int token) {
+        int number = numberIndex(token);
+        if (chunk().get(numberKindsOffset() + number) != NumberLiteral.Kind.INTEGER.ordinal()) {
+            throw new NumberFormatException(String.format("Number %s is not an integer", getText(token)));
+        }
+        return number;
+    }
+
+    private int checkIndex(int token) {
+        if (token < 0 || token >= size) {
+            throw new IndexOutOfBoundsException(String.format("Token index %d out of [0, %d)", token, size));
+        }
+        return token;
+    }
+
+    private class TokenList extends AbstractList<Token> implements RandomAccess {
+
+        private final int from;
+        private final int to;
+
+        private TokenList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(String.format("Index %d out of [0, %d)", index, size()));
+            }
+            return getToken(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
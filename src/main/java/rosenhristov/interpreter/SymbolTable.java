@@ -0,0 +1,186 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interns symbols, identifiers and keywords, as dense int ids: the first symbol gets 0, the next 1 and so on,
+ * so later stages compare symbols as ints and resolve an id back to its text with one array access.
+ * Lookups hash a region of the source directly into an open addressed table, no {@code String} is created
+ * unless the symbol is new. The canonical keywords of the {@link KeywordTable} are interned first, which makes
+ * the id of every keyword equal to its keyword id.
+ * Not thread-safe: concurrent lexers intern into tables of their own and {@link #internAll(SymbolTable)} them.
+ */
+public final class SymbolTable {
+
+    public static final int NO_SYMBOL = -1;
+
+    private static final int INITIAL_SLOTS = 256;
+
+    private final List<String> keywords;
+
+    private int[] slots; // symbol id + 1, 0 for a free slot
+    private String[] symbols;
+    private int[] hashes;
+    private int mask;
+    private int size;
+
+    private SymbolTable(List<String> keywords) {
+        this.keywords = keywords;
+        this.slots = new int[Math.max(INITIAL_SLOTS, Integer.highestOneBit(Math.max(1, keywords.size() * 4 - 1)) << 1)];
+        this.mask = slots.length - 1;
+        this.symbols = new String[slots.length / 2];
+        this.hashes = new int[slots.length / 2];
+        for (String keyword : keywords) {
+            add(keyword, hash(keyword, 0, keyword.length()));
+        }
+    }
+
+    public static SymbolTable of(KeywordTable keywords) {
+        return new SymbolTable(keywords.getKeywords());
+    }
+
+    /**
+     * An empty table with the same keywords, whose keyword ids are the same as in this one.
+     */
+    public SymbolTable newTable() {
+        return new SymbolTable(keywords);
+    }
+
+    /**
+     * @return the id of {@code source[start, end)}, interning it if it is new
+     */
+    public int intern(CharSequence source, int start, int end) {
+        int hash = hash(source, start, end);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id == NO_SYMBOL) {
+                return add(source.subSequence(start, end).toString(), hash);
+            }
+            if (hashes[id] == hash && equals(symbols[id], source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    public int intern(CharSequence symbol) {
+        return intern(symbol, 0, symbol.length());
+    }
+
+    /**
+     * @return the id of {@code source[start, end)}, or {@link #NO_SYMBOL} if it was never interned
+     */
+    public int find(CharSequence source, int start, int end) {
+        int hash = hash(source, start, end);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id == NO_SYMBOL) {
+                return NO_SYMBOL;
+            }
+            if (hashes[id] == hash && equals(symbols[id], source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    public int find(CharSequence symbol) {
+        return find(symbol, 0, symbol.length());
+    }
+
+    public String getSymbol(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(String.format("Symbol id %d out of [0, %d)", id, size));
+        }
+        return symbols[id];
+    }
+
+    public boolean isKeyword(int id) {
+        return id >= 0 && id < keywords.size();
+    }
+
+    public int getKeywordCount() {
+        return keywords.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Interns every symbol of another table with the same keywords.
+     *
+     * @return the id in this table of every id of the other table
+     */
+    public int[] internAll(SymbolTable other) {
+        if (!other.keywords.equals(keywords)) {
+            throw new IllegalArgumentException("Symbol tables with different keywords cannot be merged.");
+        }
+        int[] ids = new int[other.size];
+        for (int id = 0; id < other.size; id++) {
+            ids[id] = id < keywords.size() ? id : intern(other.symbols[id]);
+        }
+        return ids;
+    }
+
+    /**
+     * Adds a symbol known to be missing. Keywords are always added, so a repeated keyword still takes
+     * the id of its position, while lookups find its first occurrence.
+     */
+    private int add(String symbol, int hash) {
+        if (size == symbols.length) {
+            grow();
+        }
+        int id = size++;
+        symbols[id] = symbol;
+        hashes[id] = hash;
+        insertSlot(id);
+        return id;
+    }
+
+    private void insertSlot(int id) {
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+            int other = slots[slot] - 1;
+            if (hashes[other] == hashes[id] && symbols[other].equals(symbols[id])) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    /**
+     * Doubles the slots, keeping at most half of them taken.
+     */
+    private void grow() {
+        symbols = Arrays.copyOf(symbols, symbols.length * 2);
+        hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            insertSlot(id);
+        }
+    }
+
+    private static boolean equals(String symbol, CharSequence source, int start, int end) {
+        if (symbol.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence source, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + source.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x45D9F3B;
+        return h ^ (h >>> 16);
+    }
+}
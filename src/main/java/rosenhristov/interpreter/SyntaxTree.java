@@ -0,0 +1,257 @@
+package main.java.rosenhristov.interpreter;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * The syntax tree of one source file stored in primitive arrays, like the tokens of a {@link TokenBuffer}: every
+ * node is its {@link NodeKind}, the index of its token and the range of its children in a shared child column,
+ * four ints and a byte per node with its own entry in the child column. Nodes are numbered in the order they are
+ * completed, children before their parent, so the {@link #getRoot() root} is the last node until a later pass
+ * adds more. Nodes are addressed by index, there is no object per node.
+ */
+public final class SyntaxTree {
+
+    public static final int NO_TOKEN = -1;
+
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+    private static final int MIN_CAPACITY = 16;
+
+    private final TokenColumns tokens;
+    private final File file;
+    private final Errors errors = new Errors(Constants.MAX_ERRORS_PER_FILE);
+
+    private byte[] kinds;
+    private int[] nodeTokens;
+    private int[] childStarts;
+    private int[] childCounts;
+    private int size;
+
+    private int[] children;
+    private int childrenSize;
+
+    private int root = -1;
+    private int unparsedCount;
+
+    /**
+     * Children of nodes not completed yet, moved to the child column when their parent completes.
+     */
+    private int[] pending;
+    private int pendingSize;
+
+    /**
+     * @param capacity the expected number of nodes, the arrays grow past it
+     */
+    SyntaxTree(TokenColumns tokens, File file, int capacity) {
+        this.tokens = tokens;
+        this.file = file;
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        this.kinds = new byte[capacity];
+        this.nodeTokens = new int[capacity];
+        this.childStarts = new int[capacity];
+        this.childCounts = new int[capacity];
+        this.children = new int[capacity];
+        this.pending = new int[MIN_CAPACITY];
+    }
+
+    public TokenColumns getTokens() {
+        return tokens;
+    }
+
+    /**
+     * The file the tokens were lexed from, {@code null} for sources not read from a file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public Errors getErrors() {
+        return errors;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The {@link NodeKind#FILE} node.
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    public NodeKind getKind(int node) {
+        return NODE_KINDS[kinds[checkIndex(node)]];
+    }
+
+    /**
+     * The index of the token of the node in {@link #getTokens()}, or {@link #NO_TOKEN}.
+     */
+    public int getToken(int node) {
+        return nodeTokens[checkIndex(node)];
+    }
+
+    /**
+     * The source text of the token of the node, empty for nodes without one.
+     */
+    public CharSequence getText(int node) {
+        int token = getToken(node);
+        return token == NO_TOKEN ? Constants.EMPTY_STRING : tokens.getText(token);
+    }
+
+    public int getChildCount(int node) {
+        return childCounts[checkIndex(node)];
+    }
+
+    public int getChild(int node, int index) {
+        if (index < 0 || index >= getChildCount(node)) {
+            throw new IndexOutOfBoundsException(String.format("Child %d of node %d out of [0, %d)",
+                    index, node, childCounts[node]));
+        }
+        return children[childStarts[node] + index];
+    }
+
+    /**
+     * The first child of the given kind, or {@code -1}.
+     */
+    public int findChild(int node, NodeKind kind) {
+        for (int index = 0; index < getChildCount(node); index++) {
+            int child = children[childStarts[node] + index];
+            if (kinds[child] == kind.ordinal()) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether an outline parse left method bodies to parse, see {@link Parser#parseBodies(SyntaxTree)}.
+     */
+    public boolean hasUnparsedBlocks() {
+        return unparsedCount > 0;
+    }
+
+    /**
+     * The nodes as an indented outline, one node per line with its kind and token text, e.g. to compare trees.
+     */
+    @Override
+    public String toString() {
+        StringBuilder outline = new StringBuilder();
+        if (root >= 0) {
+            appendNode(outline, root, 0);
+        }
+        return outline.toString();
+    }
+
+    /**
+     * Starts a node: its children are the nodes completed from now until {@link #complete(NodeKind, int, int)}.
+     */
+    int start() {
+        return pendingSize;
+    }
+
+    /**
+     * Completes a node with the nodes completed since {@code start} as its children.
+     */
+    int complete(NodeKind kind, int token, int start) {
+        if (size == kinds.length) {
+            grow();
+        }
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        nodeTokens[node] = token;
+        adoptPending(node, start);
+        if (kind == NodeKind.UNPARSED_BLOCK) {
+            unparsedCount++;
+        }
+        push(node);
+        return node;
+    }
+
+    /**
+     * Turns a completed node into one of another kind with the nodes completed since {@code start} as its
+     * children, e.g. an {@link NodeKind#UNPARSED_BLOCK} parsed by a later pass.
+     */
+    void replace(int node, NodeKind kind, int start) {
+        if (kinds[checkIndex(node)] == NodeKind.UNPARSED_BLOCK.ordinal()) {
+            unparsedCount--;
+        }
+        kinds[node] = (byte) kind.ordinal();
+        adoptPending(node, start);
+    }
+
+    /**
+     * Makes the only node left pending the root.
+     */
+    void finish() {
+        if (pendingSize != 1) {
+            throw new IllegalStateException(String.format("%d nodes left without a parent", pendingSize));
+        }
+        root = pending[--pendingSize];
+        pending = new int[0];
+    }
+
+    /**
+     * Grows the arrays to hold the given number of nodes, e.g. before a pass adding many of them.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > kinds.length) {
+            resize(capacity);
+        }
+        if (capacity > children.length) {
+            children = Arrays.copyOf(children, capacity);
+        }
+    }
+
+    private void adoptPending(int node, int start) {
+        int count = pendingSize - start;
+        if (childrenSize + count > children.length) {
+            int capacity = Math.max(childrenSize + count, children.length + (children.length >> 1));
+            children = Arrays.copyOf(children, capacity);
+        }
+        System.arraycopy(pending, start, children, childrenSize, count);
+        childStarts[node] = childrenSize;
+        childCounts[node] = count;
+        childrenSize += count;
+        pendingSize = start;
+    }
+
+    private void push(int node) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(MIN_CAPACITY, pending.length * 2));
+        }
+        pending[pendingSize++] = node;
+    }
+
+    private void grow() {
+        resize(kinds.length + (kinds.length >> 1));
+    }
+
+    private void resize(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        nodeTokens = Arrays.copyOf(nodeTokens, capacity);
+        childStarts = Arrays.copyOf(childStarts, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+    }
+
+    private void appendNode(StringBuilder outline, int node, int depth) {
+        for (int i = 0; i < depth; i++) {
+            outline.append("  ");
+        }
+        outline.append(getKind(node).name().toLowerCase());
+        if (nodeTokens[node] != NO_TOKEN) {
+            outline.append(' ').append(getText(node));
+        }
+        outline.append('\n');
+        for (int index = 0; index < childCounts[node]; index++) {
+            appendNode(outline, children[childStarts[node] + index], depth + 1);
+        }
+    }
+
+    private int checkIndex(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException(String.format("Node index %d out of [0, %d)", node, size));
+        }
+        return node;
+    }
+}
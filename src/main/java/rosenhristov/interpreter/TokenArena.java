@@ -0,0 +1,195 @@
+package main.java.rosenhristov.interpreter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Off-heap memory for the token columns of lexed files, so very large projects keep their tokens out of the
+ * old generation. The columns of a {@link TokenBuffer} are copied in with {@link #store(TokenBuffer)} and read
+ * through the returned {@link StoredTokens}. Memory is taken in chunks, either direct buffers or regions of a
+ * memory mapped temporary file the arena spills to, and released all at once by {@link #close()}, or when the
+ * last stored tokens are {@link StoredTokens#release() released}. Direct chunks count against
+ * {@code -XX:MaxDirectMemorySize}, spilled ones only against the disk and the page cache.
+ * <p>
+ * Releasing only drops the arena's references to its chunks. Direct memory and the mappings of the spill file are
+ * reclaimed when the garbage collector collects the chunks, not when the arena is released, so the footprint of
+ * released arenas lingers until the next collection that reaches them. Freeing them earlier would need the
+ * unsupported {@code Unsafe.invokeCleaner}, which crashes the JVM when a reader still holds a chunk.
+ * The spill file itself is deleted by {@link #close()}. It is not registered for deletion on exit, which would keep
+ * its path until the JVM ends, so an arena that is never closed leaves its file behind.
+ * Storing is thread-safe.
+ */
+public final class TokenArena implements AutoCloseable {
+
+    static final int CHUNK_SIZE = 4 << 20;
+
+    private static final String SPILL_PREFIX = "rik-tokens-";
+    private static final String SPILL_SUFFIX = ".arena";
+
+    private final File spillDirectory;
+    private final int chunkSize;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int chunkPosition;
+
+    private Path spillFile;
+
+    private long allocatedBytes;
+    private long usedBytes;
+    private int liveCount;
+    private volatile boolean isReleased;
+
+    private TokenArena(File spillDirectory, int chunkSize) {
+        this.spillDirectory = spillDirectory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * An arena of direct buffers.
+     */
+    public static TokenArena direct() {
+        return new TokenArena(null, CHUNK_SIZE);
+    }
+
+    /**
+     * An arena of a memory mapped temporary file in the given directory, deleted when the arena is closed.
+     */
+    public static TokenArena spillingTo(File directory) {
+        return new TokenArena(directory, CHUNK_SIZE);
+    }
+
+    /**
+     * An arena taking chunks of at least {@code chunkSize} bytes, e.g. {@code 0} for an arena of one file.
+     *
+     * @param spillDirectory where to map the chunks, {@code null} for direct buffers
+     */
+    static TokenArena of(File spillDirectory, int chunkSize) {
+        return new TokenArena(spillDirectory, chunkSize);
+    }
+
+    /**
+     * Copies the tokens into the arena. The buffer is not changed and can be dropped afterwards.
+     *
+     * @throws IllegalStateException if the arena was released
+     */
+    public StoredTokens store(TokenBuffer tokens) {
+        int size = tokens.storedSize();
+        int chunkIndex;
+        int offset;
+        ByteBuffer columns;
+        synchronized (this) {
+            checkNotReleased();
+            offset = allocate(size);
+            chunkIndex = chunks.length - 1;
+            columns = chunks[chunkIndex].duplicate().position(offset).limit(offset + size);
+            liveCount++;
+        }
+        tokens.storeTo(columns);
+        return new StoredTokens(this, chunkIndex, offset, tokens.size(), tokens.getSource());
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public boolean isReleased() {
+        return isReleased;
+    }
+
+    /**
+     * Releases the arena and everything stored in it. Reading {@link StoredTokens} of a released arena throws
+     * {@link IllegalStateException}. The spill file is deleted right away, direct chunks and the mappings of the
+     * file are only reclaimed by the garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        if (isReleased) {
+            return;
+        }
+        isReleased = true;
+        chunks = new ByteBuffer[0];
+        if (!isNull(spillFile)) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Problems deleting token arena file %s.", spillFile), e);
+            }
+        }
+    }
+
+    /**
+     * Called by {@link StoredTokens#release()}, releases the arena with the last stored tokens.
+     */
+    synchronized void released() {
+        if (--liveCount == 0) {
+            close();
+        }
+    }
+
+    /**
+     * The chunk the tokens of a {@link StoredTokens} are in.
+     *
+     * @throws IllegalStateException if the arena was released
+     */
+    ByteBuffer getChunk(int chunkIndex) {
+        ByteBuffer[] current = chunks;
+        if (chunkIndex >= current.length) {
+            checkNotReleased();
+        }
+        return current[chunkIndex];
+    }
+
+    /**
+     * @return the offset of {@code size} bytes in the last chunk, added if they do not fit in the current one
+     */
+    private int allocate(int size) {
+        if (chunks.length == 0 || chunks[chunks.length - 1].capacity() - chunkPosition < size) {
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = newChunk(Math.max(chunkSize, size));
+            chunks = grown;
+            chunkPosition = 0;
+        }
+        int offset = chunkPosition;
+        chunkPosition += size;
+        usedBytes += size;
+        return offset;
+    }
+
+    /**
+     * A direct buffer, or the next region of the spill file. The file is only open while it is mapped, the mapping
+     * stays valid after, so an arena holds no file descriptor however many there are.
+     */
+    private ByteBuffer newChunk(int size) {
+        allocatedBytes += size;
+        if (isNull(spillDirectory)) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        try {
+            if (isNull(spillFile)) {
+                spillFile = Files.createTempFile(spillDirectory.toPath(), SPILL_PREFIX, SPILL_SUFFIX);
+            }
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, allocatedBytes - size, size);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems spilling tokens to %s.", spillDirectory), e);
+        }
+    }
+
+    private void checkNotReleased() {
+        if (isReleased) {
+            throw new IllegalStateException("The token arena was released.");
+        }
+    }
+}
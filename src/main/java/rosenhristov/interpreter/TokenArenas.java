@@ -0,0 +1,100 @@
+package main.java.rosenhristov.interpreter;
+
+import main.java.rosenhristov.ProjectDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link TokenArena}s a {@link Lexer} stores the tokens of a project in, one per {@link ProjectDir} or one per
+ * file, see {@link Scope}. A directory's arenas are released together by {@link #release(ProjectDir)} and all of
+ * them by {@link #close()}; the arena of a file is also released with its tokens, see {@link StoredTokens#release()}.
+ */
+public final class TokenArenas implements AutoCloseable {
+
+    public enum Scope {
+        /** One arena for the files of a directory, the least memory wasted at the ends of chunks. */
+        DIRECTORY,
+        /** One arena per file, given back as soon as the file is released, e.g. when a watched file changes. */
+        FILE;
+
+        public static Scope of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Unknown token arena scope %s.", name), e);
+            }
+        }
+    }
+
+    private final Scope scope;
+    private final File spillDirectory;
+    private final Map<ProjectDir, List<TokenArena>> arenas = new IdentityHashMap<>();
+
+    private TokenArenas(Scope scope, File spillDirectory) {
+        this.scope = scope;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Arenas of direct buffers.
+     */
+    public static TokenArenas of(Scope scope) {
+        return new TokenArenas(scope, null);
+    }
+
+    /**
+     * Arenas spilling to memory mapped temporary files in the given directory, or of direct buffers for
+     * {@code null}, see {@link TokenArena#spillingTo(File)}.
+     */
+    public static TokenArenas of(Scope scope, File spillDirectory) {
+        return new TokenArenas(scope, spillDirectory);
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * The arena to store the tokens of the next file of the directory in.
+     */
+    public synchronized TokenArena arenaFor(ProjectDir dir) {
+        List<TokenArena> dirArenas = arenas.computeIfAbsent(dir, key -> new ArrayList<>());
+        if (scope == Scope.DIRECTORY) {
+            dirArenas.removeIf(TokenArena::isReleased);
+            if (!dirArenas.isEmpty()) {
+                return dirArenas.get(0);
+            }
+        }
+        // the arena of a file holds nothing else, so its chunk is just large enough
+        TokenArena arena = TokenArena.of(spillDirectory, scope == Scope.FILE ? 0 : TokenArena.CHUNK_SIZE);
+        dirArenas.add(arena);
+        return arena;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return arenas.values().stream().flatMap(List::stream).mapToLong(TokenArena::getAllocatedBytes).sum();
+    }
+
+    /**
+     * Releases the arenas of the directory and the tokens stored in them.
+     */
+    public synchronized void release(ProjectDir dir) {
+        List<TokenArena> dirArenas = arenas.remove(dir);
+        if (!isNull(dirArenas)) {
+            dirArenas.forEach(TokenArena::close);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        arenas.values().forEach(dirArenas -> dirArenas.forEach(TokenArena::close));
+        arenas.clear();
+    }
+}
@@ -0,0 +1,564 @@
+package main.java.rosenhristov.interpreter;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static main.java.rosenhristov.interpreter.Constants.BACKSLASH_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.DOUBLE_QUOTES_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.SINGLE_QUOTES_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.U_CHAR_VALUE;
+
+/**
+ * Tokens of one source file stored column-wise in primitive arrays: type ordinal, start offset,
+ * end offset (exclusive), line and a value, the {@link SymbolTable} id of identifiers and keywords or the index
+ * of the parsed value of numbers. Number values are kept in columns of their own, one row per number token.
+ * Token text is a view over the source, {@link Token} objects are only created on request.
+ * The {@link LineIndex} of the source maps lines to token ranges, see {@link #getFirstTokenOfLine(int)}.
+ */
+public class TokenBuffer implements TokenColumns {
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final NumberLiteral.Kind[] NUMBER_KINDS = NumberLiteral.Kind.values();
+    private static final int MIN_CAPACITY = 16;
+
+    private final CharSequence source;
+
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] values;
+    private int size;
+
+    private byte[] numberKinds;
+    private long[] numberLows;
+    private long[] numberHighs;
+    private int numberCount;
+    private LineIndex lineIndex;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, Math.max(MIN_CAPACITY, source == null ? 0 : source.length() / 4));
+    }
+
+    public TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        int initialCapacity = Math.max(MIN_CAPACITY, capacity);
+        this.types = new byte[initialCapacity];
+        this.starts = new int[initialCapacity];
+        this.ends = new int[initialCapacity];
+        this.lines = new int[initialCapacity];
+        this.values = new int[initialCapacity];
+        this.numberKinds = new byte[0];
+        this.numberLows = new long[0];
+        this.numberHighs = new long[0];
+    }
+
+    public int add(TokenType type, int start, int end, int line) {
+        return add(type, start, end, line, SymbolTable.NO_SYMBOL);
+    }
+
+    public int add(TokenType type, int start, int end, int line, int symbol) {
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        values[size] = symbol;
+        return size++;
+    }
+
+    /**
+     * Adds a {@link TokenType#NUMBER} token with its parsed value.
+     */
+    public int addNumber(int start, int end, int line, NumberLiteral.Kind kind, long low, long high) {
+        return add(TokenType.NUMBER, start, end, line, addNumberValue(kind, low, high));
+    }
+
+    /**
+     * Adds the current token of the scanner.
+     */
+    int add(TokenScanner scanner) {
+        if (scanner.getType() == TokenType.NUMBER) {
+            NumberLiteral number = scanner.getNumber();
+            return addNumber(scanner.getStart(), scanner.getEnd(), scanner.getLine(),
+                    number.getKind(), number.getLow(), number.getHigh());
+        }
+        return add(scanner.getType(), scanner.getStart(), scanner.getEnd(), scanner.getLine(), scanner.getSymbol());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public TokenType getType(int token) {
+        return TOKEN_TYPES[types[checkIndex(token)]];
+    }
+
+    @Override
+    public int getStart(int token) {
+        return starts[checkIndex(token)];
+    }
+
+    @Override
+    public int getEnd(int token) {
+        return ends[checkIndex(token)];
+    }
+
+    @Override
+    public int getLine(int token) {
+        return lines[checkIndex(token)];
+    }
+
+    /**
+     * The symbol id of an identifier or keyword token, or {@link SymbolTable#NO_SYMBOL}.
+     */
+    @Override
+    public int getSymbol(int token) {
+        return hasSymbol(types[checkIndex(token)]) ? values[token] : SymbolTable.NO_SYMBOL;
+    }
+
+    /**
+     * The canonical keyword id of a keyword token, see {@link KeywordTable}, or {@link KeywordTable#NOT_A_KEYWORD}.
+     * Keywords are the first symbols of every {@link SymbolTable}, so this is the symbol of keyword tokens.
+     */
+    @Override
+    public int getKeywordId(int token) {
+        return types[checkIndex(token)] == TokenType.KEYWORD.ordinal() ? values[token] : KeywordTable.NOT_A_KEYWORD;
+    }
+
+    void setSymbol(int token, int symbol) {
+        if (!hasSymbol(types[checkIndex(token)])) {
+            throw new IllegalArgumentException(String.format("Token %d is not an identifier or keyword", token));
+        }
+        values[token] = symbol;
+    }
+
+    /**
+     * How the value of a number token was parsed, see {@link NumberLiteral}.
+     */
+    @Override
+    public NumberLiteral.Kind getNumberKind(int token) {
+        return NUMBER_KINDS[numberKinds[numberIndex(token)]];
+    }
+
+    /**
+     * The value of an integer token that fits in a long.
+     *
+     * @throws ArithmeticException if the integer needs more than 63 bits
+     */
+    @Override
+    public long getLongValue(int token) {
+        int number = integerIndex(token);
+        if (numberHighs[number] != 0 || numberLows[number] < 0) {
+            throw new ArithmeticException(String.format("Number %s does not fit in a long", getText(token)));
+        }
+        return numberLows[number];
+    }
+
+    /**
+     * The value of an integer token of up to 128 bits.
+     */
+    @Override
+    public BigInteger getIntegerValue(int token) {
+        int number = integerIndex(token);
+        return integerValue(numberLows[number], numberHighs[number]);
+    }
+
+    /**
+     * The value of a float token, or the nearest double to an integer token.
+     */
+    @Override
+    public double getDoubleValue(int token) {
+        int number = numberIndex(token);
+        switch (NUMBER_KINDS[numberKinds[number]]) {
+            case FLOAT:
+                return Double.longBitsToDouble(numberLows[number]);
+            case INTEGER:
+                return NumberLiteral.toDouble(numberLows[number], numberHighs[number]);
+            default:
+                throw new NumberFormatException(String.format("Invalid number %s", getText(token)));
+        }
+    }
+
+    /**
+     * Whether the number token, negated or not, is a value of the type.
+     */
+    @Override
+    public boolean fitsIn(int token, NumberType type, boolean isNegated) {
+        int number = numberIndex(token);
+        return type.fits(NUMBER_KINDS[numberKinds[number]], numberLows[number], numberHighs[number], isNegated);
+    }
+
+    static BigInteger integerValue(long low, long high) {
+        BigInteger highBits = new BigInteger(Long.toUnsignedString(high));
+        return highBits.shiftLeft(Long.SIZE).or(new BigInteger(Long.toUnsignedString(low)));
+    }
+
+    /**
+     * Replaces the symbols of the tokens {@code [from, to)} by their ids in another table,
+     * {@code ids[symbol]} as returned by {@link SymbolTable#internAll(SymbolTable)}.
+     */
+    void remapSymbols(int from, int to, int[] ids) {
+        for (int token = from; token < to; token++) {
+            if (hasSymbol(types[token]) && values[token] != SymbolTable.NO_SYMBOL) {
+                values[token] = ids[values[token]];
+            }
+        }
+    }
+
+    /**
+     * Binary search over the token start offsets, which are strictly increasing.
+     *
+     * @return the token starting at {@code offset}, or {@code -(insertion point) - 1} as in
+     * {@link Arrays#binarySearch(int[], int, int, int)}
+     */
+    @Override
+    public int findTokenStartingAt(int offset) {
+        return Arrays.binarySearch(starts, 0, size, offset);
+    }
+
+    /**
+     * The line index built while lexing, or built from the source on first use for tokens read from elsewhere.
+     */
+    public LineIndex getLineIndex() {
+        if (lineIndex == null) {
+            lineIndex = LineIndex.of(source);
+        }
+        return lineIndex;
+    }
+
+    void setLineIndex(LineIndex lineIndex) {
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * @return the first token starting on or after the line, {@link #size()} past the last line;
+     * the tokens starting on a line are {@code [getFirstTokenOfLine(line), getFirstTokenOfLine(line + 1))}
+     */
+    @Override
+    public int getFirstTokenOfLine(int line) {
+        LineIndex index = getLineIndex();
+        if (line > index.getLineCount()) {
+            return size;
+        }
+        int found = findTokenStartingAt(index.getLineStart(Math.max(1, line)));
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * The line of the last char of the token, after {@link #getLine(int)} for tokens spanning lines.
+     */
+    public int getEndLine(int token) {
+        return getLineIndex().getLine(Math.max(getStart(token), getEnd(token) - 1));
+    }
+
+    /**
+     * Appends the tokens {@code [from, to)} of another buffer, moving their offsets and lines by the given deltas.
+     */
+    public void addAll(TokenBuffer other, int from, int to, int offsetDelta, int lineDelta) {
+        for (int token = from; token < to; token++) {
+            int value = other.values[token];
+            if (other.types[token] == TokenType.NUMBER.ordinal()) {
+                value = addNumberValue(NUMBER_KINDS[other.numberKinds[value]], other.numberLows[value], other.numberHighs[value]);
+            }
+            add(other.getType(token), other.starts[token] + offsetDelta, other.ends[token] + offsetDelta,
+                    other.lines[token] + lineDelta, value);
+        }
+    }
+
+    /**
+     * The raw source text of the token, without copying it.
+     */
+    @Override
+    public CharSequence getText(int token) {
+        return CharBuffer.wrap(source, getStart(token), getEnd(token));
+    }
+
+    /**
+     * The token value as {@link Token#getToken()} reports it: literals without their quotes and
+     * escape characters, {@code EOF} for the end of file token and the source text otherwise.
+     */
+    @Override
+    public String getValue(int token) {
+        return valueOf(source, getType(token), getStart(token), getEnd(token));
+    }
+
+    @Override
+    public Token getToken(int token) {
+        return createToken(source, getType(token), getStart(token), getEnd(token), getLine(token));
+    }
+
+    static Token createToken(CharSequence source, TokenType type, int start, int end, int line) {
+        Token token = type == TokenType.MULTILINE_COMMENT || type == TokenType.DOC
+                ? new Token(type, valueOf(source, type, start, end), start, end)
+                : new Token(type, valueOf(source, type, start, end), start);
+        token.setLine(line);
+        return token;
+    }
+
+    static String valueOf(CharSequence source, TokenType type, int start, int end) {
+        switch (type) {
+            case STRING_LITERAL:
+                return unescape(source, start, end, DOUBLE_QUOTES_CHAR);
+            case CHAR_LITERAL:
+                return unescape(source, start, end, SINGLE_QUOTES_CHAR);
+            case EOF:
+                return TokenType.EOF.getValue();
+            default:
+                return source.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * A read only list of the tokens in {@code [from, to)}, materializing {@link Token}s on access.
+     */
+    @Override
+    public List<Token> asList(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Token range [%d, %d) out of [0, %d)", from, to, size));
+        }
+        return new TokenList(from, to);
+    }
+
+    public List<Token> asList() {
+        return asList(0, size);
+    }
+
+    private static String unescape(CharSequence source, int start, int end, char quote) {
+        StringBuilder value = new StringBuilder(end - start);
+        for (int index = start + 1; index < end && source.charAt(index) != quote; index++) {
+            char c = source.charAt(index);
+            if (c != BACKSLASH_CHAR) {
+                value.append(c);
+            } else if (isEscape(source, index, end, quote)) {
+                value.append(source.charAt(++index));
+            }
+        }
+        return value.toString();
+    }
+
+    private static boolean isEscape(CharSequence source, int index, int end, char quote) {
+        if (index + 1 >= end) {
+            return false;
+        }
+        char next = source.charAt(index + 1);
+        return next == BACKSLASH_CHAR
+                || next == quote
+                || (quote == DOUBLE_QUOTES_CHAR ? next == SINGLE_QUOTES_CHAR : next == U_CHAR_VALUE);
+    }
+
+    private int addNumberValue(NumberLiteral.Kind kind, long low, long high) {
+        if (numberCount == numberKinds.length) {
+            int capacity = Math.max(MIN_CAPACITY, numberCount + (numberCount >> 1));
+            numberKinds = Arrays.copyOf(numberKinds, capacity);
+            numberLows = Arrays.copyOf(numberLows, capacity);
+            numberHighs = Arrays.copyOf(numberHighs, capacity);
+        }
+        numberKinds[numberCount] = (byte) kind.ordinal();
+        numberLows[numberCount] = low;
+        numberHighs[numberCount] = high;
+        return numberCount++;
+    }
+
+    private int numberIndex(int token) {
+        if (types[checkIndex(token)] != TokenType.NUMBER.ordinal()) {
+            throw new IllegalArgumentException(String.format("Token %d is not a number", token));
+        }
+        return values[token];
+    }
+
+    private int integerIndex(int token) {
+        int number = numberIndex(token);
+        if (numberKinds[number] != NumberLiteral.Kind.INTEGER.ordinal()) {
+            throw new NumberFormatException(String.format("Number %s is not an integer", getText(token)));
+        }
+        return number;
+    }
+
+    private static boolean hasSymbol(byte type) {
+        return type == TokenType.IDENTIFIER.ordinal() || type == TokenType.KEYWORD.ordinal();
+    }
+
+    private int checkIndex(int token) {
+        if (token < 0 || token >= size) {
+            throw new IndexOutOfBoundsException(String.format("Token index %d out of [0, %d)", token, size));
+        }
+        return token;
+    }
+
+    private void grow() {
+        int capacity = types.length + (types.length >> 1);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Bytes needed by {@link #writeTo(ByteBuffer)}.
+     */
+    int serializedSize() {
+        return Integer.BYTES + size * (Byte.BYTES + 4 * Integer.BYTES);
+    }
+
+    /**
+     * Writes the token columns, one after the other, so they can be read back in bulk. Number values are not
+     * written, {@link #readFrom(ByteBuffer, CharSequence)} parses them again from the source.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(size);
+        buffer.put(types, 0, size);
+        buffer.asIntBuffer().put(starts, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        buffer.asIntBuffer().put(ends, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        buffer.asIntBuffer().put(lines, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        buffer.asIntBuffer().put(values, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+    }
+
+    /**
+     * Reads tokens written by {@link #writeTo(ByteBuffer)} for the given source.
+     *
+     * @throws IllegalArgumentException if the columns do not describe valid tokens of the source
+     */
+    static TokenBuffer readFrom(ByteBuffer buffer, CharSequence source) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * (Byte.BYTES + 4 * Integer.BYTES) > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid serialized token count " + count);
+        }
+        TokenBuffer tokens = new TokenBuffer(source, count);
+        buffer.get(tokens.types, 0, count);
+        buffer.asIntBuffer().get(tokens.starts, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.ends, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.lines, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.values, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        tokens.size = count;
+        tokens.validate();
+        tokens.parseNumbers();
+        return tokens;
+    }
+
+    /**
+     * Bytes needed by {@link #storeTo(ByteBuffer)}.
+     */
+    int storedSize() {
+        return serializedSize() + Integer.BYTES + numberCount * (Byte.BYTES + 2 * Long.BYTES);
+    }
+
+    /**
+     * Writes the token columns like {@link #writeTo(ByteBuffer)}, followed by the number columns, so
+     * {@link #load(ByteBuffer, CharSequence)} neither validates nor parses anything again.
+     */
+    void storeTo(ByteBuffer buffer) {
+        writeTo(buffer);
+        buffer.putInt(numberCount);
+        buffer.put(numberKinds, 0, numberCount);
+        buffer.asLongBuffer().put(numberLows, 0, numberCount);
+        buffer.position(buffer.position() + numberCount * Long.BYTES);
+        buffer.asLongBuffer().put(numberHighs, 0, numberCount);
+        buffer.position(buffer.position() + numberCount * Long.BYTES);
+    }
+
+    /**
+     * Reads tokens written by {@link #storeTo(ByteBuffer)} for the same source.
+     */
+    static TokenBuffer load(ByteBuffer buffer, CharSequence source) {
+        int count = buffer.getInt();
+        TokenBuffer tokens = new TokenBuffer(source, count);
+        buffer.get(tokens.types, 0, count);
+        buffer.asIntBuffer().get(tokens.starts, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.ends, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.lines, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asIntBuffer().get(tokens.values, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        tokens.size = count;
+        int numberCount = buffer.getInt();
+        tokens.numberKinds = new byte[numberCount];
+        tokens.numberLows = new long[numberCount];
+        tokens.numberHighs = new long[numberCount];
+        buffer.get(tokens.numberKinds);
+        buffer.asLongBuffer().get(tokens.numberLows);
+        buffer.position(buffer.position() + numberCount * Long.BYTES);
+        buffer.asLongBuffer().get(tokens.numberHighs);
+        buffer.position(buffer.position() + numberCount * Long.BYTES);
+        tokens.numberCount = numberCount;
+        return tokens;
+    }
+
+    private void parseNumbers() {
+        NumberLiteral number = new NumberLiteral();
+        for (int token = 0; token < size; token++) {
+            if (types[token] == TokenType.NUMBER.ordinal()) {
+                if (number.scan(source, starts[token], source.length()) != ends[token]) {
+                    throw new IllegalArgumentException("Invalid serialized number token " + token);
+                }
+                values[token] = addNumberValue(number.getKind(), number.getLow(), number.getHigh());
+            }
+        }
+    }
+
+    private void validate() {
+        int sourceLength = source.length();
+        int previousStart = -1;
+        for (int token = 0; token < size; token++) {
+            if (types[token] < 0 || types[token] >= TOKEN_TYPES.length
+                    || starts[token] <= previousStart || starts[token] > ends[token] || ends[token] > sourceLength) {
+                throw new IllegalArgumentException("Invalid serialized token " + token);
+            }
+            previousStart = starts[token];
+        }
+    }
+
+    private class TokenList extends AbstractList<Token> implements RandomAccess {
+
+        private final int from;
+        private final int to;
+
+        private TokenList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(String.format("Index %d out of [0, %d)", index, size()));
+            }
+            return getToken(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package main.java.rosenhristov.interpreter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of lexing results, one entry per distinct file content. Entries are named by the SHA-256
+ * of the source and hold the serialized {@link TokenBuffer} columns and the lexing {@link Diagnostic}s. Each entry
+ * records the format version and the {@link KeywordTable#fingerprint()} it was lexed with and ends with a
+ * CRC32 of its content, so stale or damaged entries are detected, deleted and lexed again.
+ * The cache never fails lexing: unreadable entries are misses and entries that cannot be written are skipped.
+ * Entries of contents no longer in the project, e.g. of every edited version of a file, are deleted by
+ * {@link #evictUnused()} after the project is lexed.
+ */
+public class TokenCache {
+
+    private static final int MAGIC = 0x52494B54; // RIKT
+    private static final int FORMAT_VERSION = 4;
+    private static final String ENTRY_EXTENSION = ".tokens";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+    private static final int HASH_CHUNK_SIZE = 8192;
+    /**
+     * How old a temporary file must be to be taken for one of a write that never finished, and not of a write
+     * another process is doing.
+     */
+    private static final Duration ABANDONED_TEMPORARY_AGE = Duration.ofHours(1);
+
+    private final Path directory;
+    private final long keywordsFingerprint;
+    private final Set<Path> usedEntries = ConcurrentHashMap.newKeySet();
+
+    private TokenCache(Path directory, KeywordTable keywords) {
+        this.directory = directory;
+        this.keywordsFingerprint = keywords.fingerprint();
+    }
+
+    public static TokenCache of(File directory, KeywordTable keywords) {
+        return new TokenCache(directory.toPath(), keywords);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the cached lexing result of the source, or lexes it and caches the result.
+     */
+    public LexingResult getOrLex(CharSequence sourceCode, Function<CharSequence, LexingResult> lexer) {
+        return getOrLex(sourceCode, lexer, lexingResult -> { });
+    }
+
+    /**
+     * Like {@link #getOrLex(CharSequence, Function)}, passing a loaded result to {@code onLoad} first, e.g. to intern
+     * its symbols, which are only meaningful for the {@link SymbolTable} they were lexed with. An entry
+     * {@code onLoad} rejects with an exception is treated as damaged.
+     */
+    public LexingResult getOrLex(CharSequence sourceCode, Function<CharSequence, LexingResult> lexer,
+                                 Consumer<LexingResult> onLoad) {
+        Path entry = entryPath(sourceCode);
+        LexingResult lexingResult = load(entry, sourceCode, onLoad);
+        if (lexingResult == null) {
+            lexingResult = lexer.apply(sourceCode);
+            store(entry, sourceCode, lexingResult);
+        }
+        return lexingResult;
+    }
+
+    /**
+     * @return the cached lexing result of the source, or {@code null} when there is no valid entry for it
+     */
+    public LexingResult load(CharSequence sourceCode) {
+        return load(entryPath(sourceCode), sourceCode, lexingResult -> { });
+    }
+
+    public void store(CharSequence sourceCode, LexingResult lexingResult) {
+        store(entryPath(sourceCode), sourceCode, lexingResult);
+    }
+
+    /**
+     * Deletes the entries of every content not loaded or stored since the cache was created or last evicted, and
+     * the temporary files of writes that never finished, older than {@link #ABANDONED_TEMPORARY_AGE}. Called once all the sources of a project were looked up,
+     * it leaves the entries of the current sources only.
+     *
+     * @return the number of deleted files
+     */
+    public int evictUnused() {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean isEntry = name.endsWith(ENTRY_EXTENSION);
+                boolean isTemporary = name.endsWith(TEMPORARY_EXTENSION) && name.contains(ENTRY_EXTENSION);
+                if ((isEntry && !usedEntries.contains(file)) || (isTemporary && isAbandoned(file))) {
+                    delete(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            // no directory yet, or one that cannot be listed, the entries are evicted next time
+        }
+        usedEntries.clear();
+        return deleted;
+    }
+
+    private boolean isAbandoned(Path temporary) {
+        try {
+            Instant modified = Files.getLastModifiedTime(temporary).toInstant();
+            return modified.isBefore(Instant.now().minus(ABANDONED_TEMPORARY_AGE));
+        } catch (IOException e) {
+            // moved into place or deleted meanwhile
+            return false;
+        }
+    }
+
+    private LexingResult load(Path entry, CharSequence sourceCode, Consumer<LexingResult> onLoad) {
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            LexingResult lexingResult = read(buffer, sourceCode);
+            onLoad.accept(lexingResult);
+            return lexingResult;
+        } catch (IOException | RuntimeException e) {
+            delete(entry);
+            return null;
+        }
+    }
+
+    private void store(Path entry, CharSequence sourceCode, LexingResult lexingResult) {
+        TokenBuffer tokens = lexingResult.getTokenBuffer();
+        Errors errors = lexingResult.getErrors();
+        List<byte[][]> encodedArguments = new ArrayList<>(errors.size());
+        int size = HEADER_SIZE + tokens.serializedSize() + Integer.BYTES + Long.BYTES;
+        for (Diagnostic error : errors.getErrors()) {
+            Object[] arguments = error.getArguments();
+            byte[][] encoded = new byte[arguments.length][];
+            size += 4 * Integer.BYTES;
+            for (int i = 0; i < arguments.length; i++) {
+                encoded[i] = String.valueOf(arguments[i]).getBytes(StandardCharsets.UTF_8);
+                size += Integer.BYTES + encoded[i].length;
+            }
+            encodedArguments.add(encoded);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(keywordsFingerprint)
+                .putInt(sourceCode.length())
+                .putInt(errors.size());
+        tokens.writeTo(buffer);
+        buffer.putInt(errors.getSuppressedCount());
+        for (int i = 0; i < errors.size(); i++) {
+            Diagnostic error = errors.getErrors().get(i);
+            byte[][] arguments = encodedArguments.get(i);
+            buffer.putInt(error.getCode().ordinal())
+                    .putInt(error.getOffset())
+                    .putInt(error.getLength())
+                    .putInt(arguments.length);
+            for (byte[] argument : arguments) {
+                buffer.putInt(argument.length).put(argument);
+            }
+        }
+        buffer.putLong(checksum(buffer, buffer.position()));
+        buffer.flip();
+
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, entry.getFileName().toString(), TEMPORARY_EXTENSION);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temporary != null) {
+                delete(temporary);
+            }
+        }
+    }
+
+    private LexingResult read(ByteBuffer buffer, CharSequence sourceCode) {
+        int contentSize = buffer.limit() - Long.BYTES;
+        if (contentSize < HEADER_SIZE || buffer.getLong(contentSize) != checksum(buffer, contentSize)) {
+            throw new IllegalArgumentException("Damaged token cache entry");
+        }
+        if (buffer.getInt() != MAGIC
+                || buffer.getInt() != FORMAT_VERSION
+                || buffer.getLong() != keywordsFingerprint
+                || buffer.getInt() != sourceCode.length()) {
+            throw new IllegalArgumentException("Stale token cache entry");
+        }
+        int errorCount = buffer.getInt();
+        LexingResult lexingResult = new LexingResult(TokenBuffer.readFrom(buffer, sourceCode));
+        lexingResult.getErrors().addSuppressed(buffer.getInt());
+        for (int i = 0; i < errorCount; i++) {
+            lexingResult.addError(readDiagnostic(buffer, sourceCode));
+        }
+        if (buffer.position() != contentSize) {
+            throw new IllegalArgumentException("Damaged token cache entry");
+        }
+        return lexingResult;
+    }
+
+    private Diagnostic readDiagnostic(ByteBuffer buffer, CharSequence sourceCode) {
+        DiagnosticCode[] codes = DiagnosticCode.values();
+        int code = buffer.getInt();
+        int offset = buffer.getInt();
+        int length = buffer.getInt();
+        int argumentCount = buffer.getInt();
+        if (code < 0 || code >= codes.length || offset < 0 || length < 0 || offset > sourceCode.length() - length
+                || argumentCount < 0 || argumentCount > buffer.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Damaged token cache entry");
+        }
+        Object[] arguments = new Object[argumentCount];
+        for (int i = 0; i < argumentCount; i++) {
+            byte[] argument = new byte[buffer.getInt()];
+            buffer.get(argument);
+            arguments[i] = new String(argument, StandardCharsets.UTF_8);
+        }
+        return Diagnostic.of(codes[code], sourceCode, offset, length, arguments);
+    }
+
+    private long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(length);
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * The entry of the source, marked as used so {@link #evictUnused()} keeps it.
+     */
+    private Path entryPath(CharSequence sourceCode) {
+        Path entry = directory.resolve(toHex(contentHash(sourceCode)) + ENTRY_EXTENSION);
+        usedEntries.add(entry);
+        return entry;
+    }
+
+    private byte[] contentHash(CharSequence sourceCode) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        byte[] chunk = new byte[HASH_CHUNK_SIZE];
+        int position = 0;
+        for (int i = 0; i < sourceCode.length(); i++) {
+            char c = sourceCode.charAt(i);
+            chunk[position++] = (byte) c;
+            chunk[position++] = (byte) (c >>> 8);
+            if (position == chunk.length) {
+                digest.update(chunk, 0, position);
+                position = 0;
+            }
+        }
+        digest.update(chunk, 0, position);
+        return digest.digest();
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // an entry that cannot be deleted is simply lexed and rewritten next time
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package main.java.rosenhristov.interpreter;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * The read methods of lexed tokens, by index: a {@link TokenBuffer} on the heap or {@link StoredTokens} read in place
+ * from a {@link TokenArena}. The passes that only read tokens, parsing, dumping and transpiling, take these, so
+ * tokens stored off-heap are never copied back to be read.
+ */
+public interface TokenColumns {
+
+    int size();
+
+    boolean isEmpty();
+
+    CharSequence getSource();
+
+    TokenType getType(int token);
+
+    int getStart(int token);
+
+    int getEnd(int token);
+
+    int getLine(int token);
+
+    /**
+     * The symbol id of an identifier or keyword token, or {@link SymbolTable#NO_SYMBOL}.
+     */
+    int getSymbol(int token);
+
+    /**
+     * The canonical keyword id of a keyword token, see {@link KeywordTable}, or {@link KeywordTable#NOT_A_KEYWORD}.
+     */
+    int getKeywordId(int token);
+
+    /**
+     * How the value of a number token was parsed, see {@link NumberLiteral}.
+     */
+    NumberLiteral.Kind getNumberKind(int token);
+
+    /**
+     * The value of an integer token that fits in a long.
+     *
+     * @throws ArithmeticException if the integer needs more than 63 bits
+     */
+    long getLongValue(int token);
+
+    /**
+     * The value of an integer token of up to 128 bits.
+     */
+    BigInteger getIntegerValue(int token);
+
+    /**
+     * The value of a float token, or the nearest double to an integer token.
+     */
+    double getDoubleValue(int token);
+
+    /**
+     * Whether the number token, negated or not, is a value of the type.
+     */
+    boolean fitsIn(int token, NumberType type, boolean isNegated);
+
+    /**
+     * Binary search over the token start offsets, which are strictly increasing.
+     *
+     * @return the token starting at {@code offset}, or {@code -(insertion point) - 1}
+     */
+    int findTokenStartingAt(int offset);
+
+    /**
+     * @return the first token starting on or after the line, {@link #size()} past the last line
+     */
+    int getFirstTokenOfLine(int line);
+
+    /**
+     * The raw source text of the token, without copying it.
+     */
+    CharSequence getText(int token);
+
+    /**
+     * The token value as {@link Token#getToken()} reports it.
+     */
+    String getValue(int token);
+
+    Token getToken(int token);
+
+    /**
+     * A read only list of the tokens in {@code [from, to)}, materializing {@link Token}s on access.
+     */
+    List<Token> asList(int from, int to);
+}
@@ -0,0 +1,475 @@
+package main.java.rosenhristov.interpreter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+
+/**
+ * Writes the tokens and errors of lexed files to a channel through one large reusable buffer, encoding the
+ * token columns straight into bytes: no {@link Token}s, no formatted strings and one write per full buffer.
+ * Files are written as they are handed over, so a dump can follow the lexer file by file.
+ * <ul>
+ *     <li>{@link Format#TEXT}: what {@link LexedMap#print()} always printed, errors first, then
+ *     {@code [type]: value} per token, without the new lines ending the lines.</li>
+ *     <li>{@link Format#JSONL}: per file a {@code {"file", "tokens", "errors", "suppressedErrors"}} line,
+ *     then a {@code {"type", "line", "start", "end", "text"}} line per token, {@code text} being the value.</li>
+ *     <li>{@link Format#BINARY}: the {@code RIKD} magic and the format version, then per file its path, its source,
+ *     the token count and per token the type ordinal and the deltas of line, start and length to the token before,
+ *     then the error count, per error the code ordinal, offset, length and message, and the suppressed error count.
+ *     Counts, offsets and lengths are unsigned LEB128 varints, strings are a varint length and UTF-8 bytes,
+ *     offsets count chars of the source.</li>
+ * </ul>
+ * Not thread-safe: files must be handed over one at a time.
+ */
+public class TokenDumper implements AutoCloseable {
+
+    public enum Format {
+        TEXT, JSONL, BINARY;
+
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown dump format %s.", name));
+        }
+    }
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int MAGIC = 0x52494B44; // RIKD
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    // the most bytes one char or one varint takes
+    private static final int MAX_CHAR_BYTES = 4;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final byte[][] TEXT_PREFIXES = new byte[TOKEN_TYPES.length][];
+    private static final byte[][] JSON_TYPES = new byte[TOKEN_TYPES.length][];
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (TokenType type : TOKEN_TYPES) {
+            String name = type.name().toLowerCase(Locale.ROOT);
+            TEXT_PREFIXES[type.ordinal()] = String.format("[%s]: ", name).getBytes(StandardCharsets.US_ASCII);
+            JSON_TYPES[type.ordinal()] = String.format("{\"type\":\"%s\",\"line\":", name).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Format format;
+    private final WritableByteChannel channel;
+    private final boolean isChannelOwned;
+    private final boolean isUtf8;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer pendingChars = CharBuffer.allocate(2);
+
+    private boolean isClosed;
+
+    private TokenDumper(Format format, WritableByteChannel channel, boolean isChannelOwned, Charset charset) {
+        this.format = format;
+        this.channel = channel;
+        this.isChannelOwned = isChannelOwned;
+        this.isUtf8 = charset.equals(StandardCharsets.UTF_8);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (format == Format.BINARY) {
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+        }
+    }
+
+    /**
+     * A dumper writing UTF-8 to a channel it does not close, e.g. standard output.
+     */
+    public static TokenDumper of(Format format, WritableByteChannel channel) {
+        return new TokenDumper(format, channel, false, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Like {@link #of(Format, WritableByteChannel)}, writing {@link Format#TEXT} in the given charset, e.g. the one
+     * of the console. Unmappable chars are replaced like {@link java.io.PrintStream} replaces them.
+     */
+    public static TokenDumper of(Format format, WritableByteChannel channel, Charset charset) {
+        return new TokenDumper(format, channel, false, format == Format.TEXT ? charset : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A dumper writing to {@link System#out}, text in the charset {@code System.out} prints in.
+     */
+    public static TokenDumper toStandardOutput(Format format) {
+        return of(format, Channels.newChannel(System.out), consoleCharset());
+    }
+
+    /**
+     * A dumper writing to a file it creates or truncates, gzip compressed when its name ends with {@code .gz}.
+     */
+    public static TokenDumper toFile(Format format, File file) {
+        try {
+            FileChannel fileChannel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+            WritableByteChannel channel = file.getName().endsWith(GZIP_EXTENSION)
+                    ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), GZIP_BUFFER_SIZE))
+                    : fileChannel;
+            return new TokenDumper(format, channel, true, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems opening dump file %s.", file.getPath()), e);
+        }
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void write(LexedSourceFile lexedFile) {
+        LineTokensMap lineTokensMap = lexedFile.getLineTokensMap();
+        write(isNull(lexedFile.getFile()) ? "" : lexedFile.getFile().getPath(),
+                lineTokensMap.getColumns(), lineTokensMap.getErrors());
+    }
+
+    /**
+     * Writes the tokens and errors of one file.
+     *
+     * @param tokens the tokens, {@code null} for a file without source code
+     */
+    public void write(String file, TokenColumns tokens, Errors errors) {
+        try {
+            switch (format) {
+                case TEXT:
+                    writeText(tokens, errors);
+                    break;
+                case JSONL:
+                    writeJsonLines(file, tokens, errors);
+                    break;
+                default:
+                    writeBinary(file, tokens, errors);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems dumping the tokens of %s.", file), e);
+        }
+    }
+
+    /**
+     * Writes out the buffer.
+     */
+    public void flush() {
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new RuntimeException("Problems writing the token dump.", e);
+        }
+    }
+
+    /**
+     * Flushes the dump and closes the channel if the dumper opened it, finishing the gzip stream.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        flush();
+        if (isChannelOwned) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Problems closing the token dump.", e);
+            }
+        }
+    }
+
+    private void writeText(TokenColumns tokens, Errors errors) throws IOException {
+        for (Diagnostic error : errors.getErrors()) {
+            putAscii("[ERROR]: ");
+            putText(error.getMessage());
+            putByte('\n');
+        }
+        if (errors.getSuppressedCount() > 0) {
+            putAscii(String.format("[ERROR]: %d more errors not reported\n", errors.getSuppressedCount()));
+        }
+        if (isNull(tokens)) {
+            return;
+        }
+        CharSequence source = tokens.getSource();
+        for (int token = 0; token < tokens.size(); token++) {
+            TokenType type = tokens.getType(token);
+            if (type == TokenType.NEWLINE && isLineEnd(tokens, token)) {
+                continue;
+            }
+            putBytes(TEXT_PREFIXES[type.ordinal()]);
+            if (type == TokenType.NEWLINE) {
+                putAscii(type.toString());
+            } else if (hasSourceValue(type)) {
+                putText(source, tokens.getStart(token), tokens.getEnd(token));
+            } else {
+                putText(tokens.getValue(token));
+            }
+            putByte('\n');
+        }
+    }
+
+    private void writeJsonLines(String file, TokenColumns tokens, Errors errors) throws IOException {
+        putAscii("{\"file\":");
+        putJsonString(file, 0, file.length());
+        putAscii(",\"tokens\":");
+        putAscii(Integer.toString(isNull(tokens) ? 0 : tokens.size()));
+        putAscii(",\"errors\":[");
+        boolean isFirst = true;
+        for (Diagnostic error : errors.getErrors()) {
+            putAscii(isFirst ? "{\"code\":\"" : ",{\"code\":\"");
+            isFirst = false;
+            putAscii(error.getCode().getId());
+            putAscii(String.format("\",\"offset\":%d,\"length\":%d,\"message\":", error.getOffset(), error.getLength()));
+            String message = error.getMessage();
+            putJsonString(message, 0, message.length());
+            putByte('}');
+        }
+        putAscii("],\"suppressedErrors\":");
+        putAscii(Integer.toString(errors.getSuppressedCount()));
+        putAscii("}\n");
+        if (isNull(tokens)) {
+            return;
+        }
+        CharSequence source = tokens.getSource();
+        for (int token = 0; token < tokens.size(); token++) {
+            TokenType type = tokens.getType(token);
+            putBytes(JSON_TYPES[type.ordinal()]);
+            putAscii(Integer.toString(tokens.getLine(token)));
+            putAscii(",\"start\":");
+            putAscii(Integer.toString(tokens.getStart(token)));
+            putAscii(",\"end\":");
+            putAscii(Integer.toString(tokens.getEnd(token)));
+            putAscii(",\"text\":");
+            if (hasSourceValue(type)) {
+                putJsonString(source, tokens.getStart(token), tokens.getEnd(token));
+            } else {
+                String value = tokens.getValue(token);
+                putJsonString(value, 0, value.length());
+            }
+            putAscii("}\n");
+        }
+    }
+
+    private void writeBinary(String file, TokenColumns tokens, Errors errors) throws IOException {
+        putBinaryString(file, 0, file.length());
+        if (isNull(tokens)) {
+            putBinaryString("", 0, 0);
+            putVarint(0);
+        } else {
+            CharSequence source = tokens.getSource();
+            putBinaryString(source, 0, source.length());
+            putVarint(tokens.size());
+            int line = 0;
+            int start = 0;
+            for (int token = 0; token < tokens.size(); token++) {
+                ensureSpace(1 + 3 * MAX_VARINT_BYTES);
+                buffer.put((byte) tokens.getType(token).ordinal());
+                putVarint(tokens.getLine(token) - line);
+                putVarint(tokens.getStart(token) - start);
+                putVarint(tokens.getEnd(token) - tokens.getStart(token));
+                line = tokens.getLine(token);
+                start = tokens.getStart(token);
+            }
+        }
+        putVarint(errors.size());
+        for (Diagnostic error : errors.getErrors()) {
+            putVarint(error.getCode().ordinal());
+            putVarint(error.getOffset());
+            putVarint(error.getLength());
+            String message = error.getMessage();
+            putBinaryString(message, 0, message.length());
+        }
+        putVarint(errors.getSuppressedCount());
+    }
+
+    /**
+     * Whether the token is the new line ending its line, which the text format leaves out.
+     */
+    private static boolean isLineEnd(TokenColumns tokens, int token) {
+        return token + 1 == tokens.size() || tokens.getLine(token + 1) != tokens.getLine(token);
+    }
+
+    /**
+     * Whether the value of the token is its source text, see {@link TokenColumns#getValue(int)}.
+     */
+    private static boolean hasSourceValue(TokenType type) {
+        return type != TokenType.STRING_LITERAL && type != TokenType.CHAR_LITERAL && type != TokenType.EOF;
+    }
+
+    private void putText(CharSequence text) throws IOException {
+        putText(text, 0, text.length());
+    }
+
+    /**
+     * Encodes {@code text[from, to)} in the charset of the dumper.
+     */
+    private void putText(CharSequence text, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                putByte(c);
+            } else if (isUtf8) {
+                i = putUtf8(text, i, to);
+            } else {
+                i = putEncoded(text, i, to);
+            }
+        }
+    }
+
+    private void putJsonString(CharSequence text, int from, int to) throws IOException {
+        putByte('"');
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                putByte('\\');
+                putByte(c);
+            } else if (c < ' ') {
+                ensureSpace(6);
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(HEX_DIGITS[c >>> 4]).put(HEX_DIGITS[c & 0xF]);
+            } else if (c < 0x80) {
+                putByte(c);
+            } else {
+                i = putUtf8(text, i, to);
+            }
+        }
+        putByte('"');
+    }
+
+    private void putBinaryString(CharSequence text, int from, int to) throws IOException {
+        putVarint(utf8Length(text, from, to));
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                putByte(c);
+            } else {
+                i = putUtf8(text, i, to);
+            }
+        }
+    }
+
+    /**
+     * Encodes the char at {@code index}, with the low surrogate after it if it is a high one, as UTF-8 and
+     * returns the index of the last char encoded. A lone surrogate becomes {@code ?}.
+     */
+    private int putUtf8(CharSequence text, int index, int to) throws IOException {
+        ensureSpace(MAX_CHAR_BYTES);
+        char c = text.charAt(index);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >>> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            buffer.put((byte) (0xE0 | c >>> 12)).put((byte) (0x80 | c >>> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < to && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(++index));
+            buffer.put((byte) (0xF0 | codePoint >>> 18))
+                    .put((byte) (0x80 | codePoint >>> 12 & 0x3F))
+                    .put((byte) (0x80 | codePoint >>> 6 & 0x3F))
+                    .put((byte) (0x80 | codePoint & 0x3F));
+        } else {
+            buffer.put((byte) '?');
+        }
+        return index;
+    }
+
+    /**
+     * Encodes the char at {@code index}, or the surrogate pair starting there, with the charset encoder.
+     */
+    private int putEncoded(CharSequence text, int index, int to) throws IOException {
+        ensureSpace((int) Math.ceil(2 * encoder.maxBytesPerChar()));
+        pendingChars.clear();
+        pendingChars.put(text.charAt(index));
+        if (Character.isHighSurrogate(text.charAt(index)) && index + 1 < to
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            pendingChars.put(text.charAt(++index));
+        }
+        pendingChars.flip();
+        encoder.reset();
+        encoder.encode(pendingChars, buffer, true);
+        encoder.flush(buffer);
+        return index;
+    }
+
+    private void putVarint(int value) throws IOException {
+        ensureSpace(MAX_VARINT_BYTES);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void putAscii(String text) throws IOException {
+        ensureSpace(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        ensureSpace(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putByte(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static Charset consoleCharset() {
+        String encoding = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        return !isNull(encoding) && Charset.isSupported(encoding) ? Charset.forName(encoding) : Charset.defaultCharset();
+    }
+
+    private static int utf8Length(CharSequence text, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
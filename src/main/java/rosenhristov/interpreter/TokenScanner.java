@@ -0,0 +1,387 @@
+package main.java.rosenhristov.interpreter;
+
+import java.util.Arrays;
+
+import static main.java.rosenhristov.interpreter.CharClasses.isBlank;
+import static main.java.rosenhristov.interpreter.CharClasses.isDigit;
+import static main.java.rosenhristov.interpreter.CharClasses.isWordPart;
+import static main.java.rosenhristov.interpreter.CharClasses.isWordStart;
+import static main.java.rosenhristov.interpreter.Constants.BACKSLASH_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.DOUBLE_QUOTES_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.NEW_LINE_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.SINGLE_QUOTES_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.SLASH_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.SPACE_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.STAR_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.TAB_CHAR;
+import static main.java.rosenhristov.interpreter.Constants.U_CHAR_VALUE;
+import static main.java.rosenhristov.interpreter.TokenType.*;
+
+/**
+ * Pull based lexer over a single source. Every {@link #next()} call scans exactly one token and
+ * exposes it through the getters, so memory use does not depend on the size of the source.
+ * The last token of every source is {@link TokenType#EOF}.
+ * Number literals are parsed while they are scanned and checked against the type they are declared with,
+ * as in {@code i8 small = -128}, the declaration being the {@value #DECLARATION_TOKENS} tokens before the literal.
+ */
+public class TokenScanner {
+
+    /**
+     * The most tokens before a number that decide the type it is declared with: type, name, {@code =} and {@code -}.
+     */
+    static final int DECLARATION_TOKENS = 4;
+
+    private static final int NO_DECLARATION = 0;
+    private static final int DECLARED_TYPE = 1;
+    private static final int DECLARED_NAME = 2;
+    private static final int ASSIGNMENT = 3;
+    private static final int NEGATED_ASSIGNMENT = 4;
+
+    private final CharSequence source;
+    private final int sourceSize;
+    private final KeywordTable keywords;
+    private final SymbolTable symbols;
+    private final DiagnosticHandler errorHandler;
+    private final boolean isFromStart;
+    private final NumberType[] numberTypes;
+    private final NumberLiteral number = new NumberLiteral();
+    private final CharSearch search;
+
+    private int index;
+    private int line;
+    private boolean isFinished;
+
+    private TokenType type;
+    private int start;
+    private int end;
+    private int tokenLine;
+    private int symbolId;
+
+    private int[] lineStarts = new int[16];
+    private int lineCount = 1;
+
+    private int declaration = NO_DECLARATION;
+    private NumberType declaredType;
+
+    TokenScanner(CharSequence source, KeywordTable keywords, SymbolTable symbols, DiagnosticHandler errorHandler) {
+        this(source, keywords, symbols, errorHandler, 0, 1);
+    }
+
+    /**
+     * A scanner resuming at a token start, which is a safe restart point since no token depends on text before it.
+     */
+    TokenScanner(CharSequence source, KeywordTable keywords, SymbolTable symbols, DiagnosticHandler errorHandler,
+                 int index, int line) {
+        this.source = source;
+        this.sourceSize = source.length();
+        this.search = CharSearch.of(source);
+        this.keywords = keywords;
+        this.symbols = symbols;
+        this.errorHandler = errorHandler;
+        this.isFromStart = index == 0;
+        this.numberTypes = NumberType.byKeywordId(keywords);
+        this.index = index;
+        this.line = line;
+    }
+
+    /**
+     * Scans the next token.
+     *
+     * @return {@code false} once the {@link TokenType#EOF} token has been returned
+     */
+    public boolean next() {
+        while (index < sourceSize) {
+            char symbol = getChar(index);
+            int tokenStart = index;
+            if (isBlank(symbol)) {
+                index = search.skipEither(SPACE_CHAR, TAB_CHAR, index + 1, sourceSize); // ignore whitespaces
+            } else if (NEWLINE.matches(symbol)) {
+                return emit(NEWLINE, tokenStart, ++index);
+            } else if (isWordStart(symbol)) {
+                index = scanWord(index);
+                return emit(deriveWordType(tokenStart, index), tokenStart, index);
+            } else if (isDigit(symbol)) {
+                index = number.scan(source, index, sourceSize);
+                checkNumber(tokenStart, index);
+                return emit(NUMBER, tokenStart, index);
+            } else if (OPERATOR.matches(symbol) && !isStartOfComment(symbol, index)) {
+                char next = nextChar(index);
+                if (!isTokenType(OPERATOR, next) || (isSingleOnlyOperator(symbol) && startsOperand(next, index + 1))) {
+                    return emit(OPERATOR, tokenStart, ++index);
+                } else if (isSingleOnlyOperator(symbol)) {
+                    errorHandler.report(DiagnosticCode.NONEXISTENT_DOUBLE_OPERATOR, source, index, 2);
+                    index += 2;
+                } else {
+                    index += 2;
+                    return emit(OPERATOR, tokenStart, index);
+                }
+            } else if (CHAR_LITERAL.matches(symbol)) {
+                index = scanCharLiteral(++index);
+                return emit(CHAR_LITERAL, tokenStart, index);
+            } else if (STRING_LITERAL.matches(symbol)) {
+                index = scanStringLiteral(++index);
+                return emit(STRING_LITERAL, tokenStart, index);
+            } else if (SEPARATOR.matches(symbol)) {
+                return emit(SEPARATOR, tokenStart, ++index);
+            } else if (COMMENT.matches(symbol) && isStartOfComment(symbol, index)) {
+                if (nextChar(index) == SLASH_CHAR) {
+                    index = scanLineComment(index);
+                    return emit(COMMENT, tokenStart, index);
+                }
+                TokenType commentType = nextChar(index + 1) == STAR_CHAR ? DOC : MULTILINE_COMMENT;
+                index = scanMultilineComment(index);
+                if (index < 0) {
+                    index = sourceSize;
+                    errorHandler.report(DiagnosticCode.UNTERMINATED_COMMENT, source, tokenStart, sourceSize - tokenStart);
+                }
+                return emit(commentType, tokenStart, index);
+            } else {
+                errorHandler.report(DiagnosticCode.UNKNOWN_CHARACTER, source, index, 1);
+                index++;
+            }
+        }
+        if (isFinished) {
+            return false;
+        }
+        isFinished = true;
+        return emit(EOF, sourceSize, sourceSize);
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLine() {
+        return tokenLine;
+    }
+
+    /**
+     * The canonical keyword id of the current token, or {@link KeywordTable#NOT_A_KEYWORD}.
+     */
+    public int getKeywordId() {
+        return type == KEYWORD ? symbolId : KeywordTable.NOT_A_KEYWORD;
+    }
+
+    /**
+     * The id of the current identifier or keyword in the scanner's {@link SymbolTable}, or {@link SymbolTable#NO_SYMBOL}.
+     */
+    public int getSymbol() {
+        return symbolId;
+    }
+
+    /**
+     * The parsed value of the current token, if it is a {@link TokenType#NUMBER}. Reused for every number.
+     */
+    public NumberLiteral getNumber() {
+        return number;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public Token getToken() {
+        return TokenBuffer.createToken(source, type, start, end, tokenLine);
+    }
+
+    /**
+     * The line starts passed while scanning, complete once a scanner started at the beginning returned {@link TokenType#EOF}.
+     */
+    public LineIndex getLineIndex() {
+        if (!isFromStart || !isFinished) {
+            throw new IllegalStateException("Only a scanner that scanned the whole source indexes its lines.");
+        }
+        return new LineIndex(Arrays.copyOf(lineStarts, lineCount), lineCount);
+    }
+
+    private boolean emit(TokenType type, int start, int end) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.tokenLine = line;
+        this.symbolId = type == KEYWORD || type == IDENTIFIER ? symbolId : SymbolTable.NO_SYMBOL;
+        trackDeclaration(type, start, end, symbolId);
+        if (type == NEWLINE) {
+            addLineStart(end);
+        } else if (canSpanLines(type)) {
+            addLineStarts(start, end);
+        }
+        return true;
+    }
+
+    /**
+     * Restores the declaration state of a scanner resuming after the given tokens of the same source.
+     */
+    void resumeAfter(TokenBuffer tokens, int from, int to) {
+        for (int token = from; token < to; token++) {
+            trackDeclaration(tokens.getType(token), tokens.getStart(token), tokens.getEnd(token), tokens.getSymbol(token));
+        }
+    }
+
+    private void trackDeclaration(TokenType type, int start, int end, int symbol) {
+        if (type == KEYWORD && numberTypes[symbol] != null) {
+            declaredType = numberTypes[symbol];
+            declaration = DECLARED_TYPE;
+        } else if (type == IDENTIFIER && declaration == DECLARED_TYPE) {
+            declaration = DECLARED_NAME;
+        } else if (type == OPERATOR && declaration == DECLARED_NAME && isOperator(start, end, '=')) {
+            declaration = ASSIGNMENT;
+        } else if (type == OPERATOR && declaration == ASSIGNMENT && isOperator(start, end, '-')) {
+            declaration = NEGATED_ASSIGNMENT;
+        } else {
+            declaration = NO_DECLARATION;
+        }
+    }
+
+    private boolean isOperator(int start, int end, char operator) {
+        return end - start == 1 && getChar(start) == operator;
+    }
+
+    private void checkNumber(int start, int end) {
+        switch (number.getKind()) {
+            case MALFORMED:
+                errorHandler.report(DiagnosticCode.MALFORMED_NUMBER, source, start, end - start);
+                break;
+            case OUT_OF_RANGE:
+                errorHandler.report(DiagnosticCode.NUMBER_OUT_OF_RANGE, source, start, end - start,
+                        new Object[] {(number.isFloatingPoint() ? NumberType.F64 : NumberType.I128).getKeyword()});
+                break;
+            default:
+                boolean isDeclared = declaration == ASSIGNMENT || declaration == NEGATED_ASSIGNMENT;
+                if (isDeclared && !declaredType.fits(number.getKind(), number.getLow(), number.getHigh(),
+                        declaration == NEGATED_ASSIGNMENT)) {
+                    errorHandler.report(DiagnosticCode.NUMBER_OUT_OF_RANGE, source, start, end - start,
+                            new Object[] {declaredType.getKeyword()});
+                }
+        }
+    }
+
+    private boolean canSpanLines(TokenType type) {
+        return type == STRING_LITERAL || type == CHAR_LITERAL || type == MULTILINE_COMMENT || type == DOC;
+    }
+
+    private int scanLineComment(int index) {
+        return scanTillSymbol(index, NEW_LINE_CHAR);
+    }
+
+    /**
+     * @return the index after the closing star and slash, or -1 if the comment is not terminated
+     */
+    private int scanMultilineComment(int index) {
+        int i = search.indexOf(STAR_CHAR, index + 2, sourceSize - 1);
+        while (i < sourceSize - 1) {
+            if (nextChar(i) == SLASH_CHAR) {
+                return i + 2;
+            }
+            i = search.indexOf(STAR_CHAR, i + 1, sourceSize - 1);
+        }
+        return -1;
+    }
+
+    private int scanWord(int index) {
+        while (index < sourceSize && isWordPart(getChar(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private int scanStringLiteral(int index) {
+        index = search.indexOfEither(DOUBLE_QUOTES_CHAR, BACKSLASH_CHAR, index, sourceSize);
+        while (index < sourceSize && getChar(index) != DOUBLE_QUOTES_CHAR) {
+            if (isEscapedChar(index)) {
+                index++;
+            }
+            index = search.indexOfEither(DOUBLE_QUOTES_CHAR, BACKSLASH_CHAR, index + 1, sourceSize);
+        }
+        return Math.min(index + 1, sourceSize);
+    }
+
+    private boolean isEscapedChar(int index) {
+        return getChar(index) == BACKSLASH_CHAR
+                && (nextChar(index) == BACKSLASH_CHAR
+                        || nextChar(index) == SINGLE_QUOTES_CHAR
+                        || nextChar(index) == DOUBLE_QUOTES_CHAR);
+    }
+
+    private int scanCharLiteral(int index) {
+        index = search.indexOfEither(SINGLE_QUOTES_CHAR, BACKSLASH_CHAR, index, sourceSize);
+        while (index < sourceSize && getChar(index) != SINGLE_QUOTES_CHAR) {
+            if (isCharValue(index)) {
+                index++;
+            }
+            index = search.indexOfEither(SINGLE_QUOTES_CHAR, BACKSLASH_CHAR, index + 1, sourceSize);
+        }
+        return Math.min(index + 1, sourceSize);
+    }
+
+    private boolean isCharValue(int index) {
+        return getChar(index) == BACKSLASH_CHAR
+                && (nextChar(index) == BACKSLASH_CHAR
+                        || nextChar(index) == U_CHAR_VALUE
+                        || nextChar(index) == SINGLE_QUOTES_CHAR);
+    }
+
+    private int scanTillSymbol(int index, char symbol) {
+        return search.indexOf(symbol, index, sourceSize);
+    }
+
+    private void addLineStarts(int start, int end) {
+        for (int i = search.indexOf(NEW_LINE_CHAR, start, end); i < end; i = search.indexOf(NEW_LINE_CHAR, i + 1, end)) {
+            addLineStart(i + 1);
+        }
+    }
+
+    private void addLineStart(int offset) {
+        line++;
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = offset;
+    }
+
+    private TokenType deriveWordType(int start, int end) {
+        int keywordId = keywords.find(source, start, end);
+        if (keywordId != KeywordTable.NOT_A_KEYWORD) {
+            symbolId = keywordId;
+            return KEYWORD;
+        }
+        symbolId = symbols.intern(source, start, end);
+        return IDENTIFIER;
+    }
+
+    private boolean isSingleOnlyOperator(char symbol) {
+        return CharClasses.isSingleOnlyOperator(symbol);
+    }
+
+    /**
+     * Whether an operator char after a single only operator begins something else than a second operator half:
+     * the sign of an operand, like in {@code a*-b}, or a comment.
+     */
+    private boolean startsOperand(char symbol, int index) {
+        return symbol == '+' || symbol == '-' || isStartOfComment(symbol, index);
+    }
+
+    private boolean isStartOfComment(char symbol, int index) {
+        return symbol == SLASH_CHAR && (nextChar(index) == SLASH_CHAR || nextChar(index) == STAR_CHAR);
+    }
+
+    private char nextChar(int index) {
+        return getChar(index + 1);
+    }
+
+    private char getChar(int index) {
+        return index >= 0 && index < sourceSize ? source.charAt(index) : Character.MIN_VALUE;
+    }
+}
@@ -15,7 +15,7 @@ public enum TokenType {
     DOC("/**"),
 
     NEWLINE("\\n"),
-    WHITESPACE("[\\s|\\t|\\r|\\f|\\n]+"),
+    WHITESPACE("[\\s\\t\\r\\f\\n]+"),
     EOF("EOF");
 
     private String value;
@@ -28,22 +28,28 @@ public enum TokenType {
         return value;
     }
 
+    /**
+     * A new pattern of the value, not kept: the enum is shared by the lexing threads, and the value of
+     * {@link #DOC} is no valid pattern.
+     */
     public Pattern getPattern() {
         return Pattern.compile(value);
     }
 
     public boolean matches(char ch) {
-        return matches(String.valueOf(ch));
+        return CharClasses.is(this, ch);
     }
 
+    /**
+     * Slow path kept for callers matching whole words against the token type pattern.
+     * Single characters should go through {@link #matches(char)}.
+     */
     public boolean matches(String word) {
         return getPattern().matcher(word).matches();
     }
 
     public static boolean isTokenType(TokenType tokenType, char c) {
-        return tokenType == DOC
-                ? tokenType.getValue().equals(c)
-                : tokenType.matches(c);
+        return CharClasses.is(tokenType, c);
     }
 
     @Override
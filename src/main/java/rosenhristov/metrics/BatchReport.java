@@ -0,0 +1,157 @@
+package main.java.rosenhristov.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The combined result of a batch run over many projects: the status, counts and stage {@link PipelineMetrics} of
+ * every project, in the order the projects were given.
+ */
+public class BatchReport {
+
+    public enum Status {
+        /** Lexed without errors. */
+        OK,
+        /** Lexed, with lexing errors. */
+        ERRORS,
+        /** Not lexed to the end, see {@link ProjectResult#getFailure()}. */
+        FAILED
+    }
+
+    private final List<ProjectResult> projects = new ArrayList<>();
+    private long wallNanos;
+
+    private BatchReport() {
+    }
+
+    public static BatchReport create() {
+        return new BatchReport();
+    }
+
+    public BatchReport add(ProjectResult project) {
+        projects.add(project);
+        return this;
+    }
+
+    public BatchReport setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+        return this;
+    }
+
+    public List<ProjectResult> getProjects() {
+        return projects;
+    }
+
+    public int count(Status status) {
+        return (int) projects.stream().filter(project -> project.getStatus() == status).count();
+    }
+
+    /**
+     * @return whether every project was lexed without errors
+     */
+    public boolean isOk() {
+        return count(Status.OK) == projects.size();
+    }
+
+    /**
+     * @return the projects and their totals as one JSON object, times in nanoseconds
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"projects\":[");
+        for (int i = 0; i < projects.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            projects.get(i).appendJson(json);
+        }
+        return json.append("],\"ok\":").append(count(Status.OK))
+                .append(",\"errors\":").append(count(Status.ERRORS))
+                .append(",\"failed\":").append(count(Status.FAILED))
+                .append(",\"wallNanos\":").append(wallNanos)
+                .append('}')
+                .toString();
+    }
+
+    /**
+     * The outcome of one project of a batch.
+     */
+    public static final class ProjectResult {
+
+        private final String project;
+        private final PipelineMetrics metrics;
+        private final long wallNanos;
+        private final int files;
+        private final long tokens;
+        private final int errors;
+        private final String failure;
+
+        private ProjectResult(String project, PipelineMetrics metrics, long wallNanos, int files, long tokens, int errors,
+                              String failure) {
+            this.project = project;
+            this.metrics = metrics;
+            this.wallNanos = wallNanos;
+            this.files = files;
+            this.tokens = tokens;
+            this.errors = errors;
+            this.failure = failure;
+        }
+
+        public static ProjectResult lexed(String project, PipelineMetrics metrics, long wallNanos, int files, long tokens,
+                                          int errors) {
+            return new ProjectResult(project, metrics, wallNanos, files, tokens, errors, null);
+        }
+
+        /**
+         * @param metrics the stages measured before the project failed
+         */
+        public static ProjectResult failed(String project, PipelineMetrics metrics, long wallNanos, String failure) {
+            return new ProjectResult(project, metrics, wallNanos, 0, 0, 0, failure);
+        }
+
+        public String getProject() {
+            return project;
+        }
+
+        public Status getStatus() {
+            if (failure != null) {
+                return Status.FAILED;
+            }
+            return errors > 0 ? Status.ERRORS : Status.OK;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getTokens() {
+            return tokens;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        private void appendJson(StringBuilder json) {
+            json.append("{\"project\":");
+            PipelineMetrics.appendString(json, project);
+            json.append(",\"status\":");
+            PipelineMetrics.appendString(json, getStatus().name().toLowerCase(Locale.ROOT));
+            if (failure != null) {
+                json.append(",\"failure\":");
+                PipelineMetrics.appendString(json, failure);
+            }
+            json.append(",\"files\":").append(files)
+                    .append(",\"tokens\":").append(tokens)
+                    .append(",\"errors\":").append(errors)
+                    .append(",\"wallNanos\":").append(wallNanos)
+                    .append(",\"stages\":");
+            metrics.appendStages(json);
+            json.append('}');
+        }
+    }
+}
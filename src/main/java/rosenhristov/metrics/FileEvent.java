@@ -0,0 +1,37 @@
+package main.java.rosenhristov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one source file going through a pipeline stage.
+ */
+@Name("rik.File")
+@Label("Rik Source File")
+@Category({"Rik", "Pipeline"})
+@Description("A source file processed by a stage of the Rik project pipeline")
+class FileEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Errors")
+    int errors;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
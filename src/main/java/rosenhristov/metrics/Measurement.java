@@ -0,0 +1,193 @@
+package main.java.rosenhristov.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Wall time, counters and allocated bytes of a pipeline stage, or of one file in a stage.
+ * A measurement belongs to the thread that started it, only that thread's allocations are counted.
+ * The {@link #NONE} measurement ignores everything, it is what a disabled {@link PipelineMetrics} hands out.
+ */
+public class Measurement {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final long UNKNOWN = -1;
+
+    public static final Measurement NONE = new Measurement(null, null, null, null);
+
+    private final PipelineMetrics metrics;
+    private final String stage;
+    private final String file;
+    private final jdk.jfr.Event event;
+    private final long threadId;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+
+    private long wallNanos = UNKNOWN;
+    private long allocatedBytes = UNKNOWN;
+    private int files;
+    private long bytes;
+    private long tokens;
+    private int errors;
+
+    Measurement(PipelineMetrics metrics, String stage, String file, jdk.jfr.Event event) {
+        this.metrics = metrics;
+        this.stage = stage;
+        this.file = file;
+        this.event = event;
+        this.threadId = Thread.currentThread().getId();
+        this.startAllocatedBytes = isNull(stage) ? UNKNOWN : currentThreadAllocatedBytes();
+        this.startNanos = System.nanoTime();
+        if (event != null) {
+            event.begin();
+        }
+    }
+
+    /**
+     * Whether anything is recorded, callers can skip computing counters when not.
+     */
+    public boolean isActive() {
+        return this != NONE;
+    }
+
+    public Measurement addFiles(int files) {
+        if (isActive()) {
+            this.files += files;
+        }
+        return this;
+    }
+
+    public Measurement addBytes(long bytes) {
+        if (isActive()) {
+            this.bytes += bytes;
+        }
+        return this;
+    }
+
+    public Measurement addTokens(long tokens) {
+        if (isActive()) {
+            this.tokens += tokens;
+        }
+        return this;
+    }
+
+    public Measurement addErrors(int errors) {
+        if (isActive()) {
+            this.errors += errors;
+        }
+        return this;
+    }
+
+    public void stop() {
+        if (!isActive() || wallNanos != UNKNOWN) {
+            return;
+        }
+        wallNanos = System.nanoTime() - startNanos;
+        long endAllocatedBytes = currentThreadAllocatedBytes();
+        if (startAllocatedBytes != UNKNOWN && endAllocatedBytes != UNKNOWN) {
+            allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+        }
+        if (isNull(file) && metrics != null) {
+            addAllocatedBytes(metrics.allocatedByOtherThreads(stage, threadId));
+        }
+        commitEvent();
+        if (metrics != null) {
+            metrics.record(this);
+        }
+    }
+
+    private void addAllocatedBytes(long otherBytes) {
+        if (allocatedBytes != UNKNOWN && otherBytes > 0) {
+            allocatedBytes += otherBytes;
+        }
+    }
+
+    private void commitEvent() {
+        if (event instanceof StageEvent) {
+            StageEvent stageEvent = (StageEvent) event;
+            stageEvent.stage = stage;
+            stageEvent.files = files;
+            stageEvent.bytes = bytes;
+            stageEvent.tokens = tokens;
+            stageEvent.errors = errors;
+            stageEvent.allocatedBytes = allocatedBytes;
+            stageEvent.commit();
+        } else if (event instanceof FileEvent) {
+            FileEvent fileEvent = (FileEvent) event;
+            fileEvent.stage = stage;
+            fileEvent.file = file;
+            fileEvent.bytes = bytes;
+            fileEvent.tokens = tokens;
+            fileEvent.errors = errors;
+            fileEvent.allocatedBytes = allocatedBytes;
+            fileEvent.commit();
+        }
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the measured file, or {@code null} for the measurement of a whole stage
+     */
+    public String getFile() {
+        return file;
+    }
+
+    long getThreadId() {
+        return threadId;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return the bytes allocated while measuring, or -1 when the JVM does not count them per thread
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public double getTokensPerSecond() {
+        return perSecond(tokens);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        return wallNanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return UNKNOWN;
+    }
+}
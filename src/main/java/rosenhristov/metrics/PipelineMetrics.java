@@ -0,0 +1,181 @@
+package main.java.rosenhristov.metrics;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registry of the {@link Measurement}s of a pipeline run, per stage and per source file.
+ * Every measurement is also a JFR event ({@code rik.Stage}, {@code rik.File}) whenever a recording has the event enabled.
+ * A disabled registry records nothing and hands out {@link Measurement#NONE} unless JFR is recording,
+ * so instrumenting a stage costs a check and nothing else.
+ */
+public class PipelineMetrics {
+
+    public static final String DISCOVER = "discover";
+    public static final String LOAD = "load";
+    public static final String LEX = "lex";
+    public static final String PARSE = "parse";
+    public static final String COMPILE = "compile";
+    public static final String PRINT = "print";
+    public static final String TRANSPILE = "transpile";
+    public static final String INTERPRET = "interpret";
+
+    private static final PipelineMetrics DISABLED = new PipelineMetrics(false);
+
+    private final boolean isEnabled;
+    private final Queue<Measurement> stages = new ConcurrentLinkedQueue<>();
+    private final Queue<Measurement> files = new ConcurrentLinkedQueue<>();
+
+    private PipelineMetrics(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    public static PipelineMetrics create() {
+        return new PipelineMetrics(true);
+    }
+
+    public static PipelineMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public Measurement startStage(String stage) {
+        Event event = FlightRecorder.isInitialized() ? EventProbes.newStageEvent() : null;
+        if (!isEnabled && event == null) {
+            return Measurement.NONE;
+        }
+        return new Measurement(isEnabled ? this : null, stage, null, event);
+    }
+
+    /**
+     * Starts measuring a file in a stage. Must be stopped on the thread it was started on.
+     */
+    public Measurement startFile(String stage, String file) {
+        Event event = FlightRecorder.isInitialized() ? EventProbes.newFileEvent() : null;
+        if (!isEnabled && event == null) {
+            return Measurement.NONE;
+        }
+        return new Measurement(isEnabled ? this : null, stage, file, event);
+    }
+
+    public static String describe(File file) {
+        return file == null ? "" : file.getPath();
+    }
+
+    void record(Measurement measurement) {
+        (measurement.getFile() == null ? stages : files).add(measurement);
+    }
+
+    /**
+     * Bytes allocated by the files of a stage measured on other threads than the stage itself,
+     * e.g. the lexing threads.
+     */
+    long allocatedByOtherThreads(String stage, long stageThreadId) {
+        long allocatedBytes = 0;
+        for (Measurement file : files) {
+            if (file.getStage().equals(stage) && file.getThreadId() != stageThreadId && file.getAllocatedBytes() > 0) {
+                allocatedBytes += file.getAllocatedBytes();
+            }
+        }
+        return allocatedBytes;
+    }
+
+    public List<Measurement> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    public List<Measurement> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @return all stages and files as one JSON object, times in nanoseconds and amounts in bytes
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages\":[");
+        appendAll(json, stages);
+        json.append("],\"files\":[");
+        appendAll(json, files);
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Appends the stages as a JSON array, like the {@code stages} of {@link #toJson()}.
+     */
+    void appendStages(StringBuilder json) {
+        json.append('[');
+        appendAll(json, stages);
+        json.append(']');
+    }
+
+    private void appendAll(StringBuilder json, Queue<Measurement> measurements) {
+        boolean isFirst = true;
+        for (Measurement measurement : measurements) {
+            if (!isFirst) {
+                json.append(',');
+            }
+            isFirst = false;
+            json.append("{\"stage\":");
+            appendString(json, measurement.getStage());
+            if (measurement.getFile() != null) {
+                json.append(",\"file\":");
+                appendString(json, measurement.getFile());
+            } else {
+                json.append(",\"files\":").append(measurement.getFiles());
+            }
+            json.append(",\"wallNanos\":").append(measurement.getWallNanos())
+                    .append(",\"bytes\":").append(measurement.getBytes())
+                    .append(",\"tokens\":").append(measurement.getTokens())
+                    .append(",\"errors\":").append(measurement.getErrors())
+                    .append(",\"allocatedBytes\":").append(measurement.getAllocatedBytes())
+                    .append(",\"tokensPerSecond\":").append(String.format(Locale.ROOT, "%.1f", measurement.getTokensPerSecond()))
+                    .append(",\"bytesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", measurement.getBytesPerSecond()))
+                    .append('}');
+        }
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * The only place that names the event classes. Registering an event type starts up JFR, which takes longer than
+     * a short run of the whole pipeline, and verifying a method that passes an event on as a {@link Event} loads its
+     * class, so neither happens before JFR is running. The probes are never committed, only asked whether their type
+     * is enabled.
+     */
+    private static final class EventProbes {
+
+        private static final StageEvent STAGE = new StageEvent();
+        private static final FileEvent FILE = new FileEvent();
+
+        static Event newStageEvent() {
+            return STAGE.isEnabled() ? new StageEvent() : null;
+        }
+
+        static Event newFileEvent() {
+            return FILE.isEnabled() ? new FileEvent() : null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package main.java.rosenhristov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one pipeline stage, like discovering, loading or lexing the project sources.
+ */
+@Name("rik.Stage")
+@Label("Rik Pipeline Stage")
+@Category({"Rik", "Pipeline"})
+@Description("A stage of the Rik project pipeline")
+class StageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Files")
+    int files;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Errors")
+    int errors;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,94 @@
+package main.java.rosenhristov.transpiler;
+
+import main.java.rosenhristov.RikConfig;
+import main.java.rosenhristov.interpreter.Bimap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static main.java.rosenhristov.interpreter.CharClasses.isWordStart;
+
+/**
+ * The Java word of every Rik word and operator, read in reverse from the {@code java-to-rik} mapping of
+ * {@code rik-config.yml}. Each Java word and its first Rik alias form one entry of a {@link Bimap}; further aliases,
+ * like {@code no} for {@code false}, resolve to the first one. A Rik alias of several Java words, like {@code loop},
+ * stands for the first of them in the order of the configuration. The localized aliases of the {@code rik-keywords}
+ * mapping translate like the word they stand for, {@code да} like {@code true}.
+ */
+public final class JavaMapping {
+
+    /**
+     * The Java word of the Rik alias for the access Java has no keyword for.
+     */
+    static final String PACKAGE_PRIVATE = "package-private";
+
+    private final Bimap<String, String> javaToRik;
+    private final Map<String, String> aliases;
+    private final String[] symbols;
+
+    private JavaMapping(Bimap<String, String> javaToRik, Map<String, String> aliases, String[] symbols) {
+        this.javaToRik = javaToRik;
+        this.aliases = aliases;
+        this.symbols = symbols;
+    }
+
+    public static JavaMapping of(Map<String, List<String>> javaToRikAliases) {
+        return of(javaToRikAliases, Collections.emptyMap());
+    }
+
+    /**
+     * @param keywordAliases the localized aliases of the Rik keywords, see {@link RikConfig#getKeywordAliases()}
+     */
+    @SuppressWarnings("unchecked")
+    public static JavaMapping of(Map<String, List<String>> javaToRikAliases, Map<String, List<String>> keywordAliases) {
+        Bimap<String, String> javaToRik = Bimap.create();
+        Map<String, String> aliases = new HashMap<>();
+        List<String> symbols = new ArrayList<>();
+        javaToRikAliases.forEach((java, rikAliases) -> {
+            if (rikAliases.isEmpty() || !javaToRik.put(java, rikAliases.get(0))) {
+                return;
+            }
+            for (String alias : rikAliases) {
+                aliases.putIfAbsent(alias, rikAliases.get(0));
+                if (!isWordStart(alias.charAt(0))) {
+                    symbols.add(alias);
+                }
+            }
+        });
+        keywordAliases.forEach((keyword, localAliases) -> {
+            String alias = aliases.get(keyword);
+            if (alias != null) {
+                localAliases.stream()
+                        .filter(localAlias -> aliases.putIfAbsent(localAlias, alias) == null)
+                        .filter(localAlias -> !isWordStart(localAlias.charAt(0)))
+                        .forEach(symbols::add);
+            }
+        });
+        symbols.sort(Comparator.comparingInt(String::length).reversed());
+        return new JavaMapping(javaToRik, aliases, symbols.toArray(new String[0]));
+    }
+
+    /**
+     * @return the Java word of a Rik word or operator, empty for {@code package-private}, or {@code null} if unmapped
+     */
+    public String toJava(String rik) {
+        String alias = aliases.get(rik);
+        if (alias == null) {
+            return null;
+        }
+        String java = javaToRik.reverseGet(alias);
+        return PACKAGE_PRIVATE.equals(java) ? "" : java;
+    }
+
+    /**
+     * The mapped Rik aliases that are not words, like {@code <-}, longest first. The lexer does not know most of
+     * them as operators, so they are found in the text between the tokens.
+     */
+    String[] getSymbols() {
+        return symbols;
+    }
+}
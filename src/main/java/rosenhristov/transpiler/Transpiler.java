@@ -0,0 +1,885 @@
+package main.java.rosenhristov.transpiler;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.LexedSourceFile;
+import main.java.rosenhristov.interpreter.NumberType;
+import main.java.rosenhristov.interpreter.TokenColumns;
+import main.java.rosenhristov.interpreter.TokenType;
+import main.java.rosenhristov.metrics.Measurement;
+import main.java.rosenhristov.metrics.PipelineMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static main.java.rosenhristov.interpreter.CharClasses.isDigit;
+import static main.java.rosenhristov.interpreter.CharClasses.isWordPart;
+import static main.java.rosenhristov.interpreter.Constants.SOURCE_FILE_EXTENSION;
+import static main.java.rosenhristov.interpreter.TokenType.*;
+
+/**
+ * Translates lexed Rik files to Java source, one streaming pass over the tokens of a file straight into a
+ * {@link Writer}, so no output is held in memory but a small buffer. The translation works on tokens, there is no
+ * parser yet: keywords and the operators of the {@link JavaMapping} become their Java words, number literals lose
+ * the separators Java does not know, identifiers that are Java keywords get a trailing {@code _} and a {@code ;}
+ * ends every line whose last token can end a statement. Comments, literals and whitespace are copied as they are.
+ * <p>
+ * What Java needs spelled out, the pass infers from the tokens around: methods declared without a return type
+ * return {@code void}, members without an access modifier are {@code public} as in compiled Rik, the first
+ * assignment to a new local declares it with {@code var}, a {@code loop} on a condition is a {@code while}, and
+ * integers past the {@code int} range and floats assigned or returned as {@code f32} get their {@code L} or
+ * {@code f} suffix. A {@code match} becomes a {@code switch} of {@code case ... -> { }} rules, which do not fall
+ * through to the next case, as Rik cases do not.
+ */
+public class Transpiler {
+
+    public static final String JAVA_FILE_EXTENSION = ".java";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char STATEMENT_END = ';';
+    private static final char ESCAPE_SUFFIX = '_';
+    private static final char LONG_SUFFIX = 'L';
+    private static final char FLOAT_SUFFIX = 'f';
+    private static final String VOID = "void";
+    private static final String VAR = "var";
+    private static final String RETURN = "return";
+    private static final String PUBLIC = "public";
+    private static final String ENUM = "enum";
+    private static final String FOR = "for";
+    private static final String WHILE = "while";
+    private static final String SWITCH = "switch";
+    private static final String CASE = "case";
+    private static final String DEFAULT = "default";
+    private static final String CASE_BODY = " -> {";
+    private static final String CASE_END = "} ";
+
+    private static final Set<String> JAVA_KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
+            "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+            "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "void", "volatile", "while", "true", "false", "null");
+    private static final Set<String> STATEMENT_END_KEYWORDS = Set.of(
+            "return", "break", "continue", "this", "true", "false", "null");
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "trait", "enum");
+    private static final Set<String> TYPE_WORDS = Set.of("class", "interface", "enum");
+    private static final Set<String> MODIFIER_WORDS = Set.of(
+            "public", "protected", "private", "static", "final", "abstract", "native", "synchronized", "transient",
+            "volatile", "strictfp");
+    private static final Set<String> ACCESS_WORDS = Set.of("public", "protected", "private", "package-private");
+    private static final Set<String> PRIMITIVE_TYPES = Set.of(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "void", "var");
+    private static final Map<String, NumberType> NUMBER_TYPES = new HashMap<>();
+
+    static {
+        for (NumberType type : NumberType.values()) {
+            NUMBER_TYPES.put(type.getKeyword(), type);
+        }
+    }
+
+    private final JavaMapping mapping;
+    private final KeywordTable keywords;
+    private final PipelineMetrics metrics;
+
+    private Transpiler(JavaMapping mapping, KeywordTable keywords, PipelineMetrics metrics) {
+        this.mapping = mapping;
+        this.keywords = keywords;
+        this.metrics = metrics;
+    }
+
+    public static Transpiler of(JavaMapping mapping, KeywordTable keywords) {
+        return new Transpiler(mapping, keywords, PipelineMetrics.disabled());
+    }
+
+    /**
+     * A transpiler measuring every file it writes in the {@link PipelineMetrics#TRANSPILE} stage.
+     */
+    public static Transpiler of(JavaMapping mapping, KeywordTable keywords, PipelineMetrics metrics) {
+        return new Transpiler(mapping, keywords, metrics);
+    }
+
+    /**
+     * Writes the Java source of every lexed file to {@code outputDirectory}, at its path relative to {@code sourceRoot}.
+     */
+    public void transpileLexedMap(LexedMap lexedMap, File sourceRoot, File outputDirectory) {
+        for (LexedSourceFile lexedFile : filesOf(lexedMap)) {
+            transpileFile(lexedFile, targetOf(lexedFile.getFile(), sourceRoot, outputDirectory));
+        }
+    }
+
+    /**
+     * Like {@link #transpileLexedMap(LexedMap, File, File)}, one task per file on the given executor, largest files
+     * first. The executor is not shut down.
+     */
+    public void transpileLexedMap(LexedMap lexedMap, File sourceRoot, File outputDirectory, ExecutorService executor) {
+        List<LexedSourceFile> lexedFiles = filesOf(lexedMap);
+        lexedFiles.sort(Comparator.comparingInt(Transpiler::tokenCount).reversed());
+        List<Future<?>> futures = new ArrayList<>(lexedFiles.size());
+        for (LexedSourceFile lexedFile : lexedFiles) {
+            futures.add(executor.submit(
+                    () -> transpileFile(lexedFile, targetOf(lexedFile.getFile(), sourceRoot, outputDirectory))));
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * Writes the Java source of a lexed file to {@code target}, creating its directory. Files without tokens are skipped.
+     */
+    public void transpileFile(LexedSourceFile lexedFile, File target) {
+        TokenColumns tokens = lexedFile.getLineTokensMap().getColumns();
+        if (isNull(tokens)) {
+            return;
+        }
+        Measurement measurement = metrics.startFile(PipelineMetrics.TRANSPILE, PipelineMetrics.describe(target));
+        target.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(target.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            transpile(tokens, writer);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Problems writing transpiled file %s.", target.getPath()), e);
+        }
+        if (measurement.isActive()) {
+            measurement.addBytes(tokens.getSource().length()).addTokens(tokens.size()).stop();
+        }
+    }
+
+    /**
+     * Writes the Java source of the tokens to the writer and flushes it, without closing it.
+     */
+    public void transpile(TokenColumns tokens, Writer writer) throws IOException {
+        JavaOutput output = new JavaOutput(writer);
+        new Pass(tokens, output).run();
+        output.flush();
+    }
+
+    /**
+     * The Java file of a Rik source file: the same path relative to {@code sourceRoot}, under {@code outputDirectory}.
+     */
+    public static File targetOf(File sourceFile, File sourceRoot, File outputDirectory) {
+        Path relative = sourceRoot.toPath().toAbsolutePath().normalize()
+                .relativize(sourceFile.toPath().toAbsolutePath().normalize());
+        String name = relative.getFileName().toString();
+        if (name.endsWith(SOURCE_FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - SOURCE_FILE_EXTENSION.length());
+        }
+        return outputDirectory.toPath().resolve(relative).resolveSibling(name + JAVA_FILE_EXTENSION).toFile();
+    }
+
+    private static List<LexedSourceFile> filesOf(LexedMap lexedMap) {
+        return lexedMap.values().stream()
+                .flatMap(List::stream)
+                .filter(lexedFile -> !isNull(lexedFile.getFile()))
+                .collect(toList());
+    }
+
+    private static int tokenCount(LexedSourceFile lexedFile) {
+        return lexedFile.getLineTokensMap().getTokenCount();
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transpiling of the project was interrupted.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Problems transpiling project source files.", e.getCause());
+        }
+    }
+
+    /**
+     * The state of translating one file: how far the source is written and what the last tokens decide
+     * about the next ones. Declared names are kept by block, so the first assignment to a new name becomes a
+     * {@code var} declaration and the literals assigned or returned as {@code i64} or {@code f32} get their suffix.
+     */
+    private final class Pass {
+
+        private final TokenColumns tokens;
+        private final CharSequence source;
+        private final JavaOutput output;
+        private final Deque<Scope> scopes = new ArrayDeque<>();
+
+        private int written;
+        private boolean isStatementOpen;
+        private boolean isTypeHeader;
+        /** Between a {@code match} and the brace of its body. */
+        private boolean isMatchHeader;
+        /** Between a {@code case} or {@code default} of a match and the {@code :} ending its labels. */
+        private boolean isCaseLabel;
+        private String typeName;
+        private boolean isEnum;
+        private boolean isAccessMissing;
+        /** The untyped variable of a {@code loop (name : values)}, which gets a {@code var}. */
+        private int loopVariable = -1;
+        private int parenDepth;
+
+        /** The last word or separator written for a token, {@code ;} once a statement ended. */
+        private String lastWord;
+        private NumberType lastNumberType;
+        private boolean isValue;
+        private boolean isNegation;
+        /** The type the number literals of the statement are converted to, if it is a number type. */
+        private NumberType statementType;
+        /** Parameters and loop variables, declared in the block that follows them. */
+        private Scope declarations = new Scope(false, false, null, null);
+
+        private Pass(TokenColumns tokens, JavaOutput output) {
+            this.tokens = tokens;
+            this.source = tokens.getSource();
+            this.output = output;
+        }
+
+        private void run() throws IOException {
+            for (int token = 0; token < tokens.size(); token++) {
+                TokenType type = tokens.getType(token);
+                int start = tokens.getStart(token);
+                int end = tokens.getEnd(token);
+                if (isStatementOpen && (type == NEWLINE || type == COMMENT || type == EOF || isBlockEnd(type, start)
+                        || isCaseStart(token))) {
+                    output.write(STATEMENT_END);
+                    isStatementOpen = false;
+                    endStatement(String.valueOf(STATEMENT_END));
+                }
+                if (isMemberStart(type, start)) {
+                    // Rik members are public unless declared otherwise
+                    isAccessMissing = !hasAccess(token);
+                }
+                if (written < start) {
+                    writeGap(start);
+                }
+                if (written > start) {
+                    // the start of the token belongs to an operator of the gap, like the - of <-
+                    if (written < end) {
+                        output.write(source, written, end);
+                        written = end;
+                        isStatementOpen = false;
+                    }
+                    continue;
+                }
+                writeToken(token, type, start, end);
+                written = end;
+            }
+        }
+
+        private void writeToken(int token, TokenType type, int start, int end) throws IOException {
+            boolean wasValue = isValue;
+            NumberType numberType = null;
+            isValue = false;
+            writeMissingAccess(start);
+            switch (type) {
+                case KEYWORD:
+                    String keyword = keywords.getKeyword(tokens.getKeywordId(token));
+                    String java = mapping.toJava(keyword);
+                    if (FOR.equals(java)) {
+                        java = loopKind(token);
+                    }
+                    if (isCaseStart(token)) {
+                        closeCase();
+                        isCaseLabel = true;
+                    }
+                    isMatchHeader |= SWITCH.equals(java);
+                    writeWord(isNull(java) ? keyword : java, end);
+                    isStatementOpen = STATEMENT_END_KEYWORDS.contains(isNull(java) ? keyword : java);
+                    isTypeHeader |= TYPE_KEYWORDS.contains(keyword);
+                    numberType = NUMBER_TYPES.get(keyword);
+                    if (!isNull(numberType) && parenDepth == 0) {
+                        statementType = numberType;
+                    }
+                    wroteWord(isNull(java) ? keyword : java);
+                    break;
+                case IDENTIFIER:
+                    String identifier = tokens.getValue(token);
+                    String mapped = mapping.toJava(identifier);
+                    if (!isNull(mapped)) {
+                        writeWord(mapped, end);
+                        wroteWord(mapped);
+                    } else {
+                        writeName(token, identifier, start);
+                        output.write(identifier);
+                        if (JAVA_KEYWORDS.contains(identifier)) {
+                            output.write(ESCAPE_SUFFIX);
+                        }
+                        lastWord = identifier;
+                        isValue = true;
+                    }
+                    isStatementOpen = isNull(mapped) || STATEMENT_END_KEYWORDS.contains(mapped);
+                    break;
+                case NUMBER:
+                    writeNumber(start, end);
+                    writeNumberSuffix(token);
+                    isStatementOpen = true;
+                    lastWord = tokens.getText(token).toString();
+                    isValue = true;
+                    break;
+                case CHAR_LITERAL:
+                case STRING_LITERAL:
+                    output.write(source, start, end);
+                    isStatementOpen = true;
+                    lastWord = String.valueOf(source.charAt(start));
+                    isValue = true;
+                    break;
+                case SEPARATOR:
+                    char separator = source.charAt(start);
+                    if (separator == ':' && isCaseLabel && parenDepth == 0) {
+                        openCase();
+                        isStatementOpen = false;
+                        break;
+                    }
+                    if (separator == '}') {
+                        closeCase();
+                    }
+                    String header = isTypeHeader ? mapping.toJava(String.valueOf(separator)) : null;
+                    if (isNull(header)) {
+                        output.write(separator);
+                    } else {
+                        writeWord(header, end);
+                    }
+                    isStatementOpen = separator == ')' || separator == ']';
+                    isValue = isStatementOpen;
+                    writeSeparator(separator);
+                    break;
+                case OPERATOR:
+                    output.write(source, start, end);
+                    isStatementOpen = end - start == 2 && (isAt(start, "++") || isAt(start, "--"));
+                    isValue = isStatementOpen;
+                    isNegation = end - start == 1 && source.charAt(start) == '-' && !wasValue;
+                    lastWord = source.subSequence(start, end).toString();
+                    break;
+                case NEWLINE:
+                    output.write(source, start, end);
+                    isStatementOpen = false;
+                    isValue = wasValue;
+                    break;
+                case EOF:
+                    break;
+                default:
+                    // comments keep a statement open, the line goes on after a multiline one
+                    output.write(source, start, end);
+                    isValue = wasValue;
+            }
+            lastNumberType = numberType;
+            if (type != OPERATOR) {
+                isNegation &= type == NEWLINE;
+            }
+        }
+
+        /**
+         * Before an identifier: {@code void} for a method declared without a return type, {@code var} for the first
+         * assignment to a new local. Declared names are recorded, with their number type.
+         */
+        private void writeName(int token, String identifier, int start) throws IOException {
+            Scope scope = scopes.peek();
+            boolean isCall = isSeparator(token + 1, '(');
+            if (!isNull(lastWord) && TYPE_WORDS.contains(lastWord)) {
+                typeName = identifier;
+                isEnum = lastWord.equals(ENUM);
+            } else if (isCall && !isNull(scope) && scope.isType && parenDepth == 0
+                    && !identifier.equals(scope.typeName)) {
+                // a method header: its parameters and return type belong to its body
+                boolean isTyped = isTypeWord(lastWord);
+                if (!isTyped && (isStatementStart() || MODIFIER_WORDS.contains(lastWord))) {
+                    writeWord(VOID, start);
+                }
+                declarations = new Scope(false, false, null, isTyped ? lastNumberType : null);
+            } else if (token == loopVariable) {
+                writeWord(VAR, start);
+                declarations.names.put(identifier, null);
+            } else if (!isCall && isTypeWord(lastWord)) {
+                (parenDepth > 0 || isNull(scope) ? declarations : scope).names.put(identifier, lastNumberType);
+            } else if (isStatementStart() && !isNull(scope) && !scope.isType && parenDepth == 0) {
+                if (isDeclared(identifier)) {
+                    statementType = typeOf(identifier);
+                } else if (isOperator(token + 1, "=")) {
+                    writeWord(VAR, start);
+                    scope.names.put(identifier, null);
+                }
+            }
+        }
+
+        private void writeSeparator(char separator) {
+            switch (separator) {
+                case '(':
+                    parenDepth++;
+                    break;
+                case ')':
+                    parenDepth = Math.max(0, parenDepth - 1);
+                    break;
+                case '{':
+                    Scope parent = scopes.peek();
+                    NumberType returnType = isNull(declarations.returnType) && !isNull(parent)
+                            ? parent.returnType
+                            : declarations.returnType;
+                    Scope block = isTypeHeader
+                            ? new Scope(true, isEnum, typeName, null)
+                            : new Scope(false, false, null, returnType, isMatchHeader, false);
+                    block.names.putAll(declarations.names);
+                    if (isTypeHeader) {
+                        declareMembers(block);
+                    }
+                    scopes.push(block);
+                    declarations = new Scope(false, false, null, null);
+                    isTypeHeader = false;
+                    isMatchHeader = false;
+                    endStatement("{");
+                    return;
+                case '}':
+                    if (!scopes.isEmpty()) {
+                        scopes.pop();
+                    }
+                    endStatement("}");
+                    return;
+                case ';':
+                    endStatement(";");
+                    return;
+                case '.':
+                    // the ... of varargs is a type, like the ] of an array
+                    lastWord = lastWord != null && lastWord.startsWith(".") ? lastWord + separator : ".";
+                    return;
+                default:
+                    break;
+            }
+            lastWord = String.valueOf(separator);
+        }
+
+        /**
+         * Whether the token is a {@code case} or {@code default} label of the match whose body is the current block.
+         */
+        private boolean isCaseStart(int token) {
+            Scope scope = scopes.peek();
+            if (tokens.getType(token) != KEYWORD || isNull(scope) || !(scope.isMatch || scope.isCase)) {
+                return false;
+            }
+            String java = mapping.toJava(keywords.getKeyword(tokens.getKeywordId(token)));
+            return CASE.equals(java) || DEFAULT.equals(java);
+        }
+
+        /**
+         * Writes the {@code :} ending the labels of a case as the start of a rule body, which has a scope of its own.
+         */
+        private void openCase() throws IOException {
+            Scope match = scopes.peek();
+            output.write(CASE_BODY);
+            scopes.push(new Scope(false, false, null, isNull(match) ? null : match.returnType, false, true));
+            isCaseLabel = false;
+            endStatement("{");
+        }
+
+        /**
+         * Closes the rule body of the previous case, before the next label or the end of the match.
+         */
+        private void closeCase() throws IOException {
+            Scope scope = scopes.peek();
+            if (!isNull(scope) && scope.isCase) {
+                scopes.pop();
+                output.write(CASE_END);
+                endStatement("}");
+            }
+        }
+
+        /**
+         * {@code for} for a loop with {@code ;} or {@code :} in its header, {@code while} for a loop on a condition.
+         * The variable of a {@code for} over values is marked when it has no type.
+         */
+        private String loopKind(int loop) {
+            if (!isSeparator(loop + 1, '(')) {
+                return FOR;
+            }
+            int depth = 0;
+            for (int token = loop + 1; token < tokens.size(); token++) {
+                if (tokens.getType(token) != SEPARATOR) {
+                    continue;
+                }
+                char separator = source.charAt(tokens.getStart(token));
+                depth += separator == '(' ? 1 : separator == ')' ? -1 : 0;
+                if (depth == 0) {
+                    return WHILE;
+                }
+                if (depth == 1 && separator == ';') {
+                    return FOR;
+                }
+                if (depth == 1 && separator == ':') {
+                    loopVariable = token == loop + 3 && tokens.getType(loop + 2) == IDENTIFIER ? loop + 2 : -1;
+                    return FOR;
+                }
+            }
+            return FOR;
+        }
+
+        /**
+         * Declares the fields of a type body ahead of its methods, which may use them before they are declared.
+         */
+        private void declareMembers(Scope body) {
+            int depth = 0;
+            int parens = 0;
+            for (int token = tokenAt(written) + 1; token < tokens.size(); token++) {
+                TokenType type = tokens.getType(token);
+                if (type == SEPARATOR) {
+                    char separator = source.charAt(tokens.getStart(token));
+                    depth += separator == '{' ? 1 : separator == '}' ? -1 : 0;
+                    parens += separator == '(' ? 1 : separator == ')' ? -1 : 0;
+                    if (depth < 0) {
+                        return;
+                    }
+                } else if (type == IDENTIFIER && depth == 0 && parens == 0 && !isSeparator(token + 1, '(')
+                        && isTypeToken(token - 1)) {
+                    NumberType numberType = tokens.getType(token - 1) == KEYWORD
+                            ? NUMBER_TYPES.get(keywords.getKeyword(tokens.getKeywordId(token - 1)))
+                            : null;
+                    body.names.put(tokens.getValue(token), numberType);
+                }
+            }
+        }
+
+        /**
+         * Whether the token starts a member of a class or trait body.
+         */
+        private boolean isMemberStart(TokenType type, int start) {
+            Scope scope = scopes.peek();
+            return !isNull(scope) && scope.isType && !scope.isEnum && parenDepth == 0 && isStatementStart()
+                    && (type == KEYWORD || type == IDENTIFIER) && !isBlockEnd(type, start);
+        }
+
+        /**
+         * Whether the member header starting with the token, up to its parameters, value or body, has an access
+         * modifier, as a keyword or as a symbol in the text before the tokens.
+         */
+        private boolean hasAccess(int first) {
+            int token = first;
+            while (token < tokens.size() && !isHeaderEnd(token)) {
+                if (tokens.getType(token) == KEYWORD) {
+                    String keyword = keywords.getKeyword(tokens.getKeywordId(token));
+                    String java = mapping.toJava(keyword);
+                    if (ACCESS_WORDS.contains(isNull(java) ? keyword : java)) {
+                        return true;
+                    }
+                }
+                token++;
+            }
+            int end = token < tokens.size() ? tokens.getStart(token) : source.length();
+            for (int index = written; index < end; index++) {
+                String symbol = findSymbol(index);
+                if (!isNull(symbol) && ACCESS_WORDS.contains(mapping.toJava(symbol))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isHeaderEnd(int token) {
+            switch (tokens.getType(token)) {
+                case SEPARATOR:
+                    char separator = source.charAt(tokens.getStart(token));
+                    return separator == '(' || separator == '{' || separator == ';' || separator == '=';
+                case OPERATOR:
+                case NEWLINE:
+                case EOF:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void writeMissingAccess(int end) throws IOException {
+            if (isAccessMissing) {
+                isAccessMissing = false;
+                writeWord(PUBLIC, end);
+            }
+        }
+
+        private void endStatement(String word) {
+            lastWord = word;
+            statementType = null;
+            if (parenDepth == 0 && !word.equals("{")) {
+                declarations = new Scope(false, false, null, null);
+            }
+        }
+
+        private boolean isStatementStart() {
+            return isNull(lastWord) || lastWord.equals("{") || lastWord.equals("}") || lastWord.equals(";");
+        }
+
+        /**
+         * Whether a written word can be the type of the name after it.
+         */
+        private boolean isTypeWord(String word) {
+            if (isNull(word) || word.isEmpty()) {
+                return false;
+            }
+            if (PRIMITIVE_TYPES.contains(word) || word.equals("]") || word.equals("...")) {
+                return true;
+            }
+            return Character.isJavaIdentifierStart(word.charAt(0)) && !JAVA_KEYWORDS.contains(word);
+        }
+
+        private boolean isTypeToken(int token) {
+            if (token < 0) {
+                return false;
+            }
+            switch (tokens.getType(token)) {
+                case IDENTIFIER:
+                    return isNull(mapping.toJava(tokens.getValue(token)));
+                case KEYWORD:
+                    String keyword = keywords.getKeyword(tokens.getKeywordId(token));
+                    String java = mapping.toJava(keyword);
+                    return PRIMITIVE_TYPES.contains(isNull(java) ? keyword : java);
+                case SEPARATOR:
+                    return source.charAt(tokens.getStart(token)) == ']';
+                default:
+                    return false;
+            }
+        }
+
+        private boolean isDeclared(String name) {
+            for (Scope scope : scopes) {
+                if (scope.names.containsKey(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private NumberType typeOf(String name) {
+            for (Scope scope : scopes) {
+                if (scope.names.containsKey(name)) {
+                    return scope.names.get(name);
+                }
+            }
+            return null;
+        }
+
+        private boolean isSeparator(int token, char separator) {
+            return token < tokens.size() && tokens.getType(token) == SEPARATOR
+                    && source.charAt(tokens.getStart(token)) == separator;
+        }
+
+        private boolean isOperator(int token, String operator) {
+            return token < tokens.size() && tokens.getType(token) == OPERATOR
+                    && tokens.getEnd(token) - tokens.getStart(token) == operator.length()
+                    && isAt(tokens.getStart(token), operator);
+        }
+
+        /**
+         * The token starting at or after the offset.
+         */
+        private int tokenAt(int offset) {
+            int found = tokens.findTokenStartingAt(offset);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        /**
+         * Records a word written for a keyword or a mapped symbol; a {@code return} takes the return type of the
+         * method for its literals.
+         */
+        private void wroteWord(String word) {
+            lastWord = word;
+            if (word.equals(RETURN) && !scopes.isEmpty()) {
+                statementType = scopes.peek().returnType;
+            }
+        }
+
+        /**
+         * Copies the text between two tokens, translating the mapped operators in it. An operator may run on into
+         * the next tokens, which then are written only from where it ends.
+         */
+        private void writeGap(int to) throws IOException {
+            int index = written;
+            while (index < to) {
+                String symbol = findSymbol(index);
+                if (isNull(symbol)) {
+                    index++;
+                    continue;
+                }
+                output.write(source, written, index);
+                String java = mapping.toJava(symbol);
+                if (!ACCESS_WORDS.contains(java)) {
+                    writeMissingAccess(index);
+                }
+                index += symbol.length();
+                writeWord(java, index);
+                isStatementOpen = STATEMENT_END_KEYWORDS.contains(java);
+                wroteWord(java);
+                isValue = false;
+                written = index;
+            }
+            if (written < to) {
+                output.write(source, written, to);
+                written = to;
+            }
+        }
+
+        private boolean isBlockEnd(TokenType type, int start) {
+            return type == SEPARATOR && source.charAt(start) == '}';
+        }
+
+        private String findSymbol(int index) {
+            for (String symbol : mapping.getSymbols()) {
+                if (index + symbol.length() <= source.length() && isAt(index, symbol)) {
+                    return symbol;
+                }
+            }
+            return null;
+        }
+
+        private boolean isAt(int index, String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (source.charAt(index + i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Writes a translated word, keeping it apart from the words around it.
+         */
+        private void writeWord(String word, int end) throws IOException {
+            if (word.isEmpty()) {
+                return;
+            }
+            if (isWordPart(output.getLastChar())) {
+                output.write(' ');
+            }
+            output.write(word);
+            if (end < source.length() && isWordPart(source.charAt(end))) {
+                output.write(' ');
+            }
+        }
+
+        /**
+         * Writes a number with {@code _} for its space and comma separators and ASCII digits.
+         */
+        private void writeNumber(int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                char c = source.charAt(i);
+                if (c == ' ' || c == ',') {
+                    output.write('_');
+                } else if (c >= 128 && isDigit(c)) {
+                    output.write((char) ('0' + Character.digit(c, 10)));
+                } else {
+                    output.write(c);
+                }
+            }
+        }
+
+        /**
+         * {@code L} for an integer past the {@code int} range, {@code f} for a float assigned or returned as
+         * {@code f32}. Java has no literal for integers past the {@code long} range, they are written as they are.
+         */
+        private void writeNumberSuffix(int token) throws IOException {
+            switch (tokens.getNumberKind(token)) {
+                case INTEGER:
+                    if (!tokens.fitsIn(token, NumberType.I32, isNegation)
+                            && tokens.fitsIn(token, NumberType.I64, isNegation)) {
+                        output.write(LONG_SUFFIX);
+                    }
+                    break;
+                case FLOAT:
+                    if (statementType == NumberType.F32) {
+                        output.write(FLOAT_SUFFIX);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * The names declared in a block or type body, with their number type or {@code null} for other types.
+     */
+    private static final class Scope {
+
+        private final boolean isType;
+        private final boolean isEnum;
+        private final String typeName;
+        private final NumberType returnType;
+        /** The body of a match, which holds the cases. */
+        private final boolean isMatch;
+        /** The body of a case, a rule of the switch. */
+        private final boolean isCase;
+        private final Map<String, NumberType> names = new HashMap<>();
+
+        private Scope(boolean isType, boolean isEnum, String typeName, NumberType returnType) {
+            this(isType, isEnum, typeName, returnType, false, false);
+        }
+
+        private Scope(boolean isType, boolean isEnum, String typeName, NumberType returnType, boolean isMatch,
+                      boolean isCase) {
+            this.isType = isType;
+            this.isEnum = isEnum;
+            this.typeName = typeName;
+            this.returnType = returnType;
+            this.isMatch = isMatch;
+            this.isCase = isCase;
+        }
+    }
+
+    /**
+     * A char buffer in front of the writer, so a file costs a few large writes whatever the number of tokens.
+     */
+    private static final class JavaOutput {
+
+        private final Writer writer;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int size;
+        private char lastChar;
+
+        private JavaOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        private char getLastChar() {
+            return lastChar;
+        }
+
+        private void write(char c) throws IOException {
+            if (size == buffer.length) {
+                writer.write(buffer, 0, size);
+                size = 0;
+            }
+            buffer[size++] = c;
+            lastChar = c;
+        }
+
+        private void write(CharSequence text, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        private void write(String text) throws IOException {
+            write(text, 0, text.length());
+        }
+
+        private void flush() throws IOException {
+            writer.write(buffer, 0, size);
+            size = 0;
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.Batch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which project roots {@link Batch#readManifest(java.io.File)} reads from a manifest: one per line, trimmed,
+ * without blank and comment lines, whatever the line breaks.
+ */
+class BatchManifestTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOneRootPerLine() throws IOException {
+        assertEquals(List.of("projects/one", "/srv/two", "проекти/три"),
+                read("projects/one\n/srv/two\nпроекти/три\n"));
+    }
+
+    @Test
+    void skipsBlankAndCommentLines() throws IOException {
+        String manifest = "# the projects of the nightly run\n"
+                + "\n"
+                + "projects/one\n"
+                + "   \t\n"
+                + "  # an indented comment\n"
+                + "projects/two#3\n";
+        assertEquals(List.of("projects/one", "projects/two#3"), read(manifest),
+                "Only lines starting with # are comments");
+    }
+
+    @Test
+    void trimsTheRoots() throws IOException {
+        assertEquals(List.of("projects/one", "projects/two"), read("  projects/one  \r\n\tprojects/two\r\n"));
+    }
+
+    @Test
+    void readsTheLastLineWithoutALineBreak() throws IOException {
+        assertEquals(List.of("projects/one", "projects/two"), read("projects/one\nprojects/two"));
+    }
+
+    @Test
+    void readsAnEmptyManifest() throws IOException {
+        assertEquals(List.of(), read(""));
+        assertEquals(List.of(), read("# nothing to run\n\n"));
+    }
+
+    @Test
+    void failsOnAMissingManifest() {
+        Path missing = directory.resolve("missing.txt");
+        RuntimeException e = assertThrows(RuntimeException.class, () -> Batch.readManifest(missing.toFile()));
+        assertTrue(e.getMessage().contains(missing.toString()), e.getMessage());
+    }
+
+    private List<String> read(String manifest) throws IOException {
+        Path file = Files.writeString(directory.resolve("projects.txt"), manifest, StandardCharsets.UTF_8);
+        return Batch.readManifest(file.toFile());
+    }
+}
@@ -0,0 +1,112 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.compiler.BytecodeCompiler;
+import main.java.rosenhristov.compiler.CompiledProgram;
+import main.java.rosenhristov.interpreter.Diagnostic;
+import main.java.rosenhristov.interpreter.DiagnosticCode;
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.StoredTokens;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import main.java.rosenhristov.interpreter.TokenArena;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles Main.rik and the programs to JVM classes, which the JVM verifies when it loads them, and checks what they
+ * print, that Rik primitives are JVM primitives and that invalid code is reported instead of compiled.
+ */
+class BytecodeCompilerTest {
+
+    private final KeywordTable keywords = Samples.keywords();
+
+    static List<Path> sources() {
+        return Samples.sources();
+    }
+
+    @ParameterizedTest
+    @MethodSource("sources")
+    void compiledProgramPrintsTheExpectedOutput(Path source) {
+        CompiledProgram program = compile(Samples.read(source));
+        assertEquals(List.of(), errorsOf(program), () -> "Compiler errors in " + source);
+        String printed = Samples.printedBy(() -> program.run(new String[0]));
+        assertEquals(Samples.expectedOutput(source), printed, () -> "Output of " + source);
+    }
+
+    /**
+     * The tree of tokens stored off-heap reads them in place, numbers included.
+     */
+    @ParameterizedTest
+    @MethodSource("sources")
+    void programParsedFromStoredTokensPrintsTheExpectedOutput(Path source) {
+        try (TokenArena arena = TokenArena.direct()) {
+            StoredTokens tokens = arena.store(Lexer.create(keywords).lex(Samples.read(source)).getTokenBuffer());
+            CompiledProgram program = BytecodeCompiler.of(keywords).compile(List.of(Parser.create().parse(tokens)));
+            assertEquals(List.of(), errorsOf(program), () -> "Compiler errors in " + source);
+            String printed = Samples.printedBy(() -> program.run(new String[0]));
+            assertEquals(Samples.expectedOutput(source), printed, () -> "Output of " + source);
+        }
+    }
+
+    @Test
+    void primitivesAreNotBoxed() throws ReflectiveOperationException {
+        Class<?> numbers = compile(Samples.read(Samples.PROGRAMS.resolve("Numbers.rik"))).load()
+                .loadClass("Numbers");
+        Method average = numbers.getMethod("average", int.class, int.class);
+        assertEquals(double.class, average.getReturnType());
+        assertEquals(long.class, numbers.getField("BIG").getType());
+
+        Class<?> statics = compile(Samples.read(Samples.PROGRAMS.resolve("Statics.rik"))).load()
+                .loadClass("Statics");
+        assertEquals(boolean.class, statics.getMethod("isVowel", char.class).getReturnType());
+        assertEquals(long.class, statics.getMethod("fibonacci", int.class).getReturnType());
+        assertEquals((Object) 144L, statics.getMethod("fibonacci", int.class).invoke(null, 12));
+    }
+
+    static Stream<Arguments> invalidMethods() {
+        return Stream.of(
+                Arguments.of("static i32 f() {\n}", DiagnosticCode.MISSING_RETURN),
+                Arguments.of("static f() {\nreturn 1\n}", DiagnosticCode.INVALID_USE),
+                Arguments.of("static f() {\nskip\n}", DiagnosticCode.INVALID_USE),
+                Arguments.of("static f() {\nx = y\n}", DiagnosticCode.UNKNOWN_SYMBOL),
+                Arguments.of("static f() {\nif (1) {\n}\n}", DiagnosticCode.INCOMPATIBLE_TYPES),
+                Arguments.of("static f() {\nbool b = 1 + \"a\"\n}", DiagnosticCode.INCOMPATIBLE_TYPES),
+                Arguments.of("static const i32 C = 1\nstatic f() {\nC = 2\n}", DiagnosticCode.INVALID_USE),
+                Arguments.of("static f() {\nmatch (1) {\ncase 1:\ncase 1:\n}\n}", DiagnosticCode.INVALID_USE));
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidMethods")
+    void invalidCodeIsReported(String members, DiagnosticCode expected) {
+        CompiledProgram program = compile("class Invalid {\n" + members + "\n}\n");
+        List<Diagnostic> errors = errorsOf(program);
+        assertTrue(errors.stream().anyMatch(error -> error.getCode() == expected),
+                () -> "Expected " + expected + " but found " + errors);
+    }
+
+    private CompiledProgram compile(String source) {
+        SyntaxTree tree = Parser.create().parse(Lexer.create(keywords).lex(source));
+        return BytecodeCompiler.of(keywords).compile(List.of(tree));
+    }
+
+    private static List<Diagnostic> errorsOf(CompiledProgram program) {
+        List<Diagnostic> errors = new ArrayList<>();
+        for (Errors fileErrors : program.getErrors().values()) {
+            errors.addAll(fileErrors.getErrors());
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,157 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.ProjectDir;
+import main.java.rosenhristov.SourceCode;
+import main.java.rosenhristov.interpreter.Diagnostic;
+import main.java.rosenhristov.interpreter.DiagnosticCode;
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.LexedMap;
+import main.java.rosenhristov.interpreter.LexedSourceFile;
+import main.java.rosenhristov.interpreter.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Errors} keep the errors up to their cap and only count the rest, under a lower cap, a budget
+ * shared by several sources or merged, and that the lexer caps the errors of every file and of a whole project.
+ */
+class ErrorsTest {
+
+    private static final String SOURCE = "#".repeat(10);
+
+    @Test
+    void countsTheErrorsPastTheCap() {
+        Errors errors = new Errors(3);
+        for (int offset = 0; offset < 10; offset++) {
+            report(errors, offset);
+        }
+
+        assertEquals(3, errors.size());
+        assertEquals(7, errors.getSuppressedCount());
+        assertEquals(10, errors.getTotalCount());
+        assertTrue(errors.isFull());
+        assertEquals(List.of(0, 1, 2), offsets(errors), "The first errors are kept");
+        assertFalse(errors.addError(
+                Diagnostic.of(DiagnosticCode.UNKNOWN_CHARACTER, SOURCE, 3, 1, new Object[]{'#', 3})));
+        assertEquals(8, errors.getSuppressedCount());
+    }
+
+    @Test
+    void aZeroCapOnlyCounts() {
+        Errors errors = new Errors(0);
+        report(errors, 0);
+
+        assertEquals(List.of(), errors.getErrors());
+        assertEquals(1, errors.getSuppressedCount());
+        assertTrue(errors.exist());
+        assertThrows(IllegalArgumentException.class, () -> new Errors(-1));
+    }
+
+    @Test
+    void lowersTheCap() {
+        Errors errors = errors(5);
+        assertTrue(errors.limitTo(2));
+        assertEquals(List.of(0, 1), offsets(errors));
+        assertEquals(3, errors.getSuppressedCount());
+
+        Errors few = errors(2);
+        assertTrue(few.limitTo(5), "Errors under the lower cap are the same");
+        assertEquals(2, few.size());
+
+        Errors capped = new Errors(2);
+        for (int offset = 0; offset < 4; offset++) {
+            report(capped, offset);
+        }
+        assertTrue(capped.limitTo(2), "Errors capped at the same size are the same");
+        assertFalse(capped.limitTo(3), "Errors suppressed under a lower cap are not known");
+    }
+
+    @Test
+    void sharesABudget() {
+        AtomicInteger budget = new AtomicInteger(4);
+        Errors first = errors(3);
+        Errors second = errors(3);
+        Errors third = errors(3);
+        first.claim(budget);
+        second.claim(budget);
+        third.claim(budget);
+
+        assertEquals(3, first.size());
+        assertEquals(1, second.size());
+        assertEquals(2, second.getSuppressedCount());
+        assertEquals(0, third.size());
+        assertEquals(3, third.getSuppressedCount());
+        assertEquals(0, budget.get());
+    }
+
+    @Test
+    void mergesTheSuppressedCounts() {
+        Errors errors = new Errors(4);
+        Errors other = new Errors(3);
+        for (int offset = 0; offset < 5; offset++) {
+            report(other, offset);
+        }
+        errors.addAll(errors(2));
+        errors.addAll(other);
+
+        assertEquals(4, errors.size());
+        assertEquals(List.of(0, 1, 0, 1), offsets(errors));
+        assertEquals(2 + 1, errors.getSuppressedCount(), "Suppressed by the other errors, then by these");
+        assertEquals(7, errors.getTotalCount());
+    }
+
+    @Test
+    void capsTheErrorsOfAFile() {
+        Lexer lexer = Lexer.create(Samples.keywords()).limitErrors(3, Errors.UNLIMITED);
+        Errors errors = lexer.lexSourceFile(new SourceCode(SOURCE)).getLineTokensMap().getErrors();
+
+        assertEquals(List.of(0, 1, 2), offsets(errors));
+        assertEquals(7, errors.getSuppressedCount());
+    }
+
+    @Test
+    void capsTheErrorsOfAProject() {
+        Map<ProjectDir, List<SourceCode>> sources = new LinkedHashMap<>();
+        sources.put(new ProjectDir("one"), List.of(new SourceCode(SOURCE), new SourceCode(SOURCE)));
+        sources.put(new ProjectDir("two"), List.of(new SourceCode(SOURCE)));
+        LexedMap lexed = Lexer.of(sources, Samples.keywords()).limitErrors(4, 6).lexSourceCodeMap();
+
+        int kept = 0;
+        for (List<LexedSourceFile> files : lexed.values()) {
+            for (LexedSourceFile file : files) {
+                Errors errors = file.getLineTokensMap().getErrors();
+                assertTrue(errors.size() <= 4);
+                assertEquals(10, errors.getTotalCount());
+                kept += errors.size();
+            }
+        }
+        assertEquals(6, kept);
+        assertEquals(30, lexed.getErrorCount());
+    }
+
+    private static Errors errors(int count) {
+        Errors errors = new Errors();
+        for (int offset = 0; offset < count; offset++) {
+            report(errors, offset);
+        }
+        return errors;
+    }
+
+    private static void report(Errors errors, int offset) {
+        errors.report(DiagnosticCode.UNKNOWN_CHARACTER, SOURCE, offset, 1, new Object[]{'#', offset});
+    }
+
+    private static List<Integer> offsets(Errors errors) {
+        return errors.getErrors().stream().map(Diagnostic::getOffset).collect(toList());
+    }
+}
@@ -0,0 +1,126 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static main.java.rosenhristov.interpreter.KeywordTable.NOT_A_KEYWORD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks that the perfect hash of a {@link KeywordTable} finds every keyword and alias, and nothing else, however
+ * many words share a length, and which configured aliases it keeps.
+ */
+class KeywordTableTest {
+
+    private static final long SEED = 6L;
+
+    @Test
+    void findsEveryKeyword() {
+        KeywordTable keywords = KeywordTable.defaultTable();
+        List<String> canonical = keywords.getKeywords();
+        for (int id = 0; id < canonical.size(); id++) {
+            String keyword = canonical.get(id);
+            assertEquals(id, keywords.find(keyword), keyword);
+            assertEquals(keyword, keywords.getKeyword(id));
+            assertEquals(NOT_A_KEYWORD, keywords.find(keyword + "_"), keyword + "_");
+            assertEquals(NOT_A_KEYWORD, keywords.find(keyword.substring(1)), keyword.substring(1));
+        }
+    }
+
+    @Test
+    void findsWordsInsideTheSource() {
+        KeywordTable keywords = KeywordTable.defaultTable();
+        String source = "while(classy) class";
+        assertEquals(keywords.find("while"), keywords.find(source, 0, 5));
+        assertEquals(NOT_A_KEYWORD, keywords.find(source, 6, 12));
+        assertEquals(keywords.find("class"), keywords.find(source, 6, 11));
+        assertEquals(keywords.find("class"), keywords.find(source, 14, 19));
+    }
+
+    @Test
+    void findsTheLocalizedAliases() {
+        KeywordTable keywords = Samples.keywords();
+        assertEquals(keywords.find("class"), keywords.find("клас"));
+        assertEquals(keywords.find("i32"), keywords.find("брой32"));
+        assertEquals(keywords.find("else"), keywords.find("иначе"));
+        assertEquals(keywords.find("else"), keywords.find("или"));
+        assertEquals(NOT_A_KEYWORD, keywords.find("класове"));
+        assertEquals(NOT_A_KEYWORD, keywords.find("<-"), "Aliases that are not words are left to the lexer");
+    }
+
+    @Test
+    void keepsTheFirstKeywordOfAWord() {
+        Map<String, List<String>> aliases = new LinkedHashMap<>();
+        aliases.put("while", List.of("if", "докато"));
+        aliases.put("loop", List.of("докато", "за"));
+        aliases.put("unknown", List.of("непознат"));
+        KeywordTable keywords = KeywordTable.of(aliases);
+
+        assertEquals(KeywordTable.defaultTable().find("if"), keywords.find("if"), "A keyword is not an alias");
+        assertEquals(keywords.find("while"), keywords.find("докато"), "The first alias of a word is kept");
+        assertEquals(keywords.find("loop"), keywords.find("за"));
+        assertEquals(NOT_A_KEYWORD, keywords.find("непознат"), "Aliases of unknown keywords are ignored");
+    }
+
+    @Test
+    void findsWordsOfOneLengthWithoutCollisions() {
+        Random random = new Random(SEED);
+        Set<String> words = new HashSet<>(KeywordTable.defaultTable().getKeywords());
+        Map<String, List<String>> aliases = new LinkedHashMap<>();
+        for (String keyword : KeywordTable.defaultTable().getKeywords()) {
+            List<String> keywordAliases = List.of(randomWord(random, words), randomWord(random, words),
+                    randomWord(random, words));
+            aliases.put(keyword, keywordAliases);
+        }
+        KeywordTable keywords = KeywordTable.of(aliases);
+
+        aliases.forEach((keyword, keywordAliases) -> {
+            for (String alias : keywordAliases) {
+                assertEquals(keywords.find(keyword), keywords.find(alias), alias);
+            }
+        });
+        assertEquals(words.size(), keywords.getWords().size());
+        for (int i = 0; i < 100_000; i++) {
+            String word = randomWord(random, new HashSet<>(words));
+            assertEquals(NOT_A_KEYWORD, keywords.find(word), word);
+        }
+    }
+
+    @Test
+    void reusesTheSlotsAndSeedOfAnEqualTable() {
+        Map<String, List<String>> aliases = Map.of("class", List.of("клас"), "if", List.of("ако"));
+        KeywordTable keywords = KeywordTable.of(aliases);
+        KeywordTable rebuilt = KeywordTable.of(aliases, keywords.getSlotCount(), keywords.getSeed());
+        KeywordTable withoutHint = KeywordTable.of(aliases, 3, 17);
+
+        assertEquals(keywords.getSeed(), rebuilt.getSeed());
+        assertEquals(keywords.getSlotCount(), rebuilt.getSlotCount());
+        assertEquals(keywords.fingerprint(), rebuilt.fingerprint());
+        assertEquals(keywords.find("ако"), withoutHint.find("ако"), "A slot count that is no power of two is ignored");
+        assertNotEquals(keywords.fingerprint(), KeywordTable.of(Map.of("class", List.of("клас"))).fingerprint(),
+                "The fingerprint changes with the aliases");
+    }
+
+    /**
+     * A new four letter word, so all of them share a length and only the hash tells them apart.
+     */
+    private static String randomWord(Random random, Set<String> taken) {
+        String word;
+        do {
+            char[] letters = new char[4];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = (char) ('a' + random.nextInt(26));
+            }
+            word = new String(letters);
+        } while (!taken.add(word));
+        return word;
+    }
+}
@@ -0,0 +1,110 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LineIndex;
+import main.java.rosenhristov.interpreter.SourceEdit;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the lines and columns a {@link LineIndex} gives at the edges of a source: the first and last offsets, line
+ * breaks, empty sources and sources ending in a line break, and that edits there index like the edited source.
+ */
+class LineIndexTest {
+
+    @Test
+    void indexesAnEmptySource() {
+        LineIndex lines = LineIndex.of("");
+
+        assertEquals(1, lines.getLineCount());
+        assertEquals(0, lines.getLineStart(1));
+        assertEquals(1, lines.getLine(0));
+        assertEquals(1, lines.getColumn(0));
+    }
+
+    @Test
+    void givesLineBreaksToTheLinesTheyEnd() {
+        LineIndex lines = LineIndex.of("ab\ncd\r\n\nef");
+
+        assertEquals(4, lines.getLineCount());
+        assertEquals(1, lines.getLine(0));
+        assertEquals(1, lines.getLine(2));
+        assertEquals(3, lines.getColumn(2));
+        assertEquals(2, lines.getLine(3));
+        assertEquals(1, lines.getColumn(3));
+        assertEquals(2, lines.getLine(5), "A carriage return is part of the line");
+        assertEquals(2, lines.getLine(6));
+        assertEquals(3, lines.getLine(7));
+        assertEquals(1, lines.getColumn(7));
+        assertEquals(4, lines.getLine(8));
+        assertEquals(4, lines.getLine(9));
+        assertEquals(2, lines.getColumn(9));
+    }
+
+    @Test
+    void givesTheEndOfTheSourceToTheLastLine() {
+        String source = "ab\ncd\n";
+        LineIndex lines = LineIndex.of(source);
+
+        assertEquals(3, lines.getLineCount());
+        assertEquals(source.length(), lines.getLineStart(3), "A source ending in a line break ends in an empty line");
+        assertEquals(3, lines.getLine(source.length()));
+        assertEquals(1, lines.getColumn(source.length()));
+        assertEquals(2, lines.getLine(source.length() - 1));
+        assertEquals(3, lines.getColumn(source.length() - 1));
+    }
+
+    @Test
+    void rejectsOffsetsAndLinesOutside() {
+        LineIndex lines = LineIndex.of("ab\ncd");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getLine(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getLineStart(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getLineStart(3));
+    }
+
+    @Test
+    void editsAtTheEdgesIndexLikeTheEditedSource() {
+        String source = "ab\ncd\n";
+        SourceEdit[] edits = {
+                SourceEdit.of(0, 0, "\n"),
+                SourceEdit.of(0, 3, ""),
+                SourceEdit.of(0, source.length(), ""),
+                SourceEdit.of(0, source.length(), "x\ny"),
+                SourceEdit.of(source.length(), 0, "\n\n"),
+                SourceEdit.of(source.length() - 1, 1, ""),
+                SourceEdit.of(2, 1, ""),
+                SourceEdit.of(2, 0, "\n")
+        };
+        for (SourceEdit edit : edits) {
+            String edited = edit.applyTo(source);
+            assertSameLines(LineIndex.of(edited), LineIndex.of(source).apply(edit), edited);
+        }
+    }
+
+    @Test
+    void givesTokensTheirLines() {
+        Lexer lexer = Lexer.create(Samples.keywords());
+        for (Path file : Samples.sources()) {
+            String source = Samples.read(file);
+            TokenBuffer tokens = lexer.lex(source).getTokenBuffer();
+            LineIndex lines = tokens.getLineIndex();
+            assertSameLines(LineIndex.of(source), lines, file.toString());
+            for (int token = 0; token < tokens.size(); token++) {
+                assertEquals(tokens.getLine(token), lines.getLine(tokens.getStart(token)), file + ", token " + token);
+            }
+        }
+    }
+
+    private static void assertSameLines(LineIndex expected, LineIndex actual, String source) {
+        assertEquals(expected.getLineCount(), actual.getLineCount(), () -> "Line count of " + source);
+        for (int line = 1; line <= expected.getLineCount(); line++) {
+            assertEquals(expected.getLineStart(line), actual.getLineStart(line), "Start of line " + line);
+        }
+    }
+}
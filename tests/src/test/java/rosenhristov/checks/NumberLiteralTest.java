@@ -0,0 +1,141 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.NumberLiteral;
+import main.java.rosenhristov.interpreter.NumberType;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import main.java.rosenhristov.interpreter.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the values the lexer parses number literals to, at the limits of 64 and 128 bits and past them, and which
+ * of the {@link NumberType}s a value fits in, negated or not, including the literals of declarations out of range.
+ */
+class NumberLiteralTest {
+
+    private static final BigInteger TWO_TO_THE_127 = BigInteger.ONE.shiftLeft(127);
+
+    private final Lexer lexer = Lexer.create(Samples.keywords());
+
+    @Test
+    void parsesIntegersUpTo128Bits() {
+        assertInteger("0", BigInteger.ZERO);
+        assertInteger("10 000 000", BigInteger.valueOf(10_000_000));
+        assertInteger("1_000", BigInteger.valueOf(1_000));
+        assertInteger("10,000", BigInteger.valueOf(10_000));
+        assertInteger("0xAEF", BigInteger.valueOf(0xAEF));
+        assertInteger("9223372036854775807", BigInteger.valueOf(Long.MAX_VALUE));
+        assertInteger("9223372036854775808", BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        assertInteger("18446744073709551616", BigInteger.ONE.shiftLeft(64));
+        assertInteger("0xFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE));
+        assertInteger(TWO_TO_THE_127.toString(), TWO_TO_THE_127);
+    }
+
+    @Test
+    void keepsLongValuesTo63Bits() {
+        TokenBuffer tokens = lex("9223372036854775807\n9223372036854775808");
+        assertEquals(Long.MAX_VALUE, tokens.getLongValue(0));
+        assertThrows(ArithmeticException.class, () -> tokens.getLongValue(2));
+    }
+
+    @Test
+    void rejectsIntegersPast128Bits() {
+        TokenBuffer tokens = lex(BigInteger.ONE.shiftLeft(128) + "\n0x100000000000000000000000000000000");
+        assertEquals(NumberLiteral.Kind.OUT_OF_RANGE, tokens.getNumberKind(0));
+        assertEquals(NumberLiteral.Kind.OUT_OF_RANGE, tokens.getNumberKind(2));
+    }
+
+    @Test
+    void parsesFloats() {
+        assertFloat("25e-4", 25e-4);
+        assertFloat("0.5", 0.5);
+        assertFloat("10 000.25", 10_000.25);
+        assertFloat("1.7976931348623157e308", Double.MAX_VALUE);
+        assertFloat("4.9e-324", Double.MIN_VALUE);
+        assertFloat("0.1", 0.1);
+        assertFloat("123456789012345678901234567890.5", 123456789012345678901234567890.5);
+        assertEquals(NumberLiteral.Kind.MALFORMED, lex("1e").getNumberKind(0));
+        assertEquals(NumberLiteral.Kind.MALFORMED, lex("12abc").getNumberKind(0));
+    }
+
+    @Test
+    void fitsIntegersByTheRangeOfTheType() {
+        assertFits(NumberType.I8, "127", true, true);
+        assertFits(NumberType.I8, "128", false, true);
+        assertFits(NumberType.I8, "129", false, false);
+        assertFits(NumberType.I16, "32767", true, true);
+        assertFits(NumberType.I16, "32768", false, true);
+        assertFits(NumberType.I32, "2147483647", true, true);
+        assertFits(NumberType.I32, "2147483648", false, true);
+        assertFits(NumberType.I32, "0xFFFFFFFF", false, false);
+        assertFits(NumberType.I64, "9223372036854775807", true, true);
+        assertFits(NumberType.I64, "9223372036854775808", false, true);
+        assertFits(NumberType.I64, "18446744073709551615", false, false);
+        assertFits(NumberType.I128, TWO_TO_THE_127.subtract(BigInteger.ONE).toString(), true, true);
+        assertFits(NumberType.I128, TWO_TO_THE_127.toString(), false, true);
+        assertFits(NumberType.I128, TWO_TO_THE_127.add(BigInteger.ONE).toString(), false, false);
+    }
+
+    @Test
+    void fitsNumbersInFloatsWhileTheyAreFinite() {
+        assertFits(NumberType.F32, "0xFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", false, false);
+        assertFits(NumberType.F64, "0xFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", true, true);
+        assertFits(NumberType.F32, "3.4e38", true, true);
+        assertFits(NumberType.F32, "3.5e38", false, false);
+        assertFits(NumberType.F64, "3.5e38", true, true);
+        assertFits(NumberType.F64, "1e309", false, false);
+        assertFits(NumberType.I64, "1.0", false, false);
+        assertFalse(NumberType.F64.fits(NumberLiteral.Kind.MALFORMED, 0, 0, false));
+        assertFalse(NumberType.F64.fits(NumberLiteral.Kind.OUT_OF_RANGE, 0, 0, false));
+    }
+
+    @Test
+    void reportsDeclaredNumbersOutOfRange() {
+        assertEquals(List.of(), errors("i8 x = 127\ni8 y = -128\ni64 z = -9223372036854775808\n").getMessages());
+        assertEquals(List.of("Number 128 at index 7 does not fit in i8"), errors("i8 x = 128\n").getMessages());
+        assertEquals(List.of("Number 2147483648 at index 8 does not fit in i32"),
+                errors("i32 x = 2147483648\n").getMessages());
+        assertEquals(1, errors("f32 x = 1e39\n").size());
+        assertEquals(1, errors("i32 x = 1.5\n").size());
+    }
+
+    private TokenBuffer lex(String source) {
+        return lexer.lex(source).getTokenBuffer();
+    }
+
+    private Errors errors(String source) {
+        return lexer.lex(source).getErrors();
+    }
+
+    private void assertInteger(String literal, BigInteger value) {
+        TokenBuffer tokens = lex(literal);
+        assertEquals(TokenType.NUMBER, tokens.getType(0), literal);
+        assertEquals(literal.length(), tokens.getEnd(0), literal);
+        assertEquals(NumberLiteral.Kind.INTEGER, tokens.getNumberKind(0), literal);
+        assertEquals(value, tokens.getIntegerValue(0), literal);
+        assertEquals(value.doubleValue(), tokens.getDoubleValue(0), literal);
+    }
+
+    private void assertFloat(String literal, double value) {
+        TokenBuffer tokens = lex(literal);
+        assertEquals(TokenType.NUMBER, tokens.getType(0), literal);
+        assertEquals(literal.length(), tokens.getEnd(0), literal);
+        assertEquals(NumberLiteral.Kind.FLOAT, tokens.getNumberKind(0), literal);
+        assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(tokens.getDoubleValue(0)), literal);
+    }
+
+    private void assertFits(NumberType type, String literal, boolean fits, boolean fitsNegated) {
+        TokenBuffer tokens = lex(literal);
+        assertEquals(fits, tokens.fitsIn(0, type, false), () -> literal + " in " + type);
+        assertEquals(fitsNegated, tokens.fitsIn(0, type, true), () -> "-" + literal + " in " + type);
+        assertEquals(literal.length(), tokens.getEnd(0), literal);
+    }
+}
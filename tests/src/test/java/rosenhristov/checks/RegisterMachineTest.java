@@ -0,0 +1,140 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.compiler.BytecodeCompiler;
+import main.java.rosenhristov.compiler.CompiledProgram;
+import main.java.rosenhristov.interpreter.Diagnostic;
+import main.java.rosenhristov.interpreter.DiagnosticCode;
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.RegisterCompiler;
+import main.java.rosenhristov.interpreter.RegisterProgram;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs Main.rik and the programs on the register machine and checks that they print the expected output, what
+ * the same programs compiled to JVM bytecode print, and that calls of their methods return what the compiled
+ * methods return.
+ */
+class RegisterMachineTest {
+
+    private final KeywordTable keywords = Samples.keywords();
+
+    static List<Path> sources() {
+        return Samples.sources();
+    }
+
+    @ParameterizedTest
+    @MethodSource("sources")
+    void machinePrintsLikeTheCompiledProgram(Path source) {
+        SyntaxTree tree = parse(Samples.read(source));
+        RegisterProgram program = RegisterCompiler.of(keywords).compile(List.of(tree));
+        assertEquals(List.of(), errorsOf(program.getErrors().values()), () -> "Register compiler errors in " + source);
+        CompiledProgram compiled = BytecodeCompiler.of(keywords).compile(List.of(tree));
+        assertEquals(List.of(), errorsOf(compiled.getErrors().values()), () -> "Compiler errors in " + source);
+
+        String interpreted = Samples.printedBy(() -> program.run(new String[0]));
+        assertEquals(Samples.expectedOutput(source), interpreted, () -> "Output of " + source);
+        assertEquals(Samples.printedBy(() -> compiled.run(new String[0])), interpreted,
+                () -> "Output of " + source + " compiled to bytecode");
+        // the static fields are initialized anew for every run
+        assertEquals(interpreted, Samples.printedBy(() -> program.run(new String[0])),
+                () -> "Output of " + source + " run again");
+    }
+
+    static Stream<Arguments> calls() {
+        return Stream.of(
+                Arguments.of("Statics.rik", "Statics", "fibonacci", new Class<?>[] {int.class}, 0, 20),
+                Arguments.of("Statics.rik", "Statics", "vowels", new Class<?>[] {String.class}, -4, 4),
+                Arguments.of("Matches.rik", "Matches", "weight", new Class<?>[] {int.class}, -7, 7),
+                Arguments.of("Matches.rik", "Matches", "name", new Class<?>[] {int.class}, -2, 6),
+                Arguments.of("Loops.rik", "Loops", "sumTo", new Class<?>[] {int.class}, -3, 40),
+                Arguments.of("Loops.rik", "Loops", "countDown", new Class<?>[] {int.class}, 0, 9),
+                Arguments.of("Exceptions.rik", "Exceptions", "parse", new Class<?>[] {String.class}, -3, 3),
+                Arguments.of("Numbers.rik", "Numbers", "average", new Class<?>[] {int.class, int.class}, -9, 9));
+    }
+
+    @ParameterizedTest
+    @MethodSource("calls")
+    void callsReturnWhatTheCompiledMethodsReturn(String file, String className, String name, Class<?>[] parameters,
+                                                 int from, int to) throws ReflectiveOperationException {
+        SyntaxTree tree = parse(Samples.read(Samples.PROGRAMS.resolve(file)));
+        RegisterProgram program = RegisterCompiler.of(keywords).compile(List.of(tree));
+        Method method = BytecodeCompiler.of(keywords).compile(List.of(tree)).load().loadClass(className)
+                .getMethod(name, parameters);
+        for (int value = from; value <= to; value++) {
+            Object[] arguments = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                arguments[i] = parameters[i] == String.class ? "a" + value + "e".repeat(Math.abs(value)) : value - i;
+            }
+            Object[] expected = new Object[1];
+            Object[] actual = new Object[1];
+            String expectedOutput = Samples.printedBy(() -> expected[0] = invoke(method, arguments));
+            String output = Samples.printedBy(() -> actual[0] = program.call(className + "." + name, arguments));
+            String call = className + "." + name + " of " + List.of(arguments);
+            assertEquals(expected[0], actual[0], call);
+            assertEquals(expectedOutput, output, () -> "Output of " + call);
+        }
+    }
+
+    static Stream<Arguments> unsupportedCode() {
+        return Stream.of(
+                Arguments.of("class Point {\ni32 x\ni32 getX() {\nreturn x\n}\n"
+                        + "static i32 of(Point point) {\nreturn point.getX()\n}\n}"),
+                Arguments.of("class Point {\ni32 x\nstatic i32 of(Point point) {\nreturn point.x\n}\n}"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("unsupportedCode")
+    void rikObjectsAreReportedAsUnsupported(String source) {
+        RegisterProgram program = RegisterCompiler.of(keywords).compile(List.of(parse(source)));
+        List<Diagnostic> errors = errorsOf(program.getErrors().values());
+        assertTrue(errors.stream().anyMatch(error -> error.getCode() == DiagnosticCode.UNSUPPORTED),
+                () -> "Expected " + DiagnosticCode.UNSUPPORTED + " but found " + errors);
+    }
+
+    @Test
+    void invalidCodeIsReported() {
+        RegisterProgram program = RegisterCompiler.of(keywords).compile(List.of(parse(
+                "class Invalid {\nstatic i32 f() {\nif (1) {\n}\nreturn g()\n}\n}")));
+        List<Diagnostic> errors = errorsOf(program.getErrors().values());
+        assertTrue(errors.stream().anyMatch(error -> error.getCode() == DiagnosticCode.INCOMPATIBLE_TYPES),
+                () -> "Expected " + DiagnosticCode.INCOMPATIBLE_TYPES + " but found " + errors);
+        assertTrue(errors.stream().anyMatch(error -> error.getCode() == DiagnosticCode.UNKNOWN_SYMBOL),
+                () -> "Expected " + DiagnosticCode.UNKNOWN_SYMBOL + " but found " + errors);
+    }
+
+    private SyntaxTree parse(String source) {
+        return Parser.create().parse(Lexer.create(keywords).lex(source));
+    }
+
+    private static Object invoke(Method method, Object[] arguments) {
+        try {
+            return method.invoke(null, arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Diagnostic> errorsOf(Iterable<Errors> fileErrors) {
+        List<Diagnostic> errors = new ArrayList<>();
+        for (Errors errorsOfFile : fileErrors) {
+            errors.addAll(errorsOfFile.getErrors());
+        }
+        return errors;
+    }
+}
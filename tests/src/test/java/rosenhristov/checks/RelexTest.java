@@ -0,0 +1,126 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LexingResult;
+import main.java.rosenhristov.interpreter.LineIndex;
+import main.java.rosenhristov.interpreter.NumberLiteral;
+import main.java.rosenhristov.interpreter.SourceEdit;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import main.java.rosenhristov.interpreter.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Applies random edits to the sample sources and checks that {@link Lexer#relex(LexingResult, SourceEdit)} gives
+ * every token column, the line index and the errors, suppressed ones included, of lexing the edited source in full.
+ * Each relexed result is the previous one of the next edit, so tokens copied by one relex are reused by the following
+ * ones.
+ */
+class RelexTest {
+
+    private static final int EDITS = 20_000;
+    /** Edits in a row on one source before it is reset, so it does not drift too far from Rik. */
+    private static final int EDITS_PER_SOURCE = 50;
+    private static final long SEED = 20_000L;
+
+    /** Text the lexer treats specially: literals, comments, separators of numbers, keywords and line breaks. */
+    private static final String[] FRAGMENTS = {
+            "", " ", "\t", "\n", "\r\n", "\"", "'", "\\", "/*", "*/", "//", "/", "*", "0x", "0xAEF", "1", "25",
+            "25e-4", "1e", ".5", "10 000", "10,000", "1_000", ",", "_", "-", "+", "=", "==", "<-", "{", "}", "(",
+            ")", "[", "]", ":", ";", "x", "int", "i32 ", "class", "клас", "брой32 ", "ако", "#", "$", "@",
+            "'\\u0563'", "'c'", "\"Hello\"", "١٢"
+    };
+
+    private final Lexer lexer = Lexer.create(Samples.keywords());
+    private final Random random = new Random(SEED);
+
+    @Test
+    void relexesLikeFullLexing() {
+        List<Path> sources = Samples.sources();
+        int editsPerFile = EDITS / sources.size() + 1;
+        for (Path file : sources) {
+            String original = Samples.read(file);
+            String source = original;
+            LexingResult result = lexer.lex(source);
+            for (int edit = 0; edit < editsPerFile; edit++) {
+                if (edit % EDITS_PER_SOURCE == 0) {
+                    source = original;
+                    result = lexer.lex(source);
+                }
+                SourceEdit sourceEdit = randomEdit(source);
+                String edited = sourceEdit.applyTo(source);
+                LexingResult relexed = lexer.relex(result, sourceEdit);
+                assertSame(lexer.lex(edited), relexed,
+                        String.format("%s, edit %d at %d removing %d inserting \"%s\"", file, edit,
+                                sourceEdit.getOffset(), sourceEdit.getRemovedLength(), sourceEdit.getInsertedText()));
+                source = edited;
+                result = relexed;
+            }
+        }
+    }
+
+    private SourceEdit randomEdit(String source) {
+        int offset = random.nextInt(source.length() + 1);
+        int removed = random.nextInt(4) == 0 ? 0 : random.nextInt(Math.min(12, source.length() - offset) + 1);
+        StringBuilder inserted = new StringBuilder();
+        int fragments = random.nextInt(4);
+        for (int i = 0; i < fragments; i++) {
+            inserted.append(random.nextInt(5) == 0 && !source.isEmpty()
+                    ? source.charAt(random.nextInt(source.length()))
+                    : FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return SourceEdit.of(offset, removed, inserted.toString());
+    }
+
+    private static void assertSame(LexingResult expected, LexingResult actual, String edit) {
+        TokenBuffer expectedTokens = expected.getTokenBuffer();
+        TokenBuffer actualTokens = actual.getTokenBuffer();
+        assertEquals(expectedTokens.getSource().toString(), actualTokens.getSource().toString(), edit);
+        assertEquals(expectedTokens.size(), actualTokens.size(), () -> "Token count after " + edit);
+        for (int token = 0; token < expectedTokens.size(); token++) {
+            String where = String.format("Token %d after %s", token, edit);
+            TokenType type = expectedTokens.getType(token);
+            assertEquals(type, actualTokens.getType(token), where);
+            assertEquals(expectedTokens.getStart(token), actualTokens.getStart(token), where);
+            assertEquals(expectedTokens.getEnd(token), actualTokens.getEnd(token), where);
+            assertEquals(expectedTokens.getLine(token), actualTokens.getLine(token), where);
+            assertEquals(expectedTokens.getSymbol(token), actualTokens.getSymbol(token), where);
+            assertEquals(expectedTokens.getKeywordId(token), actualTokens.getKeywordId(token), where);
+            assertEquals(expectedTokens.getValue(token), actualTokens.getValue(token), where);
+            if (type == TokenType.NUMBER) {
+                assertSameNumber(expectedTokens, actualTokens, token, where);
+            }
+        }
+        LineIndex expectedLines = expectedTokens.getLineIndex();
+        LineIndex actualLines = actualTokens.getLineIndex();
+        assertEquals(expectedLines.getLineCount(), actualLines.getLineCount(), () -> "Line count after " + edit);
+        for (int line = 1; line <= expectedLines.getLineCount(); line++) {
+            assertEquals(expectedLines.getLineStart(line), actualLines.getLineStart(line),
+                    "Start of line " + line + " after " + edit);
+        }
+        Errors expectedErrors = expected.getErrors();
+        Errors actualErrors = actual.getErrors();
+        assertEquals(expectedErrors.getErrors(), actualErrors.getErrors(), () -> "Errors after " + edit);
+        assertEquals(expectedErrors.getMessages(), actualErrors.getMessages(), () -> "Error messages after " + edit);
+        assertEquals(expectedErrors.getSuppressedCount(), actualErrors.getSuppressedCount(),
+                () -> "Suppressed errors after " + edit);
+    }
+
+    private static void assertSameNumber(TokenBuffer expected, TokenBuffer actual, int token, String where) {
+        NumberLiteral.Kind kind = expected.getNumberKind(token);
+        assertEquals(kind, actual.getNumberKind(token), where);
+        if (kind == NumberLiteral.Kind.INTEGER) {
+            assertEquals(expected.getIntegerValue(token), actual.getIntegerValue(token), where);
+        }
+        if (kind == NumberLiteral.Kind.INTEGER || kind == NumberLiteral.Kind.FLOAT) {
+            assertEquals(Double.doubleToRawLongBits(expected.getDoubleValue(token)),
+                    Double.doubleToRawLongBits(actual.getDoubleValue(token)), where);
+        }
+    }
+}
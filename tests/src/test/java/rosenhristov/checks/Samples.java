@@ -0,0 +1,108 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.RikConfig;
+import main.java.rosenhristov.interpreter.KeywordTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static main.java.rosenhristov.interpreter.Constants.SOURCE_FILE_EXTENSION;
+
+/**
+ * The Rik sources the checks run on: the sample project of the interpreter and the programs of this module, each
+ * with the output it prints next to it. Paths are relative to the module directory, where Maven runs the tests.
+ */
+final class Samples {
+
+    static final Path PROJECT = Path.of("..", "src", "main", "resources", "proj", "src");
+    static final Path CONFIGURATION = PROJECT.resolve("rik-config.yml");
+    static final Path MAIN = PROJECT.resolve(Path.of("main", "rik", "Main.rik"));
+    static final Path PROGRAMS = Path.of("programs");
+    static final String OUTPUT_EXTENSION = ".out";
+
+    private static RikConfig config;
+
+    private Samples() {
+    }
+
+    /**
+     * The configuration of the sample project, with the localized keywords.
+     */
+    static synchronized RikConfig config() {
+        if (config == null) {
+            config = RikConfig.of(CONFIGURATION.toString());
+            config.configure();
+        }
+        return config;
+    }
+
+    static KeywordTable keywords() {
+        return config().getKeywordTable();
+    }
+
+    /**
+     * Main.rik of the sample project, then the programs in name order.
+     */
+    static List<Path> sources() {
+        List<Path> sources = new ArrayList<>();
+        sources.add(MAIN);
+        sources.addAll(programs());
+        return sources;
+    }
+
+    static List<Path> programs() {
+        if (!Files.isDirectory(PROGRAMS)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(PROGRAMS)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SOURCE_FILE_EXTENSION))
+                    .sorted()
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String read(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * What the program of a source prints, from the file with its name and {@link #OUTPUT_EXTENSION}; nothing for
+     * sources without one.
+     */
+    static String expectedOutput(Path source) {
+        String name = source.getFileName().toString();
+        Path output = source.resolveSibling(
+                name.substring(0, name.length() - SOURCE_FILE_EXTENSION.length()) + OUTPUT_EXTENSION);
+        return Files.exists(output) ? read(output) : "";
+    }
+
+    /**
+     * What the program prints to {@link System#out} while it runs, with {@code \n} line breaks.
+     */
+    static synchronized String printedBy(Runnable program) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            program.run();
+        } finally {
+            System.setOut(out);
+        }
+        return printed.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+    }
+}
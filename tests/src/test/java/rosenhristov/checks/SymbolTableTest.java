@@ -0,0 +1,124 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.SymbolTable;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import main.java.rosenhristov.interpreter.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static main.java.rosenhristov.interpreter.SymbolTable.NO_SYMBOL;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link SymbolTable} gives one dense id per distinct text, wherever the text comes from and however
+ * far the table grows, that keywords keep their keyword ids, and that the lexer interns equal identifiers to one id.
+ */
+class SymbolTableTest {
+
+    private static final int SYMBOLS = 100_000;
+
+    private final KeywordTable keywords = Samples.keywords();
+
+    @Test
+    void givesEqualTextsOneId() {
+        SymbolTable symbols = SymbolTable.of(keywords);
+        int id = symbols.intern("counter");
+
+        assertEquals(id, symbols.intern("counter"));
+        assertEquals(id, symbols.intern(new StringBuilder("counter")));
+        assertEquals(id, symbols.intern("i = counter + 1", 4, 11));
+        assertEquals(id, symbols.find("a counter", 2, 9));
+        assertNotEquals(id, symbols.intern("counte"));
+        assertNotEquals(id, symbols.intern("Counter"));
+        assertSame(symbols.getSymbol(id), symbols.getSymbol(symbols.intern("counter")));
+        assertEquals("counter", symbols.getSymbol(id));
+    }
+
+    @Test
+    void givesDenseIdsAfterTheKeywords() {
+        SymbolTable symbols = SymbolTable.of(keywords);
+        int keywordCount = keywords.getKeywords().size();
+        assertEquals(keywordCount, symbols.getKeywordCount());
+        assertEquals(keywordCount, symbols.size());
+
+        for (int i = 0; i < SYMBOLS; i++) {
+            assertEquals(keywordCount + i, symbols.intern("name" + i));
+        }
+        for (int i = 0; i < SYMBOLS; i++) {
+            assertEquals(keywordCount + i, symbols.find("name" + i), "Ids are kept when the table grows");
+            assertEquals("name" + i, symbols.getSymbol(keywordCount + i));
+        }
+        assertEquals(keywordCount + SYMBOLS, symbols.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> symbols.getSymbol(symbols.size()));
+    }
+
+    @Test
+    void keywordsKeepTheirIds() {
+        SymbolTable symbols = SymbolTable.of(keywords);
+        List<String> canonical = keywords.getKeywords();
+        for (int id = 0; id < canonical.size(); id++) {
+            assertEquals(canonical.indexOf(canonical.get(id)), symbols.find(canonical.get(id)));
+            assertTrue(symbols.isKeyword(id));
+        }
+        assertFalse(symbols.isKeyword(symbols.intern("counter")));
+        assertFalse(symbols.isKeyword(NO_SYMBOL));
+    }
+
+    @Test
+    void findsWithoutInterning() {
+        SymbolTable symbols = SymbolTable.of(keywords);
+        int size = symbols.size();
+
+        assertEquals(NO_SYMBOL, symbols.find("counter"));
+        assertEquals(size, symbols.size());
+    }
+
+    @Test
+    void mergesTablesOfTheSameKeywords() {
+        SymbolTable symbols = SymbolTable.of(keywords);
+        int shared = symbols.intern("shared");
+        SymbolTable other = symbols.newTable();
+        assertEquals(NO_SYMBOL, other.find("shared"), "A new table has the keywords only");
+        int otherOwn = other.intern("own");
+        int otherShared = other.intern("shared");
+
+        int[] ids = symbols.internAll(other);
+        assertEquals(other.size(), ids.length);
+        assertEquals(shared, ids[otherShared]);
+        assertEquals(symbols.find("own"), ids[otherOwn]);
+        assertEquals(keywords.find("class"), ids[keywords.find("class")]);
+        int size = symbols.size();
+        assertArrayEquals(ids, symbols.internAll(other));
+        assertEquals(size, symbols.size(), "Merging again interns nothing new");
+    }
+
+    @Test
+    void lexesEqualIdentifiersToOneSymbol() {
+        Lexer lexer = Lexer.create(keywords);
+        for (Path file : Samples.sources()) {
+            TokenBuffer tokens = lexer.lex(Samples.read(file)).getTokenBuffer();
+            Map<String, Integer> ids = new HashMap<>();
+            for (int token = 0; token < tokens.size(); token++) {
+                if (tokens.getType(token) == TokenType.IDENTIFIER) {
+                    String text = tokens.getText(token).toString();
+                    Integer id = ids.putIfAbsent(text, tokens.getSymbol(token));
+                    assertEquals(id == null ? tokens.getSymbol(token) : id, tokens.getSymbol(token),
+                            () -> text + " in " + file);
+                    assertEquals(text, lexer.getSymbols().getSymbol(tokens.getSymbol(token)));
+                }
+            }
+        }
+    }
+}
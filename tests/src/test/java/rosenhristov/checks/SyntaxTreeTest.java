@@ -0,0 +1,138 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.NodeKind;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.SyntaxTree;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the shape of the flat {@link SyntaxTree}s the {@link Parser} builds: the nodes of a small source, that
+ * every node is numbered after its children and the nodes of a subtree are numbered in one run, and that an outline
+ * parse with its bodies parsed later gives the tree of a full parse.
+ */
+class SyntaxTreeTest {
+
+    private static final String SOURCE = "class A {\n"
+            + "    static i32 count = 2\n"
+            + "    static main(String... args) {\n"
+            + "        if (count == 2) {\n"
+            + "            count += 1\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    private final Lexer lexer = Lexer.create(Samples.keywords());
+
+    @Test
+    void buildsTheNodesOfTheSource() {
+        SyntaxTree tree = parse(SOURCE, false);
+
+        assertEquals("file\n"
+                + "  class A\n"
+                + "    body {\n"
+                + "      field count\n"
+                + "        modifier static\n"
+                + "        type i32\n"
+                + "        literal 2\n"
+                + "      method main\n"
+                + "        modifier static\n"
+                + "        parameters (\n"
+                + "          parameter args\n"
+                + "            array_type .\n"
+                + "              type String\n"
+                + "        block {\n"
+                + "          if if\n"
+                + "            binary ==\n"
+                + "              name count\n"
+                + "              literal 2\n"
+                + "            block {\n"
+                + "              assign +=\n"
+                + "                name count\n"
+                + "                literal 1\n", tree.toString());
+        assertEquals(22, tree.size());
+        assertEquals(List.of(), tree.getErrors().getMessages());
+    }
+
+    @Test
+    void numbersChildrenBeforeTheirParents() {
+        for (Path file : Samples.sources()) {
+            SyntaxTree tree = parse(Samples.read(file), false);
+            assertEquals(List.of(), tree.getErrors().getMessages(), file.toString());
+            assertEquals(tree.size() - 1, tree.getRoot(), file.toString());
+            assertEquals(NodeKind.FILE, tree.getKind(tree.getRoot()));
+
+            int[] parents = new int[tree.size()];
+            Arrays.fill(parents, -1);
+            int[] firstNodes = new int[tree.size()];
+            for (int node = 0; node < tree.size(); node++) {
+                firstNodes[node] = node;
+                int next = -1;
+                for (int index = 0; index < tree.getChildCount(node); index++) {
+                    int child = tree.getChild(node, index);
+                    String where = String.format("Child %d of node %d in %s", index, node, file);
+                    assertTrue(child < node, where);
+                    assertEquals(-1, parents[child], where + " has one parent");
+                    parents[child] = node;
+                    if (index == 0) {
+                        firstNodes[node] = firstNodes[child];
+                    } else {
+                        assertEquals(next, firstNodes[child], where + " starts right after its sibling");
+                    }
+                    next = child + 1;
+                }
+                if (next >= 0) {
+                    assertEquals(node, next, String.format("Node %d in %s follows its last child", node, file));
+                }
+            }
+            assertEquals(0, firstNodes[tree.getRoot()], file + " has one tree of all nodes");
+        }
+    }
+
+    @Test
+    void parsesTheBodiesOfAnOutlineLikeAFullParse() {
+        for (Path file : Samples.sources()) {
+            String source = Samples.read(file);
+            SyntaxTree outline = parse(source, true);
+            assertTrue(outline.hasUnparsedBlocks(), file.toString());
+            boolean isUnparsed = false;
+            for (int node = 0; node < outline.size(); node++) {
+                if (outline.getKind(node) == NodeKind.UNPARSED_BLOCK) {
+                    assertEquals(0, outline.getChildCount(node));
+                    isUnparsed = true;
+                }
+                assertNotEquals(NodeKind.BLOCK, outline.getKind(node), "An outline has no blocks");
+            }
+            assertTrue(isUnparsed);
+
+            Parser.create().parseBodies(outline);
+            assertFalse(outline.hasUnparsedBlocks(), file.toString());
+            assertEquals(parse(source, false).toString(), outline.toString(), file.toString());
+        }
+    }
+
+    @Test
+    void rejectsChildrenOutside() {
+        SyntaxTree tree = parse(SOURCE, false);
+        int root = tree.getRoot();
+
+        assertEquals(-1, tree.findChild(root, NodeKind.BLOCK));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.getChild(root, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.getChild(root, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.getKind(tree.size()));
+    }
+
+    private SyntaxTree parse(String source, boolean isOutline) {
+        return Parser.create().outline(isOutline).parse(lexer.lex(source));
+    }
+}
@@ -0,0 +1,125 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LexingResult;
+import main.java.rosenhristov.interpreter.NumberLiteral;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import main.java.rosenhristov.interpreter.TokenCache;
+import main.java.rosenhristov.interpreter.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Stores lexing results in a {@link TokenCache} and checks that loading them gives back every token column, the
+ * number values parsed again from the source, and the errors, and that damaged entries are misses.
+ */
+class TokenCacheTest {
+
+    /** Errors past the cap of one file, an empty source and numbers of every kind and width. */
+    private static final List<String> EDGE_SOURCES = List.of(
+            "",
+            "i64 big = 9223372036854775807\ni32 hex = 0xAEF\nf64 small = 25e-4\nf32 spaced = 10 000.5\n",
+            "\"never closed\n'x\n'ab'\n" + "#".repeat(200),
+            "клас Пример {\n    брой32 стойност = ١٢\n}\n");
+
+    @TempDir
+    Path directory;
+
+    private final Lexer lexer = Lexer.create(Samples.keywords());
+
+    @Test
+    void loadsWhatWasStored() {
+        TokenCache cache = TokenCache.of(directory.toFile(), Samples.keywords());
+        for (String source : sources()) {
+            LexingResult lexed = lexer.lex(source);
+            cache.store(source, lexed);
+            LexingResult loaded = cache.load(source);
+            assertNotNull(loaded, () -> "No entry for " + abbreviate(source));
+            assertSame(lexed, loaded, abbreviate(source));
+        }
+    }
+
+    @Test
+    void damagedEntriesAreMisses() throws IOException {
+        TokenCache cache = TokenCache.of(directory.toFile(), Samples.keywords());
+        String source = Samples.read(Samples.MAIN);
+        cache.store(source, lexer.lex(source));
+        Path entry = entries().get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(entry, bytes);
+
+        assertNull(cache.load(source));
+        assertEquals(List.of(), entries(), "The damaged entry is deleted");
+    }
+
+    @Test
+    void sourcesOfOtherContentAreMisses() {
+        TokenCache cache = TokenCache.of(directory.toFile(), Samples.keywords());
+        String source = Samples.read(Samples.MAIN);
+        cache.store(source, lexer.lex(source));
+
+        assertNull(cache.load(source.replace('{', '(')));
+    }
+
+    private static List<String> sources() {
+        List<String> sources = Samples.sources().stream().map(Samples::read).collect(toList());
+        sources.addAll(EDGE_SOURCES);
+        return sources;
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(toList());
+        }
+    }
+
+    private static String abbreviate(String source) {
+        return source.length() > 40 ? source.substring(0, 40) + "..." : source;
+    }
+
+    private static void assertSame(LexingResult expected, LexingResult actual, String source) {
+        TokenBuffer expectedTokens = expected.getTokenBuffer();
+        TokenBuffer actualTokens = actual.getTokenBuffer();
+        assertEquals(expectedTokens.size(), actualTokens.size(), () -> "Token count of " + source);
+        for (int token = 0; token < expectedTokens.size(); token++) {
+            String where = String.format("Token %d of %s", token, source);
+            TokenType type = expectedTokens.getType(token);
+            assertEquals(type, actualTokens.getType(token), where);
+            assertEquals(expectedTokens.getStart(token), actualTokens.getStart(token), where);
+            assertEquals(expectedTokens.getEnd(token), actualTokens.getEnd(token), where);
+            assertEquals(expectedTokens.getLine(token), actualTokens.getLine(token), where);
+            assertEquals(expectedTokens.getSymbol(token), actualTokens.getSymbol(token), where);
+            assertEquals(expectedTokens.getKeywordId(token), actualTokens.getKeywordId(token), where);
+            assertEquals(expectedTokens.getValue(token), actualTokens.getValue(token), where);
+            if (type == TokenType.NUMBER) {
+                NumberLiteral.Kind kind = expectedTokens.getNumberKind(token);
+                assertEquals(kind, actualTokens.getNumberKind(token), where);
+                if (kind == NumberLiteral.Kind.INTEGER) {
+                    assertEquals(expectedTokens.getIntegerValue(token), actualTokens.getIntegerValue(token), where);
+                }
+                if (kind == NumberLiteral.Kind.FLOAT) {
+                    assertEquals(Double.doubleToRawLongBits(expectedTokens.getDoubleValue(token)),
+                            Double.doubleToRawLongBits(actualTokens.getDoubleValue(token)), where);
+                }
+            }
+        }
+        Errors expectedErrors = expected.getErrors();
+        Errors actualErrors = actual.getErrors();
+        assertEquals(expectedErrors.getErrors(), actualErrors.getErrors(), () -> "Errors of " + source);
+        assertEquals(expectedErrors.getSuppressedCount(), actualErrors.getSuppressedCount(),
+                () -> "Suppressed errors of " + source);
+    }
+}
@@ -0,0 +1,99 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.Errors;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.Token;
+import main.java.rosenhristov.interpreter.TokenBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Lexer#tokens(CharSequence)} streams the tokens of lexing the source in full, in order, lexing
+ * them only as they are consumed, and that its spliterator reports an unknown size and splits off ordered prefixes.
+ */
+class TokenStreamTest {
+
+    private final Lexer lexer = Lexer.create(Samples.keywords());
+
+    @Test
+    void streamsTheLexedTokens() {
+        for (Path file : Samples.sources()) {
+            String source = Samples.read(file);
+            assertSameTokens(lexed(source), lexer.tokens(source).collect(toList()), file.toString());
+        }
+    }
+
+    @Test
+    void parallelStreamsKeepTheOrder() {
+        String source = Samples.read(Samples.MAIN).repeat(50);
+        assertSameTokens(lexed(source), lexer.tokens(source).parallel().collect(toList()), "Main.rik x 50");
+    }
+
+    @Test
+    void sizeIsUnknown() {
+        Spliterator<Token> spliterator = lexer.tokens(Samples.read(Samples.MAIN)).spliterator();
+
+        assertEquals(Long.MAX_VALUE, spliterator.estimateSize());
+        assertEquals(-1, spliterator.getExactSizeIfKnown());
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.IMMUTABLE));
+    }
+
+    @Test
+    void splitsOffThePrefix() {
+        String source = Samples.read(Samples.MAIN).repeat(50);
+        Spliterator<Token> suffix = lexer.tokens(source).spliterator();
+        Spliterator<Token> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(prefix.getExactSizeIfKnown(), prefix.estimateSize(), "A split off prefix knows its size");
+
+        List<Token> tokens = new ArrayList<>();
+        prefix.forEachRemaining(tokens::add);
+        suffix.forEachRemaining(tokens::add);
+        assertSameTokens(lexed(source), tokens, "Main.rik x 50");
+    }
+
+    @Test
+    void lexesOnlyWhatIsConsumed() {
+        String source = "class A {\n" + "x = #\n".repeat(10);
+        Errors errors = new Errors();
+        List<Token> first = lexer.tokens(source, errors).limit(3).collect(toList());
+
+        assertEquals(3, first.size());
+        assertEquals(List.of(), errors.getErrors());
+        try (Stream<Token> tokens = lexer.tokens(source, errors)) {
+            assertEquals(lexed(source).size(), tokens.count());
+        }
+        assertEquals(10, errors.size());
+    }
+
+    private List<Token> lexed(String source) {
+        TokenBuffer tokens = lexer.lex(source).getTokenBuffer();
+        return tokens.asList(0, tokens.size());
+    }
+
+    private static void assertSameTokens(List<Token> expected, List<Token> actual, String source) {
+        assertEquals(expected.size(), actual.size(), () -> "Token count of " + source);
+        for (int i = 0; i < expected.size(); i++) {
+            String where = String.format("Token %d of %s", i, source);
+            assertEquals(expected.get(i).getType(), actual.get(i).getType(), where);
+            assertEquals(expected.get(i).getToken(), actual.get(i).getToken(), where);
+            assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex(), where);
+            assertEquals(expected.get(i).getLine(), actual.get(i).getLine(), where);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package test.java.rosenhristov.checks;
+
+import main.java.rosenhristov.interpreter.KeywordTable;
+import main.java.rosenhristov.interpreter.Lexer;
+import main.java.rosenhristov.interpreter.LexingResult;
+import main.java.rosenhristov.interpreter.Parser;
+import main.java.rosenhristov.interpreter.RegisterCompiler;
+import main.java.rosenhristov.interpreter.RegisterProgram;
+import main.java.rosenhristov.transpiler.JavaMapping;
+import main.java.rosenhristov.transpiler.Transpiler;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Transpiles Main.rik and the programs to Java, compiles the Java with the system compiler and runs it, and checks
+ * that it prints what the same source prints on the register machine and what the program is expected to print.
+ */
+class TranspilerTest {
+
+    private final KeywordTable keywords = Samples.keywords();
+
+    static List<Path> sources() {
+        return Samples.sources();
+    }
+
+    @ParameterizedTest
+    @MethodSource("sources")
+    void transpiledJavaPrintsLikeTheRegisterMachine(Path source) throws IOException {
+        LexingResult lexingResult = Lexer.create(keywords).lex(Samples.read(source));
+        assertFalse(lexingResult.hasErrors(), () -> "Lexing errors in " + source);
+
+        JavaMapping mapping = JavaMapping.of(Samples.config().getJavaToRikAliases(),
+                Samples.config().getKeywordAliases());
+        StringWriter java = new StringWriter();
+        Transpiler.of(mapping, keywords).transpile(lexingResult.getTokenBuffer(), java);
+        Method main = compileMain(source, java.toString());
+        String transpiled = Samples.printedBy(() -> invoke(main));
+
+        RegisterProgram program = RegisterCompiler.of(keywords).compile(List.of(Parser.create().parse(lexingResult)));
+        assertEquals(0, program.getErrorCount(), () -> "Register compiler errors in " + source);
+        String interpreted = Samples.printedBy(() -> program.run(new String[0]));
+
+        assertEquals(Samples.expectedOutput(source), interpreted, () -> "Output of " + source + " on the machine");
+        assertEquals(interpreted, transpiled, () -> "Output of " + source + " transpiled to\n" + java);
+    }
+
+    /**
+     * Compiles the Java source in memory and finds the {@code main} method among its classes.
+     */
+    private static Method compileMain(Path source, String java) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        ClassFiles classFiles = new ClassFiles(compiler.getStandardFileManager(diagnostics, null, null));
+        String name = source.getFileName().toString().replace(".rik", ".java");
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return java;
+            }
+        };
+        boolean isCompiled = compiler.getTask(null, classFiles, diagnostics, List.of("-nowarn"), null, List.of(file))
+                .call();
+        assertTrue(isCompiled, () -> String.format("Transpiled %s does not compile: %s\n%s", source,
+                describe(diagnostics.getDiagnostics()), java));
+
+        ClassLoader loader = new ClassLoader(TranspilerTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String className) throws ClassNotFoundException {
+                byte[] bytes = classFiles.classes.get(className);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(className);
+                }
+                return defineClass(className, bytes, 0, bytes.length);
+            }
+        };
+        for (String className : classFiles.classes.keySet()) {
+            try {
+                Method main = loader.loadClass(className).getDeclaredMethod("main", String[].class);
+                if (Modifier.isStatic(main.getModifiers())) {
+                    // the transpiled classes are package-private, as the Rik classes are declared
+                    main.setAccessible(true);
+                    return main;
+                }
+            } catch (NoSuchMethodException e) {
+                // not the main class
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return fail("No main method in transpiled " + source);
+    }
+
+    private static void invoke(Method main) {
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String describe(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        StringBuilder description = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            description.append('\n').append(diagnostic.getLineNumber()).append(": ")
+                    .append(diagnostic.getMessage(null));
+        }
+        return description.toString();
+    }
+
+    /**
+     * Keeps the class files the compiler writes in memory, by class name.
+     */
+    private static final class ClassFiles extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        private ClassFiles(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            if (location != StandardLocation.CLASS_OUTPUT) {
+                throw new IllegalArgumentException("Unexpected output location " + location);
+            }
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/')), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}